@@ -22,6 +22,9 @@ import java.beans.FeatureDescriptor;
 import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.security.AccessController;
@@ -30,7 +33,6 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class BeanELResolver extends ELResolver {
@@ -92,7 +94,18 @@ public class BeanELResolver extends ELResolver {
         }
 
         context.setPropertyResolved(base, property);
-        Method m = this.property(context, base, property).read(context);
+        BeanProperty beanProperty = this.property(context, base, property);
+        Method m = beanProperty.read(context);
+        MethodHandle mh = beanProperty.readHandle;
+        if (mh != null) {
+            try {
+                return (Object) mh.invokeExact(base);
+            } catch (Throwable t) {
+                Util.handleThrowable(t);
+                throw new ELException(Util.message(context, "propertyReadError",
+                        base.getClass().getName(), property.toString()), t);
+            }
+        }
         try {
             return m.invoke(base, (Object[]) null);
         } catch (InvocationTargetException e) {
@@ -122,7 +135,19 @@ public class BeanELResolver extends ELResolver {
                     "resolverNotWriteable", base.getClass().getName()));
         }
 
-        Method m = this.property(context, base, property).write(context);
+        BeanProperty beanProperty = this.property(context, base, property);
+        Method m = beanProperty.write(context);
+        MethodHandle mh = beanProperty.writeHandle;
+        if (mh != null) {
+            try {
+                mh.invokeExact(base, value);
+                return;
+            } catch (Throwable t) {
+                Util.handleThrowable(t);
+                throw new ELException(Util.message(context, "propertyWriteError",
+                        base.getClass().getName(), property.toString()), t);
+            }
+        }
         try {
             m.invoke(base, value);
         } catch (InvocationTargetException e) {
@@ -281,6 +306,12 @@ public class BeanELResolver extends ELResolver {
     }
 
     static final class BeanProperty {
+        private static final MethodType READ_TYPE =
+                MethodType.methodType(Object.class, Object.class);
+
+        private static final MethodType WRITE_TYPE =
+                MethodType.methodType(void.class, Object.class, Object.class);
+
         private final Class<?> type;
 
         private final Class<?> owner;
@@ -291,6 +322,17 @@ public class BeanELResolver extends ELResolver {
 
         private Method write;
 
+        /*
+         * Method handles adapted to (Object)Object and (Object,Object)void so
+         * they can be called with invokeExact(). They are created once the
+         * read or write method has been found and remain null if the method
+         * is not accessible to the public lookup in which case reflection is
+         * used.
+         */
+        private volatile MethodHandle readHandle;
+
+        private volatile MethodHandle writeHandle;
+
         public BeanProperty(Class<?> owner, PropertyDescriptor descriptor) {
             this.owner = owner;
             this.descriptor = descriptor;
@@ -304,8 +346,14 @@ public class BeanELResolver extends ELResolver {
         }
 
         public boolean isReadOnly() {
-            return this.write == null &&
-                    (null == (this.write = Util.getMethod(this.owner, descriptor.getWriteMethod())));
+            if (this.write == null) {
+                this.write = Util.getMethod(this.owner, descriptor.getWriteMethod());
+                if (this.write == null) {
+                    return true;
+                }
+                this.writeHandle = toMethodHandle(this.write, WRITE_TYPE);
+            }
+            return false;
         }
 
         public Method getWriteMethod() {
@@ -324,6 +372,7 @@ public class BeanELResolver extends ELResolver {
                             "propertyNotWritable", new Object[] {
                                     owner.getName(), descriptor.getName() }));
                 }
+                this.writeHandle = toMethodHandle(this.write, WRITE_TYPE);
             }
             return this.write;
         }
@@ -336,9 +385,18 @@ public class BeanELResolver extends ELResolver {
                             "propertyNotReadable", new Object[] {
                                     owner.getName(), descriptor.getName() }));
                 }
+                this.readHandle = toMethodHandle(this.read, READ_TYPE);
             }
             return this.read;
         }
+
+        private static MethodHandle toMethodHandle(Method m, MethodType type) {
+            try {
+                return MethodHandles.publicLookup().unreflect(m).asType(type);
+            } catch (IllegalAccessException e) {
+                return null;
+            }
+        }
     }
 
     private final BeanProperty property(ELContext ctx, Object base,
@@ -355,24 +413,28 @@ public class BeanELResolver extends ELResolver {
         return props.get(ctx, prop);
     }
 
+    /*
+     * Two generations of entries. When the current generation is full it
+     * replaces the previous one and entries that were not used since are
+     * dropped. Neither reads nor writes lock. Concurrent writers may lose a
+     * generation which only means some entries have to be created again.
+     */
     private static final class ConcurrentCache<K,V> {
 
         private final int size;
-        private final Map<K,V> eden;
-        private final Map<K,V> longterm;
+        private volatile Map<K,V> eden;
+        private volatile Map<K,V> longterm;
 
         public ConcurrentCache(int size) {
             this.size = size;
             this.eden = new ConcurrentHashMap<>(size);
-            this.longterm = new WeakHashMap<>(size);
+            this.longterm = new ConcurrentHashMap<>(size);
         }
 
         public V get(K key) {
             V value = this.eden.get(key);
             if (value == null) {
-                synchronized (longterm) {
-                    value = this.longterm.get(key);
-                }
+                value = this.longterm.get(key);
                 if (value != null) {
                     this.eden.put(key, value);
                 }
@@ -381,13 +443,13 @@ public class BeanELResolver extends ELResolver {
         }
 
         public void put(K key, V value) {
-            if (this.eden.size() >= this.size) {
-                synchronized (longterm) {
-                    this.longterm.putAll(this.eden);
-                }
-                this.eden.clear();
+            Map<K,V> current = this.eden;
+            if (current.size() >= this.size) {
+                this.longterm = current;
+                current = new ConcurrentHashMap<>(this.size);
+                this.eden = current;
             }
-            this.eden.put(key, value);
+            current.put(key, value);
         }
 
     }
@@ -40,6 +40,7 @@ import org.apache.catalina.util.SessionConfig;
 import org.apache.catalina.util.URLEncoder;
 import org.apache.coyote.ActionCode;
 import org.apache.coyote.Adapter;
+import org.apache.coyote.RequestInfo;
 import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
 import org.apache.tomcat.util.ExceptionUtils;
@@ -138,6 +139,7 @@ public class CoyoteAdapter implements Adapter {
         boolean success = true;
         AsyncContextImpl asyncConImpl = (AsyncContextImpl)request.getAsyncContext();
         req.getRequestProcessor().setWorkerThreadName(Thread.currentThread().getName());
+        req.getRequestProcessor().bind();
         try {
             if (!request.isAsync()) {
                 // Error or timeout - need to tell listeners the request is over
@@ -281,6 +283,7 @@ public class CoyoteAdapter implements Adapter {
             }
 
             req.getRequestProcessor().setWorkerThreadName(null);
+            RequestInfo.unbind();
             // Recycle the wrapper request and response
             if (!success || !request.isAsync()) {
                 request.recycle();
@@ -335,6 +338,7 @@ public class CoyoteAdapter implements Adapter {
             // Parse and set Catalina and configuration specific
             // request parameters
             req.getRequestProcessor().setWorkerThreadName(THREAD_NAME.get());
+            req.getRequestProcessor().bind();
            //request参数设置
 //            决定具体使用哪个 Host，哪个Context 和 哪个Wrapper
             postParseSuccess = postParseRequest(req, request, res, response);
@@ -397,6 +401,7 @@ public class CoyoteAdapter implements Adapter {
             }
 
             req.getRequestProcessor().setWorkerThreadName(null);
+            RequestInfo.unbind();
             AtomicBoolean error = new AtomicBoolean(false);
             res.action(ActionCode.IS_ERROR, error);
 
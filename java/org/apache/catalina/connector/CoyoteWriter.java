@@ -18,13 +18,16 @@ package org.apache.catalina.connector;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.charset.Charset;
+
+import org.apache.tomcat.PreEncodedWriter;
 
 /**
  * Coyote implementation of the servlet writer.
  *
  * @author Remy Maucherat
  */
-public class CoyoteWriter extends PrintWriter {
+public class CoyoteWriter extends PrintWriter implements PreEncodedWriter {
 
 
     // -------------------------------------------------------------- Constants
@@ -181,6 +184,26 @@ public class CoyoteWriter extends PrintWriter {
     }
 
 
+    // ----------------------------------------------- PreEncodedWriter Methods
+
+
+    @Override
+    public boolean writeEncoded(byte[] b, int off, int len, Charset charset) {
+
+        if (error) {
+            return true;
+        }
+
+        try {
+            return ob.writeEncoded(b, off, len, charset);
+        } catch (IOException e) {
+            error = true;
+        }
+        return true;
+
+    }
+
+
     // ---------------------------------------------------- PrintWriter Methods
 
 
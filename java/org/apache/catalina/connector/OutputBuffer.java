@@ -424,6 +424,46 @@ public class OutputBuffer extends Writer
     }
 
 
+    /**
+     * Write text that has already been encoded. The bytes are only written if
+     * they were encoded with the character set used for the chars written to
+     * this buffer, after any buffered chars have been converted.
+     *
+     * @param b       The encoded text
+     * @param off     Offset
+     * @param len     Length
+     * @param charset The character set used to encode the text
+     *
+     * @return <code>true</code> if the bytes were written, <code>false</code>
+     *         if the text must be written as chars instead
+     *
+     * @throws IOException An underlying IOException occurred
+     */
+    public boolean writeEncoded(byte b[], int off, int len, Charset charset)
+        throws IOException {
+
+        if (suspended) {
+            return true;
+        }
+
+        checkConverter();
+        if (!conv.getCharset().equals(charset)) {
+            return false;
+        }
+        if (cb.getLength() > 0) {
+            cb.flushBuffer();
+        }
+        if (conv.isUndeflow()) {
+            // Part of a character is waiting for the rest of it
+            return false;
+        }
+
+        writeBytes(b, off, len);
+        return true;
+
+    }
+
+
     // ------------------------------------------------- Chars Handling Methods
 
 
@@ -19,7 +19,15 @@ package org.apache.catalina.ha.deploy;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
@@ -32,12 +40,16 @@ import org.apache.catalina.LifecycleException;
 import org.apache.catalina.ha.ClusterDeployer;
 import org.apache.catalina.ha.ClusterListener;
 import org.apache.catalina.ha.ClusterMessage;
+import org.apache.catalina.ha.tcp.SimpleTcpCluster;
+import org.apache.catalina.tribes.Channel;
+import org.apache.catalina.tribes.ChannelException;
 import org.apache.catalina.tribes.Member;
 import org.apache.catalina.util.ContextName;
 import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
 import org.apache.tomcat.util.modeler.Registry;
 import org.apache.tomcat.util.res.StringManager;
+import org.apache.tomcat.util.threads.TaskThreadFactory;
 
 
 /**
@@ -128,6 +140,55 @@ public class FarmWarDeployer extends ClusterListener
      */
     protected int maxValidTime = 5 * 60;
 
+    /**
+     * The number of bytes of the war file sent in each message.
+     */
+    protected int chunkSize = FileMessageFactory.READ_SIZE;
+
+    /**
+     * The maximum number of messages that are sent concurrently.
+     */
+    protected int sendWindow = 1;
+
+    /**
+     * Send only the changed blocks of a war file that was sent before.
+     */
+    protected boolean deltaSync = false;
+
+    /**
+     * The block size used to find unchanged parts of a war file.
+     */
+    protected int deltaBlockSize = 16 * 1024;
+
+    /**
+     * The signatures of the war files sent last, by file name.
+     */
+    protected final Map<String, FileDelta.Signature> signatures =
+        new ConcurrentHashMap<>();
+
+    /**
+     * The war files sent last, by file name. Used to send the complete file
+     * to a member that was unable to apply a delta.
+     */
+    protected final Map<String, File> sentFiles = new ConcurrentHashMap<>();
+
+    /**
+     * The digest of the delta transfers that failed, by file name. The
+     * remaining messages of such a transfer are ignored.
+     */
+    protected final Map<String, byte[]> failedDeltas = new ConcurrentHashMap<>();
+
+    /**
+     * The executor used to send messages when sendWindow > 1.
+     */
+    protected ExecutorService sendExecutor = null;
+
+    /**
+     * The executor used to send the complete war file to members that were
+     * unable to apply a delta.
+     */
+    protected ExecutorService resendExecutor = null;
+
     /*--Constructor---------------------------------------------*/
     public FarmWarDeployer() {
     }
@@ -175,6 +236,19 @@ public class FarmWarDeployer extends ClusterListener
         // Retrieve the MBean server
         mBeanServer = Registry.getRegistry(null, null).getMBeanServer();
 
+        if (sendWindow > 1) {
+            sendExecutor = new ThreadPoolExecutor(sendWindow, sendWindow, 60,
+                    TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                    new TaskThreadFactory("FarmWarDeployer-Send-", true, Thread.NORM_PRIORITY));
+        }
+        if (deltaSync) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60,
+                    TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                    new TaskThreadFactory("FarmWarDeployer-Resend-", true, Thread.NORM_PRIORITY));
+            executor.allowCoreThreadTimeOut(true);
+            resendExecutor = executor;
+        }
+
         started = true;
         count = 0;
 
@@ -199,6 +273,17 @@ public class FarmWarDeployer extends ClusterListener
             watcher = null;
 
         }
+        if (sendExecutor != null) {
+            sendExecutor.shutdown();
+            sendExecutor = null;
+        }
+        if (resendExecutor != null) {
+            resendExecutor.shutdownNow();
+            resendExecutor = null;
+        }
+        signatures.clear();
+        sentFiles.clear();
+        failedDeltas.clear();
         if (log.isInfoEnabled())
             log.info(sm.getString("farmWarDeployer.stopped"));
     }
@@ -218,14 +303,31 @@ public class FarmWarDeployer extends ClusterListener
                 if (log.isDebugEnabled())
                     log.debug(sm.getString("farmWarDeployer.msgRxDeploy",
                             fmsg.getContextName(), fmsg.getFileName()));
+                if (isFailedDelta(fmsg)) {
+                    // The sender has been told and will send the complete file
+                    return;
+                }
                 FileMessageFactory factory = getFactory(fmsg);
+                boolean complete;
+                try {
+                    complete = factory.writeMessage(fmsg);
+                } catch (IOException e) {
+                    // The transfer is broken, a new factory is required
+                    removeFactory(fmsg);
+                    if (fmsg.getBaseFileDigest() != null) {
+                        failedDeltas.put(fmsg.getFileName(), fmsg.getFileDigest());
+                    }
+                    sendAck(fmsg, false);
+                    throw e;
+                }
                 // TODO correct second try after app is in service!
-                if (factory.writeMessage(fmsg)) {
+                if (complete) {
                     //last message received war file is completed
                     String name = factory.getFile().getName();
                     if (!name.endsWith(".war"))
                         name = name + ".war";
                     File deployable = new File(getDeployDirFile(), name);
+                    boolean deployed = false;
                     try {
                         String contextName = fmsg.getContextName();
                         if (!isServiced(contextName)) {
@@ -236,6 +338,8 @@ public class FarmWarDeployer extends ClusterListener
                                     log.error(sm.getString(
                                             "farmWarDeployer.renameFail",
                                             factory.getFile(), deployable));
+                                } else {
+                                    deployed = true;
                                 }
                                 check(contextName);
                             } finally {
@@ -250,9 +354,12 @@ public class FarmWarDeployer extends ClusterListener
                                     "farmWarDeployer.servicingDeploy",
                                     contextName, name));
                     } catch (Exception ex) {
+                        deployed = false;
                         log.error(ex);
                     } finally {
                         removeFactory(fmsg);
+                        failedDeltas.remove(fmsg.getFileName());
+                        sendAck(fmsg, deployed);
                     }
                 }
             } else if (msg instanceof UndeployMessage) {
@@ -280,12 +387,90 @@ public class FarmWarDeployer extends ClusterListener
                 } catch (Exception ex) {
                     log.error(ex);
                 }
+            } else if (msg instanceof FileAckMessage) {
+                ackReceived((FileAckMessage) msg);
             }
         } catch (java.io.IOException x) {
             log.error(sm.getString("farmWarDeployer.msgIoe"), x);
         }
     }
 
+    /**
+     * Check if a message belongs to a delta transfer that already failed.
+     *
+     * @param msg The message
+     * @return <code>true</code> if the message has to be ignored
+     */
+    protected boolean isFailedDelta(FileMessage msg) {
+        byte[] failed = failedDeltas.get(msg.getFileName());
+        if (failed == null || msg.getBaseFileDigest() == null) {
+            return false;
+        }
+        if (Arrays.equals(failed, msg.getFileDigest())) {
+            return true;
+        }
+        // A new delta transfer
+        failedDeltas.remove(msg.getFileName());
+        return false;
+    }
+
+    /**
+     * Report to the sender of a war file whether it has been deployed.
+     *
+     * @param msg The last message received for the file
+     * @param success <code>true</code> if the file has been deployed
+     */
+    protected void sendAck(FileMessage msg, boolean success) {
+        if (msg.getAddress() != null && msg.getFileDigest() != null) {
+            getCluster().send(new FileAckMessage(getCluster().getLocalMember(),
+                    msg, success), msg.getAddress());
+        }
+    }
+
+    /**
+     * A member reported the result of a war file transfer. Members that
+     * deployed the file are recorded so that the next version can be sent
+     * as a delta, members that were unable to apply a delta are sent the
+     * complete file.
+     *
+     * @param ack The acknowledgement
+     */
+    protected void ackReceived(FileAckMessage ack) {
+        final FileDelta.Signature signature = signatures.get(ack.getFileName());
+        if (signature == null ||
+                !Arrays.equals(signature.getDigest(), ack.getFileDigest())) {
+            // Acknowledgement of an older version
+            return;
+        }
+        if (ack.isSuccess()) {
+            signature.getMembers().add(ack.getAddress());
+            return;
+        }
+        log.warn(sm.getString("farmWarDeployer.transferFailed",
+                ack.getFileName(), ack.getAddress()));
+        final File webapp = sentFiles.get(ack.getFileName());
+        ExecutorService executor = resendExecutor;
+        if (!ack.isDelta() || webapp == null || executor == null) {
+            return;
+        }
+        final String contextName = ack.getContextName();
+        final Member[] member = new Member[] { ack.getAddress() };
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (log.isInfoEnabled())
+                    log.info(sm.getString("farmWarDeployer.sendFull",
+                            contextName, webapp, member[0]));
+                try {
+                    send(contextName, webapp, member, signature, null);
+                } catch (IOException e) {
+                    log.error(sm.getString("farmWarDeployer.sendFailed",
+                            contextName, webapp), e);
+                }
+            }
+        });
+    }
+
     /**
      * Create factory for all transported war files
      *
@@ -301,6 +486,12 @@ public class FarmWarDeployer extends ClusterListener
         if (factory == null) {
             factory = FileMessageFactory.getInstance(writeToFile, true);
             factory.setMaxValidTime(maxValidTime);
+            if (msg.getBaseFileDigest() != null) {
+                String name = msg.getFileName();
+                if (!name.endsWith(".war"))
+                    name = name + ".war";
+                factory.setBaseFile(new File(getDeployDirFile(), name));
+            }
             fileFactories.put(msg.getFileName(), factory);
         }
         return factory;
@@ -327,7 +518,8 @@ public class FarmWarDeployer extends ClusterListener
      */
     @Override
     public boolean accept(ClusterMessage msg) {
-        return (msg instanceof FileMessage) || (msg instanceof UndeployMessage);
+        return (msg instanceof FileMessage) || (msg instanceof UndeployMessage) ||
+                (msg instanceof FileAckMessage);
     }
 
     /**
@@ -359,29 +551,122 @@ public class FarmWarDeployer extends ClusterListener
         Member[] members = getCluster().getMembers();
         if (members.length == 0) return;
 
+        FileDelta.Signature signature = null;
+        FileDelta.Signature previous = null;
+        if (deltaSync) {
+            signature = FileDelta.Signature.create(webapp, deltaBlockSize);
+            previous = signatures.get(webapp.getName());
+            // Only members known to have the previous version can use a delta
+            if (previous != null &&
+                    !previous.getMembers().containsAll(Arrays.asList(members))) {
+                previous = null;
+            }
+            // Members are added when they acknowledge the new version
+            signatures.put(webapp.getName(), signature);
+            sentFiles.put(webapp.getName(), webapp);
+        }
+        send(contextName, webapp, members, signature, previous);
+    }
+
+    /**
+     * Send a war file to some members of the cluster.
+     *
+     * @param contextName The context name of the application
+     * @param webapp The war file
+     * @param members The members to send the file to
+     * @param signature The signature of the file if delta transfers are
+     *            enabled, otherwise <code>null</code>
+     * @param previous The signature of the previous version the members are
+     *            known to have, or <code>null</code> to send the complete file
+     * @throws IOException if the file cannot be read
+     */
+    protected void send(String contextName, File webapp, final Member[] members,
+            FileDelta.Signature signature, FileDelta.Signature previous)
+            throws IOException {
         Member localMember = getCluster().getLocalMember();
         FileMessageFactory factory =
-            FileMessageFactory.getInstance(webapp, false);
-        FileMessage msg = new FileMessage(localMember, webapp.getName(),
-                contextName);
+            FileMessageFactory.getInstance(webapp, false, chunkSize);
+        if (signature != null) {
+            factory.setFileDigest(signature.getDigest());
+            if (previous != null) {
+                factory.setDelta(FileDelta.diff(webapp, previous, chunkSize),
+                        previous.getDigest());
+                if (log.isInfoEnabled())
+                    log.info(sm.getString("farmWarDeployer.sendDelta", contextName,
+                            webapp, Long.valueOf(factory.getTotalNrOfMessages())));
+            }
+        } else {
+            factory.setFileDigest(FileDelta.digest(webapp));
+        }
         if(log.isDebugEnabled())
             log.debug(sm.getString("farmWarDeployer.sendStart", contextName,
                     webapp));
-        msg = factory.readMessage(msg);
+        ExecutorService executor = sendExecutor;
+        Semaphore window = executor == null ? null : new Semaphore(sendWindow);
+        FileMessage msg = factory.readMessage(
+                new FileMessage(localMember, webapp.getName(), contextName));
         while (msg != null) {
-            for (int i = 0; i < members.length; i++) {
-                if (log.isDebugEnabled())
-                    log.debug(sm.getString("farmWarDeployer.sendFragment",
-                            contextName, webapp, members[i]));
-                getCluster().send(msg, members[i]);
+            if (log.isDebugEnabled())
+                log.debug(sm.getString("farmWarDeployer.sendFragment",
+                        contextName, webapp, Integer.valueOf(members.length)));
+            if (window == null) {
+                // One send to all members so they are served in parallel
+                send(msg, members);
+                msg = factory.readMessage(msg);
+            } else {
+                final FileMessage fragment = msg;
+                if (!fragment.isCopy()) {
+                    // The factory reuses its buffer for the next message
+                    fragment.setData(Arrays.copyOf(fragment.getData(),
+                            fragment.getDataLength()), fragment.getDataLength());
+                }
+                window.acquireUninterruptibly();
+                final Semaphore w = window;
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            send(fragment, members);
+                        } finally {
+                            w.release();
+                        }
+                    }
+                });
+                msg = factory.readMessage(
+                        new FileMessage(localMember, webapp.getName(), contextName));
             }
-            msg = factory.readMessage(msg);
+        }
+        if (window != null) {
+            // Wait for the messages still in flight
+            window.acquireUninterruptibly(sendWindow);
         }
         if(log.isDebugEnabled())
             log.debug(sm.getString(
                     "farmWarDeployer.sendEnd", contextName, webapp));
     }
 
+    /**
+     * Send a message to the given members only. Failures are logged, the
+     * members that did not receive the file will not acknowledge it.
+     *
+     * @param msg The message
+     * @param members The members
+     */
+    protected void send(FileMessage msg, Member[] members) {
+        msg.setAddress(getCluster().getLocalMember());
+        int sendOptions = Channel.SEND_OPTIONS_DEFAULT;
+        if (getCluster() instanceof SimpleTcpCluster) {
+            sendOptions = ((SimpleTcpCluster) getCluster()).getChannelSendOptions();
+        }
+        try {
+            getCluster().getChannel().send(members, msg, sendOptions);
+        } catch (ChannelException e) {
+            log.error(sm.getString("farmWarDeployer.sendFragmentFailed",
+                    msg.getContextName(), msg.getFileName(),
+                    Integer.valueOf(msg.getMessageNumber())), e);
+        }
+    }
+
     /**
      * Remove an existing web application, attached to the specified context
      * name. If this application is successfully removed, a ContainerEvent of
@@ -488,6 +773,7 @@ public class FarmWarDeployer extends ClusterListener
             if (log.isInfoEnabled())
                 log.info(sm.getString("farmWarDeployer.removeLocal",
                         cn.getName()));
+            signatures.remove(removeWar.getName());
             remove(cn.getName(), true);
         } catch (Exception x) {
             log.error(sm.getString("farmWarDeployer.removeLocalFail"), x);
@@ -727,6 +1013,47 @@ public class FarmWarDeployer extends ClusterListener
         this.maxValidTime = maxValidTime;
     }
 
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            return;
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    public int getSendWindow() {
+        return sendWindow;
+    }
+
+    public void setSendWindow(int sendWindow) {
+        if (sendWindow <= 0) {
+            return;
+        }
+        this.sendWindow = sendWindow;
+    }
+
+    public boolean getDeltaSync() {
+        return deltaSync;
+    }
+
+    public void setDeltaSync(boolean deltaSync) {
+        this.deltaSync = deltaSync;
+    }
+
+    public int getDeltaBlockSize() {
+        return deltaBlockSize;
+    }
+
+    public void setDeltaBlockSize(int deltaBlockSize) {
+        if (deltaBlockSize <= 0) {
+            return;
+        }
+        this.deltaBlockSize = deltaBlockSize;
+    }
+
     /**
      * Copy a file to the specified temp directory.
      * @param from copy from temp
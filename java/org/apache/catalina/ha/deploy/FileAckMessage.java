@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.ha.deploy;
+
+import org.apache.catalina.ha.ClusterMessage;
+import org.apache.catalina.tribes.Member;
+
+/**
+ * Sent by the receiver of a war file to report whether the file has been
+ * received and deployed. The sender only uses a war file as the base of a
+ * delta for the members that acknowledged it.
+ */
+public class FileAckMessage implements ClusterMessage {
+    private static final long serialVersionUID = 1L;
+
+    private Member address;
+    private long timestamp;
+    private final String uniqueId;
+    private final String fileName;
+    private final String contextName;
+    private final byte[] fileDigest;
+    private final boolean delta;
+    private final boolean success;
+
+    public FileAckMessage(Member address, FileMessage msg, boolean success) {
+        this.address = address;
+        this.timestamp = System.currentTimeMillis();
+        this.uniqueId = "Ack:" + msg.getFileName() + ":" + timestamp;
+        this.fileName = msg.getFileName();
+        this.contextName = msg.getContextName();
+        this.fileDigest = msg.getFileDigest();
+        this.delta = msg.getBaseFileDigest() != null;
+        this.success = success;
+    }
+
+    @Override
+    public Member getAddress() {
+        return address;
+    }
+
+    @Override
+    public void setAddress(Member address) {
+        this.address = address;
+    }
+
+    @Override
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    @Override
+    public String getUniqueId() {
+        return uniqueId;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getContextName() {
+        return contextName;
+    }
+
+    /**
+     * @return the MD5 digest of the file that was sent
+     */
+    public byte[] getFileDigest() {
+        return fileDigest;
+    }
+
+    /**
+     * @return <code>true</code> if the file was sent as a delta to the
+     *         previous version
+     */
+    public boolean isDelta() {
+        return delta;
+    }
+
+    /**
+     * @return <code>true</code> if the file was received and deployed
+     */
+    public boolean isSuccess() {
+        return success;
+    }
+}
@@ -0,0 +1,403 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.ha.deploy;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import org.apache.catalina.tribes.Member;
+
+/**
+ * Block based delta between two versions of a file, using the rsync
+ * algorithm. The {@link Signature} of the version that was sent last is kept
+ * by the sender so that no round trip to the receivers is required. For the
+ * new version a list of {@link Range}s is calculated that either has to be
+ * sent as data or can be copied from the previous version that the receivers
+ * already have.
+ */
+public class FileDelta {
+
+    /**
+     * The buffer size used when reading files.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private FileDelta() {
+        // Utility class
+    }
+
+
+    /**
+     * Calculate the MD5 digest of a complete file.
+     *
+     * @param f The file
+     * @return the digest
+     * @throws IOException if the file cannot be read
+     */
+    public static byte[] digest(File f) throws IOException {
+        MessageDigest md = createDigest();
+        byte[] buf = new byte[BUFFER_SIZE];
+        try (InputStream in = new FileInputStream(f)) {
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                md.update(buf, 0, n);
+            }
+        }
+        return md.digest();
+    }
+
+
+    /**
+     * Calculate the ranges needed to reconstruct a file from the previous
+     * version described by a signature.
+     *
+     * @param f         The new version of the file
+     * @param base      The signature of the version the receivers have
+     * @param chunkSize The maximum length of a range that has to be sent as
+     *                  data
+     * @return the ranges in file order
+     * @throws IOException if the file cannot be read
+     */
+    public static List<Range> diff(File f, Signature base, int chunkSize)
+            throws IOException {
+        List<Range> result = new ArrayList<>();
+        int blockSize = base.getBlockSize();
+        long length = f.length();
+        long literalStart = 0;
+        long pos = 0;
+        MessageDigest md = createDigest();
+        try (Window window = new Window(f, blockSize)) {
+            if (length >= blockSize) {
+                int weak = weakChecksum(window, 0, blockSize);
+                while (pos + blockSize <= length) {
+                    int block = base.find(weak, window, pos, md);
+                    if (block >= 0) {
+                        addData(result, literalStart, pos, chunkSize);
+                        addCopy(result, pos, (long) block * blockSize, blockSize);
+                        pos += blockSize;
+                        literalStart = pos;
+                        if (pos + blockSize <= length) {
+                            weak = weakChecksum(window, pos, blockSize);
+                        }
+                    } else {
+                        if (pos + blockSize < length) {
+                            weak = roll(weak, window.get(pos), window.get(pos + blockSize),
+                                    blockSize);
+                        }
+                        pos++;
+                    }
+                }
+            }
+        }
+        addData(result, literalStart, length, chunkSize);
+        return result;
+    }
+
+
+    /**
+     * Split a complete file into ranges that have to be sent as data.
+     *
+     * @param length    The length of the file
+     * @param chunkSize The maximum length of a range
+     * @return the ranges in file order
+     */
+    public static List<Range> full(long length, int chunkSize) {
+        List<Range> result = new ArrayList<>();
+        addData(result, 0, length, chunkSize);
+        return result;
+    }
+
+
+    private static void addData(List<Range> ranges, long start, long end, int chunkSize) {
+        for (long s = start; s < end; s += chunkSize) {
+            ranges.add(new Range(s, -1, (int) Math.min(chunkSize, end - s)));
+        }
+    }
+
+
+    private static void addCopy(List<Range> ranges, long offset, long baseOffset, int length) {
+        if (!ranges.isEmpty()) {
+            Range last = ranges.get(ranges.size() - 1);
+            // Merge adjacent blocks so unchanged regions become one message
+            if (last.isCopy() && last.getBaseOffset() + last.getLength() == baseOffset &&
+                    last.getLength() + (long) length <= Integer.MAX_VALUE) {
+                ranges.set(ranges.size() - 1,
+                        new Range(last.getOffset(), last.getBaseOffset(), last.getLength() + length));
+                return;
+            }
+        }
+        ranges.add(new Range(offset, baseOffset, length));
+    }
+
+
+    static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            // MD5 is always available
+            throw new IllegalStateException(e);
+        }
+    }
+
+
+    private static int weakChecksum(Window window, long pos, int len) throws IOException {
+        int a = 0;
+        int b = 0;
+        for (int i = 0; i < len; i++) {
+            int x = window.get(pos + i) & 0xff;
+            a += x;
+            b += (len - i) * x;
+        }
+        return (a & 0xffff) | (b << 16);
+    }
+
+
+    private static int weakChecksum(byte[] buf, int off, int len) {
+        int a = 0;
+        int b = 0;
+        for (int i = 0; i < len; i++) {
+            int x = buf[off + i] & 0xff;
+            a += x;
+            b += (len - i) * x;
+        }
+        return (a & 0xffff) | (b << 16);
+    }
+
+
+    private static int roll(int weak, byte out, byte in, int len) {
+        int a = weak & 0xffff;
+        int b = weak >>> 16;
+        int x = out & 0xff;
+        a = (a - x + (in & 0xff)) & 0xffff;
+        b = (b - len * x + a) & 0xffff;
+        return a | (b << 16);
+    }
+
+
+    /**
+     * A part of the new version of a file. It is either sent as data or, if
+     * {@link #isCopy()}, copied from the previous version on the receiver.
+     */
+    public static class Range {
+        private final long offset;
+        private final long baseOffset;
+        private final int length;
+
+        public Range(long offset, long baseOffset, int length) {
+            this.offset = offset;
+            this.baseOffset = baseOffset;
+            this.length = length;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public long getBaseOffset() {
+            return baseOffset;
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        public boolean isCopy() {
+            return baseOffset >= 0;
+        }
+    }
+
+
+    /**
+     * The block checksums and the digest of one version of a file, together
+     * with the members that are known to have received that version.
+     */
+    public static class Signature {
+        private final int blockSize;
+        private final byte[] digest;
+        private final Map<Integer,int[]> blocksByChecksum = new HashMap<>();
+        private final List<byte[]> strong = new ArrayList<>();
+        private final Set<Member> members = new CopyOnWriteArraySet<>();
+
+        private Signature(int blockSize, byte[] digest) {
+            this.blockSize = blockSize;
+            this.digest = digest;
+        }
+
+        /**
+         * Calculate the signature of a file.
+         *
+         * @param f         The file
+         * @param blockSize The block size
+         * @return the signature
+         * @throws IOException if the file cannot be read
+         */
+        public static Signature create(File f, int blockSize) throws IOException {
+            MessageDigest fileDigest = createDigest();
+            MessageDigest blockDigest = createDigest();
+            byte[] block = new byte[blockSize];
+            Map<Integer,List<Integer>> blocks = new HashMap<>();
+            List<byte[]> strong = new ArrayList<>();
+            try (InputStream in = new FileInputStream(f)) {
+                int n;
+                while ((n = readFully(in, block)) > 0) {
+                    fileDigest.update(block, 0, n);
+                    if (n == blockSize) {
+                        Integer weak = Integer.valueOf(weakChecksum(block, 0, blockSize));
+                        List<Integer> list = blocks.get(weak);
+                        if (list == null) {
+                            list = new ArrayList<>(1);
+                            blocks.put(weak, list);
+                        }
+                        list.add(Integer.valueOf(strong.size()));
+                        strong.add(blockDigest.digest(block));
+                    }
+                }
+            }
+            Signature result = new Signature(blockSize, fileDigest.digest());
+            result.strong.addAll(strong);
+            for (Map.Entry<Integer,List<Integer>> entry : blocks.entrySet()) {
+                List<Integer> list = entry.getValue();
+                int[] indexes = new int[list.size()];
+                for (int i = 0; i < indexes.length; i++) {
+                    indexes[i] = list.get(i).intValue();
+                }
+                result.blocksByChecksum.put(entry.getKey(), indexes);
+            }
+            return result;
+        }
+
+        public int getBlockSize() {
+            return blockSize;
+        }
+
+        /**
+         * @return the digest of the complete file
+         */
+        public byte[] getDigest() {
+            return digest;
+        }
+
+        /**
+         * @return the members that have received this version
+         */
+        public Set<Member> getMembers() {
+            return members;
+        }
+
+        int getBlockCount() {
+            return strong.size();
+        }
+
+        private int find(int weak, Window window, long pos, MessageDigest md)
+                throws IOException {
+            int[] candidates = blocksByChecksum.get(Integer.valueOf(weak));
+            if (candidates == null) {
+                return -1;
+            }
+            byte[] hash = window.digest(pos, blockSize, md);
+            for (int candidate : candidates) {
+                if (Arrays.equals(hash, strong.get(candidate))) {
+                    return candidate;
+                }
+            }
+            return -1;
+        }
+
+        private static int readFully(InputStream in, byte[] buf) throws IOException {
+            int total = 0;
+            while (total < buf.length) {
+                int n = in.read(buf, total, buf.length - total);
+                if (n == -1) {
+                    break;
+                }
+                total += n;
+            }
+            return total;
+        }
+    }
+
+
+    /**
+     * Sequential view of a file that allows access to the bytes one block
+     * before and one block beyond the current position.
+     */
+    private static class Window implements AutoCloseable {
+        private final InputStream in;
+        private final int blockSize;
+        private final byte[] buf;
+        private long start = 0;
+        private int len = 0;
+        private boolean eof = false;
+
+        Window(File f, int blockSize) throws IOException {
+            in = new FileInputStream(f);
+            this.blockSize = blockSize;
+            buf = new byte[Math.max(BUFFER_SIZE, blockSize * 4)];
+        }
+
+        byte get(long pos) throws IOException {
+            ensure(pos, 1);
+            return buf[(int) (pos - start)];
+        }
+
+        byte[] digest(long pos, int length, MessageDigest md) throws IOException {
+            ensure(pos, length);
+            md.update(buf, (int) (pos - start), length);
+            return md.digest();
+        }
+
+        private void ensure(long pos, int length) throws IOException {
+            if (pos < start || pos > start + len) {
+                // Only sequential access is supported
+                throw new IllegalStateException();
+            }
+            while (pos + length > start + len && !eof) {
+                // Discard everything more than one block before pos and refill
+                int discard = (int) Math.max(0, pos - blockSize - start);
+                System.arraycopy(buf, discard, buf, 0, len - discard);
+                start += discard;
+                len -= discard;
+                int n = in.read(buf, len, buf.length - len);
+                if (n == -1) {
+                    eof = true;
+                } else {
+                    len += n;
+                }
+            }
+            if (pos + length > start + len) {
+                throw new EOFException();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -37,6 +37,16 @@ public class FileMessage extends ClusterMessageBase {
     private final String fileName;
     private final String contextName;
 
+    /*
+     * The following fields are not set by older senders. A message without a
+     * file digest carries no checksum and is never a copy.
+     */
+    private long checksum;
+    private byte[] fileDigest;
+    private byte[] baseFileDigest;
+    private long baseOffset;
+    private int copyLength;
+
     public FileMessage(Member source,
                        String fileName,
                        String contextName) {
@@ -63,11 +73,69 @@ public class FileMessage extends ClusterMessageBase {
     public void setData(byte[] data, int length) {
         this.data = data;
         this.dataLength = length;
+        this.baseOffset = 0;
+        this.copyLength = 0;
     }
     public int getDataLength() {
         return dataLength;
     }
 
+    /**
+     * @return the CRC32 checksum of the data
+     */
+    public long getChecksum() {
+        return checksum;
+    }
+    public void setChecksum(long checksum) {
+        this.checksum = checksum;
+    }
+
+    /**
+     * @return the MD5 digest of the complete file or <code>null</code> if the
+     *         sender does not provide checksums
+     */
+    public byte[] getFileDigest() {
+        return fileDigest;
+    }
+    public void setFileDigest(byte[] fileDigest) {
+        this.fileDigest = fileDigest;
+    }
+
+    /**
+     * @return the MD5 digest of the previous version of the file the copy
+     *         messages refer to or <code>null</code> if the complete file is
+     *         transferred
+     */
+    public byte[] getBaseFileDigest() {
+        return baseFileDigest;
+    }
+    public void setBaseFileDigest(byte[] baseFileDigest) {
+        this.baseFileDigest = baseFileDigest;
+    }
+
+    /**
+     * Turn this message into one that carries no data but refers to a range
+     * of the previous version of the file that the receiver already has.
+     *
+     * @param baseOffset The start of the range in the previous version
+     * @param copyLength The length of the range
+     */
+    public void setCopy(long baseOffset, int copyLength) {
+        this.baseOffset = baseOffset;
+        this.copyLength = copyLength;
+        this.data = null;
+        this.dataLength = 0;
+    }
+    public boolean isCopy() {
+        return copyLength > 0;
+    }
+    public long getBaseOffset() {
+        return baseOffset;
+    }
+    public int getCopyLength() {
+        return copyLength;
+    }
+
     @Override
     public String getUniqueId() {
         StringBuilder result = new StringBuilder(getFileName());
@@ -22,9 +22,16 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
 
 import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
@@ -54,6 +61,11 @@ public class FileMessageFactory {
      */
     public static final int READ_SIZE = 1024 * 10; //10kb
 
+    /**
+     * The number of bytes that we read from file for each message
+     */
+    protected final int readSize;
+
     /**
      * The file that we are reading/writing
      */
@@ -110,7 +122,44 @@ public class FileMessageFactory {
     /**
      * The bytes that we hold the data in, not thread safe.
      */
-    protected byte[] data = new byte[READ_SIZE];
+    protected byte[] data;
+
+    /**
+     * When openForWrite=false, the ranges of the file to send if only a delta
+     * to the previous version is sent. <code>null</code> means the complete
+     * file is sent in chunks of <code>readSize</code> bytes.
+     */
+    protected List<FileDelta.Range> ranges = null;
+
+    /**
+     * The MD5 digest of the file that is read, or that is expected to be
+     * written
+     */
+    protected byte[] fileDigest = null;
+
+    /**
+     * The MD5 digest of the previous version of the file that copy messages
+     * refer to
+     */
+    protected byte[] baseFileDigest = null;
+
+    /**
+     * When openForWrite=true, the previous version of the file that copy
+     * messages refer to
+     */
+    protected File baseFile = null;
+
+    /**
+     * When openForWrite=true, the channel to read ranges of the previous
+     * version of the file from
+     */
+    protected FileChannel baseChannel = null;
+
+    /**
+     * When openForWrite=true and the sender provides a digest, the digest of
+     * the data written so far
+     */
+    protected MessageDigest writeDigest = null;
 
     /**
      * Flag that indicates if a thread is writing messages to disk. Access to
@@ -146,10 +195,11 @@ public class FileMessageFactory {
      *             if the system fails to open input/output streams to the file
      *             or if it fails to create the file to be written to.
      */
-    private FileMessageFactory(File f, boolean openForWrite)
+    private FileMessageFactory(File f, boolean openForWrite, int readSize)
             throws FileNotFoundException, IOException {
         this.file = f;
         this.openForWrite = openForWrite;
+        this.readSize = readSize;
         if (log.isDebugEnabled())
             log.debug("open file " + f + " write " + openForWrite);
         if (openForWrite) {
@@ -160,8 +210,9 @@ public class FileMessageFactory {
             out = new FileOutputStream(f);
         } else {
             size = file.length();
-            totalNrOfMessages = (size / READ_SIZE) + 1;
+            totalNrOfMessages = (size + readSize - 1) / readSize;
             in = new FileInputStream(f);
+            data = new byte[readSize];
         }//end if
         creationTime = System.currentTimeMillis();
     }
@@ -184,7 +235,61 @@ public class FileMessageFactory {
      */
     public static FileMessageFactory getInstance(File f, boolean openForWrite)
             throws FileNotFoundException, IOException {
-        return new FileMessageFactory(f, openForWrite);
+        return new FileMessageFactory(f, openForWrite, READ_SIZE);
+    }
+
+    /**
+     * Creates a factory to read a file in chunks of the given size or to
+     * write a file.
+     *
+     * @param f
+     *            File - the file to be read or written
+     * @param openForWrite
+     *            boolean - true, means we are writing to the file, false means
+     *            we are reading from it
+     * @param readSize
+     *            int - the maximum number of bytes in each message
+     * @throws FileNotFoundException -
+     *             if the file to be read doesn't exist
+     * @throws IOException -
+     *             if it fails to create the file that is to be written
+     * @return FileMessageFactory
+     */
+    public static FileMessageFactory getInstance(File f, boolean openForWrite,
+            int readSize) throws FileNotFoundException, IOException {
+        return new FileMessageFactory(f, openForWrite, readSize);
+    }
+
+    /**
+     * Only send the given ranges of the file. Ranges that are copies refer to
+     * the previous version of the file that all receivers already have.
+     *
+     * @param ranges The ranges, as calculated by
+     *               {@link FileDelta#diff(File, FileDelta.Signature, int)}
+     * @param baseFileDigest The MD5 digest of the previous version
+     */
+    public void setDelta(List<FileDelta.Range> ranges, byte[] baseFileDigest) {
+        checkState(false);
+        this.ranges = ranges;
+        this.baseFileDigest = baseFileDigest;
+        totalNrOfMessages = ranges.size();
+    }
+
+    /**
+     * @param fileDigest The MD5 digest of the file that is read. If set, each
+     *                   message carries the digest and a checksum of its data
+     *                   so the receiver can verify the transfer.
+     */
+    public void setFileDigest(byte[] fileDigest) {
+        this.fileDigest = fileDigest;
+    }
+
+    /**
+     * @param baseFile The previous version of the file that is written. Copy
+     *                 messages are resolved against this file.
+     */
+    public void setBaseFile(File baseFile) {
+        this.baseFile = baseFile;
     }
 
     /**
@@ -208,16 +313,48 @@ public class FileMessageFactory {
     public FileMessage readMessage(FileMessage f)
             throws IllegalArgumentException, IOException {
         checkState(false);
-        int length = in.read(data);
-        if (length == -1) {
+        if (nrOfMessagesProcessed >= totalNrOfMessages) {
             cleanup();
             return null;
+        }
+        long offset;
+        int length;
+        if (ranges == null) {
+            offset = (long) nrOfMessagesProcessed * readSize;
+            length = (int) Math.min(readSize, size - offset);
         } else {
+            FileDelta.Range range = ranges.get(nrOfMessagesProcessed);
+            offset = range.getOffset();
+            length = range.getLength();
+            if (range.isCopy()) {
+                f.setCopy(range.getBaseOffset(), length);
+                length = -1;
+            }
+        }
+        if (length >= 0) {
+            if (data.length < length) {
+                data = new byte[length];
+            }
+            // Positional reads, no need to track the stream position
+            FileChannel channel = in.getChannel();
+            ByteBuffer buf = ByteBuffer.wrap(data, 0, length);
+            while (buf.hasRemaining()) {
+                if (channel.read(buf, offset + buf.position()) == -1) {
+                    throw new IOException(sm.getString("fileMessageFactory.fileTruncated", file));
+                }
+            }
             f.setData(data, length);
-            f.setTotalNrOfMsgs(totalNrOfMessages);
-            f.setMessageNumber(++nrOfMessagesProcessed);
-            return f;
-        }//end if
+            if (fileDigest != null) {
+                CRC32 crc = new CRC32();
+                crc.update(data, 0, length);
+                f.setChecksum(crc.getValue());
+            }
+        }
+        f.setFileDigest(fileDigest);
+        f.setBaseFileDigest(baseFileDigest);
+        f.setTotalNrOfMsgs(totalNrOfMessages);
+        f.setMessageNumber(++nrOfMessagesProcessed);
+        return f;
     }
 
     /**
@@ -254,6 +391,16 @@ public class FileMessageFactory {
             return false;
         }
 
+        if (msg.getFileDigest() != null && !msg.isCopy()) {
+            CRC32 crc = new CRC32();
+            crc.update(msg.getData(), 0, msg.getDataLength());
+            if (crc.getValue() != msg.getChecksum()) {
+                fail();
+                throw new IOException(sm.getString("fileMessageFactory.checksumMismatch",
+                        Integer.valueOf(msg.getMessageNumber()), msg.getFileName()));
+            }
+        }
+
         FileMessage previous =
             msgBuffer.put(Long.valueOf(msg.getMessageNumber()), msg);
         if (previous !=null) {
@@ -283,11 +430,27 @@ public class FileMessageFactory {
         }
 
         while (next != null) {
-            out.write(next.getData(), 0, next.getDataLength());
+            if (next.getFileDigest() != null && writeDigest == null) {
+                writeDigest = FileDelta.createDigest();
+            }
+            if (next.isCopy()) {
+                copyFromBase(next);
+            } else {
+                out.write(next.getData(), 0, next.getDataLength());
+                if (writeDigest != null) {
+                    writeDigest.update(next.getData(), 0, next.getDataLength());
+                }
+            }
             lastMessageProcessed.incrementAndGet();
             out.flush();
             if (next.getMessageNumber() == next.getTotalNrOfMsgs()) {
                 out.close();
+                if (writeDigest != null &&
+                        !Arrays.equals(writeDigest.digest(), next.getFileDigest())) {
+                    fail();
+                    throw new IOException(sm.getString("fileMessageFactory.digestMismatch",
+                            next.getFileName()));
+                }
                 cleanup();
                 return true;
             }
@@ -303,6 +466,55 @@ public class FileMessageFactory {
         return false;
     }//writeMessage
 
+    /**
+     * Write a range of the previous version of the file. The previous version
+     * is verified against the digest the sender expects before it is used
+     * for the first time.
+     *
+     * @param msg The copy message
+     * @throws IOException if the previous version is missing or differs from
+     *         the one the sender expects
+     */
+    protected void copyFromBase(FileMessage msg) throws IOException {
+        if (baseChannel == null) {
+            if (baseFile == null || !baseFile.isFile() ||
+                    !Arrays.equals(FileDelta.digest(baseFile), msg.getBaseFileDigest())) {
+                fail();
+                throw new IOException(sm.getString("fileMessageFactory.baseMismatch",
+                        msg.getFileName(), baseFile));
+            }
+            baseChannel = FileChannel.open(baseFile.toPath(), StandardOpenOption.READ);
+        }
+        ByteBuffer buf = ByteBuffer.allocate(Math.min(msg.getCopyLength(), 64 * 1024));
+        long position = msg.getBaseOffset();
+        long end = position + msg.getCopyLength();
+        while (position < end) {
+            buf.clear();
+            buf.limit((int) Math.min(buf.capacity(), end - position));
+            int n = baseChannel.read(buf, position);
+            if (n == -1) {
+                fail();
+                throw new IOException(sm.getString("fileMessageFactory.baseMismatch",
+                        msg.getFileName(), baseFile));
+            }
+            out.write(buf.array(), 0, n);
+            if (writeDigest != null) {
+                writeDigest.update(buf.array(), 0, n);
+            }
+            position += n;
+        }
+    }
+
+    /**
+     * Abort writing the file and remove the partially written file.
+     */
+    protected void fail() {
+        cleanup();
+        if (file.exists() && !file.delete()) {
+            log.warn(sm.getString("fileMessageFactory.deleteFail", file));
+        }
+    }
+
     /**
      * Closes the factory, its streams and sets all its references to null
      */
@@ -317,8 +529,14 @@ public class FileMessageFactory {
                 out.close();
             } catch (Exception ignore) {
             }
+        if (baseChannel != null)
+            try {
+                baseChannel.close();
+            } catch (Exception ignore) {
+            }
         in = null;
         out = null;
+        baseChannel = null;
         size = 0;
         closed = true;
         data = null;
@@ -390,6 +608,10 @@ public class FileMessageFactory {
         return file;
     }
 
+    public long getTotalNrOfMessages() {
+        return totalNrOfMessages;
+    }
+
     public boolean isValid() {
         if (maxValidTime > 0) {
             long timeNow = System.currentTimeMillis();
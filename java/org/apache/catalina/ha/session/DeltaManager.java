@@ -18,13 +18,23 @@
 package org.apache.catalina.ha.session;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.catalina.Engine;
 import org.apache.catalina.Host;
@@ -92,6 +102,26 @@ public class DeltaManager extends ClusterManagerBase{
     private boolean receiverQueue = false ;
     private boolean stateTimestampDrop = true ;
     private long stateTransferCreateSendTime;
+    private boolean parallelStateTransfer = false;
+    private boolean backgroundStateTransfer = false;
+    private int sessionFetchTimeout = 5000;
+    private volatile boolean stateTransferInProgress = false;
+    private volatile Thread stateTransferThread = null;
+    private final Object stateTransferLock = new Object();
+    /**
+     * Number of session state partitions that have not been completely
+     * received yet. Only used with parallel state transfer.
+     */
+    private final AtomicInteger pendingStatePartitions = new AtomicInteger();
+    /**
+     * The member that has been asked for each session state partition.
+     * Only used with parallel state transfer.
+     */
+    private Member[] statePartitionMembers = null;
+    private long statePartitionTimestamp;
+    private final Set<Member> noContextManagerMembers = new HashSet<>();
+    private final ConcurrentMap<String,CountDownLatch> pendingSessionFetches =
+            new ConcurrentHashMap<>();
 
     // -------------------------------------------------------- stats attributes
 
@@ -105,6 +135,7 @@ public class DeltaManager extends ClusterManagerBase{
     private int counterReceive_EVT_ALL_SESSION_TRANSFERCOMPLETE = 0 ;
     private long counterReceive_EVT_CHANGE_SESSION_ID = 0 ;
     private long counterReceive_EVT_ALL_SESSION_NOCONTEXTMANAGER = 0 ;
+    private long counterReceive_EVT_GET_SESSION = 0 ;
     private long counterSend_EVT_GET_ALL_SESSIONS = 0 ;
     private long counterSend_EVT_ALL_SESSION_DATA = 0 ;
     private long counterSend_EVT_SESSION_CREATED = 0;
@@ -113,6 +144,7 @@ public class DeltaManager extends ClusterManagerBase{
     private long counterSend_EVT_SESSION_EXPIRED = 0;
     private int counterSend_EVT_ALL_SESSION_TRANSFERCOMPLETE = 0 ;
     private long counterSend_EVT_CHANGE_SESSION_ID = 0;
+    private long counterSend_EVT_GET_SESSION = 0;
     private int counterNoStateTransfered = 0 ;
 
 
@@ -189,6 +221,13 @@ public class DeltaManager extends ClusterManagerBase{
         return counterSend_EVT_CHANGE_SESSION_ID;
     }
 
+    /**
+     * @return Returns the counterSend_EVT_GET_SESSION.
+     */
+    public long getCounterSend_EVT_GET_SESSION() {
+        return counterSend_EVT_GET_SESSION;
+    }
+
     /**
      * @return Returns the counterReceive_EVT_ALL_SESSION_DATA.
      */
@@ -253,6 +292,13 @@ public class DeltaManager extends ClusterManagerBase{
         return counterReceive_EVT_ALL_SESSION_NOCONTEXTMANAGER;
     }
 
+    /**
+     * @return Returns the counterReceive_EVT_GET_SESSION.
+     */
+    public long getCounterReceive_EVT_GET_SESSION() {
+        return counterReceive_EVT_GET_SESSION;
+    }
+
     /**
      * @return Returns the processingTime.
      */
@@ -372,6 +418,63 @@ public class DeltaManager extends ClusterManagerBase{
         this.sendAllSessionsSize = sendAllSessionsSize;
     }
 
+    /**
+     * @return <code>true</code> if the session state is requested in
+     *         partitions from all members concurrently
+     */
+    public boolean isParallelStateTransfer() {
+        return parallelStateTransfer;
+    }
+
+    /**
+     * @param parallelStateTransfer <code>true</code> to request one partition
+     *        of the session state from each member instead of requesting the
+     *        complete state from the first member
+     */
+    public void setParallelStateTransfer(boolean parallelStateTransfer) {
+        this.parallelStateTransfer = parallelStateTransfer;
+    }
+
+    /**
+     * @return <code>true</code> if the manager starts without waiting for the
+     *         session state transfer to complete
+     */
+    public boolean isBackgroundStateTransfer() {
+        return backgroundStateTransfer;
+    }
+
+    /**
+     * @param backgroundStateTransfer <code>true</code> to complete the session
+     *        state transfer in a background thread and fetch sessions that
+     *        have not been received yet on demand
+     */
+    public void setBackgroundStateTransfer(boolean backgroundStateTransfer) {
+        this.backgroundStateTransfer = backgroundStateTransfer;
+    }
+
+    /**
+     * @return the time in msec to wait for a session fetched on demand
+     */
+    public int getSessionFetchTimeout() {
+        return sessionFetchTimeout;
+    }
+
+    /**
+     * @param sessionFetchTimeout The time in msec to wait for a session
+     *        fetched on demand while a background state transfer is running
+     */
+    public void setSessionFetchTimeout(int sessionFetchTimeout) {
+        this.sessionFetchTimeout = sessionFetchTimeout;
+    }
+
+    /**
+     * @return <code>true</code> while the session state is being received
+     *         from the other members
+     */
+    public boolean isStateTransferInProgress() {
+        return stateTransferInProgress;
+    }
+
     /**
      * @return the notifySessionListenersOnReplication.
      */
@@ -615,6 +718,10 @@ public class DeltaManager extends ClusterManagerBase{
             for (int i = 0; i < n; i++) {
                 DeltaSession session = (DeltaSession) createEmptySession();
                 session.readObjectData(ois);
+                if (isBackgroundStateTransfer() && keepLocalSession(session)) {
+                    completeSessionFetch(session.getIdInternal());
+                    continue;
+                }
                 session.setManager(this);
                 session.setValid(true);
                 session.setPrimarySession(false);
@@ -629,7 +736,7 @@ public class DeltaManager extends ClusterManagerBase{
                 session.resetDeltaRequest();
                 // FIXME How inform other session id cache like SingleSignOn
                 // increment sessionCounter to correct stats report
-                if (findSession(session.getIdInternal()) == null ) {
+                if (sessions.get(session.getIdInternal()) == null ) {
                     sessionCounter++;
                 } else {
                     sessionReplaceCounter++;
@@ -643,6 +750,7 @@ public class DeltaManager extends ClusterManagerBase{
                 if (notifySessionListenersOnReplication) {
                     session.tellNew();
                 }
+                completeSessionFetch(session.getIdInternal());
             }
         } catch (ClassNotFoundException e) {
             log.error(sm.getString("deltaManager.loading.cnfe", e), e);
@@ -654,6 +762,30 @@ public class DeltaManager extends ClusterManagerBase{
     }
 
 
+    /**
+     * With a background state transfer the node is already serving requests
+     * while the session state arrives, so a session that has been used
+     * locally in the meantime must not be overwritten by the older copy
+     * received from another member.
+     * @param session The session received from another member
+     * @return <code>true</code> if the local session is at least as recent as
+     *         the received one and has to be kept
+     */
+    protected boolean keepLocalSession(DeltaSession session) {
+        Session local = sessions.get(session.getIdInternal());
+        if (local instanceof DeltaSession && ((DeltaSession) local).isValid() &&
+                ((DeltaSession) local).getLastAccessedTimeInternal() >=
+                        session.getLastAccessedTimeInternal()) {
+            if (log.isDebugEnabled()) {
+                log.debug(sm.getString("deltaManager.loading.keepLocal",
+                        getName(), session.getIdInternal()));
+            }
+            return true;
+        }
+        return false;
+    }
+
+
     /**
      * Save any currently active sessions in the appropriate persistence
      * mechanism, if any. If persistence is not supported, this method returns
@@ -717,7 +849,11 @@ public class DeltaManager extends ClusterManagerBase{
                 log.info(sm.getString("deltaManager.startClustering", getName()));
             }
 
-            getAllClusterSessions();
+            if (isBackgroundStateTransfer()) {
+                startBackgroundStateTransfer();
+            } else {
+                getAllClusterSessions();
+            }
 
         } catch (Throwable t) {
             ExceptionUtils.handleThrowable(t);
@@ -731,34 +867,58 @@ public class DeltaManager extends ClusterManagerBase{
      * get from first session master the backup from all clustered sessions
      * @see #findSessionMasterMember()
      */
-    public synchronized void getAllClusterSessions() {
+    public void getAllClusterSessions() {
+        // Not synchronized on the manager itself so that a background state
+        // transfer does not block the manager from being stopped
+        synchronized (stateTransferLock) {
+            transferClusterSessions();
+        }
+    }
+
+    private void transferClusterSessions() {
         if (cluster != null && cluster.getMembers().length > 0) {
             long beforeSendTime = System.currentTimeMillis();
             Member mbr = findSessionMasterMember();
             if(mbr == null) { // No domain member found
                  return;
             }
-            SessionMessage msg = new SessionMessageImpl(this.getName(),
-                    SessionMessage.EVT_GET_ALL_SESSIONS, null, "GET-ALL", "GET-ALL-" + getName());
-            msg.setTimestamp(beforeSendTime);
             // set reference time
             stateTransferCreateSendTime = beforeSendTime ;
-            // request session state
-            counterSend_EVT_GET_ALL_SESSIONS++;
             stateTransfered = false ;
+            noContextManagerReceived = false ;
             // FIXME This send call block the deploy thread, when sender waitForAck is enabled
             try {
                 synchronized(receivedMessageQueue) {
                      receiverQueue = true ;
                 }
-                cluster.send(msg, mbr);
-                if (log.isInfoEnabled())
-                    log.info(sm.getString("deltaManager.waitForSessionState",
-                            getName(), mbr, Integer.valueOf(getStateTransferTimeout())));
+                stateTransferInProgress = true ;
+                if (isParallelStateTransfer()) {
+                    requestSessionPartitions(beforeSendTime);
+                } else {
+                    SessionMessage msg = new SessionMessageImpl(this.getName(),
+                            SessionMessage.EVT_GET_ALL_SESSIONS, null, "GET-ALL",
+                            "GET-ALL-" + getName());
+                    msg.setTimestamp(beforeSendTime);
+                    // request session state
+                    counterSend_EVT_GET_ALL_SESSIONS++;
+                    cluster.send(msg, mbr);
+                    if (log.isInfoEnabled())
+                        log.info(sm.getString("deltaManager.waitForSessionState",
+                                getName(), mbr, Integer.valueOf(getStateTransferTimeout())));
+                }
                 // FIXME At sender ack mode this method check only the state
                 //       transfer and resend is a problem!
                 waitForSendAllSessions(beforeSendTime);
             } finally {
+                stateTransferInProgress = false ;
+                synchronized (pendingStatePartitions) {
+                    pendingStatePartitions.set(0);
+                    statePartitionMembers = null;
+                }
+                // Nobody will answer outstanding fetches any more
+                for (CountDownLatch latch : pendingSessionFetches.values()) {
+                    latch.countDown();
+                }
                 synchronized(receivedMessageQueue) {
                     for (Iterator<SessionMessage> iter = receivedMessageQueue.iterator();
                             iter.hasNext();) {
@@ -794,6 +954,201 @@ public class DeltaManager extends ClusterManagerBase{
         }
     }
 
+    /**
+     * Request the session state in partitions, one from each member. Every
+     * member serializes and sends only the sessions of its partition so the
+     * state is received from all members concurrently.
+     * @param beforeSendTime Start instant of the operation
+     * @see #getSessionPartition(String, int)
+     */
+    protected void requestSessionPartitions(long beforeSendTime) {
+        Member mbrs[] = cluster.getMembers();
+        synchronized (pendingStatePartitions) {
+            statePartitionMembers = mbrs.clone();
+            statePartitionTimestamp = Long.MAX_VALUE;
+            noContextManagerMembers.clear();
+            pendingStatePartitions.set(mbrs.length);
+        }
+        for (int i = 0; i < mbrs.length; i++) {
+            sendPartitionRequest(i, mbrs.length, mbrs[i], beforeSendTime);
+        }
+        if (log.isInfoEnabled())
+            log.info(sm.getString("deltaManager.waitForSessionPartitions",
+                    getName(), Integer.valueOf(mbrs.length),
+                    Integer.valueOf(getStateTransferTimeout())));
+    }
+
+    /**
+     * Send a request for one partition of the session state.
+     * @param partition The partition to request
+     * @param count The total number of partitions
+     * @param mbr The member to request the partition from
+     * @param sendTime Timestamp of the request
+     */
+    protected void sendPartitionRequest(int partition, int count, Member mbr,
+            long sendTime) {
+        byte[] data;
+        try {
+            data = serializeSessionPartition(partition, count);
+        } catch (IOException e) {
+            // Can't happen for a ByteArrayOutputStream
+            log.error(sm.getString("deltaManager.unableSerializePartition",
+                    Integer.valueOf(partition)), e);
+            return;
+        }
+        SessionMessage msg = new SessionMessageImpl(this.getName(),
+                SessionMessage.EVT_GET_ALL_SESSIONS, data, "GET-ALL",
+                "GET-ALL-" + partition + "-" + getName());
+        msg.setTimestamp(sendTime);
+        counterSend_EVT_GET_ALL_SESSIONS++;
+        cluster.send(msg, mbr);
+    }
+
+    /**
+     * Complete the session state transfer in a background thread so that the
+     * context can start serving requests immediately. Sessions requested
+     * before they have been received are fetched on demand.
+     * @see #findSession(String)
+     */
+    protected void startBackgroundStateTransfer() {
+        if (cluster.getMembers().length == 0) {
+            if (log.isInfoEnabled()) log.info(sm.getString("deltaManager.noMembers", getName()));
+            return;
+        }
+        Thread t = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    getAllClusterSessions();
+                } finally {
+                    stateTransferThread = null;
+                }
+            }
+        }, "DeltaManager-StateTransfer-" + getName());
+        t.setDaemon(true);
+        t.setContextClassLoader(getClassLoaders()[0]);
+        stateTransferThread = t;
+        t.start();
+    }
+
+    /**
+     * Interrupt a running background state transfer and wait for it to
+     * release the threads waiting for sessions fetched on demand.
+     */
+    protected void stopBackgroundStateTransfer() {
+        Thread t = stateTransferThread;
+        if (t == null || t == Thread.currentThread()) {
+            return;
+        }
+        t.interrupt();
+        try {
+            t.join(getSessionFetchTimeout());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (t.isAlive() && log.isWarnEnabled()) {
+            log.warn(sm.getString("deltaManager.stateTransferNotStopped", getName()));
+        }
+    }
+
+    /**
+     * Return the active Session, associated with this Manager, with the
+     * specified session id. While a background state transfer is in progress
+     * a session that has not been received yet is requested from the member
+     * responsible for its partition.
+     */
+    @Override
+    public Session findSession(String id) throws IOException {
+        Session session = super.findSession(id);
+        if (session == null && id != null && stateTransferInProgress &&
+                isBackgroundStateTransfer()) {
+            session = fetchSession(id);
+        }
+        return session;
+    }
+
+    /**
+     * Request a single session from another member and wait at most
+     * {@link #getSessionFetchTimeout()} msec for it to arrive.
+     * @param id The session id
+     * @return the session or <code>null</code> if it was not received
+     * @throws IOException Propagated IO error
+     */
+    protected Session fetchSession(String id) throws IOException {
+        Member mbrs[] = cluster.getMembers();
+        if (mbrs.length == 0) {
+            return null;
+        }
+        CountDownLatch latch = new CountDownLatch(1);
+        CountDownLatch existing = pendingSessionFetches.putIfAbsent(id, latch);
+        if (existing == null) {
+            if (log.isDebugEnabled()) {
+                log.debug(sm.getString("deltaManager.fetchSession", getName(), id));
+            }
+            SessionMessage msg = new SessionMessageImpl(getName(),
+                    SessionMessage.EVT_GET_SESSION, null, id, id + "-GET-" + getName());
+            msg.setTimestamp(System.currentTimeMillis());
+            counterSend_EVT_GET_SESSION++;
+            cluster.send(msg, mbrs[getSessionPartition(id, mbrs.length)]);
+        } else {
+            latch = existing;
+        }
+        // The session may have arrived with a partition in the meantime
+        Session session = super.findSession(id);
+        if (session == null) {
+            try {
+                latch.await(getSessionFetchTimeout(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            session = super.findSession(id);
+        }
+        if (existing == null) {
+            pendingSessionFetches.remove(id, latch);
+        }
+        return session;
+    }
+
+    /**
+     * Release the threads waiting for a session fetched on demand.
+     * @param id The session id
+     */
+    protected void completeSessionFetch(String id) {
+        if (id != null && !pendingSessionFetches.isEmpty()) {
+            CountDownLatch latch = pendingSessionFetches.get(id);
+            if (latch != null) {
+                latch.countDown();
+            }
+        }
+    }
+
+    /**
+     * Calculate the state transfer partition a session belongs to.
+     * @param id The session id
+     * @param count The number of partitions
+     * @return the partition in the range <code>0</code> to
+     *         <code>count - 1</code>
+     */
+    protected static int getSessionPartition(String id, int count) {
+        return (id.hashCode() & 0x7fffffff) % count;
+    }
+
+    protected byte[] serializeSessionPartition(int partition, int count)
+            throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(8);
+        try (DataOutputStream dos = new DataOutputStream(bos)) {
+            dos.writeInt(partition);
+            dos.writeInt(count);
+        }
+        return bos.toByteArray();
+    }
+
+    protected int[] deserializeSessionPartition(byte[] data) throws IOException {
+        try (DataInputStream dis = new DataInputStream(new ByteArrayInputStream(data))) {
+            return new int[] { dis.readInt(), dis.readInt() };
+        }
+    }
+
     /**
      * Find the master of the session state
      * @return master member of sessions
@@ -820,30 +1175,39 @@ public class DeltaManager extends ClusterManagerBase{
         long reqStart = System.currentTimeMillis();
         long reqNow = reqStart ;
         boolean isTimeout = false;
+        boolean isInterrupted = false;
         if(getStateTransferTimeout() > 0) {
             // wait that state is transfered with timeout check
             do {
                 try {
                     Thread.sleep(100);
-                } catch (Exception sleep) {
-                    //
+                } catch (InterruptedException sleep) {
+                    isInterrupted = true;
                 }
                 reqNow = System.currentTimeMillis();
                 isTimeout = ((reqNow - reqStart) > (1000L * getStateTransferTimeout()));
-            } while ((!getStateTransfered()) && (!isTimeout) && (!isNoContextManagerReceived()));
+            } while ((!getStateTransfered()) && (!isTimeout) && (!isNoContextManagerReceived()) &&
+                    (!isInterrupted));
         } else {
             if(getStateTransferTimeout() == -1) {
                 // wait that state is transfered
                 do {
                     try {
                         Thread.sleep(100);
-                    } catch (Exception sleep) {
+                    } catch (InterruptedException sleep) {
+                        isInterrupted = true;
                     }
-                } while ((!getStateTransfered())&& (!isNoContextManagerReceived()));
+                } while ((!getStateTransfered())&& (!isNoContextManagerReceived()) &&
+                        (!isInterrupted));
                 reqNow = System.currentTimeMillis();
             }
         }
-        if (isTimeout) {
+        if (isInterrupted) {
+            Thread.currentThread().interrupt();
+            if (log.isWarnEnabled())
+                log.warn(sm.getString("deltaManager.stateTransferInterrupted", getName(),
+                        new Date(beforeSendTime), Long.valueOf(reqNow - beforeSendTime)));
+        } else if (isTimeout) {
             counterNoStateTransfered++ ;
             log.error(sm.getString("deltaManager.noSessionState", getName(),
                     new Date(beforeSendTime), Long.valueOf(reqNow - beforeSendTime)));
@@ -873,6 +1237,8 @@ public class DeltaManager extends ClusterManagerBase{
 
         setState(LifecycleState.STOPPING);
 
+        stopBackgroundStateTransfer();
+
         // Expire all active sessions
         if (log.isInfoEnabled()) log.info(sm.getString("deltaManager.expireSessions", getName()));
         Session sessions[] = findSessions();
@@ -1066,6 +1432,7 @@ public class DeltaManager extends ClusterManagerBase{
         counterReceive_EVT_SESSION_EXPIRED = 0 ;
         counterReceive_EVT_ALL_SESSION_TRANSFERCOMPLETE = 0;
         counterReceive_EVT_CHANGE_SESSION_ID = 0;
+        counterReceive_EVT_GET_SESSION = 0;
         counterSend_EVT_ALL_SESSION_DATA = 0;
         counterSend_EVT_GET_ALL_SESSIONS = 0;
         counterSend_EVT_SESSION_ACCESSED = 0 ;
@@ -1074,6 +1441,7 @@ public class DeltaManager extends ClusterManagerBase{
         counterSend_EVT_SESSION_EXPIRED = 0 ;
         counterSend_EVT_ALL_SESSION_TRANSFERCOMPLETE = 0;
         counterSend_EVT_CHANGE_SESSION_ID = 0;
+        counterSend_EVT_GET_SESSION = 0;
 
     }
 
@@ -1192,6 +1560,9 @@ public class DeltaManager extends ClusterManagerBase{
                 case SessionMessage.EVT_ALL_SESSION_NOCONTEXTMANAGER:
                     handleALL_SESSION_NOCONTEXTMANAGER(msg,sender);
                     break;
+                case SessionMessage.EVT_GET_SESSION:
+                    handleGET_SESSION(msg,sender);
+                    break;
                 default:
                     //we didn't recognize the message type, do nothing
                     break;
@@ -1217,7 +1588,19 @@ public class DeltaManager extends ClusterManagerBase{
             log.debug(sm.getString("deltaManager.receiveMessage.transfercomplete",
                     getName(), sender.getHost(), Integer.valueOf(sender.getPort())));
         }
-        stateTransferCreateSendTime = msg.getTimestamp() ;
+        if (pendingStatePartitions.get() > 0) {
+            // parallel state transfer: wait for the remaining partitions and
+            // use the oldest partition timestamp for the queued message filter
+            synchronized (pendingStatePartitions) {
+                statePartitionTimestamp = Math.min(statePartitionTimestamp, msg.getTimestamp());
+                if (pendingStatePartitions.decrementAndGet() > 0) {
+                    return;
+                }
+                stateTransferCreateSendTime = statePartitionTimestamp ;
+            }
+        } else {
+            stateTransferCreateSendTime = msg.getTimestamp() ;
+        }
         stateTransfered = true ;
     }
 
@@ -1328,6 +1711,8 @@ public class DeltaManager extends ClusterManagerBase{
         }
         byte[] data = msg.getSession();
         deserializeSessions(data);
+        // an on demand fetch of an unknown session returns no session at all
+        completeSessionFetch(msg.getSessionID());
         if (log.isDebugEnabled()) {
             log.debug(sm.getString("deltaManager.receiveMessage.allSessionDataAfter", getName()));
         }
@@ -1353,6 +1738,17 @@ public class DeltaManager extends ClusterManagerBase{
         // get all sessions and serialize without sync
         Session[] currentSessions = findSessions();
         long findSessionTimestamp = System.currentTimeMillis() ;
+        if (msg.getSession() != null) {
+            // only one partition of the sessions has been requested
+            int[] partition = deserializeSessionPartition(msg.getSession());
+            ArrayList<Session> partitionSessions = new ArrayList<>();
+            for (Session session : currentSessions) {
+                if (getSessionPartition(session.getIdInternal(), partition[1]) == partition[0]) {
+                    partitionSessions.add(session);
+                }
+            }
+            currentSessions = partitionSessions.toArray(new Session[0]);
+        }
         if (isSendAllSessions()) {
             sendSessions(sender, currentSessions, findSessionTimestamp);
         } else {
@@ -1414,9 +1810,72 @@ public class DeltaManager extends ClusterManagerBase{
         if (log.isDebugEnabled())
             log.debug(sm.getString("deltaManager.receiveMessage.noContextManager",
                     getName(), sender.getHost(), Integer.valueOf(sender.getPort())));
+        if (pendingStatePartitions.get() > 0 && reassignSessionPartitions(sender)) {
+            return;
+        }
         noContextManagerReceived = true ;
     }
 
+    /**
+     * Request the session partitions that were assigned to a member without
+     * a context manager from the remaining members.
+     * @param sender The member that has no context manager
+     * @return <code>true</code> if the partitions have been requested again
+     */
+    protected boolean reassignSessionPartitions(Member sender) {
+        synchronized (pendingStatePartitions) {
+            Member[] mbrs = statePartitionMembers;
+            if (mbrs == null) {
+                return false;
+            }
+            noContextManagerMembers.add(sender);
+            ArrayList<Member> candidates = new ArrayList<>();
+            for (Member mbr : cluster.getMembers()) {
+                if (!noContextManagerMembers.contains(mbr)) {
+                    candidates.add(mbr);
+                }
+            }
+            if (candidates.isEmpty()) {
+                return false;
+            }
+            int next = 0;
+            long sendTime = System.currentTimeMillis();
+            for (int i = 0; i < mbrs.length; i++) {
+                if (sender.equals(mbrs[i])) {
+                    Member mbr = candidates.get(next++ % candidates.size());
+                    mbrs[i] = mbr;
+                    sendPartitionRequest(i, mbrs.length, mbr, sendTime);
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * handle receive that other node want a single session because it has not
+     * been transfered yet. The reply is sent even if the session is unknown so
+     * that the requesting node does not have to wait for the timeout.
+     * @param msg Session message
+     * @param sender Member which sent the message
+     * @throws IOException IO error sending messages
+     */
+    protected void handleGET_SESSION(SessionMessage msg, Member sender) throws IOException {
+        counterReceive_EVT_GET_SESSION++;
+        String id = msg.getSessionID();
+        Session session = sessions.get(id);
+        Session[] currentSessions;
+        if (session == null) {
+            currentSessions = new Session[0];
+        } else {
+            currentSessions = new Session[] { session };
+        }
+        if (log.isDebugEnabled()) {
+            log.debug(sm.getString("deltaManager.receiveMessage.getSession", getName(), id,
+                    Boolean.valueOf(session != null)));
+        }
+        sendSessions(sender, currentSessions, System.currentTimeMillis(), id);
+    }
+
     /**
      * send a block of session to sender
      * @param sender Sender member
@@ -1426,12 +1885,17 @@ public class DeltaManager extends ClusterManagerBase{
      */
     protected void sendSessions(Member sender, Session[] currentSessions,long sendTimestamp)
             throws IOException {
+        sendSessions(sender, currentSessions, sendTimestamp, "SESSION-STATE");
+    }
+
+    private void sendSessions(Member sender, Session[] currentSessions, long sendTimestamp,
+            String sessionId) throws IOException {
         byte[] data = serializeSessions(currentSessions);
         if (log.isDebugEnabled()) {
             log.debug(sm.getString("deltaManager.receiveMessage.unloadingAfter", getName()));
         }
         SessionMessage newmsg = new SessionMessageImpl(name, SessionMessage.EVT_ALL_SESSION_DATA,
-                data, "SESSION-STATE", "SESSION-STATE-" + getName());
+                data, sessionId, sessionId + "-" + getName());
         newmsg.setTimestamp(sendTimestamp);
         if (log.isDebugEnabled()) {
             log.debug(sm.getString("deltaManager.createMessage.allSessionData", getName()));
@@ -1452,6 +1916,9 @@ public class DeltaManager extends ClusterManagerBase{
         result.sendAllSessionsSize = sendAllSessionsSize;
         result.sendAllSessionsWaitTime = sendAllSessionsWaitTime ;
         result.stateTimestampDrop = stateTimestampDrop ;
+        result.parallelStateTransfer = parallelStateTransfer ;
+        result.backgroundStateTransfer = backgroundStateTransfer ;
+        result.sessionFetchTimeout = sessionFetchTimeout ;
         return result;
     }
 }
@@ -34,6 +34,7 @@ import org.apache.catalina.ha.ClusterMessage;
  *   <li><pre>public static final int EVT_ALL_SESSION_TRANSFERCOMPLETE</pre><li>
  *   <li><pre>public static final int EVT_CHANGE_SESSION_ID</pre><li>
  *   <li><pre>public static final int EVT_ALL_SESSION_NOCONTEXTMANAGER</pre><li>
+ *   <li><pre>public static final int EVT_GET_SESSION</pre><li>
  * </ul>
  *
  */
@@ -88,6 +89,12 @@ public interface SessionMessage extends ClusterMessage {
      */
     public static final int EVT_ALL_SESSION_NOCONTEXTMANAGER = 16;
 
+    /**
+     * Event type used when a node that is still receiving the session state
+     * needs a single session that has not been transferred yet.
+     */
+    public static final int EVT_GET_SESSION = 17;
+
     public String getContextName();
 
     public String getEventTypeString();
@@ -78,6 +78,9 @@ public class SessionMessageImpl extends ClusterMessageBase implements SessionMes
      * <B>EVT_ALL_SESSION_NOCONTEXTMANAGER</B><BR>
      *    send that context manager does not exist
      *    after GET_ALL_SESSION received from this sender.<BR>
+     * <B>EVT_GET_SESSION</B><BR>
+     *    get a single session that has not been transfered yet.
+     *    The parameters: sessionID must be set.<BR>
      * @param contextName - the name of the context (application
      * @param eventtype - one of the 8 event type defined in this class
      * @param session - the serialized byte array of the session itself
@@ -147,6 +150,7 @@ public class SessionMessageImpl extends ClusterMessageBase implements SessionMes
             case EVT_ALL_SESSION_TRANSFERCOMPLETE : return "SESSION-STATE-TRANSFERED";
             case EVT_CHANGE_SESSION_ID : return "SESSION-ID-CHANGED";
             case EVT_ALL_SESSION_NOCONTEXTMANAGER : return "NO-CONTEXT-MANAGER";
+            case EVT_GET_SESSION : return "SESSION-GET";
             default : return "UNKNOWN-EVENT-TYPE";
         }
     }
@@ -38,6 +38,10 @@ import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.servlet.MultipartConfigElement;
 import javax.servlet.ServletContainerInitializer;
@@ -106,6 +110,9 @@ import org.apache.tomcat.util.digester.RuleSet;
 import org.apache.tomcat.util.res.StringManager;
 import org.apache.tomcat.util.scan.Jar;
 import org.apache.tomcat.util.scan.JarFactory;
+import org.apache.tomcat.util.scan.JarScanCache;
+import org.apache.tomcat.util.scan.StandardJarScanner;
+import org.apache.tomcat.util.threads.TaskThreadFactory;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXParseException;
 
@@ -236,6 +243,13 @@ public class ContextConfig implements LifecycleListener {
     protected boolean handlesTypesNonAnnotations = false;
 
 
+    /**
+     * The classes found in each JAR by previous scans for annotations, if
+     * the JarScanner is configured to cache scan results.
+     */
+    private volatile JarScanCache annotationScanCache = null;
+
+
     // ------------------------------------------------------------- Properties
 
     /**
@@ -1143,6 +1157,8 @@ public class ContextConfig implements LifecycleListener {
             // Step 4. Process /WEB-INF/classes for annotations and
             // @HandlesTypes matches
             Map<String,JavaClassCacheEntry> javaClassCache = new HashMap<>();
+            annotationScanCache = JarScanCache.getInstance(
+                    context.getJarScanner(), sContext, "annotations");
 
             if (ok) {
                 WebResource[] webResources =
@@ -1165,6 +1181,12 @@ public class ContextConfig implements LifecycleListener {
 
             // Cache, if used, is no longer required so clear it
             javaClassCache.clear();
+            if (annotationScanCache != null) {
+                if (ok) {
+                    annotationScanCache.save();
+                }
+                annotationScanCache = null;
+            }
         }
 
         if (!webXml.isMetadataComplete()) {
@@ -1896,10 +1918,17 @@ public class ContextConfig implements LifecycleListener {
         }
         FragmentJarScannerCallback callback =
                 new FragmentJarScannerCallback(webXmlParser, delegate, parseRequired);
+        JarScanCache scanCache = JarScanCache.getInstance(
+                jarScanner, context.getServletContext(), "web-fragment");
+        callback.setJarScanCache(scanCache);
 
         jarScanner.scan(JarScanType.PLUGGABILITY,
                 context.getServletContext(), callback);
 
+        if (scanCache != null) {
+            scanCache.save();
+        }
+
         if (!callback.isOk()) {
             ok = false;
         }
@@ -1907,27 +1936,83 @@ public class ContextConfig implements LifecycleListener {
     }
 
     protected void processAnnotations(Set<WebXml> fragments,
-            boolean handlesTypesOnly, Map<String,JavaClassCacheEntry> javaClassCache) {
-        for(WebXml fragment : fragments) {
-            // Only need to scan for @HandlesTypes matches if any of the
-            // following are true:
-            // - it has already been determined only @HandlesTypes is required
-            //   (e.g. main web.xml has metadata-complete="true"
-            // - this fragment is for a container JAR (Servlet 3.1 section 8.1)
-            // - this fragment has metadata-complete="true"
-            boolean htOnly = handlesTypesOnly || !fragment.getWebappJar() ||
-                    fragment.isMetadataComplete();
-
-            WebXml annotations = new WebXml();
-            // no impact on distributable
-            annotations.setDistributable(true);
-            URL url = fragment.getURL();
-            processAnnotationsUrl(url, annotations, htOnly, javaClassCache);
-            Set<WebXml> set = new HashSet<>();
-            set.add(annotations);
-            // Merge annotations into fragment - fragment takes priority
-            fragment.merge(set);
+            final boolean handlesTypesOnly,
+            final Map<String,JavaClassCacheEntry> javaClassCache) {
+
+        // The fragments are independent of each other so they may be
+        // processed in parallel. Each one is only modified by the thread that
+        // processes it and access to the shared class cache and @HandlesTypes
+        // results is synchronized.
+        int threadCount = 1;
+        JarScanner jarScanner = context.getJarScanner();
+        if (jarScanner instanceof StandardJarScanner) {
+            threadCount = Math.min(fragments.size(),
+                    ((StandardJarScanner) jarScanner).getScanThreadCount());
         }
+        if (threadCount < 2) {
+            for (WebXml fragment : fragments) {
+                processAnnotations(fragment, handlesTypesOnly, javaClassCache);
+            }
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount,
+                new TaskThreadFactory(context.getName() + "-Annotations-", true,
+                        Thread.NORM_PRIORITY));
+        try {
+            List<Future<?>> futures = new ArrayList<>(fragments.size());
+            for (final WebXml fragment : fragments) {
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        processAnnotations(fragment, handlesTypesOnly, javaClassCache);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    throw new IllegalStateException(cause);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error(sm.getString("contextConfig.processAnnotationsInterrupted",
+                    context.getName()), e);
+            ok = false;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void processAnnotations(WebXml fragment, boolean handlesTypesOnly,
+            Map<String,JavaClassCacheEntry> javaClassCache) {
+        // Only need to scan for @HandlesTypes matches if any of the
+        // following are true:
+        // - it has already been determined only @HandlesTypes is required
+        //   (e.g. main web.xml has metadata-complete="true"
+        // - this fragment is for a container JAR (Servlet 3.1 section 8.1)
+        // - this fragment has metadata-complete="true"
+        boolean htOnly = handlesTypesOnly || !fragment.getWebappJar() ||
+                fragment.isMetadataComplete();
+
+        WebXml annotations = new WebXml();
+        // no impact on distributable
+        annotations.setDistributable(true);
+        URL url = fragment.getURL();
+        processAnnotationsUrl(url, annotations, htOnly, javaClassCache);
+        Set<WebXml> set = new HashSet<>();
+        set.add(annotations);
+        // Merge annotations into fragment - fragment takes priority
+        fragment.merge(set);
     }
 
     protected void processAnnotationsWebResource(WebResource webResource,
@@ -1988,6 +2073,18 @@ public class ContextConfig implements LifecycleListener {
     protected void processAnnotationsJar(URL url, WebXml fragment,
             boolean handlesTypesOnly, Map<String,JavaClassCacheEntry> javaClassCache) {
 
+        JarScanCache scanCache = annotationScanCache;
+        if (scanCache != null) {
+            List<String[]> classes = scanCache.get(url);
+            if (classes != null) {
+                processAnnotationsCachedJar(url, classes, fragment,
+                        handlesTypesOnly, javaClassCache);
+                return;
+            }
+        }
+
+        // The classes are only cached if every one of them could be parsed
+        List<String[]> classes = scanCache == null ? null : new ArrayList<String[]>();
         try (Jar jar = JarFactory.newInstance(url)) {
             if (log.isDebugEnabled()) {
                 log.debug(sm.getString(
@@ -1999,11 +2096,20 @@ public class ContextConfig implements LifecycleListener {
             while (entryName != null) {
                 if (entryName.endsWith(".class")) {
                     try (InputStream is = jar.getEntryInputStream()) {
-                        processAnnotationsStream(is, fragment, handlesTypesOnly, javaClassCache);
+                        if (classes == null) {
+                            processAnnotationsStream(is, fragment, handlesTypesOnly,
+                                    javaClassCache);
+                        } else {
+                            JavaClass clazz = new ClassParser(is).parse();
+                            classes.add(toScanCacheRecord(entryName, clazz));
+                            processClass(clazz, fragment, handlesTypesOnly, javaClassCache);
+                        }
                     } catch (IOException e) {
+                        classes = null;
                         log.error(sm.getString("contextConfig.inputStreamJar",
                                 entryName, url),e);
                     } catch (ClassFormatException e) {
+                        classes = null;
                         log.error(sm.getString("contextConfig.inputStreamJar",
                                 entryName, url),e);
                     }
@@ -2011,12 +2117,97 @@ public class ContextConfig implements LifecycleListener {
                 jar.nextEntry();
                 entryName = jar.getEntryName();
             }
+            if (classes != null) {
+                scanCache.put(url, classes);
+            }
+        } catch (IOException e) {
+            log.error(sm.getString("contextConfig.jarFile", url), e);
+        }
+    }
+
+
+    /*
+     * Process a JAR that has not changed since its classes were recorded in
+     * the scan cache. The @HandlesTypes checks only need the recorded class
+     * hierarchy and annotation types. The JAR is only opened if it contains
+     * classes with Servlet annotations, to read the annotation values.
+     */
+    private void processAnnotationsCachedJar(URL url, List<String[]> classes,
+            WebXml fragment, boolean handlesTypesOnly,
+            Map<String,JavaClassCacheEntry> javaClassCache) {
+
+        if (log.isDebugEnabled()) {
+            log.debug(sm.getString("contextConfig.processAnnotationsCachedJar.debug", url));
+        }
+
+        List<String> annotatedEntries = new ArrayList<>();
+        for (String[] record : classes) {
+            String[] annotationTypes = splitScanCacheNames(record[5]);
+            synchronized (javaClassCache) {
+                checkHandlesTypes(record[1], Integer.parseInt(record[2]), record[3],
+                        splitScanCacheNames(record[4]), annotationTypes, javaClassCache);
+            }
+            if (!handlesTypesOnly) {
+                for (String annotationType : annotationTypes) {
+                    if ("Ljavax/servlet/annotation/WebServlet;".equals(annotationType) ||
+                            "Ljavax/servlet/annotation/WebFilter;".equals(annotationType) ||
+                            "Ljavax/servlet/annotation/WebListener;".equals(annotationType)) {
+                        annotatedEntries.add(record[0]);
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (annotatedEntries.isEmpty()) {
+            return;
+        }
+        try (Jar jar = JarFactory.newInstance(url)) {
+            for (String entryName : annotatedEntries) {
+                try (InputStream is = jar.getInputStream(entryName)) {
+                    if (is != null) {
+                        processClassAnnotations(new ClassParser(is).parse(), fragment);
+                    }
+                } catch (IOException e) {
+                    log.error(sm.getString("contextConfig.inputStreamJar",
+                            entryName, url),e);
+                } catch (ClassFormatException e) {
+                    log.error(sm.getString("contextConfig.inputStreamJar",
+                            entryName, url),e);
+                }
+            }
         } catch (IOException e) {
             log.error(sm.getString("contextConfig.jarFile", url), e);
         }
     }
 
 
+    private static String[] toScanCacheRecord(String entryName, JavaClass clazz) {
+        StringBuilder interfaces = new StringBuilder();
+        for (String interfaceName : clazz.getInterfaceNames()) {
+            interfaces.append(interfaceName).append(' ');
+        }
+        StringBuilder annotationTypes = new StringBuilder();
+        AnnotationEntry[] annotationEntries = clazz.getAnnotationEntries();
+        if (annotationEntries != null) {
+            for (AnnotationEntry annotationEntry : annotationEntries) {
+                annotationTypes.append(annotationEntry.getAnnotationType()).append(' ');
+            }
+        }
+        return new String[] { entryName, clazz.getClassName(),
+                Integer.toString(clazz.getAccessFlags()), clazz.getSuperclassName(),
+                interfaces.toString(), annotationTypes.toString() };
+    }
+
+
+    private static String[] splitScanCacheNames(String names) {
+        if (names.isEmpty()) {
+            return new String[0];
+        }
+        return names.split(" ");
+    }
+
+
     protected void processAnnotationsFile(File file, WebXml fragment,
             boolean handlesTypesOnly, Map<String,JavaClassCacheEntry> javaClassCache) {
 
@@ -2053,12 +2244,26 @@ public class ContextConfig implements LifecycleListener {
 
         ClassParser parser = new ClassParser(is);
         JavaClass clazz = parser.parse();
-        checkHandlesTypes(clazz, javaClassCache);
+        processClass(clazz, fragment, handlesTypesOnly, javaClassCache);
+    }
+
+
+    private void processClass(JavaClass clazz, WebXml fragment,
+            boolean handlesTypesOnly, Map<String,JavaClassCacheEntry> javaClassCache) {
+        // The cache is shared by the threads processing fragments in parallel
+        synchronized (javaClassCache) {
+            checkHandlesTypes(clazz, javaClassCache);
+        }
 
         if (handlesTypesOnly) {
             return;
         }
 
+        processClassAnnotations(clazz, fragment);
+    }
+
+
+    private void processClassAnnotations(JavaClass clazz, WebXml fragment) {
         AnnotationEntry[] annotationsEntries = clazz.getAnnotationEntries();
         if (annotationsEntries != null) {
             String className = clazz.getClassName();
@@ -2092,18 +2297,42 @@ public class ContextConfig implements LifecycleListener {
             return;
         }
 
-        if ((javaClass.getAccessFlags() &
+        String[] annotationTypes;
+        AnnotationEntry[] annotationEntries = javaClass.getAnnotationEntries();
+        if (annotationEntries == null) {
+            annotationTypes = new String[0];
+        } else {
+            annotationTypes = new String[annotationEntries.length];
+            for (int i = 0; i < annotationEntries.length; i++) {
+                annotationTypes[i] = annotationEntries[i].getAnnotationType();
+            }
+        }
+        checkHandlesTypes(javaClass.getClassName(), javaClass.getAccessFlags(),
+                javaClass.getSuperclassName(), javaClass.getInterfaceNames(),
+                annotationTypes, javaClassCache);
+    }
+
+
+    private void checkHandlesTypes(String className, int accessFlags,
+            String superclassName, String[] interfaceNames, String[] annotationTypes,
+            Map<String,JavaClassCacheEntry> javaClassCache) {
+
+        // Skip this if we can
+        if (typeInitializerMap.size() == 0) {
+            return;
+        }
+
+        if ((accessFlags &
                 org.apache.tomcat.util.bcel.Const.ACC_ANNOTATION) > 0) {
             // Skip annotations.
             return;
         }
 
-        String className = javaClass.getClassName();
-
         Class<?> clazz = null;
         if (handlesTypesNonAnnotations) {
             // This *might* be match for a HandlesType.
-            populateJavaClassCache(className, javaClass, javaClassCache);
+            populateJavaClassCache(className, superclassName, interfaceNames,
+                    javaClassCache);
             JavaClassCacheEntry entry = javaClassCache.get(className);
             if (entry.getSciSet() == null) {
                 try {
@@ -2135,29 +2364,25 @@ public class ContextConfig implements LifecycleListener {
         }
 
         if (handlesTypesAnnotations) {
-            AnnotationEntry[] annotationEntries = javaClass.getAnnotationEntries();
-            if (annotationEntries != null) {
-                for (Map.Entry<Class<?>, Set<ServletContainerInitializer>> entry :
-                        typeInitializerMap.entrySet()) {
-                    if (entry.getKey().isAnnotation()) {
-                        String entryClassName = entry.getKey().getName();
-                        for (AnnotationEntry annotationEntry : annotationEntries) {
-                            if (entryClassName.equals(
-                                    getClassName(annotationEntry.getAnnotationType()))) {
+            for (Map.Entry<Class<?>, Set<ServletContainerInitializer>> entry :
+                    typeInitializerMap.entrySet()) {
+                if (entry.getKey().isAnnotation()) {
+                    String entryClassName = entry.getKey().getName();
+                    for (String annotationType : annotationTypes) {
+                        if (entryClassName.equals(getClassName(annotationType))) {
+                            if (clazz == null) {
+                                clazz = Introspection.loadClass(
+                                        context, className);
                                 if (clazz == null) {
-                                    clazz = Introspection.loadClass(
-                                            context, className);
-                                    if (clazz == null) {
-                                        // Can't load the class so no point
-                                        // continuing
-                                        return;
-                                    }
+                                    // Can't load the class so no point
+                                    // continuing
+                                    return;
                                 }
-                                for (ServletContainerInitializer sci : entry.getValue()) {
-                                    initializerClassMap.get(sci).add(clazz);
-                                }
-                                break;
                             }
+                            for (ServletContainerInitializer sci : entry.getValue()) {
+                                initializerClassMap.get(sci).add(clazz);
+                            }
+                            break;
                         }
                     }
                 }
@@ -2190,18 +2415,19 @@ public class ContextConfig implements LifecycleListener {
         return msg.toString();
     }
 
-    private void populateJavaClassCache(String className, JavaClass javaClass,
-            Map<String,JavaClassCacheEntry> javaClassCache) {
+    private void populateJavaClassCache(String className, String superclassName,
+            String[] interfaceNames, Map<String,JavaClassCacheEntry> javaClassCache) {
         if (javaClassCache.containsKey(className)) {
             return;
         }
 
         // Add this class to the cache
-        javaClassCache.put(className, new JavaClassCacheEntry(javaClass));
+        javaClassCache.put(className,
+                new JavaClassCacheEntry(superclassName, interfaceNames));
 
-        populateJavaClassCache(javaClass.getSuperclassName(), javaClassCache);
+        populateJavaClassCache(superclassName, javaClassCache);
 
-        for (String iterface : javaClass.getInterfaceNames()) {
+        for (String iterface : interfaceNames) {
             populateJavaClassCache(iterface, javaClassCache);
         }
     }
@@ -2216,7 +2442,8 @@ public class ContextConfig implements LifecycleListener {
                 }
                 ClassParser parser = new ClassParser(is);
                 JavaClass clazz = parser.parse();
-                populateJavaClassCache(clazz.getClassName(), clazz, javaClassCache);
+                populateJavaClassCache(clazz.getClassName(), clazz.getSuperclassName(),
+                        clazz.getInterfaceNames(), javaClassCache);
             } catch (ClassFormatException e) {
                 log.debug(sm.getString("contextConfig.invalidSciHandlesTypes",
                         className), e);
@@ -2619,8 +2846,12 @@ public class ContextConfig implements LifecycleListener {
         private Set<ServletContainerInitializer> sciSet = null;
 
         public JavaClassCacheEntry(JavaClass javaClass) {
-            superclassName = javaClass.getSuperclassName();
-            interfaceNames = javaClass.getInterfaceNames();
+            this(javaClass.getSuperclassName(), javaClass.getInterfaceNames());
+        }
+
+        public JavaClassCacheEntry(String superclassName, String[] interfaceNames) {
+            this.superclassName = superclassName;
+            this.interfaceNames = interfaceNames;
         }
 
         public String getSuperclassName() {
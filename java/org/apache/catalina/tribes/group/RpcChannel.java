@@ -17,9 +17,20 @@
 package org.apache.catalina.tribes.group;
 
 import java.io.Serializable;
+import java.nio.channels.CompletionHandler;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.catalina.tribes.Channel;
 import org.apache.catalina.tribes.ChannelException;
@@ -28,6 +39,7 @@ import org.apache.catalina.tribes.ErrorHandler;
 import org.apache.catalina.tribes.Member;
 import org.apache.catalina.tribes.UniqueId;
 import org.apache.catalina.tribes.util.StringManager;
+import org.apache.catalina.tribes.util.TcclThreadFactory;
 import org.apache.catalina.tribes.util.UUIDGenerator;
 import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
@@ -49,8 +61,15 @@ public class RpcChannel implements ChannelListener{
     private byte[] rpcId;
     private int replyMessageOptions = 0;
 
-    private final HashMap<RpcCollectorKey, RpcCollector> responseMap =
-            new HashMap<>();
+    private final Map<RpcCollectorKey, RpcCollector> responseMap =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Completes asynchronous requests that did not receive enough replies in
+     * time. Created on first use and shut down by {@link #breakdown()}.
+     */
+    private ScheduledThreadPoolExecutor timeoutExecutor;
+    private boolean brokenDown = false;
 
     /**
      * Create an RPC channel. You can have several RPC channels attached to a group
@@ -106,6 +125,101 @@ public class RpcChannel implements ChannelListener{
         return collector.getResponses();
     }
 
+    /**
+     * Send a message without waiting for the response. Any number of requests
+     * may be in flight at the same time, also to the same member.
+     * @param destination Member[] - the destination for the message, and the members you request a reply from
+     * @param message Serializable - the message you are sending out
+     * @param rpcOptions int - FIRST_REPLY, MAJORITY_REPLY, ALL_REPLY or NO_REPLY
+     * @param channelOptions channel sender options
+     * @param timeout long - timeout in milliseconds, if not enough replies
+     *        are received within this time the request completes with the
+     *        replies received so far
+     * @return a future for the responses
+     */
+    public Future<Response[]> sendAsync(Member[] destination,
+                                        Serializable message,
+                                        int rpcOptions,
+                                        int channelOptions,
+                                        long timeout) {
+        return sendAsync(destination, message, rpcOptions, channelOptions, timeout, null, null);
+    }
+
+    /**
+     * Send a message without waiting for the response and notify a handler
+     * once the request is complete. The handler is called on the thread that
+     * completes the request, usually a receiver thread, and must not block.
+     * @param <A> The type of the attachment
+     * @param destination Member[] - the destination for the message, and the members you request a reply from
+     * @param message Serializable - the message you are sending out
+     * @param rpcOptions int - FIRST_REPLY, MAJORITY_REPLY, ALL_REPLY or NO_REPLY
+     * @param channelOptions channel sender options
+     * @param timeout long - timeout in milliseconds, if not enough replies
+     *        are received within this time the request completes with the
+     *        replies received so far
+     * @param attachment The object passed to the handler
+     * @param handler The handler to notify, may be <code>null</code>
+     * @return a future for the responses
+     */
+    public <A> Future<Response[]> sendAsync(Member[] destination,
+                                            Serializable message,
+                                            int rpcOptions,
+                                            int channelOptions,
+                                            long timeout,
+                                            A attachment,
+                                            CompletionHandler<Response[],? super A> handler) {
+        RpcCollectorKey key = new RpcCollectorKey(UUIDGenerator.randomUUID(false));
+        int destcnt = destination == null ? 0 : destination.length;
+        RpcCollector collector = new RpcCollector(key, rpcOptions, destcnt);
+        RpcFuture<A> future = new RpcFuture<>(collector, attachment, handler);
+        collector.future = future;
+        if ( destcnt == 0 ) {
+            future.complete();
+            return future;
+        }
+
+        //avoid dead lock
+        int sendOptions =
+            channelOptions & ~Channel.SEND_OPTIONS_SYNCHRONIZED_ACK;
+
+        if ( rpcOptions != NO_REPLY ) responseMap.put(key, collector);
+        try {
+            RpcMessage rmsg = new RpcMessage(rpcId, key.id, message);
+            channel.send(destination, rmsg, sendOptions);
+        } catch (ChannelException x) {
+            responseMap.remove(key);
+            future.fail(x);
+            return future;
+        }
+        if ( rpcOptions == NO_REPLY ) {
+            future.complete();
+        } else if (!future.isDone()) {
+            ScheduledThreadPoolExecutor executor = getTimeoutExecutor();
+            if (executor == null) {
+                //broken down, no replies will be received
+                future.complete();
+                return future;
+            }
+            future.timeoutTask = executor.schedule(
+                    new RpcTimeout(future), timeout, TimeUnit.MILLISECONDS);
+            //the replies may have arrived while scheduling
+            if (future.isDone()) future.timeoutTask.cancel(false);
+        }
+        return future;
+    }
+
+    private synchronized ScheduledThreadPoolExecutor getTimeoutExecutor() {
+        if (timeoutExecutor == null && !brokenDown) {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
+                    new TcclThreadFactory("RpcChannel-Timeout-"));
+            executor.setRemoveOnCancelPolicy(true);
+            executor.setKeepAliveTime(60, TimeUnit.SECONDS);
+            executor.allowCoreThreadTimeOut(true);
+            timeoutExecutor = executor;
+        }
+        return timeoutExecutor;
+    }
+
     @Override
     public void messageReceived(Serializable msg, Member sender) {
         RpcMessage rmsg = (RpcMessage)msg;
@@ -122,12 +236,21 @@ public class RpcChannel implements ChannelListener{
                             collector.destcnt--;
                         else
                             collector.addResponse(rmsg.message, sender);
-                        if (collector.isComplete()) collector.notifyAll();
+                        if (collector.isComplete()) {
+                            collector.notifyAll();
+                            if (collector.future != null) {
+                                responseMap.remove(key);
+                            }
+                        }
                     } else {
                         if (! (rmsg instanceof RpcMessage.NoRpcChannelReply) )
                             callback.leftOver(rmsg.message, sender);
                     }
                 }//synchronized
+                //complete outside of the lock, the handler may send again
+                if (collector.future != null && collector.isCompleteSync()) {
+                    collector.future.complete();
+                }
             }//end if
         } else{
             boolean finished = false;
@@ -174,6 +297,19 @@ public class RpcChannel implements ChannelListener{
 
     public void breakdown() {
         channel.removeChannelListener(this);
+        ScheduledThreadPoolExecutor executor;
+        synchronized (this) {
+            brokenDown = true;
+            executor = timeoutExecutor;
+            timeoutExecutor = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        //no more replies will be received, complete with what was received
+        for (RpcCollector collector : responseMap.values()) {
+            if (collector.future != null) collector.future.complete();
+        }
     }
 
     @Override
@@ -232,6 +368,7 @@ public class RpcChannel implements ChannelListener{
         public final RpcCollectorKey key;
         public final int options;
         public int destcnt;
+        volatile RpcFuture<?> future;
 
         public RpcCollector(RpcCollectorKey key, int options, int destcnt) {
             this.key = key;
@@ -259,6 +396,10 @@ public class RpcChannel implements ChannelListener{
             }
         }
 
+        synchronized boolean isCompleteSync() {
+            return isComplete();
+        }
+
         @Override
         public int hashCode() {
             return key.hashCode();
@@ -277,6 +418,102 @@ public class RpcChannel implements ChannelListener{
         }
     }
 
+    /**
+     * The result of an asynchronous request.
+     * @param <A> The type of the attachment passed to the completion handler
+     */
+    protected class RpcFuture<A> implements Future<Response[]> {
+        private final RpcCollector collector;
+        private final A attachment;
+        private final CompletionHandler<Response[],? super A> handler;
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private final AtomicBoolean done = new AtomicBoolean(false);
+        private volatile Response[] result;
+        private volatile Throwable failure;
+        volatile ScheduledFuture<?> timeoutTask;
+
+        RpcFuture(RpcCollector collector, A attachment,
+                CompletionHandler<Response[],? super A> handler) {
+            this.collector = collector;
+            this.attachment = attachment;
+            this.handler = handler;
+        }
+
+        void complete() {
+            if (!done.compareAndSet(false, true)) return;
+            responseMap.remove(collector.key);
+            synchronized (collector) {
+                result = collector.getResponses();
+            }
+            finish();
+            if (handler != null) handler.completed(result, attachment);
+        }
+
+        void fail(Throwable x) {
+            if (!done.compareAndSet(false, true)) return;
+            responseMap.remove(collector.key);
+            failure = x;
+            finish();
+            if (handler != null) handler.failed(x, attachment);
+        }
+
+        private void finish() {
+            latch.countDown();
+            ScheduledFuture<?> task = timeoutTask;
+            if (task != null) task.cancel(false);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (done.get()) return false;
+            fail(new CancellationException());
+            return failure instanceof CancellationException;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return failure instanceof CancellationException;
+        }
+
+        @Override
+        public boolean isDone() {
+            return done.get();
+        }
+
+        @Override
+        public Response[] get() throws InterruptedException, ExecutionException {
+            latch.await();
+            return getResult();
+        }
+
+        @Override
+        public Response[] get(long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            if (!latch.await(timeout, unit)) throw new TimeoutException();
+            return getResult();
+        }
+
+        private Response[] getResult() throws ExecutionException {
+            Throwable x = failure;
+            if (x instanceof CancellationException) throw (CancellationException) x;
+            if (x != null) throw new ExecutionException(x);
+            return result;
+        }
+    }
+
+    private static class RpcTimeout implements Runnable {
+        private final RpcFuture<?> future;
+
+        RpcTimeout(RpcFuture<?> future) {
+            this.future = future;
+        }
+
+        @Override
+        public void run() {
+            future.complete();
+        }
+    }
+
     public static class RpcCollectorKey {
         final byte[] id;
         public RpcCollectorKey(byte[] id) {
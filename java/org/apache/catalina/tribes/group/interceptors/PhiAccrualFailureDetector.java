@@ -0,0 +1,468 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.tribes.group.interceptors;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.catalina.tribes.Channel;
+import org.apache.catalina.tribes.ChannelException;
+import org.apache.catalina.tribes.ChannelMessage;
+import org.apache.catalina.tribes.Member;
+import org.apache.catalina.tribes.group.ChannelInterceptorBase;
+import org.apache.catalina.tribes.io.ChannelData;
+import org.apache.catalina.tribes.io.XByteBuffer;
+import org.apache.catalina.tribes.util.StringManager;
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+
+/**
+ * <p>Title: Phi accrual failure detector</p>
+ *
+ * <p>Description: Instead of deciding member liveness from a fixed timeout,
+ * this interceptor keeps the history of heartbeat inter-arrival times for
+ * each member and calculates a suspicion level <code>phi</code>. A phi of
+ * <code>1</code> means a 10% chance of being wrong when the member is
+ * considered failed, a phi of <code>2</code> a 1% chance and so on.</p>
+ * <p>
+ * Members with a phi above the threshold are suspected. Suspected members are
+ * not removed from the membership, no memberDisappeared event is fired, but
+ * they are not returned by {@link #getMembers()} any more so that the
+ * replication layer stops sending to them. Once heartbeats arrive again, the
+ * member is returned again.
+ * </p>
+ * <p>
+ * The interceptor sends a small heartbeat message to all members every
+ * <code>heartbeatInterval</code> milliseconds and only the arrival times of
+ * these messages are used as samples. Any other message received from a
+ * member shows that it is alive but does not add a sample, as replication
+ * traffic would fill the history with intervals close to zero. Configure this
+ * interceptor above the TcpFailureDetector and the MessageDispatchInterceptor.
+ * </p>
+ *
+ * @version 1.0
+ */
+public class PhiAccrualFailureDetector extends ChannelInterceptorBase {
+
+    private static final Log log = LogFactory.getLog(PhiAccrualFailureDetector.class);
+    protected static final StringManager sm =
+            StringManager.getManager(PhiAccrualFailureDetector.class);
+
+    protected static final byte[] PHI_HEARTBEAT_DATA = new byte[] {
+        79, -89, 115, 72, 121, -58, 67, -55, -97, 111, -119, -128, -95, 91, 7, 20,
+        125, -39, 82, 91, -21, -58, 67, -102, -73, 126, -66, -113, -127, 103, 30, -74,
+        55, 21, -66, -121, 69, 58, 76, -88, -65, 10, 77, 19, 83, 56, 21, 50,
+        85, -10, -108, -73, 58, -58, 58, 120, -111, 4, 125, -41, 114, -124, -64, -43};
+
+    protected long heartbeatInterval = 1000; //1 second
+    protected double threshold = 8.0;
+    protected int maxSampleSize = 200;
+    protected long minStdDeviation = 100;
+    protected long acceptableHeartbeatPause = 0;
+
+    protected volatile boolean running = true;
+    protected HeartbeatThread thread = null;
+    protected static final AtomicInteger cnt = new AtomicInteger(0);
+
+    protected final ConcurrentMap<Member, HeartbeatHistory> histories = new ConcurrentHashMap<>();
+    protected volatile Set<Member> suspects = Collections.emptySet();
+
+    @Override
+    public synchronized void start(int svc) throws ChannelException {
+        super.start(svc);
+        running = true;
+        if (thread == null) {
+            thread = new HeartbeatThread();
+            thread.setDaemon(true);
+            thread.setName("PhiAccrualFailureDetector.HeartbeatThread-" + cnt.addAndGet(1));
+            thread.start();
+        }
+    }
+
+    @Override
+    public synchronized void stop(int svc) throws ChannelException {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+        super.stop(svc);
+    }
+
+    @Override
+    public void messageReceived(ChannelMessage msg) {
+        boolean process = true;
+        if (okToProcess(msg.getOptions())) {
+            //check to see if it is a heartbeat message, if so, process = false
+            process = ( (msg.getMessage().getLength() != PHI_HEARTBEAT_DATA.length) ||
+                        (!Arrays.equals(PHI_HEARTBEAT_DATA, msg.getMessage().getBytes())) );
+        }
+        if (msg.getAddress() != null) {
+            if (process) {
+                messageReceived(msg.getAddress(), System.currentTimeMillis());
+            } else {
+                heartbeatReceived(msg.getAddress(), System.currentTimeMillis());
+            }
+        }
+        if (process) super.messageReceived(msg);
+        else if (log.isDebugEnabled()) log.debug("Received a phi heartbeat packet:" + msg);
+    }
+
+    @Override
+    public void memberAdded(Member member) {
+        heartbeatReceived(member, System.currentTimeMillis());
+        super.memberAdded(member);
+    }
+
+    @Override
+    public void memberDisappeared(Member member) {
+        histories.remove(member);
+        if (suspects.contains(member)) {
+            synchronized (this) {
+                Set<Member> updated = new HashSet<>(suspects);
+                updated.remove(member);
+                suspects = Collections.unmodifiableSet(updated);
+            }
+        }
+        super.memberDisappeared(member);
+    }
+
+    @Override
+    public boolean hasMembers() {
+        return getMembers().length > 0;
+    }
+
+    /**
+     * @return the members that are not suspected
+     */
+    @Override
+    public Member[] getMembers() {
+        Member[] members = super.getMembers();
+        Set<Member> current = suspects;
+        if (current.isEmpty() || members == null) {
+            return members;
+        }
+        ArrayList<Member> result = new ArrayList<>(members.length);
+        for (Member member : members) {
+            if (!current.contains(member)) {
+                result.add(member);
+            }
+        }
+        return result.toArray(new Member[0]);
+    }
+
+    /**
+     * Record the arrival of a heartbeat.
+     * @param member The member the heartbeat was received from
+     * @param now    The arrival time
+     */
+    protected void heartbeatReceived(Member member, long now) {
+        HeartbeatHistory history = histories.get(member);
+        if (history == null) {
+            history = new HeartbeatHistory(maxSampleSize);
+            HeartbeatHistory existing = histories.putIfAbsent(member, history);
+            if (existing != null) {
+                history = existing;
+            }
+        }
+        history.add(now);
+        if (suspects.contains(member)) {
+            double phi = phi(history, now);
+            if (phi < threshold) {
+                updateSuspects(member, false, phi);
+            }
+        }
+    }
+
+    /**
+     * Record the arrival of a message other than a heartbeat. It shows that
+     * the member is alive but is not used as a sample.
+     * @param member The member the message was received from
+     * @param now    The arrival time
+     */
+    protected void messageReceived(Member member, long now) {
+        HeartbeatHistory history = histories.get(member);
+        if (history == null) {
+            // Wait for the first heartbeat to start sampling
+            return;
+        }
+        history.seen(now);
+        if (suspects.contains(member)) {
+            double phi = phi(history, now);
+            if (phi < threshold) {
+                updateSuspects(member, false, phi);
+            }
+        }
+    }
+
+    /**
+     * Recalculate the suspicion level of all members.
+     * @param now The current time
+     */
+    protected void checkMembers(long now) {
+        for (Map.Entry<Member, HeartbeatHistory> entry : histories.entrySet()) {
+            Member member = entry.getKey();
+            double phi = phi(entry.getValue(), now);
+            boolean suspected = phi >= threshold;
+            if (suspected != suspects.contains(member)) {
+                updateSuspects(member, suspected, phi);
+            }
+        }
+    }
+
+    protected synchronized void updateSuspects(Member member, boolean suspected, double phi) {
+        Set<Member> updated = new HashSet<>(suspects);
+        if (suspected) {
+            if (updated.add(member) && log.isInfoEnabled()) {
+                log.info(sm.getString("phiAccrualFailureDetector.member.suspected", member,
+                        Double.toString(phi)));
+            }
+        } else {
+            if (updated.remove(member) && log.isInfoEnabled()) {
+                log.info(sm.getString("phiAccrualFailureDetector.member.trusted", member));
+            }
+        }
+        suspects = Collections.unmodifiableSet(updated);
+    }
+
+    /**
+     * @param member The member
+     * @return the current suspicion level of the member, <code>0</code> if no
+     *         heartbeat has been received from it yet
+     */
+    public double phi(Member member) {
+        return phi(member, System.currentTimeMillis());
+    }
+
+    protected double phi(Member member, long now) {
+        HeartbeatHistory history = histories.get(member);
+        return history == null ? 0.0 : phi(history, now);
+    }
+
+    protected double phi(HeartbeatHistory history, long now) {
+        long last;
+        double mean;
+        double variance;
+        synchronized (history) {
+            if (history.count == 0) {
+                // Only one heartbeat so far, nothing to compare with
+                return 0.0;
+            }
+            last = history.lastSeen;
+            mean = history.mean();
+            variance = history.variance();
+        }
+        double stdDeviation = Math.max(Math.sqrt(variance), minStdDeviation);
+        return phi(now - last, mean + acceptableHeartbeatPause, stdDeviation);
+    }
+
+    /**
+     * Calculate phi using the logistic approximation of the cumulative
+     * distribution function of the normal distribution.
+     * @param timeDiff     Time since the last heartbeat
+     * @param mean         Mean heartbeat interval
+     * @param stdDeviation Standard deviation of the heartbeat interval
+     * @return phi
+     */
+    protected static double phi(long timeDiff, double mean, double stdDeviation) {
+        double y = (timeDiff - mean) / stdDeviation;
+        double e = Math.exp(-y * (1.5976 + 0.070566 * y * y));
+        if (timeDiff > mean) {
+            return -Math.log10(e / (1.0 + e));
+        } else {
+            return -Math.log10(1.0 - 1.0 / (1.0 + e));
+        }
+    }
+
+    /**
+     * @param member The member
+     * @return <code>true</code> if the member is currently suspected
+     */
+    public boolean isSuspected(Member member) {
+        return suspects.contains(member);
+    }
+
+    /**
+     * @return the members that are currently suspected
+     */
+    public Member[] getSuspectedMembers() {
+        return suspects.toArray(new Member[0]);
+    }
+
+    /**
+     * @return one line per member with the suspicion level and the heartbeat
+     *         statistics it is based on
+     */
+    public String[] getMemberStatistics() {
+        long now = System.currentTimeMillis();
+        ArrayList<String> result = new ArrayList<>();
+        for (Map.Entry<Member, HeartbeatHistory> entry : histories.entrySet()) {
+            HeartbeatHistory history = entry.getValue();
+            double mean;
+            double stdDeviation;
+            long last;
+            int samples;
+            synchronized (history) {
+                mean = history.mean();
+                stdDeviation = Math.sqrt(history.variance());
+                last = history.lastSeen;
+                samples = history.count;
+            }
+            result.add(sm.getString("phiAccrualFailureDetector.statistics",
+                    entry.getKey().getName(), Double.toString(phi(history, now)),
+                    Boolean.valueOf(isSuspected(entry.getKey())),
+                    Long.valueOf(now - last), Double.toString(mean),
+                    Double.toString(stdDeviation), Integer.valueOf(samples)));
+        }
+        return result.toArray(new String[0]);
+    }
+
+    protected void sendHeartbeat() {
+        // Send to all members, including suspects so they can recover
+        Member[] members = super.getMembers();
+        if (members == null || members.length == 0) return;
+        ChannelData data = new ChannelData(true);//generates a unique Id
+        data.setAddress(getLocalMember(false));
+        data.setTimestamp(System.currentTimeMillis());
+        data.setOptions(getOptionFlag() | Channel.SEND_OPTIONS_ASYNCHRONOUS);
+        data.setMessage(new XByteBuffer(PHI_HEARTBEAT_DATA, false));
+        try {
+            super.sendMessage(members, data, null);
+        } catch (ChannelException x) {
+            if (log.isDebugEnabled()) {
+                log.debug(sm.getString("phiAccrualFailureDetector.heartbeat.failed"), x);
+            }
+        }
+    }
+
+    public long getHeartbeatInterval() {
+        return heartbeatInterval;
+    }
+
+    public void setHeartbeatInterval(long heartbeatInterval) {
+        this.heartbeatInterval = heartbeatInterval;
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    public void setThreshold(double threshold) {
+        this.threshold = threshold;
+    }
+
+    public int getMaxSampleSize() {
+        return maxSampleSize;
+    }
+
+    public void setMaxSampleSize(int maxSampleSize) {
+        this.maxSampleSize = maxSampleSize;
+    }
+
+    public long getMinStdDeviation() {
+        return minStdDeviation;
+    }
+
+    public void setMinStdDeviation(long minStdDeviation) {
+        this.minStdDeviation = minStdDeviation;
+    }
+
+    public long getAcceptableHeartbeatPause() {
+        return acceptableHeartbeatPause;
+    }
+
+    public void setAcceptableHeartbeatPause(long acceptableHeartbeatPause) {
+        this.acceptableHeartbeatPause = acceptableHeartbeatPause;
+    }
+
+    /**
+     * The last <code>maxSampleSize</code> heartbeat inter-arrival times of a
+     * member.
+     */
+    protected static class HeartbeatHistory {
+        private final long[] intervals;
+        private int next = 0;
+        private int count = 0;
+        private double sum = 0;
+        private double squaredSum = 0;
+        private long last = -1;
+        private long lastSeen = -1;
+
+        HeartbeatHistory(int maxSampleSize) {
+            intervals = new long[Math.max(1, maxSampleSize)];
+        }
+
+        synchronized void add(long now) {
+            if (last >= 0) {
+                long interval = now - last;
+                if (count == intervals.length) {
+                    long oldest = intervals[next];
+                    sum -= oldest;
+                    squaredSum -= (double) oldest * oldest;
+                } else {
+                    count++;
+                }
+                intervals[next] = interval;
+                next = (next + 1) % intervals.length;
+                sum += interval;
+                squaredSum += (double) interval * interval;
+            }
+            last = now;
+            seen(now);
+        }
+
+        synchronized void seen(long now) {
+            if (now > lastSeen) {
+                lastSeen = now;
+            }
+        }
+
+        double mean() {
+            return count == 0 ? 0 : sum / count;
+        }
+
+        double variance() {
+            if (count == 0) return 0;
+            double mean = mean();
+            return Math.max(0, squaredSum / count - mean * mean);
+        }
+    }
+
+    protected class HeartbeatThread extends Thread {
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    sleep(heartbeatInterval);
+                    sendHeartbeat();
+                    checkMembers(System.currentTimeMillis());
+                } catch (InterruptedException ix) {
+                    // Ignore. Probably triggered by a call to stop().
+                } catch (Exception x) {
+                    log.warn(sm.getString("phiAccrualFailureDetector.heartbeat.failed"), x);
+                }
+            }
+        }
+    }
+}
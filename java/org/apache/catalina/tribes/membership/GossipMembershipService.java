@@ -0,0 +1,447 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.tribes.membership;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.catalina.tribes.ChannelException;
+import org.apache.catalina.tribes.ChannelMessage;
+import org.apache.catalina.tribes.Member;
+import org.apache.catalina.tribes.MembershipListener;
+import org.apache.catalina.tribes.MembershipService;
+import org.apache.catalina.tribes.util.Arrays;
+import org.apache.catalina.tribes.util.StringManager;
+import org.apache.catalina.tribes.util.UUIDGenerator;
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+
+/**
+ * A <b>membership</b> implementation for networks without multicast. Members
+ * find each other through a list of seed addresses and disseminate the
+ * membership by gossiping over TCP, see {@link GossipMembershipServiceImpl}.
+ * <p>
+ * Example configuration:
+ * </p>
+ * <pre>
+ * &lt;Membership className="org.apache.catalina.tribes.membership.GossipMembershipService"
+ *             port="45600" seeds="node1:45600,node2:45600"/&gt;
+ * </pre>
+ */
+public class GossipMembershipService implements MembershipService, MembershipListener {
+
+    private static final Log log = LogFactory.getLog(GossipMembershipService.class);
+
+    /**
+     * The string manager for this package.
+     */
+    protected static final StringManager sm = StringManager.getManager(Constants.Package);
+
+    protected static final Member[] EMPTY_MEMBERS = new Member[0];
+
+    /**
+     * The implementation specific properties
+     */
+    protected Properties properties = new Properties();
+    /**
+     * A handle to the actual low level implementation
+     */
+    protected GossipMembershipServiceImpl impl;
+    /**
+     * A membership listener delegate (should be the cluster :)
+     */
+    protected volatile MembershipListener listener;
+    /**
+     * The local member
+     */
+    protected MemberImpl localMember;
+
+    protected byte[] payload;
+
+    protected byte[] domain;
+
+    /**
+     * Create a membership service.
+     */
+    public GossipMembershipService() {
+        //default values
+        properties.setProperty("port", "45600");
+        properties.setProperty("seeds", "");
+        properties.setProperty("frequency", "500");
+        properties.setProperty("dropTime", "3000");
+        properties.setProperty("fanout", "0");
+        properties.setProperty("connectTimeout", "1000");
+    }
+
+    /**
+     * Sets the properties for the membership service.
+     * @param properties
+     * <br>All are required<br>
+     * 1. port - the port to listen to for gossip<BR>
+     * 2. seeds - the comma separated host:port gossip addresses of the seed members<BR>
+     * 3. frequency - the time between two gossip rounds<BR>
+     * 4. dropTime - the time a member is gone before it is considered gone.<BR>
+     * 5. tcpListenPort - the port this member listens to<BR>
+     * 6. tcpListenHost - the bind address of this member<BR>
+     * @exception java.lang.IllegalArgumentException if a property is missing.
+     */
+    @Override
+    public void setProperties(Properties properties) {
+        hasProperty(properties, "port");
+        hasProperty(properties, "seeds");
+        hasProperty(properties, "frequency");
+        hasProperty(properties, "dropTime");
+        hasProperty(properties, "tcpListenPort");
+        hasProperty(properties, "tcpListenHost");
+        this.properties = properties;
+    }
+
+    @Override
+    public Properties getProperties() {
+        return properties;
+    }
+
+    @Override
+    public Member getLocalMember(boolean alive) {
+        if ( alive && localMember != null && impl != null) localMember.setMemberAliveTime(System.currentTimeMillis()-localMember.getServiceStartTime());
+        return localMember;
+    }
+
+    @Override
+    public void setLocalMemberProperties(String listenHost, int listenPort, int securePort, int udpPort) {
+        properties.setProperty("tcpListenHost",listenHost);
+        properties.setProperty("tcpListenPort",String.valueOf(listenPort));
+        properties.setProperty("udpListenPort",String.valueOf(udpPort));
+        properties.setProperty("tcpSecurePort",String.valueOf(securePort));
+        try {
+            if (localMember != null) {
+                localMember.setHostname(listenHost);
+                localMember.setPort(listenPort);
+            } else {
+                localMember = new MemberImpl(listenHost, listenPort, 0);
+                localMember.setUniqueId(UUIDGenerator.randomUUID(true));
+                localMember.setPayload(getPayload());
+                localMember.setDomain(getDomain());
+            }
+            localMember.setSecurePort(securePort);
+            localMember.setUdpPort(udpPort);
+            localMember.getData(true, true);
+        }catch ( IOException x ) {
+            throw new IllegalArgumentException(x);
+        }
+    }
+
+    public void setPort(int port) {
+        properties.setProperty("port", String.valueOf(port));
+    }
+
+    public int getPort() {
+        return Integer.parseInt(properties.getProperty("port"));
+    }
+
+    public void setBind(String bind) {
+        properties.setProperty("bind", bind);
+    }
+
+    public String getBind() {
+        return properties.getProperty("bind");
+    }
+
+    public void setSeeds(String seeds) {
+        properties.setProperty("seeds", seeds);
+    }
+
+    public String getSeeds() {
+        return properties.getProperty("seeds");
+    }
+
+    public void setFrequency(long time) {
+        properties.setProperty("frequency", String.valueOf(time));
+    }
+
+    public long getFrequency() {
+        return Long.parseLong(properties.getProperty("frequency"));
+    }
+
+    public void setDropTime(long time) {
+        properties.setProperty("dropTime", String.valueOf(time));
+    }
+
+    public long getDropTime() {
+        return Long.parseLong(properties.getProperty("dropTime"));
+    }
+
+    public void setFanout(int fanout) {
+        properties.setProperty("fanout", String.valueOf(fanout));
+    }
+
+    public int getFanout() {
+        return Integer.parseInt(properties.getProperty("fanout", "0"));
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+        properties.setProperty("connectTimeout", String.valueOf(connectTimeout));
+    }
+
+    public int getConnectTimeout() {
+        return Integer.parseInt(properties.getProperty("connectTimeout", "1000"));
+    }
+
+    /**
+     * @return the address this service receives gossip on, or
+     *         <code>null</code> if the service is not started
+     */
+    public InetSocketAddress getGossipAddress() {
+        GossipMembershipServiceImpl impl = this.impl;
+        return impl == null ? null : impl.getGossipAddress();
+    }
+
+    public long getRounds() {
+        GossipMembershipServiceImpl impl = this.impl;
+        return impl == null ? 0 : impl.getRounds();
+    }
+
+    public long getMessagesSent() {
+        GossipMembershipServiceImpl impl = this.impl;
+        return impl == null ? 0 : impl.getMessagesSent();
+    }
+
+    public long getMessagesReceived() {
+        GossipMembershipServiceImpl impl = this.impl;
+        return impl == null ? 0 : impl.getMessagesReceived();
+    }
+
+    public long getFailedExchanges() {
+        GossipMembershipServiceImpl impl = this.impl;
+        return impl == null ? 0 : impl.getFailedExchanges();
+    }
+
+    /**
+     * Check if a required property is available.
+     * @param properties The set of properties
+     * @param name The property to check for
+     */
+    protected void hasProperty(Properties properties, String name){
+        if ( properties.getProperty(name)==null) throw new IllegalArgumentException(sm.getString("gossipMembershipService.missing.property", name));
+    }
+
+    /**
+     * Parse a comma separated list of <code>host:port</code> addresses.
+     * @param members The list
+     * @return the addresses
+     */
+    protected static InetSocketAddress[] parseSeeds(String seeds) {
+        List<InetSocketAddress> result = new ArrayList<>();
+        if (seeds != null) {
+            for (String member : seeds.split(",")) {
+                member = member.trim();
+                if (member.length() == 0) continue;
+                int idx = member.lastIndexOf(':');
+                if (idx <= 0 || idx == member.length() - 1) {
+                    throw new IllegalArgumentException(
+                            sm.getString("gossipMembershipService.invalid.seed", member));
+                }
+                String host = member.substring(0, idx);
+                if (host.startsWith("[") && host.endsWith("]")) {
+                    host = host.substring(1, host.length() - 1);
+                }
+                result.add(new InetSocketAddress(host,
+                        Integer.parseInt(member.substring(idx + 1))));
+            }
+        }
+        return result.toArray(new InetSocketAddress[0]);
+    }
+
+    /**
+     * Start gossiping and listening to gossip.
+     * @throws java.lang.Exception if a IO error occurs
+     */
+    @Override
+    public void start() throws java.lang.Exception {
+        start(MembershipService.MBR_RX);
+        start(MembershipService.MBR_TX);
+    }
+
+    @Override
+    public void start(int level) throws java.lang.Exception {
+        hasProperty(properties,"port");
+        hasProperty(properties,"seeds");
+        hasProperty(properties,"frequency");
+        hasProperty(properties,"dropTime");
+        hasProperty(properties,"tcpListenPort");
+        hasProperty(properties,"tcpListenHost");
+
+        if ( impl != null ) {
+            impl.start(level);
+            return;
+        }
+        String host = getProperties().getProperty("tcpListenHost");
+        int port = Integer.parseInt(getProperties().getProperty("tcpListenPort"));
+        int securePort = Integer.parseInt(getProperties().getProperty("tcpSecurePort", "-1"));
+        int udpPort = Integer.parseInt(getProperties().getProperty("udpListenPort", "-1"));
+
+        if ( localMember == null ) {
+            localMember = new MemberImpl(host, port, 100);
+            localMember.setUniqueId(UUIDGenerator.randomUUID(true));
+        } else {
+            localMember.setHostname(host);
+            localMember.setPort(port);
+            localMember.setMemberAliveTime(100);
+        }
+        localMember.setSecurePort(securePort);
+        localMember.setUdpPort(udpPort);
+        if ( this.payload != null ) localMember.setPayload(payload);
+        if ( this.domain != null ) localMember.setDomain(domain);
+        localMember.setServiceStartTime(System.currentTimeMillis());
+
+        InetSocketAddress bind;
+        if (properties.getProperty("bind") != null) {
+            bind = new InetSocketAddress(properties.getProperty("bind"), getPort());
+        } else {
+            bind = new InetSocketAddress(host, getPort());
+        }
+        impl = new GossipMembershipServiceImpl(localMember, bind,
+                parseSeeds(properties.getProperty("seeds")), getFrequency(), getDropTime(),
+                getFanout(), getConnectTimeout(), this);
+        impl.start(level);
+    }
+
+    /**
+     * Stop gossiping and listening to gossip
+     */
+    @Override
+    public void stop(int svc) {
+        try  {
+            if ( impl != null && impl.stop(svc) ) impl = null;
+        } catch ( Exception x)  {
+            log.error(sm.getString("gossipMembershipService.stopFail", Integer.valueOf(svc)), x);
+        }
+    }
+
+    @Override
+    public String[] getMembersByName() {
+        Member[] currentMembers = getMembers();
+        String [] membernames = new String[currentMembers.length];
+        for (int i = 0; i < currentMembers.length; i++) {
+            membernames[i] = currentMembers[i].toString() ;
+        }
+        return membernames ;
+    }
+
+    @Override
+    public Member findMemberByName(String name) {
+        Member[] currentMembers = getMembers();
+        for (int i = 0; i < currentMembers.length; i++) {
+            if (name.equals(currentMembers[i].toString()))
+                return currentMembers[i];
+        }
+        return null;
+    }
+
+    @Override
+    public boolean hasMembers() {
+        GossipMembershipServiceImpl impl = this.impl;
+        if ( impl == null ) return false;
+        return impl.membership.hasMembers();
+    }
+
+    @Override
+    public Member getMember(Member mbr) {
+        GossipMembershipServiceImpl impl = this.impl;
+        if ( impl == null ) return null;
+        return impl.membership.getMember(mbr);
+    }
+
+    @Override
+    public Member[] getMembers() {
+        GossipMembershipServiceImpl impl = this.impl;
+        if ( impl == null ) return EMPTY_MEMBERS;
+        return impl.membership.getMembers();
+    }
+
+    @Override
+    public void setMembershipListener(MembershipListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void removeMembershipListener(){
+        listener = null;
+    }
+
+    @Override
+    public void memberAdded(Member member) {
+        MembershipListener listener = this.listener;
+        if (listener != null) {
+            listener.memberAdded(member);
+        }
+    }
+
+    @Override
+    public void memberDisappeared(Member member) {
+        MembershipListener listener = this.listener;
+        if (listener != null) {
+            listener.memberDisappeared(member);
+        }
+    }
+
+    /**
+     * Broadcasts are a multicast feature and not supported.
+     */
+    @Override
+    public void broadcast(ChannelMessage message) throws ChannelException {
+        throw new ChannelException(sm.getString("gossipMembershipService.noBroadcast"));
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public byte[] getDomain() {
+        return domain;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The new payload is disseminated with the next gossip rounds.
+     */
+    @Override
+    public void setPayload(byte[] payload) {
+        this.payload = payload;
+        if ( localMember != null ) {
+            localMember.setPayload(payload);
+        }
+    }
+
+    @Override
+    public void setDomain(byte[] domain) {
+        this.domain = domain;
+        if ( localMember != null ) {
+            localMember.setDomain(domain);
+        }
+    }
+
+    public void setDomain(String domain) {
+        if ( domain == null ) return;
+        if ( domain.startsWith("{") ) setDomain(Arrays.fromString(domain));
+        else setDomain(Arrays.convert(domain));
+    }
+}
@@ -0,0 +1,591 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.tribes.membership;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.catalina.tribes.Channel;
+import org.apache.catalina.tribes.Member;
+import org.apache.catalina.tribes.MembershipListener;
+import org.apache.catalina.tribes.util.Arrays;
+import org.apache.catalina.tribes.util.ExecutorFactory;
+import org.apache.catalina.tribes.util.StringManager;
+import org.apache.catalina.tribes.util.TcclThreadFactory;
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+
+/**
+ * A <b>membership</b> implementation that only uses TCP.
+ * <p>
+ * Every member keeps a table of all members it knows about together with a
+ * heartbeat counter. Each round a member increments its own counter and
+ * exchanges its table with a few randomly chosen members (push-pull). The
+ * higher counter wins when tables are merged. A member whose counter has not
+ * increased for <code>dropTime</code> milliseconds is considered gone.
+ * </p>
+ * <p>
+ * By default the number of members contacted per round is
+ * <code>log2(n+1)</code>, so the number of messages per round grows with
+ * O(log n) instead of the O(n) of all-to-all pings, while a membership change
+ * still reaches all members in O(log n) rounds.
+ * </p>
+ */
+public class GossipMembershipServiceImpl {
+
+    private static final Log log = LogFactory.getLog(GossipMembershipServiceImpl.class);
+    protected static final StringManager sm = StringManager.getManager(Constants.Package);
+
+    /**
+     * Start of every gossip message, "TGSP" followed by the version.
+     */
+    protected static final int GOSSIP_MAGIC = 0x54475350;
+    protected static final int GOSSIP_VERSION = 1;
+    protected static final int MAX_ENTRIES = 65536;
+
+    protected final MemberImpl member;
+    protected final InetSocketAddress bind;
+    protected final InetSocketAddress[] seeds;
+    protected final long frequency;
+    protected final long dropTime;
+    protected final int fanout;
+    protected final int connectTimeout;
+    protected final MembershipListener service;
+
+    /**
+     * The members that are considered alive.
+     */
+    protected final Membership membership;
+
+    /**
+     * The gossip state of every remote member that is alive. Guarded by
+     * <code>entries</code>.
+     */
+    protected final Map<Member,GossipEntry> entries = new HashMap<>();
+
+    /**
+     * Members that have disappeared, with the heartbeat they had at that time.
+     * Older gossip about them is ignored. Guarded by <code>entries</code>.
+     */
+    protected final Map<Member,GossipEntry> tombstones = new HashMap<>();
+
+    protected final AtomicLong heartbeat = new AtomicLong(0);
+    protected final AtomicLong rounds = new AtomicLong(0);
+    protected final AtomicLong messagesSent = new AtomicLong(0);
+    protected final AtomicLong messagesReceived = new AtomicLong(0);
+    protected final AtomicLong failedExchanges = new AtomicLong(0);
+
+    protected final Random random = new Random();
+
+    protected volatile int startLevel = 0;
+    protected ServerSocket serverSocket;
+    protected ExecutorService executor;
+    protected AcceptThread acceptor;
+    protected GossipThread sender;
+
+    /**
+     * Create a new gossip membership service.
+     * @param member         The local member
+     * @param bind           The address to listen to for gossip messages
+     * @param seeds          Gossip addresses that are contacted to join the
+     *                       cluster
+     * @param frequency      The time between two gossip rounds
+     * @param dropTime       The time after which a member without new
+     *                       heartbeats is considered gone
+     * @param fanout         The number of members to contact per round,
+     *                       <code>0</code> or less for <code>log2(n+1)</code>
+     * @param connectTimeout The connect and read timeout for an exchange
+     * @param service        The listener to notify about membership changes
+     */
+    public GossipMembershipServiceImpl(MemberImpl member, InetSocketAddress bind,
+            InetSocketAddress[] seeds, long frequency, long dropTime, int fanout,
+            int connectTimeout, MembershipListener service) {
+        this.member = member;
+        this.bind = bind;
+        this.seeds = seeds;
+        this.frequency = frequency;
+        this.dropTime = dropTime;
+        this.fanout = fanout;
+        this.connectTimeout = connectTimeout;
+        this.service = service;
+        this.member.setCommand(new byte[0]);
+        this.membership = new Membership(member);
+    }
+
+    /**
+     * Start the service
+     * @param level 1 starts the receiver, level 2 starts the sender
+     * @throws IOException if the service fails to start
+     * @throws IllegalStateException if the service is already started
+     */
+    public synchronized void start(int level) throws IOException {
+        boolean valid = false;
+        if (executor == null) {
+            executor = ExecutorFactory.newThreadPool(0, Math.max(8, 2 * getFanout(seeds.length)),
+                    60, TimeUnit.SECONDS, new TcclThreadFactory("GossipMembership-Exchange-"));
+        }
+        if ( (level & Channel.MBR_RX_SEQ)==Channel.MBR_RX_SEQ ) {
+            if ( acceptor != null ) throw new IllegalStateException(sm.getString("gossipMembershipServiceImpl.receive.running"));
+            serverSocket = new ServerSocket();
+            serverSocket.setReuseAddress(true);
+            serverSocket.bind(bind);
+            if (log.isInfoEnabled()) {
+                log.info(sm.getString("gossipMembershipServiceImpl.bind", getGossipAddress()));
+            }
+            acceptor = new AcceptThread();
+            acceptor.setDaemon(true);
+            acceptor.start();
+            valid = true;
+        }
+        if ( (level & Channel.MBR_TX_SEQ)==Channel.MBR_TX_SEQ ) {
+            if ( sender != null ) throw new IllegalStateException(sm.getString("gossipMembershipServiceImpl.send.running"));
+            member.setCommand(new byte[0]);
+            //join right away, the seeds return their view of the cluster
+            gossip();
+            sender = new GossipThread();
+            sender.setDaemon(true);
+            sender.start();
+            valid = true;
+        }
+        if (!valid) {
+            throw new IllegalArgumentException(sm.getString("mcastServiceImpl.invalid.startLevel"));
+        }
+        startLevel = (startLevel | level);
+    }
+
+    /**
+     * Stops the service.
+     * @param level Stop status
+     * @return <code>true</code> if the stop is complete
+     */
+    public synchronized boolean stop(int level) {
+        boolean valid = false;
+        if ( (level & Channel.MBR_TX_SEQ)==Channel.MBR_TX_SEQ ) {
+            valid = true;
+            if ( sender != null ) {
+                sender.interrupt();
+                sender = null;
+                //tell everybody we know that we are leaving
+                member.setCommand(Member.SHUTDOWN_PAYLOAD);
+                heartbeat.incrementAndGet();
+                exchange(getGossipAddresses(getEntries()));
+            }
+        }
+        if ( (level & Channel.MBR_RX_SEQ)==Channel.MBR_RX_SEQ ) {
+            valid = true;
+            if ( acceptor != null ) {
+                acceptor.interrupt();
+                acceptor = null;
+            }
+            try {
+                if (serverSocket != null) serverSocket.close();
+            } catch (IOException ignore) {
+                // Ignore
+            }
+            serverSocket = null;
+        }
+        if (!valid) {
+            throw new IllegalArgumentException(sm.getString("mcastServiceImpl.invalid.stopLevel"));
+        }
+        startLevel = (startLevel & (~level));
+        if ( startLevel == 0 ) {
+            if (executor != null) executor.shutdownNow();
+            executor = null;
+            member.setServiceStartTime(-1);
+        }
+        return (startLevel == 0);
+    }
+
+    /**
+     * Run one gossip round: increment the local heartbeat, expire members
+     * and exchange the member table with <code>fanout</code> random members.
+     */
+    protected void gossip() {
+        heartbeat.incrementAndGet();
+        rounds.incrementAndGet();
+        checkExpired();
+        List<InetSocketAddress> candidates = getGossipAddresses(getEntries());
+        //seeds that are not (yet) members, so that we join and re-join
+        for (InetSocketAddress seed : seeds) {
+            if (!candidates.contains(seed) && !seed.equals(getGossipAddress())) {
+                candidates.add(seed);
+            }
+        }
+        int count = Math.min(candidates.size(), getFanout(candidates.size()));
+        Collections.shuffle(candidates, random);
+        exchange(candidates.subList(0, count));
+    }
+
+    /**
+     * Exchange the member table with all given addresses in parallel and wait
+     * for the exchanges to finish.
+     * @param targets The gossip addresses
+     */
+    protected void exchange(List<InetSocketAddress> targets) {
+        ExecutorService executor = this.executor;
+        if (targets.isEmpty() || executor == null) return;
+        List<Callable<Void>> tasks = new ArrayList<>(targets.size());
+        for (final InetSocketAddress target : targets) {
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    exchange(target);
+                    return null;
+                }
+            });
+        }
+        try {
+            executor.invokeAll(tasks, 2L * connectTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException x) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    protected void exchange(InetSocketAddress target) {
+        try (Socket socket = new Socket()) {
+            socket.connect(target, connectTimeout);
+            socket.setSoTimeout(connectTimeout);
+            socket.setTcpNoDelay(true);
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(socket.getOutputStream()));
+            writeEntries(out);
+            out.flush();
+            messagesSent.incrementAndGet();
+            merge(readEntries(new DataInputStream(
+                    new BufferedInputStream(socket.getInputStream()))));
+        } catch (IOException x) {
+            failedExchanges.incrementAndGet();
+            if (log.isDebugEnabled()) {
+                log.debug(sm.getString("gossipMembershipServiceImpl.exchange.failed", target), x);
+            }
+        }
+    }
+
+    protected void receive(Socket socket) {
+        try {
+            socket.setSoTimeout(connectTimeout);
+            socket.setTcpNoDelay(true);
+            List<GossipEntry> received = readEntries(new DataInputStream(
+                    new BufferedInputStream(socket.getInputStream())));
+            messagesReceived.incrementAndGet();
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(socket.getOutputStream()));
+            writeEntries(out);
+            out.flush();
+            merge(received);
+        } catch (IOException x) {
+            if (log.isDebugEnabled()) {
+                log.debug(sm.getString("gossipMembershipServiceImpl.receive.failed",
+                        socket.getRemoteSocketAddress()), x);
+            }
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException ignore) {
+                // Ignore
+            }
+        }
+    }
+
+    /**
+     * Merge gossip received from another member into the local table.
+     * @param received The entries of the other member
+     */
+    protected void merge(List<GossipEntry> received) {
+        List<Member> added = new ArrayList<>();
+        List<Member> disappeared = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            for (GossipEntry entry : received) {
+                Member m = entry.member;
+                if (m.equals(member)) continue;
+                GossipEntry tombstone = tombstones.get(m);
+                if (tombstone != null) {
+                    if (entry.heartbeat <= tombstone.heartbeat) continue;
+                    tombstones.remove(m);
+                }
+                GossipEntry existing = entries.get(m);
+                if (Arrays.equals(m.getCommand(), Member.SHUTDOWN_PAYLOAD)) {
+                    if (log.isDebugEnabled()) log.debug("Member has shutdown:" + m);
+                    if (existing != null) {
+                        entries.remove(m);
+                        membership.removeMember(m);
+                        disappeared.add(m);
+                    }
+                    entry.updated = now;
+                    tombstones.put(m, entry);
+                } else if (existing == null) {
+                    entry.updated = now;
+                    entries.put(m, entry);
+                    if (membership.memberAlive(m)) {
+                        if (log.isDebugEnabled()) log.debug("Gossip add member " + m);
+                        added.add(m);
+                    }
+                } else if (entry.heartbeat > existing.heartbeat) {
+                    existing.heartbeat = entry.heartbeat;
+                    existing.updated = now;
+                    membership.memberAlive(m);
+                }
+            }
+        }
+        for (Member m : added) {
+            service.memberAdded(m);
+        }
+        for (Member m : disappeared) {
+            service.memberDisappeared(m);
+        }
+    }
+
+    /**
+     * Remove the members whose heartbeat has not increased for
+     * <code>dropTime</code> milliseconds.
+     */
+    protected void checkExpired() {
+        List<Member> expired = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Iterator<GossipEntry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                GossipEntry entry = it.next();
+                if (now - entry.updated > dropTime) {
+                    it.remove();
+                    entry.updated = now;
+                    tombstones.put(entry.member, entry);
+                    membership.removeMember(entry.member);
+                    expired.add(entry.member);
+                }
+            }
+            //the other members have expired them as well by now
+            Iterator<GossipEntry> tit = tombstones.values().iterator();
+            while (tit.hasNext()) {
+                if (now - tit.next().updated > 3 * dropTime) tit.remove();
+            }
+        }
+        for (Member m : expired) {
+            if (log.isDebugEnabled()) log.debug("Gossip expire member " + m);
+            try {
+                service.memberDisappeared(m);
+            } catch (Exception x) {
+                log.error(sm.getString("mcastServiceImpl.memberDisappeared.failed"), x);
+            }
+        }
+    }
+
+    protected void writeEntries(DataOutputStream out) throws IOException {
+        List<GossipEntry> snapshot = getEntries();
+        out.writeInt(GOSSIP_MAGIC);
+        out.writeInt(GOSSIP_VERSION);
+        out.writeInt(snapshot.size() + 1);
+        writeEntry(out, member.getData(true, true), getGossipAddress().getPort(), heartbeat.get());
+        for (GossipEntry entry : snapshot) {
+            writeEntry(out, ((MemberImpl) entry.member).getData(false, false), entry.port,
+                    entry.heartbeat);
+        }
+    }
+
+    private static void writeEntry(DataOutputStream out, byte[] data, int port, long heartbeat)
+            throws IOException {
+        out.writeInt(port);
+        out.writeLong(heartbeat);
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    protected List<GossipEntry> readEntries(DataInputStream in) throws IOException {
+        if (in.readInt() != GOSSIP_MAGIC || in.readInt() != GOSSIP_VERSION) {
+            throw new IOException(sm.getString("gossipMembershipServiceImpl.invalid.message"));
+        }
+        int count = in.readInt();
+        if (count < 0 || count > MAX_ENTRIES) {
+            throw new IOException(sm.getString("gossipMembershipServiceImpl.invalid.message"));
+        }
+        List<GossipEntry> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int port = in.readInt();
+            long hb = in.readLong();
+            int length = in.readInt();
+            if (length < 0 || length > McastServiceImpl.MAX_PACKET_SIZE) {
+                throw new IOException(sm.getString("gossipMembershipServiceImpl.invalid.message"));
+            }
+            byte[] data = new byte[length];
+            in.readFully(data);
+            try {
+                result.add(new GossipEntry(MemberImpl.getMember(data), port, hb));
+            } catch (IllegalArgumentException x) {
+                throw new IOException(sm.getString("gossipMembershipServiceImpl.invalid.message"), x);
+            }
+        }
+        return result;
+    }
+
+    protected List<GossipEntry> getEntries() {
+        synchronized (entries) {
+            List<GossipEntry> result = new ArrayList<>(entries.size());
+            for (GossipEntry entry : entries.values()) {
+                result.add(entry.copy());
+            }
+            return result;
+        }
+    }
+
+    protected static List<InetSocketAddress> getGossipAddresses(List<GossipEntry> entries) {
+        Set<InetSocketAddress> result = new LinkedHashSet<>();
+        for (GossipEntry entry : entries) {
+            try {
+                result.add(new InetSocketAddress(
+                        InetAddress.getByAddress(entry.member.getHost()), entry.port));
+            } catch (IOException x) {
+                // Invalid address, can't gossip with that member
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * @param members The number of members to choose from
+     * @return the number of members to contact in one round
+     */
+    protected int getFanout(int members) {
+        if (fanout > 0) return fanout;
+        // ceil(log2(members + 1))
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(members));
+    }
+
+    public InetSocketAddress getGossipAddress() {
+        ServerSocket socket = serverSocket;
+        if (socket != null && socket.isBound()) {
+            InetAddress address = socket.getInetAddress();
+            if (address == null || address.isAnyLocalAddress()) {
+                try {
+                    address = InetAddress.getByAddress(member.getHost());
+                } catch (IOException x) {
+                    address = socket.getInetAddress();
+                }
+            }
+            return new InetSocketAddress(address, socket.getLocalPort());
+        }
+        return bind;
+    }
+
+    public long getRounds() {
+        return rounds.get();
+    }
+
+    public long getMessagesSent() {
+        return messagesSent.get();
+    }
+
+    public long getMessagesReceived() {
+        return messagesReceived.get();
+    }
+
+    public long getFailedExchanges() {
+        return failedExchanges.get();
+    }
+
+
+    /**
+     * The gossip state of one member.
+     */
+    protected static class GossipEntry {
+        protected final Member member;
+        protected final int port;
+        protected volatile long heartbeat;
+        protected volatile long updated;
+
+        GossipEntry(Member member, int port, long heartbeat) {
+            this.member = member;
+            this.port = port;
+            this.heartbeat = heartbeat;
+        }
+
+        GossipEntry copy() {
+            GossipEntry result = new GossipEntry(member, port, heartbeat);
+            result.updated = updated;
+            return result;
+        }
+    }
+
+    protected class AcceptThread extends Thread {
+        public AcceptThread() {
+            super();
+            setName("Tribes-GossipMembershipAccept");
+        }
+        @Override
+        public void run() {
+            ServerSocket socket = serverSocket;
+            while (acceptor == this && !socket.isClosed()) {
+                try {
+                    final Socket s = socket.accept();
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            receive(s);
+                        }
+                    });
+                } catch (SocketException x) {
+                    // Closed by stop()
+                } catch (Exception x) {
+                    if (acceptor == this) {
+                        log.warn(sm.getString("gossipMembershipServiceImpl.accept.failed"), x);
+                    }
+                }
+            }
+        }
+    }
+
+    protected class GossipThread extends Thread {
+        public GossipThread() {
+            super();
+            setName("Tribes-GossipMembershipSender");
+        }
+        @Override
+        public void run() {
+            while (sender == this) {
+                try {
+                    Thread.sleep(frequency);
+                    gossip();
+                } catch (InterruptedException ix) {
+                    // Ignore. Probably triggered by a call to stop().
+                } catch (Exception x) {
+                    log.warn(sm.getString("gossipMembershipServiceImpl.gossip.failed"), x);
+                }
+            }
+        }
+    }
+}
@@ -24,11 +24,17 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.catalina.tribes.Channel;
 import org.apache.catalina.tribes.ChannelException;
@@ -93,6 +99,12 @@ public abstract class AbstractReplicatedMap<K,V>
      * The RpcChannel to send RPC messages through
      */
     protected transient RpcChannel rpcChannel;
+    /**
+     * Backup retrievals that are in flight. Concurrent lookups of the same key
+     * wait for the thread that sent the request to make the entry primary.
+     */
+    protected final transient ConcurrentMap<Object,CountDownLatch> pendingRetrievals =
+            new ConcurrentHashMap<>();
     /**
      * The Map context name makes this map unique, this
      * allows us to have more than one map shared
@@ -389,6 +401,28 @@ public abstract class AbstractReplicatedMap<K,V>
         return getMapMembers(this.mapMembers);
     }
 
+    /**
+     * The map members that the channel currently considers reachable. A
+     * failure detector in the interceptor stack may hide members from
+     * {@link Channel#getMembers()} before they are removed from the
+     * membership. If no map member is reachable, all map members are returned.
+     *
+     * @return the map members that are also channel members
+     */
+    public Member[] getAvailableMapMembers() {
+        Member[] members = getMapMembers();
+        Member[] available = channel.getMembers();
+        if (members.length == 0 || available == null) return members;
+        ArrayList<Member> result = new ArrayList<>(members.length);
+        Set<Member> availableSet = new HashSet<>();
+        Collections.addAll(availableSet, available);
+        for (Member member : members) {
+            if (availableSet.contains(member)) result.add(member);
+        }
+        if (result.isEmpty()) return members;
+        return result.toArray(new Member[0]);
+    }
+
     public Member[] getMapMembersExcl(Member[] exclude) {
         synchronized (mapMembers) {
             @SuppressWarnings("unchecked") // mapMembers has the correct type
@@ -929,6 +963,7 @@ public abstract class AbstractReplicatedMap<K,V>
         if ( entry == null ) return null;
         if ( !entry.isPrimary() ) {
             //if the message is not primary, we need to retrieve the latest value
+            CountDownLatch retrieval = null;
             try {
                 Member[] backup = null;
                 MapMessage msg = null;
@@ -936,10 +971,16 @@ public abstract class AbstractReplicatedMap<K,V>
                     //select a new backup node
                     backup = publishEntryInfo(key, entry.getValue());
                 } else if ( entry.isProxy() ) {
+                    CountDownLatch latch = new CountDownLatch(1);
+                    CountDownLatch pending = pendingRetrievals.putIfAbsent(key, latch);
+                    if (pending != null) {
+                        //another thread is retrieving the entry, use its result
+                        pending.await(2 * getRpcTimeout(), TimeUnit.MILLISECONDS);
+                        return entry.isPrimary() ? entry.getValue() : null;
+                    }
+                    retrieval = latch;
                     //make sure we don't retrieve from ourselves
-                    msg = new MapMessage(getMapContextName(), MapMessage.MSG_RETRIEVE_BACKUP, false,
-                                         (Serializable) key, null, null, null,null);
-                    Response[] resp = getRpcChannel().send(entry.getBackupNodes(),msg, RpcChannel.FIRST_REPLY, Channel.SEND_OPTIONS_DEFAULT, getRpcTimeout());
+                    Response[] resp = retrieveBackup(key, entry.getBackupNodes());
                     if (resp == null || resp.length == 0) {
                         //no responses
                         log.warn(sm.getString("abstractReplicatedMap.unable.retrieve", key));
@@ -985,6 +1026,11 @@ public abstract class AbstractReplicatedMap<K,V>
             } catch (Exception x) {
                 log.error(sm.getString("abstractReplicatedMap.unable.get"), x);
                 return null;
+            } finally {
+                if (retrieval != null) {
+                    pendingRetrievals.remove(key, retrieval);
+                    retrieval.countDown();
+                }
             }
         }
         if (log.isTraceEnabled()) log.trace("Requesting id:"+key+" result:"+entry.getValue());
@@ -992,6 +1038,25 @@ public abstract class AbstractReplicatedMap<K,V>
     }
 
 
+    /**
+     * Retrieve the latest value of an entry from its backup nodes. Only called
+     * by the thread that registered the retrieval in {@link #pendingRetrievals},
+     * concurrent lookups of the same key wait for that thread.
+     * @param key The key of the entry
+     * @param backup The backup nodes of the entry
+     * @return the responses, may be empty
+     * @throws InterruptedException if the thread is interrupted while waiting
+     * @throws ExecutionException if the request failed
+     */
+    protected Response[] retrieveBackup(Object key, Member[] backup)
+            throws InterruptedException, ExecutionException {
+        MapMessage msg = new MapMessage(getMapContextName(), MapMessage.MSG_RETRIEVE_BACKUP,
+                false, (Serializable) key, null, null, null, null);
+        Future<Response[]> future = getRpcChannel().sendAsync(backup, msg,
+                RpcChannel.FIRST_REPLY, Channel.SEND_OPTIONS_DEFAULT, getRpcTimeout());
+        return future.get();
+    }
+
     protected void printMap(String header) {
         try {
             System.out.println("\nDEBUG MAP:"+header);
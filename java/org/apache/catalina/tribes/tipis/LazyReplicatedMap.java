@@ -149,13 +149,15 @@ public class LazyReplicatedMap<K,V> extends AbstractReplicatedMap<K,V> {
     @Override
     protected Member[] publishEntryInfo(Object key, Object value) throws ChannelException {
         if  (! (key instanceof Serializable && value instanceof Serializable)  ) return new Member[0];
-        Member[] members = getMapMembers();
+        Member[] members = getAvailableMapMembers();
         int firstIdx = getNextBackupIndex();
-        int nextIdx = firstIdx;
         Member[] backup = new Member[0];
 
         //there are no backups
         if ( members.length == 0 || firstIdx == -1 ) return backup;
+        //suspected members may have been excluded
+        firstIdx = firstIdx % members.length;
+        int nextIdx = firstIdx;
 
         boolean success = false;
         do {
@@ -148,6 +148,13 @@ public abstract class AbstractAccessLogValve extends ValveBase implements Access
         LOCAL, REMOTE
     }
 
+    /**
+     * The list of our JDBC time types.
+     */
+    private static enum JdbcTimeType {
+        WAIT, HOLD, STATEMENT
+    }
+
     //------------------------------------------------------ Constructor
     public AbstractAccessLogValve() {
         super(true);
@@ -1260,6 +1267,57 @@ public abstract class AbstractAccessLogValve extends ValveBase implements Access
         }
     }
 
+    /**
+     * write time spent using JDBC connections while processing the request
+     * in millis - %{xxx}J
+     */
+    protected static class JdbcTimeElement implements AccessLogElement {
+
+        /**
+         * Type of time to log
+         */
+        private static final String waitTime = "wait";
+        private static final String holdTime = "hold";
+        private static final String statementTime = "statement";
+
+        private final JdbcTimeType timeType;
+
+        public JdbcTimeElement(String type) {
+            switch (type) {
+            case waitTime:
+                timeType = JdbcTimeType.WAIT;
+                break;
+            case holdTime:
+                timeType = JdbcTimeType.HOLD;
+                break;
+            case statementTime:
+                timeType = JdbcTimeType.STATEMENT;
+                break;
+            default:
+                log.error(sm.getString("accessLogValve.invalidJdbcTimeType", type));
+                timeType = JdbcTimeType.HOLD;
+                break;
+            }
+        }
+
+        @Override
+        public void addElement(CharArrayWriter buf, Date date, Request request,
+                Response response, long time) {
+            RequestInfo info = request.getCoyoteRequest().getRequestProcessor();
+            switch (timeType) {
+            case WAIT:
+                buf.append(Long.toString(info.getRequestJdbcWaitTime()));
+                break;
+            case HOLD:
+                buf.append(Long.toString(info.getRequestJdbcHoldTime()));
+                break;
+            case STATEMENT:
+                buf.append(Long.toString(info.getRequestJdbcStatementTime()));
+                break;
+            }
+        }
+    }
+
     /**
      * write Query string (prepended with a '?' if it exists) - %q
      */
@@ -1546,6 +1604,8 @@ public abstract class AbstractAccessLogValve extends ValveBase implements Access
         switch (pattern) {
         case 'i':
             return new HeaderElement(name);
+        case 'J':
+            return new JdbcTimeElement(name);
         case 'c':
             return new CookieElement(name);
         case 'o':
@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -194,6 +195,18 @@ public abstract class AbstractArchiveResourceSet extends AbstractResourceSet {
      */
     protected abstract JarEntry getArchiveEntry(String pathInArchive);
 
+
+    /**
+     * Obtain the names of all the entries in the archive. Unlike
+     * {@link #getArchiveEntries(boolean)}, implementations are not required to
+     * retain the entries after this call.
+     *
+     * @return The names of the entries in the archive
+     */
+    protected Collection<String> getArchiveEntryNames() {
+        return getArchiveEntries(false).keySet();
+    }
+
     @Override
     public final boolean mkdir(String path) {
         checkPath(path);
@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.webresources;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.catalina.WebResourceSet;
+
+/**
+ * Index of the entries of the JARs that provide the class loader resources of
+ * a web application, normally the JARs in /WEB-INF/lib mounted at
+ * /WEB-INF/classes. Without the index every lookup of a class or resource,
+ * including the many lookups for classes that do not exist, has to check each
+ * JAR in turn.
+ * <p>
+ * The index maps each directory to the JARs that have entries in it and uses
+ * a Bloom filter of all entry names to reject most lookups for entries that
+ * do not exist in any JAR without looking at the individual JARs. Only JARs
+ * mounted at the same location with the same internal path are indexed.
+ * <p>
+ * The index is immutable and is built once when the web resources start.
+ * Resource sets added later are not indexed and are always checked.
+ */
+final class ClassResourceIndex {
+
+    private static final int BITS_PER_ENTRY = 10;
+
+    private final String webAppMount;
+    private final String internalPath;
+    private final Set<WebResourceSet> indexed =
+            Collections.newSetFromMap(new IdentityHashMap<WebResourceSet,Boolean>());
+    private final Map<String,Set<WebResourceSet>> directories = new HashMap<>();
+    private final long[] bloom;
+
+
+    private ClassResourceIndex(String webAppMount, String internalPath,
+            List<AbstractArchiveResourceSet> resourceSets,
+            List<Collection<String>> entryNames, int entryCount) {
+        this.webAppMount = webAppMount;
+        this.internalPath = internalPath;
+        bloom = new long[Math.max(1, (entryCount * BITS_PER_ENTRY + 63) / 64)];
+        for (int i = 0; i < resourceSets.size(); i++) {
+            WebResourceSet resourceSet = resourceSets.get(i);
+            indexed.add(resourceSet);
+            for (String name : entryNames.get(i)) {
+                addToBloom(name);
+                String directory = getDirectory(name);
+                Set<WebResourceSet> sets = directories.get(directory);
+                if (sets == null) {
+                    // Most directories are only in one JAR
+                    sets = Collections.newSetFromMap(
+                            new IdentityHashMap<WebResourceSet,Boolean>(2));
+                    directories.put(directory, sets);
+                }
+                sets.add(resourceSet);
+            }
+        }
+    }
+
+
+    /**
+     * Build an index for the given class loader resources.
+     *
+     * @param classResources The class loader resources in the order in which
+     *                           they are searched
+     * @return the index or <code>null</code> if there is nothing to index
+     */
+    static ClassResourceIndex build(List<WebResourceSet> classResources) {
+        String webAppMount = null;
+        String internalPath = null;
+        List<AbstractArchiveResourceSet> resourceSets = new ArrayList<>();
+        List<Collection<String>> entryNames = new ArrayList<>();
+        int entryCount = 0;
+        for (WebResourceSet webResourceSet : classResources) {
+            if (!(webResourceSet instanceof AbstractArchiveResourceSet)) {
+                continue;
+            }
+            AbstractArchiveResourceSet resourceSet =
+                    (AbstractArchiveResourceSet) webResourceSet;
+            if (webAppMount == null) {
+                webAppMount = resourceSet.getWebAppMount();
+                internalPath = resourceSet.getInternalPath();
+            } else if (!webAppMount.equals(resourceSet.getWebAppMount()) ||
+                    !internalPath.equals(resourceSet.getInternalPath())) {
+                // Will always be checked
+                continue;
+            }
+            Collection<String> names = resourceSet.getArchiveEntryNames();
+            resourceSets.add(resourceSet);
+            entryNames.add(names);
+            entryCount += names.size();
+        }
+        if (resourceSets.isEmpty()) {
+            return null;
+        }
+        return new ClassResourceIndex(
+                webAppMount, internalPath, resourceSets, entryNames, entryCount);
+    }
+
+
+    /**
+     * Is the given resource set covered by this index?
+     *
+     * @param webResourceSet The resource set
+     * @return <code>true</code> if {@link #getCandidates(String)} may be used
+     *         to determine if the resource set contains a resource
+     */
+    boolean isIndexed(WebResourceSet webResourceSet) {
+        return indexed.contains(webResourceSet);
+    }
+
+
+    /**
+     * Determine which of the indexed resource sets may contain a resource.
+     * Indexed resource sets that are not returned are known not to contain
+     * the resource. The result may include resource sets that do not contain
+     * it. The result is an identity based set so that the resource sets can
+     * be checked against it without scanning it.
+     *
+     * @param path The path of the resource in the web application
+     * @return the resource sets that may contain the resource or
+     *         <code>null</code> if all indexed resource sets may contain it
+     */
+    Set<WebResourceSet> getCandidates(String path) {
+        // Matches the look up performed by AbstractArchiveResourceSet
+        if (!path.startsWith(webAppMount)) {
+            return Collections.emptySet();
+        }
+        String pathInJar = internalPath + path.substring(webAppMount.length());
+        if (pathInJar.length() > 0 && pathInJar.charAt(0) == '/') {
+            pathInJar = pathInJar.substring(1);
+        }
+        if (pathInJar.length() == 0) {
+            // The root of each JAR
+            return null;
+        }
+        if (pathInJar.charAt(pathInJar.length() - 1) == '/') {
+            if (!mayContain(pathInJar)) {
+                return Collections.emptySet();
+            }
+        } else if (!mayContain(pathInJar) && !mayContain(pathInJar + '/')) {
+            return Collections.emptySet();
+        }
+        Set<WebResourceSet> sets = directories.get(getDirectory(pathInJar));
+        if (sets == null) {
+            return Collections.emptySet();
+        }
+        return sets;
+    }
+
+
+    private static String getDirectory(String name) {
+        int end = name.length();
+        if (end > 0 && name.charAt(end - 1) == '/') {
+            end--;
+        }
+        return name.substring(0, name.lastIndexOf('/', end - 1) + 1);
+    }
+
+
+    private void addToBloom(String name) {
+        int hash1 = name.hashCode();
+        int hash2 = mix(hash1);
+        long bits = bloom.length * 64L;
+        for (int i = 0; i < 3; i++) {
+            long bit = ((hash1 + i * (long) hash2) & Long.MAX_VALUE) % bits;
+            bloom[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+
+    private boolean mayContain(String name) {
+        int hash1 = name.hashCode();
+        int hash2 = mix(hash1);
+        long bits = bloom.length * 64L;
+        for (int i = 0; i < 3; i++) {
+            long bit = ((hash1 + i * (long) hash2) & Long.MAX_VALUE) % bits;
+            if ((bloom[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private static int mix(int hash) {
+        // Second hash for double hashing (MurmurHash3 finaliser)
+        int h = hash;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h | 1;
+    }
+}
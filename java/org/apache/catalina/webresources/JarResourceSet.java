@@ -19,8 +19,11 @@ package org.apache.catalina.webresources;
 import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
@@ -112,6 +115,35 @@ public class JarResourceSet extends AbstractArchiveResourceSet {
     }
 
 
+    @Override
+    protected Collection<String> getArchiveEntryNames() {
+        synchronized (archiveLock) {
+            if (archiveEntries != null) {
+                return new ArrayList<>(archiveEntries.keySet());
+            }
+        }
+        // Avoid holding on to the entries when they are only used to index
+        // the JAR
+        List<String> names = new ArrayList<>();
+        JarFile jarFile = null;
+        try {
+            jarFile = openJarFile();
+            Enumeration<JarEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements()) {
+                names.add(entries.nextElement().getName());
+            }
+        } catch (IOException ioe) {
+            // Should never happen
+            throw new IllegalStateException(ioe);
+        } finally {
+            if (jarFile != null) {
+                closeJarFile();
+            }
+        }
+        return names;
+    }
+
+
     @Override
     protected JarEntry getArchiveEntry(String pathInArchive) {
         JarFile jarFile = null;
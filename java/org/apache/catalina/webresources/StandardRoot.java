@@ -77,6 +77,8 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
     private ObjectName cacheJmxName = null;
 
     private boolean trackLockedFiles = false;
+    private boolean indexClassResources = true;
+    private volatile ClassResourceIndex classResourceIndex = null;
     private final Set<TrackedWebResource> trackedResources =
             Collections.newSetFromMap(new ConcurrentHashMap<TrackedWebResource,Boolean>());
 
@@ -273,8 +275,18 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
         WebResource result = null;
         WebResource virtual = null;
         WebResource mainEmpty = null;
+        ClassResourceIndex index = classResourceIndex;
+        Set<WebResourceSet> candidates = null;
+        if (index != null && useClassLoaderResources) {
+            candidates = index.getCandidates(path);
+        }
         for (List<WebResourceSet> list : allResources) {
             for (WebResourceSet webResourceSet : list) {
+                if (candidates != null && index.isIndexed(webResourceSet) &&
+                        !candidates.contains(webResourceSet)) {
+                    // The index shows this resource set does not contain path
+                    continue;
+                }
                 if (!useClassLoaderResources &&  !webResourceSet.getClassLoaderOnly() ||
                         useClassLoaderResources && !webResourceSet.getStaticOnly()) {
                     result = webResourceSet.getResource(path);
@@ -541,6 +553,27 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
         return trackLockedFiles;
     }
 
+    /**
+     * Should an index of the entries of the JARs that provide class loader
+     * resources, normally the JARs in /WEB-INF/lib, be built when the
+     * resources start? The index is used to skip the JARs that cannot contain
+     * a requested class or resource.
+     *
+     * @param indexClassResources {@code true} if the index should be built,
+     *                            otherwise {@code false}
+     */
+    public void setIndexClassResources(boolean indexClassResources) {
+        this.indexClassResources = indexClassResources;
+    }
+
+    /**
+     * @return {@code true} if an index of the JARs that provide class loader
+     *         resources is built when the resources start
+     */
+    public boolean getIndexClassResources() {
+        return indexClassResources;
+    }
+
     public List<String> getTrackedResources() {
         List<String> result = new ArrayList<>(trackedResources.size());
         for (TrackedWebResource resource : trackedResources) {
@@ -701,6 +734,10 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
             classResource.start();
         }
 
+        if (indexClassResources) {
+            classResourceIndex = ClassResourceIndex.build(classResources);
+        }
+
         cache.enforceObjectMaxSizeLimit();
 
         setState(LifecycleState.STARTING);
@@ -733,6 +770,8 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
 
     @Override
     protected void stopInternal() throws LifecycleException {
+        classResourceIndex = null;
+
         for (List<WebResourceSet> list : allResources) {
             for (WebResourceSet webResourceSet : list) {
                 webResourceSet.stop();
@@ -30,6 +30,9 @@ public class RequestGroupInfo {
     private int deadErrorCount = 0;
     private long deadBytesReceived = 0;
     private long deadBytesSent = 0;
+    private long deadJdbcWaitTime = 0;
+    private long deadJdbcHoldTime = 0;
+    private long deadJdbcStatementTime = 0;
 
     public synchronized void addRequestProcessor( RequestInfo rp ) {
         processors.add( rp );
@@ -44,6 +47,9 @@ public class RequestGroupInfo {
             deadErrorCount += rp.getErrorCount();
             deadBytesReceived += rp.getBytesReceived();
             deadBytesSent += rp.getBytesSent();
+            deadJdbcWaitTime += rp.getJdbcWaitTime();
+            deadJdbcHoldTime += rp.getJdbcHoldTime();
+            deadJdbcStatementTime += rp.getJdbcStatementTime();
 
             processors.remove( rp );
         }
@@ -142,6 +148,51 @@ public class RequestGroupInfo {
         }
     }
 
+    public synchronized long getJdbcWaitTime() {
+        long time = deadJdbcWaitTime;
+        for (RequestInfo rp : processors) {
+            time += rp.getJdbcWaitTime();
+        }
+        return time;
+    }
+
+    public synchronized void setJdbcWaitTime(long jdbcWaitTime) {
+        deadJdbcWaitTime = jdbcWaitTime;
+        for (RequestInfo rp : processors) {
+            rp.setJdbcWaitTime(jdbcWaitTime);
+        }
+    }
+
+    public synchronized long getJdbcHoldTime() {
+        long time = deadJdbcHoldTime;
+        for (RequestInfo rp : processors) {
+            time += rp.getJdbcHoldTime();
+        }
+        return time;
+    }
+
+    public synchronized void setJdbcHoldTime(long jdbcHoldTime) {
+        deadJdbcHoldTime = jdbcHoldTime;
+        for (RequestInfo rp : processors) {
+            rp.setJdbcHoldTime(jdbcHoldTime);
+        }
+    }
+
+    public synchronized long getJdbcStatementTime() {
+        long time = deadJdbcStatementTime;
+        for (RequestInfo rp : processors) {
+            time += rp.getJdbcStatementTime();
+        }
+        return time;
+    }
+
+    public synchronized void setJdbcStatementTime(long jdbcStatementTime) {
+        deadJdbcStatementTime = jdbcStatementTime;
+        for (RequestInfo rp : processors) {
+            rp.setJdbcStatementTime(jdbcStatementTime);
+        }
+    }
+
     public void resetCounters() {
         this.setBytesReceived(0);
         this.setBytesSent(0);
@@ -149,5 +200,8 @@ public class RequestGroupInfo {
         this.setProcessingTime(0);
         this.setMaxTime(0);
         this.setErrorCount(0);
+        this.setJdbcWaitTime(0);
+        this.setJdbcHoldTime(0);
+        this.setJdbcStatementTime(0);
     }
 }
@@ -17,6 +17,8 @@
 
 package org.apache.coyote;
 
+import java.util.concurrent.TimeUnit;
+
 import javax.management.ObjectName;
 
 
@@ -33,6 +35,12 @@ import javax.management.ObjectName;
  * @author Costin Manolache
  */
 public class RequestInfo  {
+
+    /**
+     * The request being processed by the current thread, if any.
+     */
+    private static final ThreadLocal<RequestInfo> current = new ThreadLocal<>();
+
     private RequestGroupInfo global=null;
 
     // ----------------------------------------------------------- Constructors
@@ -127,6 +135,77 @@ public class RequestInfo  {
         else return (System.currentTimeMillis() - req.getStartTime());
     }
 
+    /**
+     * @return the time in milliseconds the current request waited for
+     *         connections from JDBC connection pools
+     */
+    public long getRequestJdbcWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(requestJdbcWaitTime);
+    }
+
+    /**
+     * @return the time in milliseconds the current request held connections
+     *         borrowed from JDBC connection pools
+     */
+    public long getRequestJdbcHoldTime() {
+        return TimeUnit.NANOSECONDS.toMillis(requestJdbcHoldTime);
+    }
+
+    /**
+     * @return the time in milliseconds the current request spent executing
+     *         JDBC statements
+     */
+    public long getRequestJdbcStatementTime() {
+        return TimeUnit.NANOSECONDS.toMillis(requestJdbcStatementTime);
+    }
+
+    // -------------------- JDBC usage --------------------
+
+    /**
+     * Makes this request the request processed by the current thread, so that
+     * the use of resources such as JDBC connections can be attributed to it.
+     * Must be followed by a call to {@link #unbind()} once the current thread
+     * stops processing the request.
+     */
+    public void bind() {
+        current.set(this);
+    }
+
+    /**
+     * Clears the request processed by the current thread.
+     */
+    public static void unbind() {
+        current.remove();
+    }
+
+    /**
+     * @return the request processed by the current thread or
+     *         <code>null</code> if none
+     */
+    public static RequestInfo getCurrent() {
+        return current.get();
+    }
+
+    /**
+     * Attributes the use of a JDBC connection to the request processed by the
+     * current thread, if any. This is called by the connection pools once a
+     * connection is returned. As the pools don't depend on Coyote, they may
+     * look this method up by reflection.
+     *
+     * @param waitTime      Time in nanoseconds spent waiting for the
+     *                      connection
+     * @param holdTime      Time in nanoseconds the connection was held
+     * @param statementTime Time in nanoseconds spent executing statements
+     */
+    public static void addCurrentJdbcTime(long waitTime, long holdTime, long statementTime) {
+        RequestInfo info = current.get();
+        if (info != null) {
+            info.requestJdbcWaitTime += waitTime;
+            info.requestJdbcHoldTime += holdTime;
+            info.requestJdbcStatementTime += statementTime;
+        }
+    }
+
     // -------------------- Statistical data  --------------------
     // Collected at the end of each request.
     private long bytesSent;
@@ -146,6 +225,15 @@ public class RequestInfo  {
     //the time of the last request
     private long lastRequestProcessingTime = 0;
 
+    // Time in nanoseconds spent using JDBC connections, by the current
+    // request and in total
+    private long requestJdbcWaitTime;
+    private long requestJdbcHoldTime;
+    private long requestJdbcStatementTime;
+    private long jdbcWaitTime;
+    private long jdbcHoldTime;
+    private long jdbcStatementTime;
+
 
     /** Called by the processor before recycling the request. It'll collect
      * statistic information.
@@ -166,6 +254,13 @@ public class RequestInfo  {
             maxTime=time;
             maxRequestUri=req.requestURI().toString();
         }
+
+        jdbcWaitTime += requestJdbcWaitTime;
+        jdbcHoldTime += requestJdbcHoldTime;
+        jdbcStatementTime += requestJdbcStatementTime;
+        requestJdbcWaitTime = 0;
+        requestJdbcHoldTime = 0;
+        requestJdbcStatementTime = 0;
     }
 
     public int getStage() {
@@ -216,6 +311,30 @@ public class RequestInfo  {
         this.maxRequestUri = maxRequestUri;
     }
 
+    public long getJdbcWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(jdbcWaitTime);
+    }
+
+    public void setJdbcWaitTime(long jdbcWaitTime) {
+        this.jdbcWaitTime = TimeUnit.MILLISECONDS.toNanos(jdbcWaitTime);
+    }
+
+    public long getJdbcHoldTime() {
+        return TimeUnit.NANOSECONDS.toMillis(jdbcHoldTime);
+    }
+
+    public void setJdbcHoldTime(long jdbcHoldTime) {
+        this.jdbcHoldTime = TimeUnit.MILLISECONDS.toNanos(jdbcHoldTime);
+    }
+
+    public long getJdbcStatementTime() {
+        return TimeUnit.NANOSECONDS.toMillis(jdbcStatementTime);
+    }
+
+    public void setJdbcStatementTime(long jdbcStatementTime) {
+        this.jdbcStatementTime = TimeUnit.MILLISECONDS.toNanos(jdbcStatementTime);
+    }
+
     public int getRequestCount() {
         return requestCount;
     }
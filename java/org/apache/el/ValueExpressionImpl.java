@@ -33,6 +33,7 @@ import javax.el.VariableMapper;
 
 import org.apache.el.lang.EvaluationContext;
 import org.apache.el.lang.ExpressionBuilder;
+import org.apache.el.lang.ExpressionCompiler;
 import org.apache.el.parser.AstLiteralExpression;
 import org.apache.el.parser.Node;
 import org.apache.el.util.ReflectionUtil;
@@ -98,6 +99,8 @@ public final class ValueExpressionImpl extends ValueExpression implements
 
     private transient Node node;
 
+    private transient ExpressionCompiler.Profile profile;
+
     public ValueExpressionImpl() {
         super();
     }
@@ -181,7 +184,16 @@ public final class ValueExpressionImpl extends ValueExpression implements
         EvaluationContext ctx = new EvaluationContext(context, this.fnMapper,
                 this.varMapper);
         context.notifyBeforeEvaluation(getExpressionString());
-        Object value = this.getNode().getValue(ctx);
+        Object value;
+        if (ExpressionCompiler.isEnabled()) {
+            if (this.profile == null) {
+                this.profile = ExpressionCompiler.getProfile(this.expr, this.getNode(),
+                        ExpressionCompiler.COMPILE_THRESHOLD);
+            }
+            value = this.profile.getValue(ctx);
+        } else {
+            value = this.getNode().getValue(ctx);
+        }
         if (this.expectedType != null) {
             value = context.convertToType(value, this.expectedType);
         }
@@ -0,0 +1,485 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.el.lang;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+
+import javax.el.ELException;
+import javax.el.ELResolver;
+import javax.el.PropertyNotFoundException;
+
+import org.apache.el.parser.AstAnd;
+import org.apache.el.parser.AstBracketSuffix;
+import org.apache.el.parser.AstChoice;
+import org.apache.el.parser.AstCompositeExpression;
+import org.apache.el.parser.AstDeferredExpression;
+import org.apache.el.parser.AstDiv;
+import org.apache.el.parser.AstDotSuffix;
+import org.apache.el.parser.AstDynamicExpression;
+import org.apache.el.parser.AstFalse;
+import org.apache.el.parser.AstFloatingPoint;
+import org.apache.el.parser.AstInteger;
+import org.apache.el.parser.AstLiteralExpression;
+import org.apache.el.parser.AstMinus;
+import org.apache.el.parser.AstMod;
+import org.apache.el.parser.AstMult;
+import org.apache.el.parser.AstNot;
+import org.apache.el.parser.AstNull;
+import org.apache.el.parser.AstOr;
+import org.apache.el.parser.AstPlus;
+import org.apache.el.parser.AstString;
+import org.apache.el.parser.AstTrue;
+import org.apache.el.parser.AstValue;
+import org.apache.el.parser.Node;
+import org.apache.el.util.ConcurrentCache;
+import org.apache.el.util.MessageFactory;
+
+/**
+ * Compiles frequently evaluated expressions into a tree of specialised
+ * evaluators.
+ * <p>
+ * The interpreter walks the AST for every evaluation and re-discovers the
+ * shape of the expression each time, e.g. which children of an
+ * {@link AstValue} are properties and which are method calls. The compiled
+ * form decides this once, folds constant arithmetic and uses inline caches
+ * for arithmetic on the operand types seen so far. When the operand types
+ * change the evaluator falls back to the generic {@link ELArithmetic} code
+ * used by the interpreter. Nodes that are not supported are evaluated by the
+ * interpreter, so a compiled expression always behaves like the interpreted
+ * one. All property and method resolution still goes through the
+ * {@link ELResolver} of the context as the resolver chain is pluggable.
+ * <p>
+ * Compilation is disabled by default. It is enabled by setting the system
+ * property <code>org.apache.el.ExpressionBuilder.COMPILE_THRESHOLD</code> to
+ * the number of evaluations after which an expression is compiled.
+ */
+public final class ExpressionCompiler {
+
+    private static final String COMPILE_THRESHOLD_PROP =
+            "org.apache.el.ExpressionBuilder.COMPILE_THRESHOLD";
+
+    /**
+     * The number of interpreted evaluations after which an expression is
+     * compiled. Compilation is disabled if negative.
+     */
+    public static final int COMPILE_THRESHOLD;
+
+    static {
+        String thresholdStr;
+        if (System.getSecurityManager() == null) {
+            thresholdStr = System.getProperty(COMPILE_THRESHOLD_PROP, "-1");
+        } else {
+            thresholdStr = AccessController.doPrivileged(
+                    new PrivilegedAction<String>() {
+
+                    @Override
+                    public String run() {
+                        return System.getProperty(COMPILE_THRESHOLD_PROP, "-1");
+                    }
+                });
+        }
+        COMPILE_THRESHOLD = Integer.parseInt(thresholdStr);
+    }
+
+    /*
+     * Profiles are shared by expression string as JSP pages create a new
+     * ValueExpression for every evaluation.
+     */
+    private static final ConcurrentCache<String, Profile> profileCache =
+            new ConcurrentCache<>(5000);
+
+    private ExpressionCompiler() {
+        // Utility class
+    }
+
+
+    /**
+     * @return <code>true</code> if expressions are compiled
+     */
+    public static boolean isEnabled() {
+        return COMPILE_THRESHOLD >= 0;
+    }
+
+
+    /**
+     * Obtain the shared profile of an expression.
+     *
+     * @param expr The expression string
+     * @param node The parsed expression
+     * @param threshold The number of evaluations after which the expression
+     *                  is compiled
+     * @return the profile
+     */
+    public static Profile getProfile(String expr, Node node, int threshold) {
+        Profile profile = profileCache.get(expr);
+        if (profile == null) {
+            profile = new Profile(node, threshold);
+            profileCache.put(expr, profile);
+        }
+        return profile;
+    }
+
+
+    /**
+     * Compile an expression.
+     *
+     * @param node The parsed expression
+     * @return the compiled form of the expression
+     */
+    public static Compiled compile(Node node) {
+        if (node instanceof AstDeferredExpression || node instanceof AstDynamicExpression) {
+            return compile(node.jjtGetChild(0));
+        }
+        if (node instanceof AstString || node instanceof AstInteger ||
+                node instanceof AstFloatingPoint || node instanceof AstTrue ||
+                node instanceof AstFalse || node instanceof AstNull ||
+                node instanceof AstLiteralExpression) {
+            // These do not use the context
+            return new Constant(node.getValue(null));
+        }
+        if (node instanceof AstCompositeExpression) {
+            Compiled[] parts = new Compiled[node.jjtGetNumChildren()];
+            for (int i = 0; i < parts.length; i++) {
+                parts[i] = compile(node.jjtGetChild(i));
+            }
+            return new Composite(parts);
+        }
+        if (node instanceof AstPlus) {
+            return fold(new Arithmetic(Arithmetic.ADD, compile(node.jjtGetChild(0)),
+                    compile(node.jjtGetChild(1))));
+        }
+        if (node instanceof AstMinus) {
+            return fold(new Arithmetic(Arithmetic.SUBTRACT, compile(node.jjtGetChild(0)),
+                    compile(node.jjtGetChild(1))));
+        }
+        if (node instanceof AstMult) {
+            return fold(new Arithmetic(Arithmetic.MULTIPLY, compile(node.jjtGetChild(0)),
+                    compile(node.jjtGetChild(1))));
+        }
+        if (node instanceof AstDiv) {
+            return fold(new Arithmetic(Arithmetic.DIVIDE, compile(node.jjtGetChild(0)),
+                    compile(node.jjtGetChild(1))));
+        }
+        if (node instanceof AstMod) {
+            return fold(new Arithmetic(Arithmetic.MOD, compile(node.jjtGetChild(0)),
+                    compile(node.jjtGetChild(1))));
+        }
+        if (node instanceof AstAnd) {
+            return new Logical(true, compile(node.jjtGetChild(0)), compile(node.jjtGetChild(1)));
+        }
+        if (node instanceof AstOr) {
+            return new Logical(false, compile(node.jjtGetChild(0)), compile(node.jjtGetChild(1)));
+        }
+        if (node instanceof AstNot) {
+            return new Not(compile(node.jjtGetChild(0)));
+        }
+        if (node instanceof AstChoice) {
+            return new Choice(compile(node.jjtGetChild(0)), compile(node.jjtGetChild(1)),
+                    compile(node.jjtGetChild(2)));
+        }
+        if (node instanceof AstValue) {
+            return compileValue(node);
+        }
+        return new Interpreted(node);
+    }
+
+
+    private static Compiled compileValue(Node node) {
+        int count = node.jjtGetNumChildren();
+        Compiled[] properties = new Compiled[count - 1];
+        for (int i = 1; i < count; i++) {
+            Node suffix = node.jjtGetChild(i);
+            if (suffix instanceof AstDotSuffix) {
+                properties[i - 1] = new Constant(suffix.getImage());
+            } else if (suffix instanceof AstBracketSuffix) {
+                properties[i - 1] = compile(suffix.jjtGetChild(0));
+            } else {
+                // Method calls, lambda invocations etc.
+                return new Interpreted(node);
+            }
+        }
+        return new Value(compile(node.jjtGetChild(0)), properties);
+    }
+
+
+    private static Compiled fold(Arithmetic arithmetic) {
+        if (arithmetic.left instanceof Constant && arithmetic.right instanceof Constant) {
+            try {
+                return new Constant(arithmetic.getValue(null));
+            } catch (RuntimeException e) {
+                // Report the error when the expression is evaluated
+            }
+        }
+        return arithmetic;
+    }
+
+
+    /**
+     * Counts the evaluations of an expression and holds its compiled form once
+     * the threshold has been reached.
+     */
+    public static final class Profile {
+        private final Node node;
+        private final int threshold;
+        private int evaluations;
+        private volatile Compiled compiled;
+
+        Profile(Node node, int threshold) {
+            this.node = node;
+            this.threshold = threshold;
+        }
+
+        public Object getValue(EvaluationContext ctx) throws ELException {
+            Compiled c = compiled;
+            if (c != null) {
+                return c.getValue(ctx);
+            }
+            // Not synchronized, compiling twice does no harm
+            if (++evaluations >= threshold) {
+                compiled = compile(node);
+            }
+            return node.getValue(ctx);
+        }
+
+        public boolean isCompiled() {
+            return compiled != null;
+        }
+    }
+
+
+    /**
+     * The compiled form of an expression or sub-expression.
+     */
+    public abstract static class Compiled {
+        public abstract Object getValue(EvaluationContext ctx) throws ELException;
+    }
+
+
+    private static final class Constant extends Compiled {
+        private final Object value;
+
+        Constant(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object getValue(EvaluationContext ctx) {
+            return value;
+        }
+    }
+
+
+    private static final class Interpreted extends Compiled {
+        private final Node node;
+
+        Interpreted(Node node) {
+            this.node = node;
+        }
+
+        @Override
+        public Object getValue(EvaluationContext ctx) throws ELException {
+            return node.getValue(ctx);
+        }
+    }
+
+
+    private static final class Composite extends Compiled {
+        private final Compiled[] parts;
+
+        Composite(Compiled[] parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        public Object getValue(EvaluationContext ctx) throws ELException {
+            StringBuilder sb = new StringBuilder(16);
+            for (Compiled part : parts) {
+                Object obj = part.getValue(ctx);
+                if (obj != null) {
+                    sb.append(ELSupport.coerceToString(ctx, obj));
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+
+    /*
+     * Property access, the equivalent of AstValue.getValue() for expressions
+     * without method calls.
+     */
+    private static final class Value extends Compiled {
+        private final Compiled base;
+        private final Compiled[] properties;
+
+        Value(Compiled base, Compiled[] properties) {
+            this.base = base;
+            this.properties = properties;
+        }
+
+        @Override
+        public Object getValue(EvaluationContext ctx) throws ELException {
+            Object value = base.getValue(ctx);
+            Object property = null;
+            ELResolver resolver = ctx.getELResolver();
+            for (int i = 0; value != null && i < properties.length; i++) {
+                property = properties[i].getValue(ctx);
+                if (property == null) {
+                    return null;
+                }
+                ctx.setPropertyResolved(false);
+                value = resolver.getValue(ctx, value, property);
+            }
+            if (!ctx.isPropertyResolved()) {
+                throw new PropertyNotFoundException(MessageFactory.get(
+                        "error.resolver.unhandled", value, property));
+            }
+            return value;
+        }
+    }
+
+
+    /*
+     * Arithmetic with an inline cache: as long as both operands are Long or
+     * Integer the result is calculated directly, as ELArithmetic would do.
+     * Once other types are seen the generic code is used.
+     */
+    private static final class Arithmetic extends Compiled {
+        static final int ADD = 0;
+        static final int SUBTRACT = 1;
+        static final int MULTIPLY = 2;
+        static final int DIVIDE = 3;
+        static final int MOD = 4;
+
+        private static final int UNINITIALIZED = 0;
+        private static final int LONG = 1;
+        private static final int GENERIC = 2;
+
+        private final int op;
+        final Compiled left;
+        final Compiled right;
+        private volatile int state;
+
+        Arithmetic(int op, Compiled left, Compiled right) {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+            // Division always uses Double or BigDecimal and mod has different
+            // null handling
+            this.state = (op == DIVIDE || op == MOD) ? GENERIC : UNINITIALIZED;
+        }
+
+        @Override
+        public Object getValue(EvaluationContext ctx) throws ELException {
+            Object obj0 = left.getValue(ctx);
+            Object obj1 = right.getValue(ctx);
+            int s = state;
+            if (s != GENERIC) {
+                if (isLong(obj0) && isLong(obj1)) {
+                    if (s == UNINITIALIZED) {
+                        state = LONG;
+                    }
+                    long l0 = ((Number) obj0).longValue();
+                    long l1 = ((Number) obj1).longValue();
+                    switch (op) {
+                        case ADD:
+                            return Long.valueOf(l0 + l1);
+                        case SUBTRACT:
+                            return Long.valueOf(l0 - l1);
+                        default:
+                            return Long.valueOf(l0 * l1);
+                    }
+                }
+                // Types changed, don't try again
+                state = GENERIC;
+            }
+            switch (op) {
+                case ADD:
+                    return ELArithmetic.add(obj0, obj1);
+                case SUBTRACT:
+                    return ELArithmetic.subtract(obj0, obj1);
+                case MULTIPLY:
+                    return ELArithmetic.multiply(obj0, obj1);
+                case DIVIDE:
+                    return ELArithmetic.divide(obj0, obj1);
+                default:
+                    return ELArithmetic.mod(obj0, obj1);
+            }
+        }
+
+        private static boolean isLong(Object obj) {
+            return obj instanceof Long || obj instanceof Integer;
+        }
+    }
+
+
+    private static final class Logical extends Compiled {
+        private final boolean and;
+        private final Compiled left;
+        private final Compiled right;
+
+        Logical(boolean and, Compiled left, Compiled right) {
+            this.and = and;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public Object getValue(EvaluationContext ctx) throws ELException {
+            Boolean b = ELSupport.coerceToBoolean(ctx, left.getValue(ctx), true);
+            if (b.booleanValue() != and) {
+                return b;
+            }
+            return ELSupport.coerceToBoolean(ctx, right.getValue(ctx), true);
+        }
+    }
+
+
+    private static final class Not extends Compiled {
+        private final Compiled child;
+
+        Not(Compiled child) {
+            this.child = child;
+        }
+
+        @Override
+        public Object getValue(EvaluationContext ctx) throws ELException {
+            Boolean b = ELSupport.coerceToBoolean(ctx, child.getValue(ctx), true);
+            return Boolean.valueOf(!b.booleanValue());
+        }
+    }
+
+
+    private static final class Choice extends Compiled {
+        private final Compiled condition;
+        private final Compiled whenTrue;
+        private final Compiled whenFalse;
+
+        Choice(Compiled condition, Compiled whenTrue, Compiled whenFalse) {
+            this.condition = condition;
+            this.whenTrue = whenTrue;
+            this.whenFalse = whenFalse;
+        }
+
+        @Override
+        public Object getValue(EvaluationContext ctx) throws ELException {
+            Boolean b = ELSupport.coerceToBoolean(ctx, condition.getValue(ctx), true);
+            return b.booleanValue() ? whenTrue.getValue(ctx) : whenFalse.getValue(ctx);
+        }
+    }
+}
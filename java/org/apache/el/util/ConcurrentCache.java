@@ -17,29 +17,36 @@
 package org.apache.el.util;
 
 import java.util.Map;
-import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * A size limited cache that never locks. Entries are held in two
+ * generations. When the current generation is full it replaces the previous
+ * one and entries that were not used since the previous switch are dropped.
+ * Concurrent writers may lose a generation which only means some entries have
+ * to be created again.
+ *
+ * @param <K> The type of the keys
+ * @param <V> The type of the values
+ */
 public final class ConcurrentCache<K,V> {
 
     private final int size;
 
-    private final Map<K,V> eden;
+    private volatile Map<K,V> eden;
 
-    private final Map<K,V> longterm;
+    private volatile Map<K,V> longterm;
 
     public ConcurrentCache(int size) {
         this.size = size;
         this.eden = new ConcurrentHashMap<>(size);
-        this.longterm = new WeakHashMap<>(size);
+        this.longterm = new ConcurrentHashMap<>(size);
     }
 
     public V get(K k) {
         V v = this.eden.get(k);
         if (v == null) {
-            synchronized (longterm) {
-                v = this.longterm.get(k);
-            }
+            v = this.longterm.get(k);
             if (v != null) {
                 this.eden.put(k, v);
             }
@@ -48,12 +55,12 @@ public final class ConcurrentCache<K,V> {
     }
 
     public void put(K k, V v) {
-        if (this.eden.size() >= size) {
-            synchronized (longterm) {
-                this.longterm.putAll(this.eden);
-            }
-            this.eden.clear();
+        Map<K,V> current = this.eden;
+        if (current.size() >= size) {
+            this.longterm = current;
+            current = new ConcurrentHashMap<>(size);
+            this.eden = current;
         }
-        this.eden.put(k, v);
+        current.put(k, v);
     }
 }
@@ -104,6 +104,11 @@ public final class EmbeddedServletOptions implements Options {
      */
     private boolean genStringAsCharArray = false;
 
+    /**
+     * Is template text to be generated as pre-encoded byte arrays?
+     */
+    private boolean genStringAsByteArray = false;
+
     private boolean errorOnUseBeanInvalidClassAttribute = true;
 
     /**
@@ -211,6 +216,17 @@ public final class EmbeddedServletOptions implements Options {
      */
     private boolean quoteAttributeEL = true;
 
+    /**
+     * Should all JSPs be compiled in the background when the JSP servlet
+     * starts?
+     */
+    private boolean backgroundCompile = false;
+
+    /**
+     * Should the files that JSPs depend on be watched for changes?
+     */
+    private boolean watchDependencies = false;
+
     public String getProperty(String name ) {
         return settings.getProperty( name );
     }
@@ -230,6 +246,16 @@ public final class EmbeddedServletOptions implements Options {
         return quoteAttributeEL;
     }
 
+    @Override
+    public boolean getBackgroundCompile() {
+        return backgroundCompile;
+    }
+
+    @Override
+    public boolean getWatchDependencies() {
+        return watchDependencies;
+    }
+
     /**
      * Are we keeping generated code around?
      */
@@ -323,6 +349,14 @@ public final class EmbeddedServletOptions implements Options {
         return this.genStringAsCharArray;
     }
 
+    /**
+     * Is template text to be generated as pre-encoded byte arrays?
+     */
+    @Override
+    public boolean genStringAsByteArray() {
+        return this.genStringAsByteArray;
+    }
+
     /**
      * Class ID for use in the plugin tag when the browser is IE.
      */
@@ -637,6 +671,19 @@ public final class EmbeddedServletOptions implements Options {
             }
         }
 
+        String genByteArray = config.getInitParameter("genStringAsByteArray");
+        if (genByteArray != null) {
+            if (genByteArray.equalsIgnoreCase("true")) {
+                genStringAsByteArray = true;
+            } else if (genByteArray.equalsIgnoreCase("false")) {
+                genStringAsByteArray = false;
+            } else {
+                if (log.isWarnEnabled()) {
+                    log.warn(Localizer.getMessage("jsp.warning.genbytearray"));
+                }
+            }
+        }
+
         String errBeanClass =
             config.getInitParameter("errorOnUseBeanInvalidClassAttribute");
         if (errBeanClass != null) {
@@ -795,6 +842,32 @@ public final class EmbeddedServletOptions implements Options {
             }
         }
 
+        String backgroundCompile = config.getInitParameter("backgroundCompile");
+        if (backgroundCompile != null) {
+            if (backgroundCompile.equalsIgnoreCase("true")) {
+                this.backgroundCompile = true;
+            } else if (backgroundCompile.equalsIgnoreCase("false")) {
+                this.backgroundCompile = false;
+            } else {
+                if (log.isWarnEnabled()) {
+                    log.warn(Localizer.getMessage("jsp.warning.backgroundCompile"));
+                }
+            }
+        }
+
+        String watchDependencies = config.getInitParameter("watchDependencies");
+        if (watchDependencies != null) {
+            if (watchDependencies.equalsIgnoreCase("true")) {
+                this.watchDependencies = true;
+            } else if (watchDependencies.equalsIgnoreCase("false")) {
+                this.watchDependencies = false;
+            } else {
+                if (log.isWarnEnabled()) {
+                    log.warn(Localizer.getMessage("jsp.warning.watchDependencies"));
+                }
+            }
+        }
+
         // Setup the global Tag Libraries location cache for this
         // web-application.
         tldCache = TldCache.getInstance(context);
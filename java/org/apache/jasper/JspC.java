@@ -32,7 +32,6 @@ import java.io.Writer;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -41,6 +40,12 @@ import java.util.Set;
 import java.util.Stack;
 import java.util.StringTokenizer;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.servlet.jsp.JspFactory;
 import javax.servlet.jsp.tagext.TagLibraryInfo;
@@ -139,6 +144,7 @@ public class JspC extends Task implements Options {
     protected static final String SWITCH_NO_STRICT_QUOTE_ESCAPING = "-no-strictQuoteEscaping";
     protected static final String SWITCH_QUOTE_ATTRIBUTE_EL = "-quoteAttributeEL";
     protected static final String SWITCH_NO_QUOTE_ATTRIBUTE_EL = "-no-quoteAttributeEL";
+    protected static final String SWITCH_THREAD_COUNT = "-threadCount";
     protected static final String SHOW_SUCCESS ="-s";
     protected static final String LIST_ERRORS = "-l";
     protected static final int INC_WEBXML = 10;
@@ -169,6 +175,7 @@ public class JspC extends Task implements Options {
     protected ClassLoader loader = null;
     protected boolean trimSpaces = false;
     protected boolean genStringAsCharArray = false;
+    protected boolean genStringAsByteArray = false;
     protected boolean validateTld;
     protected boolean validateXml;
     protected boolean blockExternal = true;
@@ -189,7 +196,7 @@ public class JspC extends Task implements Options {
     protected boolean smapSuppressed = true;
     protected boolean smapDumped = false;
     protected boolean caching = true;
-    protected final Map<String, TagLibraryInfo> cache = new HashMap<>();
+    protected final Map<String, TagLibraryInfo> cache = new ConcurrentHashMap<>();
 
     protected String compiler = null;
 
@@ -204,6 +211,13 @@ public class JspC extends Task implements Options {
      */
     protected boolean failOnError = true;
 
+    /**
+     * The number of threads used to translate and compile the pages.
+     * Default is 1 so that pages are processed sequentially unless parallel
+     * processing is requested.
+     */
+    protected int threadCount = 1;
+
     /**
      * The file extensions to be handled as JSP files.
      * Default list is .jsp and .jspx.
@@ -393,6 +407,8 @@ public class JspC extends Task implements Options {
                 setQuoteAttributeEL(true);
             } else if (tok.equals(SWITCH_NO_QUOTE_ATTRIBUTE_EL)) {
                 setQuoteAttributeEL(false);
+            } else if (tok.equals(SWITCH_THREAD_COUNT)) {
+                setThreadCount(nextArg());
             } else {
                 if (tok.startsWith("-")) {
                     throw new JasperException("Unrecognized option: " + tok +
@@ -493,6 +509,24 @@ public class JspC extends Task implements Options {
         return -1;
     }
 
+    /**
+     * In JspC this always returns <code>false</code>.
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean getBackgroundCompile() {
+        return false;
+    }
+
+    /**
+     * In JspC this always returns <code>false</code>.
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean getWatchDependencies() {
+        return false;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -657,6 +691,25 @@ public class JspC extends Task implements Options {
         return genStringAsCharArray;
     }
 
+    /**
+     * Determines whether template text is to be generated as byte arrays
+     * encoded with the response character set of the page.
+     *
+     * @param genStringAsByteArray true if template text is to be generated as
+     * pre-encoded byte arrays, false otherwise
+     */
+    public void setGenStringAsByteArray(boolean genStringAsByteArray) {
+        this.genStringAsByteArray = genStringAsByteArray;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean genStringAsByteArray() {
+        return genStringAsByteArray;
+    }
+
     /**
      * Sets the class-id value to be sent to Internet Explorer when using
      * &lt;jsp:plugin&gt; tags.
@@ -1007,6 +1060,41 @@ public class JspC extends Task implements Options {
         addWebXmlMappings = b;
     }
 
+    /**
+     * Sets the number of threads used to translate and compile pages. The
+     * value is either a number of threads or a multiple of the number of
+     * available processors followed by <code>C</code>, e.g. <code>1.5C</code>.
+     *
+     * @param threadCount The number of threads
+     */
+    public void setThreadCount(String threadCount) {
+        if (threadCount == null) {
+            return;
+        }
+        int newThreadCount;
+        try {
+            if (threadCount.endsWith("C")) {
+                double factor = Double.parseDouble(
+                        threadCount.substring(0, threadCount.length() - 1));
+                newThreadCount = (int) (factor * Runtime.getRuntime().availableProcessors());
+            } else {
+                newThreadCount = Integer.parseInt(threadCount);
+            }
+        } catch (NumberFormatException e) {
+            throw new BuildException(Localizer.getMessage(
+                    "jspc.error.parseThreadCount", threadCount));
+        }
+        if (newThreadCount < 1) {
+            throw new BuildException(Localizer.getMessage(
+                    "jspc.error.minThreadCount", "" + newThreadCount));
+        }
+        this.threadCount = newThreadCount;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
     /**
      * Sets the option that throws an exception in case of a compilation error.
      * @param b New value
@@ -1058,6 +1146,14 @@ public class JspC extends Task implements Options {
                       + " using compilation context " + clctxt);
         }
 
+        // Pages may be processed in parallel
+        synchronized (this) {
+            writeWebMapping(file, clctxt);
+        }
+    }
+
+    private void writeWebMapping(String file, JspCompilationContext clctxt)
+            throws IOException {
         String className = clctxt.getServletClassName();
         String packageName = clctxt.getServletPackageName();
 
@@ -1301,6 +1397,55 @@ public class JspC extends Task implements Options {
         }
     }
 
+    /**
+     * Translates and, if required, compiles the given pages. The pages are
+     * processed in parallel if more than one thread has been configured.
+     * Each page is compiled on its own since the compiler needs the
+     * compilation context of the page to report errors and install the
+     * SMAP.
+     *
+     * @param jspUris The pages to process
+     * @throws JasperException If processing a page failed
+     */
+    protected void processFiles(List<String> jspUris) throws JasperException {
+        if (jspUris.isEmpty()) {
+            return;
+        }
+        if (threadCount < 2 || jspUris.size() < 2) {
+            for (String jspUri : jspUris) {
+                processFile(jspUri);
+            }
+            return;
+        }
+
+        // The target class name only applies to the first page
+        processFile(jspUris.get(0));
+
+        ExecutorService threadPool = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<Void>> results = new ArrayList<>(jspUris.size() - 1);
+            for (int i = 1; i < jspUris.size(); i++) {
+                results.add(threadPool.submit(new ProcessFile(jspUris.get(i))));
+            }
+            for (Future<Void> result : results) {
+                try {
+                    result.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new JasperException(e);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof JasperException) {
+                        throw (JasperException) cause;
+                    }
+                    throw new JasperException(cause);
+                }
+            }
+        } finally {
+            threadPool.shutdownNow();
+        }
+    }
+
     /**
      * Locate all jsp files in the webapp. Used if no explicit
      * jsps are specified.
@@ -1390,6 +1535,17 @@ public class JspC extends Task implements Options {
 
             initWebXml();
 
+            // Set up a scratch/output dir if none is provided. Done here as
+            // pages may be processed in parallel.
+            if (scratchDir == null) {
+                String temp = System.getProperty("java.io.tmpdir");
+                if (temp == null) {
+                    temp = "";
+                }
+                scratchDir = new File(temp).getAbsoluteFile();
+            }
+
+            List<String> jspUris = new ArrayList<>();
             Iterator<String> iter = pages.iterator();
             while (iter.hasNext()) {
                 String nextjsp = iter.next();
@@ -1412,9 +1568,11 @@ public class JspC extends Task implements Options {
                 if (nextjsp.startsWith("." + File.separatorChar)) {
                     nextjsp = nextjsp.substring(2);
                 }
-                processFile(nextjsp);
+                jspUris.add(nextjsp);
             }
 
+            processFiles(jspUris);
+
             completeWebXml();
 
             if (addWebXmlMappings) {
@@ -1728,4 +1886,18 @@ public class JspC extends Task implements Options {
             throw ex;
         }
     }
+
+    private class ProcessFile implements Callable<Void> {
+        private final String file;
+
+        private ProcessFile(String file) {
+            this.file = file;
+        }
+
+        @Override
+        public Void call() throws Exception {
+            processFile(file);
+            return null;
+        }
+    }
 }
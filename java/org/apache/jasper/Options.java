@@ -198,6 +198,15 @@ public interface Options {
      */
     public boolean genStringAsCharArray();
 
+    /**
+     * Indicates whether template text is to be encoded with the response
+     * character set of the page when the generated servlet is loaded.
+     *
+     * @return <code>true</code> if template text is to be generated as
+     *         pre-encoded byte arrays, <code>false</code> otherwise
+     */
+    public boolean genStringAsByteArray();
+
     /**
      * @return modification test interval.
      */
@@ -253,4 +262,18 @@ public interface Options {
      *         the quoting rules in JSP.1.6 applied to the expression.
      */
     public boolean getQuoteAttributeEL();
+
+    /**
+     * @return {@code true} if all JSPs of the web application should be
+     *         compiled by a background thread when the JSP servlet starts,
+     *         most frequently used JSPs first.
+     */
+    public boolean getBackgroundCompile();
+
+    /**
+     * @return {@code true} if the files that JSPs depend on should be watched
+     *         for changes so that the background check only has to look at
+     *         the JSPs affected by a change.
+     */
+    public boolean getWatchDependencies();
 }
@@ -23,6 +23,8 @@ import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -35,6 +37,7 @@ import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -52,6 +55,7 @@ import org.apache.jasper.Constants;
 import org.apache.jasper.JasperException;
 import org.apache.jasper.JspCompilationContext;
 import org.apache.jasper.compiler.Node.NamedAttribute;
+import org.apache.jasper.runtime.EncodedTemplateText;
 import org.apache.jasper.runtime.JspRuntimeLibrary;
 import org.xml.sax.Attributes;
 
@@ -124,6 +128,8 @@ class Generator {
 
     private GenBuffer charArrayBuffer;
 
+    private final String templateCharset;
+
     private final DateFormat timestampFormat;
 
     private final ELInterpreter elInterpreter;
@@ -2122,6 +2128,47 @@ class Generator {
                 return;
             }
 
+            if (templateCharset != null) {
+                // Generate Strings as pre-encoded byte arrays, for performance
+                ServletWriter caOut;
+                if (charArrayBuffer == null) {
+                    charArrayBuffer = new GenBuffer();
+                    caOut = charArrayBuffer.getOut();
+                    caOut.pushIndent();
+                    textMap = new HashMap<>();
+                    caOut.printin("private static final java.nio.charset.Charset ");
+                    caOut.print("_jspx_template_charset = java.nio.charset.Charset.forName(");
+                    caOut.print(quote(templateCharset));
+                    caOut.println(");");
+                } else {
+                    caOut = charArrayBuffer.getOut();
+                }
+                // Same limit as for char arrays
+                int textIndex = 0;
+                int textLength = text.length();
+                while (textIndex < textLength) {
+                    int len = Math.min(textLength - textIndex, 16384);
+                    String output = text.substring(textIndex, textIndex + len);
+                    String templateName = textMap.get(output);
+                    if (templateName == null) {
+                        templateName = "_jspx_template_text_" + charArrayCount++;
+                        textMap.put(output, templateName);
+                        caOut.printin("private static final org.apache.jasper.runtime.EncodedTemplateText ");
+                        caOut.print(templateName);
+                        caOut.print(" = new org.apache.jasper.runtime.EncodedTemplateText(");
+                        caOut.print(quote(output));
+                        caOut.println(", _jspx_template_charset);");
+                    }
+
+                    n.setBeginJavaLine(out.getJavaLine());
+                    out.printil(templateName + ".write(out);");
+                    n.setEndJavaLine(out.getJavaLine());
+
+                    textIndex = textIndex + len;
+                }
+                return;
+            }
+
             if (ctxt.getOptions().genStringAsCharArray()) {
                 // Generate Strings as char arrays, for performance
                 ServletWriter caOut;
@@ -3510,7 +3557,7 @@ class Generator {
             out.printMultiLn(fragmentHelperClass.toString());
         }
 
-        // Append char array declarations
+        // Append char array and pre-encoded template text declarations
         if (charArrayBuffer != null) {
             out.printMultiLn(charArrayBuffer.toString());
         }
@@ -3611,6 +3658,51 @@ class Generator {
         }
         timestampFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
         timestampFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        templateCharset = getTemplateCharset();
+    }
+
+    /**
+     * Determines the character set with which template text is pre-encoded.
+     * This is the character set of the content type of the page or the
+     * default response character set if the content type does not specify
+     * one. If the response ends up using a different character set at
+     * runtime, the template text is written as characters.
+     *
+     * @return the name of the character set or <code>null</code> if template
+     *         text is not to be pre-encoded
+     */
+    private String getTemplateCharset() {
+        if (!ctxt.getOptions().genStringAsByteArray() || ctxt.isTagFile()) {
+            return null;
+        }
+        String charset = "ISO-8859-1";
+        String contentType = pageInfo.getContentType();
+        if (contentType != null) {
+            int start = contentType.toLowerCase(Locale.ENGLISH).indexOf("charset=");
+            if (start >= 0) {
+                charset = contentType.substring(start + 8);
+                int end = charset.indexOf(';');
+                if (end >= 0) {
+                    charset = charset.substring(0, end);
+                }
+                charset = charset.trim();
+                if (charset.length() > 1 && charset.startsWith("\"") &&
+                        charset.endsWith("\"")) {
+                    charset = charset.substring(1, charset.length() - 1);
+                }
+            }
+        }
+        try {
+            if (Charset.isSupported(charset)) {
+                Charset cs = Charset.forName(charset);
+                if (EncodedTemplateText.isSupported(cs)) {
+                    return cs.name();
+                }
+            }
+        } catch (IllegalCharsetNameException e) {
+            // Ignore, write the text as characters
+        }
+        return null;
     }
 
     /**
@@ -0,0 +1,295 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.ServletContext;
+
+import org.apache.jasper.servlet.JspServletWrapper;
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+
+/**
+ * Index of the files that JSPs and tag files depend on. The directories that
+ * contain these files are watched with a {@link WatchService} so that the
+ * periodic background check only has to look at the JSPs for which a
+ * dependency changed rather than at the modification time of every
+ * dependency of every JSP. The dependencies recorded for a JSP are already
+ * the transitive closure of its includes, tag files and TLDs.
+ * <p>
+ * JSPs that depend on files that can not be watched, such as entries in
+ * JARs or resources that have no real path, are always checked.
+ */
+final class JspDependencyWatcher {
+
+    private final Log log = LogFactory.getLog(JspDependencyWatcher.class);
+
+    private final ServletContext context;
+    private final WatchService watchService;
+
+    private final Map<WatchKey,Path> watchedDirs = new HashMap<>();
+    private final Set<Path> watchedDirPaths = new HashSet<>();
+    private final Map<Path,Set<JspServletWrapper>> dependents = new HashMap<>();
+    private final Map<JspServletWrapper,Indexed> indexed = new IdentityHashMap<>();
+    private final Set<JspServletWrapper> pending = new HashSet<>();
+
+
+    private JspDependencyWatcher(ServletContext context, WatchService watchService) {
+        this.context = context;
+        this.watchService = watchService;
+    }
+
+
+    /**
+     * Create a watcher for the given web application.
+     *
+     * @param context The web application
+     * @return the watcher or <code>null</code> if the file system does not
+     *         support watching for changes
+     */
+    static JspDependencyWatcher create(ServletContext context) {
+        try {
+            return new JspDependencyWatcher(context,
+                    FileSystems.getDefault().newWatchService());
+        } catch (IOException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+
+    /**
+     * Determine the JSPs that may be out of date. These are the JSPs that
+     * have not been indexed since they were last (re)loaded, the JSPs that
+     * depend on files that can not be watched and the JSPs for which a
+     * dependency has changed since the last call. JSPs passed to
+     * {@link #retry(JspServletWrapper)} since the last call are returned
+     * again.
+     *
+     * @param wrappers All currently loaded JSPs and tag files
+     * @return the JSPs and tag files that need to be checked
+     */
+    synchronized Collection<JspServletWrapper> getCandidates(
+            Collection<JspServletWrapper> wrappers) {
+        Set<JspServletWrapper> result = new HashSet<>(pending);
+        pending.clear();
+
+        Set<JspServletWrapper> current = new HashSet<>(wrappers);
+        Iterator<JspServletWrapper> iter = indexed.keySet().iterator();
+        while (iter.hasNext()) {
+            JspServletWrapper jsw = iter.next();
+            if (!current.contains(jsw)) {
+                // Unloaded
+                unindex(jsw, indexed.get(jsw));
+                iter.remove();
+            }
+        }
+
+        for (JspServletWrapper jsw : wrappers) {
+            Map<String,Long> dependants;
+            // JspServletWrapper synchronizes on itself when it reloads
+            synchronized (jsw) {
+                dependants = jsw.getDependants();
+            }
+            Indexed entry = indexed.get(jsw);
+            if (entry == null || entry.dependants != dependants) {
+                // New or reloaded since the last check, the dependencies may
+                // have changed
+                if (entry != null) {
+                    unindex(jsw, entry);
+                }
+                entry = index(jsw, dependants);
+                indexed.put(jsw, entry);
+                result.add(jsw);
+            } else if (!entry.watched) {
+                result.add(jsw);
+            }
+        }
+
+        WatchKey key;
+        try {
+            while ((key = watchService.poll()) != null) {
+                Path dir = watchedDirs.get(key);
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW || dir == null) {
+                        result.addAll(wrappers);
+                        continue;
+                    }
+                    Path changed = dir.resolve((Path) event.context());
+                    Set<JspServletWrapper> affected = dependents.get(changed);
+                    if (affected != null) {
+                        if (log.isDebugEnabled()) {
+                            log.debug(Localizer.getMessage("jsp.message.dependencyChanged",
+                                    changed.toString(), "" + affected.size()));
+                        }
+                        result.addAll(affected);
+                    }
+                }
+                if (!key.reset()) {
+                    watchedDirPaths.remove(watchedDirs.remove(key));
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            result.addAll(wrappers);
+        }
+
+        result.retainAll(current);
+        return result;
+    }
+
+
+    /**
+     * Return a JSP with the next candidates. This is used for the candidates
+     * whose out of date check was skipped because the JSP was tested recently
+     * as the change events that selected them have already been consumed.
+     *
+     * @param jsw The JSP or tag file to check again
+     */
+    synchronized void retry(JspServletWrapper jsw) {
+        pending.add(jsw);
+    }
+
+
+    synchronized void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            log.debug(e);
+        }
+        watchedDirs.clear();
+        watchedDirPaths.clear();
+        dependents.clear();
+        indexed.clear();
+        pending.clear();
+    }
+
+
+    private Indexed index(JspServletWrapper jsw, Map<String,Long> dependants) {
+        List<Path> files = new ArrayList<>();
+        boolean watched = addFile(jsw, jsw.getJspUri(), files);
+        if (dependants != null) {
+            for (String dependant : dependants.keySet()) {
+                watched &= addFile(jsw, dependant, files);
+            }
+        } else if (!new File(jsw.getJspEngineContext().getClassFileName()).exists()) {
+            // Not compiled yet or compilation failed, check it every time
+            // until it is compiled
+            watched = false;
+        }
+        return new Indexed(dependants, files, watched);
+    }
+
+
+    private void unindex(JspServletWrapper jsw, Indexed entry) {
+        for (Path file : entry.files) {
+            Set<JspServletWrapper> set = dependents.get(file);
+            if (set != null) {
+                set.remove(jsw);
+                if (set.isEmpty()) {
+                    dependents.remove(file);
+                }
+            }
+        }
+    }
+
+
+    private boolean addFile(JspServletWrapper jsw, String resource, List<Path> files) {
+        Path file = toPath(resource);
+        if (file == null) {
+            return false;
+        }
+        Path dir = file.getParent();
+        if (dir == null) {
+            return false;
+        }
+        if (!watchedDirPaths.contains(dir)) {
+            try {
+                WatchKey key = dir.register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+                watchedDirs.put(key, dir);
+                watchedDirPaths.add(dir);
+            } catch (IOException | RuntimeException e) {
+                if (log.isDebugEnabled()) {
+                    log.debug(Localizer.getMessage("jsp.message.dependencyNotWatched",
+                            dir.toString()), e);
+                }
+                return false;
+            }
+        }
+        Set<JspServletWrapper> set = dependents.get(file);
+        if (set == null) {
+            set = new HashSet<>();
+            dependents.put(file, set);
+        }
+        set.add(jsw);
+        files.add(file);
+        return true;
+    }
+
+
+    private Path toPath(String resource) {
+        try {
+            if (resource.startsWith("file:")) {
+                return Paths.get(new URI(resource)).toAbsolutePath();
+            }
+            if (resource.startsWith("jar:")) {
+                return null;
+            }
+            String realPath = context.getRealPath(resource);
+            if (realPath == null) {
+                return null;
+            }
+            return Paths.get(realPath).toAbsolutePath();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+
+    private static final class Indexed {
+        private final Map<String,Long> dependants;
+        private final List<Path> files;
+        private final boolean watched;
+
+        private Indexed(Map<String,Long> dependants, List<Path> files, boolean watched) {
+            this.dependants = dependants;
+            this.files = files;
+            this.watched = watched;
+        }
+    }
+}
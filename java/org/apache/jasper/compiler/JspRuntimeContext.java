@@ -17,18 +17,32 @@
 
 package org.apache.jasper.compiler;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.FilePermission;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
 import java.security.CodeSource;
 import java.security.PermissionCollection;
 import java.security.Policy;
 import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -130,6 +144,14 @@ public final class JspRuntimeContext {
                 && appBase != null
                 && options.getCheckInterval() > 0) {
             lastCompileCheck = System.currentTimeMillis();
+            if (options.getWatchDependencies()) {
+                dependencyWatcher = JspDependencyWatcher.create(context);
+                if (dependencyWatcher == null) {
+                    log.warn(Localizer.getMessage(
+                            "jsp.warning.watchDependencies.unavailable",
+                            context.getContextPath()));
+                }
+            }
         }
 
         if (options.getMaxLoadedJsps() > 0) {
@@ -160,12 +182,23 @@ public final class JspRuntimeContext {
     /* JSP idle timeout in milliseconds */
     private long jspIdleTimeout;
 
+    /**
+     * Tracks changes to the files that JSPs depend on if enabled.
+     */
+    private JspDependencyWatcher dependencyWatcher = null;
+
     /**
      * Maps JSP pages to their JspServletWrapper's
      */
     private final Map<String, JspServletWrapper> jsps =
             new ConcurrentHashMap<>();
 
+    /**
+     * The name of the file in the scratch directory that records how often
+     * JSPs have been accessed.
+     */
+    private static final String ACCESS_HISTORY_FILE = "jsp-access-history.txt";
+
     /**
      * Keeps JSP pages ordered by last access.
      */
@@ -284,12 +317,92 @@ public final class JspRuntimeContext {
      * Process a "destroy" event for this web application context.
      */
     public void destroy() {
+        if (options.getBackgroundCompile()) {
+            saveAccessHistory();
+        }
+        if (dependencyWatcher != null) {
+            dependencyWatcher.close();
+        }
         Iterator<JspServletWrapper> servlets = jsps.values().iterator();
         while (servlets.hasNext()) {
             servlets.next().destroy();
         }
     }
 
+    /**
+     * Obtain the JSPs accessed in previous runs of the web application, most
+     * frequently accessed first. The history is only recorded if background
+     * compilation is enabled.
+     *
+     * @return the JSP URIs
+     */
+    public List<String> getAccessHistory() {
+        final Map<String,Integer> counts = readAccessHistory();
+        List<String> result = new ArrayList<>(counts.keySet());
+        Collections.sort(result, new Comparator<String>() {
+            @Override
+            public int compare(String uri1, String uri2) {
+                return counts.get(uri2).compareTo(counts.get(uri1));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Adds the accesses of the currently loaded JSPs to the access history in
+     * the scratch directory.
+     */
+    public void saveAccessHistory() {
+        Map<String,Integer> counts = readAccessHistory();
+        for (JspServletWrapper jsw : jsps.values()) {
+            if (jsw.isTagFile() || jsw.getAccessCount() == 0) {
+                continue;
+            }
+            Integer count = counts.get(jsw.getJspUri());
+            int total = jsw.getAccessCount() + (count == null ? 0 : count.intValue());
+            if (total < 0) {
+                total = Integer.MAX_VALUE;
+            }
+            counts.put(jsw.getJspUri(), Integer.valueOf(total));
+        }
+        File historyFile = new File(options.getScratchDir(), ACCESS_HISTORY_FILE);
+        try (Writer w = new OutputStreamWriter(
+                new FileOutputStream(historyFile), StandardCharsets.UTF_8)) {
+            for (Map.Entry<String,Integer> entry : counts.entrySet()) {
+                w.write(entry.getValue().toString());
+                w.write(' ');
+                w.write(entry.getKey());
+                w.write('\n');
+            }
+        } catch (IOException e) {
+            log.warn(Localizer.getMessage("jsp.warning.accessHistory.write",
+                    historyFile.getAbsolutePath()), e);
+        }
+    }
+
+    private Map<String,Integer> readAccessHistory() {
+        Map<String,Integer> counts = new HashMap<>();
+        File historyFile = new File(options.getScratchDir(), ACCESS_HISTORY_FILE);
+        if (!historyFile.isFile()) {
+            return counts;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(historyFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int space = line.indexOf(' ');
+                if (space > 0) {
+                    counts.put(line.substring(space + 1),
+                            Integer.valueOf(line.substring(0, space)));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            log.warn(Localizer.getMessage("jsp.warning.accessHistory.read",
+                    historyFile.getAbsolutePath()), e);
+        }
+        return counts;
+    }
+
     /**
      * Increments the JSP reload counter.
      */
@@ -356,13 +469,20 @@ public final class JspRuntimeContext {
             return;
         }
 
-        Object [] wrappers = jsps.values().toArray();
-        for (int i = 0; i < wrappers.length; i++ ) {
-            JspServletWrapper jsw = (JspServletWrapper)wrappers[i];
+        Collection<JspServletWrapper> wrappers;
+        if (dependencyWatcher == null) {
+            wrappers = jsps.values();
+        } else {
+            // Only the JSPs that may have been affected by a change
+            wrappers = dependencyWatcher.getCandidates(
+                    new ArrayList<>(jsps.values()));
+        }
+        for (JspServletWrapper jsw : wrappers) {
             JspCompilationContext ctxt = jsw.getJspEngineContext();
             // JspServletWrapper also synchronizes on this when
             // it detects it has to do a reload
             synchronized(jsw) {
+                long lastModificationTest = jsw.getLastModificationTest();
                 try {
                     ctxt.compile();
                 } catch (FileNotFoundException ex) {
@@ -372,6 +492,12 @@ public final class JspRuntimeContext {
                     jsw.getServletContext().log("Background compile failed",
                                                 t);
                 }
+                if (dependencyWatcher != null
+                        && options.getModificationTestInterval() > 0
+                        && jsw.getLastModificationTest() == lastModificationTest) {
+                    // Tested too recently, the out of date check was skipped
+                    dependencyWatcher.retry(jsw);
+                }
             }
         }
 
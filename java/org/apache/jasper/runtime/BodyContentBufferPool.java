@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.runtime;
+
+import java.util.ArrayDeque;
+
+/**
+ * Pool of the fixed size char buffer segments used by {@link BodyContentImpl}
+ * once a body no longer fits into its initial buffer. A pool is owned by a
+ * {@link PageContextImpl} and shared by all of its body contents, so it is
+ * only ever used by one thread at a time and does not need to be thread
+ * safe.
+ * <p>
+ * At most <code>maxPooledChars</code> chars are retained between uses.
+ * Segments released beyond that are left to the garbage collector so that
+ * the memory held after an unusually large response shrinks again.
+ */
+final class BodyContentBufferPool {
+
+    static final int SEGMENT_SIZE = 8 * 1024;
+
+    private final int maxPooledSegments;
+    private final ArrayDeque<char[]> segments = new ArrayDeque<>();
+
+    private int allocations;
+    private long allocatedChars;
+
+
+    BodyContentBufferPool(int maxPooledChars) {
+        this.maxPooledSegments = Math.max(0, maxPooledChars / SEGMENT_SIZE);
+    }
+
+
+    char[] take() {
+        char[] segment = segments.pollFirst();
+        if (segment == null) {
+            segment = allocate(SEGMENT_SIZE);
+        }
+        return segment;
+    }
+
+
+    /**
+     * Allocates a new, unpooled buffer and records the allocation.
+     *
+     * @param size The size of the buffer
+     * @return the buffer
+     */
+    char[] allocate(int size) {
+        allocations++;
+        allocatedChars += size;
+        return new char[size];
+    }
+
+
+    void release(char[] segment) {
+        if (segments.size() < maxPooledSegments) {
+            segments.addFirst(segment);
+        }
+    }
+
+
+    int getPooledChars() {
+        return segments.size() * SEGMENT_SIZE;
+    }
+
+
+    /**
+     * Adds the allocations made since the last call to the given metrics and
+     * resets the counters.
+     *
+     * @param metrics The metrics of the page that used this pool
+     */
+    void reportAllocations(BodyContentMetrics metrics) {
+        if (allocations > 0) {
+            metrics.addAllocations(allocations, allocatedChars);
+            allocations = 0;
+            allocatedChars = 0;
+        }
+    }
+}
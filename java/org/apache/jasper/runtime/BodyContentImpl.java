@@ -34,6 +34,11 @@ import org.apache.jasper.Constants;
  *
  * Provide support for discarding for the output that has been buffered.
  *
+ * The buffer starts with a small initial array. Once that is full, further
+ * output is written to fixed size segments taken from a pool shared by the
+ * body contents of the page context, so that the buffer grows without
+ * copying what has already been written.
+ *
  * @author Rajiv Mordani
  * @author Jan Luehe
  */
@@ -42,6 +47,19 @@ public class BodyContentImpl extends BodyContent {
     private static final boolean LIMIT_BUFFER =
         Boolean.parseBoolean(System.getProperty("org.apache.jasper.runtime.BodyContentImpl.LIMIT_BUFFER", "false"));
 
+    /**
+     * The maximum number of chars of buffer segments a page context keeps
+     * for reuse once a request has completed.
+     */
+    static final int MAX_POOLED_CHARS = LIMIT_BUFFER ? 0 : Integer.getInteger(
+            "org.apache.jasper.runtime.BodyContentImpl.MAX_POOLED_CHARS",
+            64 * 1024).intValue();
+
+    private final BodyContentBufferPool pool;
+    private final char[] initialBuffer;
+    private char[][] segments;
+    private int segmentCount;
+    private int segmentsLength;
     private char[] cb;
     private int nextChar;
     private boolean closed;
@@ -56,8 +74,14 @@ public class BodyContentImpl extends BodyContent {
      * @param enclosingWriter The wrapped writer
      */
     public BodyContentImpl(JspWriter enclosingWriter) {
+        this(enclosingWriter, new BodyContentBufferPool(0));
+    }
+
+    BodyContentImpl(JspWriter enclosingWriter, BodyContentBufferPool pool) {
         super(enclosingWriter);
-        cb = new char[Constants.DEFAULT_TAG_BUFFER_SIZE];
+        this.pool = pool;
+        initialBuffer = pool.allocate(Constants.DEFAULT_TAG_BUFFER_SIZE);
+        cb = initialBuffer;
         bufferSize = cb.length;
         nextChar = 0;
         closed = false;
@@ -74,8 +98,8 @@ public class BodyContentImpl extends BodyContent {
             writer.write(c);
         } else {
             ensureOpen();
-            if (nextChar >= bufferSize) {
-                reAllocBuff (1);
+            if (nextChar >= cb.length) {
+                nextSegment();
             }
             cb[nextChar++] = (char) c;
         }
@@ -111,11 +135,16 @@ public class BodyContentImpl extends BodyContent {
                 return;
             }
 
-            if (len >= bufferSize - nextChar)
-                reAllocBuff (len);
-
-            System.arraycopy(cbuf, off, cb, nextChar, len);
-            nextChar+=len;
+            while (len > 0) {
+                if (nextChar >= cb.length) {
+                    nextSegment();
+                }
+                int n = Math.min(len, cb.length - nextChar);
+                System.arraycopy(cbuf, off, cb, nextChar, n);
+                nextChar += n;
+                off += n;
+                len -= n;
+            }
         }
     }
 
@@ -148,11 +177,16 @@ public class BodyContentImpl extends BodyContent {
             writer.write(s, off, len);
         } else {
             ensureOpen();
-            if (len >= bufferSize - nextChar)
-                reAllocBuff(len);
-
-            s.getChars(off, off + len, cb, nextChar);
-            nextChar += len;
+            while (len > 0) {
+                if (nextChar >= cb.length) {
+                    nextSegment();
+                }
+                int n = Math.min(len, cb.length - nextChar);
+                s.getChars(off, off + n, cb, nextChar);
+                nextChar += n;
+                off += n;
+                len -= n;
+            }
         }
     }
 
@@ -511,11 +545,23 @@ public class BodyContentImpl extends BodyContent {
         if (writer != null) {
             throw new IOException();
         } else {
-            nextChar = 0;
-            if (LIMIT_BUFFER && (cb.length > Constants.DEFAULT_TAG_BUFFER_SIZE)) {
-                cb = new char[Constants.DEFAULT_TAG_BUFFER_SIZE];
-                bufferSize = cb.length;
+            // Return the segments to the pool which keeps no more than
+            // MAX_POOLED_CHARS of them
+            for (int i = 1; i < segmentCount; i++) {
+                pool.release(segments[i]);
+                segments[i] = null;
+            }
+            if (cb != initialBuffer) {
+                pool.release(cb);
             }
+            if (segmentCount > 0) {
+                segments[0] = null;
+            }
+            segmentCount = 0;
+            segmentsLength = 0;
+            cb = initialBuffer;
+            nextChar = 0;
+            bufferSize = cb.length;
         }
     }
 
@@ -569,7 +615,7 @@ public class BodyContentImpl extends BodyContent {
      */
     @Override
     public int getRemaining() {
-        return (writer == null) ? bufferSize-nextChar : 0;
+        return (writer == null) ? bufferSize - segmentsLength - nextChar : 0;
     }
 
     /**
@@ -581,7 +627,13 @@ public class BodyContentImpl extends BodyContent {
      */
     @Override
     public Reader getReader() {
-        return (writer == null) ? new CharArrayReader (cb, 0, nextChar) : null;
+        if (writer != null) {
+            return null;
+        }
+        if (segmentCount == 0) {
+            return new CharArrayReader(cb, 0, nextChar);
+        }
+        return new CharArrayReader(toCharArray());
     }
 
     /**
@@ -593,7 +645,13 @@ public class BodyContentImpl extends BodyContent {
      */
     @Override
     public String getString() {
-        return (writer == null) ? new String(cb, 0, nextChar) : null;
+        if (writer != null) {
+            return null;
+        }
+        if (segmentCount == 0) {
+            return new String(cb, 0, nextChar);
+        }
+        return new String(toCharArray());
     }
 
     /**
@@ -608,6 +666,11 @@ public class BodyContentImpl extends BodyContent {
     @Override
     public void writeOut(Writer out) throws IOException {
         if (writer == null) {
+            // Each segment is written as it is, without first copying the
+            // whole body into one array
+            for (int i = 0; i < segmentCount; i++) {
+                out.write(segments[i], 0, segments[i].length);
+            }
             out.write(cb, 0, nextChar);
             // Flush not called as the writer passed could be a BodyContent and
             // it doesn't allow to flush.
@@ -650,24 +713,32 @@ public class BodyContentImpl extends BodyContent {
     }
 
     /**
-     * Reallocates buffer since the spec requires it to be unbounded.
+     * Moves on to a new segment since the spec requires the buffer to be
+     * unbounded. The full segments are kept in the order they were written.
      */
-    private void reAllocBuff(int len) {
-
-        if (bufferSize + len <= cb.length) {
-            bufferSize = cb.length;
-            return;
+    private void nextSegment() {
+        if (segments == null) {
+            segments = new char[8][];
+        } else if (segmentCount == segments.length) {
+            char[][] tmp = new char[segmentCount * 2][];
+            System.arraycopy(segments, 0, tmp, 0, segmentCount);
+            segments = tmp;
         }
+        segments[segmentCount++] = cb;
+        segmentsLength += cb.length;
+        cb = pool.take();
+        nextChar = 0;
+        bufferSize = segmentsLength + cb.length;
+    }
 
-        if (len < cb.length) {
-            len = cb.length;
+    private char[] toCharArray() {
+        char[] result = new char[segmentsLength + nextChar];
+        int pos = 0;
+        for (int i = 0; i < segmentCount; i++) {
+            System.arraycopy(segments[i], 0, result, pos, segments[i].length);
+            pos += segments[i].length;
         }
-
-        char[] tmp = new char[cb.length + len];
-        System.arraycopy(cb, 0, tmp, 0, cb.length);
-        cb = tmp;
-        bufferSize = cb.length;
+        System.arraycopy(cb, 0, result, pos, nextChar);
+        return result;
     }
-
-
 }
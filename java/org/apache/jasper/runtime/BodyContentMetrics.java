@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.runtime;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the buffers allocated for the body content of custom tags while a
+ * JSP was rendered. Buffers taken from the pool of the page context are not
+ * counted, so a page that keeps allocating indicates that the pool limit is
+ * too low for the page.
+ */
+public final class BodyContentMetrics {
+
+    private final AtomicLong allocations = new AtomicLong();
+    private final AtomicLong allocatedChars = new AtomicLong();
+
+
+    void addAllocations(int count, long chars) {
+        allocations.addAndGet(count);
+        allocatedChars.addAndGet(chars);
+    }
+
+
+    /**
+     * @return the number of body content buffers allocated for the page
+     */
+    public long getAllocations() {
+        return allocations.get();
+    }
+
+
+    /**
+     * @return the total size, in chars, of the body content buffers
+     *         allocated for the page
+     */
+    public long getAllocatedChars() {
+        return allocatedChars.get();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.runtime;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.jsp.JspException;
+import javax.servlet.jsp.tagext.Tag;
+
+import org.apache.jasper.Constants;
+
+/**
+ * Pool of tag handlers that does not lock. The handlers are held in an array
+ * of slots that are claimed and filled with compare-and-set operations. Each
+ * thread starts searching at a different slot so that request threads
+ * rendering the same page rarely compete for the same slot.
+ * <p>
+ * Use it by setting the <code>tagpoolClassName</code> init parameter of the
+ * JSP servlet or the
+ * <code>org.apache.jasper.runtime.TagHandlerPool.CLASS_NAME</code> system
+ * property to the name of this class.
+ */
+public class ConcurrentTagHandlerPool extends TagHandlerPool {
+
+    private AtomicReferenceArray<Tag> slots;
+
+
+    @Override
+    protected void init(ServletConfig config) {
+        int maxSize = -1;
+        String maxSizeS = getOption(config, OPTION_MAXSIZE, null);
+        if (maxSizeS != null) {
+            try {
+                maxSize = Integer.parseInt(maxSizeS);
+            } catch (Exception ex) {
+                maxSize = -1;
+            }
+        }
+        if (maxSize < 0) {
+            maxSize = Constants.MAX_POOL_SIZE;
+        }
+        this.slots = new AtomicReferenceArray<>(maxSize);
+        instanceManager = InstanceManagerFactory.getInstanceManager(config);
+    }
+
+
+    @Override
+    public Tag get(Class<? extends Tag> handlerClass) throws JspException {
+        int length = slots.length();
+        if (length > 0) {
+            int start = startIndex(length);
+            for (int i = 0; i < length; i++) {
+                int index = (start + i) % length;
+                Tag handler = slots.get(index);
+                if (handler != null && slots.compareAndSet(index, handler, null)) {
+                    return handler;
+                }
+            }
+        }
+        return newHandler(handlerClass);
+    }
+
+
+    @Override
+    public void reuse(Tag handler) {
+        int length = slots.length();
+        if (length > 0) {
+            int start = startIndex(length);
+            for (int i = 0; i < length; i++) {
+                int index = (start + i) % length;
+                if (slots.get(index) == null && slots.compareAndSet(index, null, handler)) {
+                    return;
+                }
+            }
+        }
+        destroyHandler(handler);
+    }
+
+
+    @Override
+    public void release() {
+        for (int i = 0; i < slots.length(); i++) {
+            Tag handler = slots.getAndSet(i, null);
+            if (handler != null) {
+                destroyHandler(handler);
+            }
+        }
+    }
+
+
+    private static int startIndex(int length) {
+        return (int) (Thread.currentThread().getId() % length);
+    }
+}
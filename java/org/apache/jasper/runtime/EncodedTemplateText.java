@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.runtime;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+
+import javax.servlet.jsp.JspWriter;
+
+/**
+ * Template text of a JSP that is encoded once, when the generated servlet
+ * class is initialised, with the character set the page declares for its
+ * response. Generated servlets use this when the
+ * <code>genStringAsByteArray</code> option is enabled.
+ * <p>
+ * The encoded bytes are written directly to the response when the page
+ * writer has already been flushed to the response and the response uses the
+ * same character set. Otherwise, e.g. in the body of a custom tag, the text
+ * is written as characters.
+ */
+public final class EncodedTemplateText {
+
+    private final String text;
+    private final Charset charset;
+    private final byte[] bytes;
+
+
+    public EncodedTemplateText(String text, Charset charset) {
+        this.text = text;
+        this.charset = charset;
+        this.bytes = encode(text, charset);
+    }
+
+
+    public String getText() {
+        return text;
+    }
+
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+
+    /**
+     * @return The encoded text or <code>null</code> if the text can not be
+     *         represented in the character set
+     */
+    byte[] getBytes() {
+        return bytes;
+    }
+
+
+    /**
+     * Write the text to the given writer.
+     *
+     * @param out The writer
+     * @throws IOException If an I/O error occurs
+     */
+    public void write(JspWriter out) throws IOException {
+        if (bytes != null && out instanceof JspWriterImpl) {
+            ((JspWriterImpl) out).write(this);
+        } else {
+            out.write(text);
+        }
+    }
+
+
+    /**
+     * Template text can only be encoded in advance with a character set that
+     * encodes every chunk of text independently of the text written before.
+     * That excludes character sets that write a byte order mark, such as
+     * UTF-16, and stateful character sets, such as ISO-2022-JP, whose shift
+     * state is kept by the encoder of the response.
+     *
+     * @param charset The character set
+     * @return <code>true</code> if text can be encoded in advance with the
+     *         character set
+     */
+    public static boolean isSupported(Charset charset) {
+        String name = charset.name();
+        return name.equals("UTF-8") || name.equals("US-ASCII") ||
+                name.startsWith("ISO-8859-");
+    }
+
+
+    private static byte[] encode(String text, Charset charset) {
+        if (!isSupported(charset)) {
+            return null;
+        }
+        CharsetEncoder encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        try {
+            ByteBuffer bb = encoder.encode(CharBuffer.wrap(text));
+            byte[] result = new byte[bb.remaining()];
+            bb.get(result);
+            return result;
+        } catch (CharacterCodingException e) {
+            // Leave any replacement to the response
+            return null;
+        }
+    }
+}
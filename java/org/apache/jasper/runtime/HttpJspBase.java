@@ -37,6 +37,9 @@ public abstract class HttpJspBase extends HttpServlet implements HttpJspPage {
 
     private static final long serialVersionUID = 1L;
 
+    private final transient BodyContentMetrics bodyContentMetrics =
+            new BodyContentMetrics();
+
     protected HttpJspBase() {
     }
 
@@ -49,6 +52,14 @@ public abstract class HttpJspBase extends HttpServlet implements HttpJspPage {
         _jspInit();
     }
 
+    /**
+     * @return the body content buffer allocations made while rendering this
+     *         page
+     */
+    public BodyContentMetrics getBodyContentMetrics() {
+        return bodyContentMetrics;
+    }
+
     @Override
     public String getServletInfo() {
         return Localizer.getMessage("jsp.engine.info");
@@ -28,6 +28,7 @@ import javax.servlet.jsp.JspWriter;
 import org.apache.jasper.Constants;
 import org.apache.jasper.compiler.Localizer;
 import org.apache.jasper.security.SecurityUtil;
+import org.apache.tomcat.PreEncodedWriter;
 
 /**
  * Write text to a character-output stream, buffering characters so as
@@ -93,6 +94,12 @@ public class JspWriterImpl extends JspWriter {
         out = null;
         nextChar = 0;
         response = null;
+        if (cb != null && cb.length > Constants.DEFAULT_BUFFER_SIZE &&
+                cb.length > BodyContentImpl.MAX_POOLED_CHARS) {
+            // Don't hold on to the buffer of a page with an unusually large
+            // buffer size
+            cb = null;
+        }
     }
 
     /**
@@ -333,6 +340,30 @@ public class JspWriterImpl extends JspWriter {
     }
 
 
+    /**
+     * Write template text that has already been encoded. The bytes are only
+     * written directly to the response if this writer has no buffer. Buffered
+     * text must remain subject to clearBuffer() and to the buffer overflow
+     * check when autoFlush is false, so it is written as characters.
+     *
+     * @param text The template text
+     * @throws IOException If an I/O error occurs
+     */
+    void write(EncodedTemplateText text) throws IOException {
+        ensureOpen();
+        if (bufferSize == 0) {
+            initOut();
+            if (out instanceof PreEncodedWriter) {
+                byte[] bytes = text.getBytes();
+                if (((PreEncodedWriter) out).writeEncoded(
+                        bytes, 0, bytes.length, text.getCharset())) {
+                    return;
+                }
+            }
+        }
+        write(text.getText());
+    }
+
     /**
      * Write a line separator.  The line separator string is defined by the
      * system property <tt>line.separator</tt>, and is not necessarily a single
@@ -73,6 +73,8 @@ public class PageContextImpl extends PageContext {
 
     private BodyContentImpl[] outs;
 
+    private final BodyContentBufferPool bodyContentPool;
+
     private int depth;
 
     // per-servlet state
@@ -111,6 +113,8 @@ public class PageContextImpl extends PageContext {
      */
     PageContextImpl() {
         this.outs = new BodyContentImpl[0];
+        this.bodyContentPool =
+                new BodyContentBufferPool(BodyContentImpl.MAX_POOLED_CHARS);
         this.attributes = new HashMap<>(16);
         this.depth = -1;
     }
@@ -170,6 +174,7 @@ public class PageContextImpl extends PageContext {
 
     @Override
     public void release() {
+        Servlet page = servlet;
         out = baseOut;
         try {
             if (isIncluded) {
@@ -202,6 +207,12 @@ public class PageContextImpl extends PageContext {
             for (BodyContentImpl body: outs) {
                 body.recycle();
             }
+            if (page instanceof HttpJspBase) {
+                BodyContentMetrics metrics = ((HttpJspBase) page).getBodyContentMetrics();
+                if (metrics != null) {
+                    bodyContentPool.reportAllocations(metrics);
+                }
+            }
         }
     }
 
@@ -760,7 +771,7 @@ public class PageContextImpl extends PageContext {
             for (int i = 0; i < outs.length; i++) {
                 newOuts[i] = outs[i];
             }
-            newOuts[depth] = new BodyContentImpl(out);
+            newOuts[depth] = new BodyContentImpl(out, bodyContentPool);
             outs = newOuts;
         }
 
@@ -39,6 +39,13 @@ public class TagHandlerPool {
     public static final String OPTION_TAGPOOL = "tagpoolClassName";
     public static final String OPTION_MAXSIZE = "tagpoolMaxSize";
 
+    /**
+     * The name of the tag handler pool class to use if the
+     * <code>tagpoolClassName</code> init parameter is not set.
+     */
+    private static final String TAGPOOL_CLASS_NAME = System.getProperty(
+            "org.apache.jasper.runtime.TagHandlerPool.CLASS_NAME");
+
     private static final Log log = LogFactory.getLog(TagHandlerPool.class);
 
     // index of next available tag handler
@@ -48,7 +55,7 @@ public class TagHandlerPool {
     public static TagHandlerPool getTagHandlerPool(ServletConfig config) {
         TagHandlerPool result = null;
 
-        String tpClassName = getOption(config, OPTION_TAGPOOL, null);
+        String tpClassName = getOption(config, OPTION_TAGPOOL, TAGPOOL_CLASS_NAME);
         if (tpClassName != null) {
             try {
                 Class<?> c = Class.forName(tpClassName);
@@ -112,6 +119,19 @@ public class TagHandlerPool {
 
         // Out of sync block - there is no need for other threads to
         // wait for us to construct a tag for this thread.
+        return newHandler(handlerClass);
+    }
+
+    /**
+     * Creates a new tag handler.
+     *
+     * @param handlerClass
+     *            Tag handler class
+     * @return Newly instantiated tag handler
+     * @throws JspException
+     *             if a tag handler cannot be instantiated
+     */
+    protected Tag newHandler(Class<? extends Tag> handlerClass) throws JspException {
         try {
             if (Constants.USE_INSTANCE_MANAGER_FOR_TAGS) {
                 return (Tag) instanceManager.newInstance(
@@ -144,6 +164,16 @@ public class TagHandlerPool {
             }
         }
         // There is no need for other threads to wait for us to release
+        destroyHandler(handler);
+    }
+
+    /**
+     * Calls the release() method of the given tag handler and destroys it.
+     *
+     * @param handler
+     *            Tag handler that is no longer needed
+     */
+    protected void destroyHandler(Tag handler) {
         handler.release();
         try {
             instanceManager.destroyInstance(handler);
@@ -161,16 +191,7 @@ public class TagHandlerPool {
      */
     public synchronized void release() {
         for (int i = current; i >= 0; i--) {
-            Tag handler = handlers[i];
-            handler.release();
-            try {
-                instanceManager.destroyInstance(handler);
-            } catch (Exception e) {
-                Throwable t = ExceptionUtils.unwrapInvocationTargetException(e);
-                ExceptionUtils.handleThrowable(t);
-                log.warn("Error processing preDestroy on tag instance of "
-                        + handler.getClass().getName(), t);
-            }
+            destroyHandler(handlers[i]);
         }
     }
 
@@ -24,6 +24,11 @@ import java.net.MalformedURLException;
 import java.security.AccessController;
 import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 import javax.servlet.RequestDispatcher;
 import javax.servlet.ServletConfig;
@@ -74,6 +79,7 @@ public class JspServlet extends HttpServlet implements PeriodicEventListener {
     //jspFile for a jsp configured explicitly as a servlet, in environments where this configuration is
     //translated into an init-param for this servlet.
     private String jspFile;
+    private transient BackgroundCompiler backgroundCompiler;
 
 
     /*
@@ -146,6 +152,11 @@ public class JspServlet extends HttpServlet implements PeriodicEventListener {
             }
         }
 
+        if (options.getBackgroundCompile() && jspFile == null) {
+            backgroundCompiler = new BackgroundCompiler();
+            backgroundCompiler.start();
+        }
+
         if (log.isDebugEnabled()) {
             log.debug(Localizer.getMessage("jsp.message.scratch.dir.is",
                     options.getScratchDir().toString()));
@@ -347,6 +358,10 @@ public class JspServlet extends HttpServlet implements PeriodicEventListener {
             log.debug("JspServlet.destroy()");
         }
 
+        if (backgroundCompiler != null) {
+            backgroundCompiler.stopCompiling();
+            backgroundCompiler = null;
+        }
         rctxt.destroy();
     }
 
@@ -391,6 +406,117 @@ public class JspServlet extends HttpServlet implements PeriodicEventListener {
     }
 
 
+    private JspServletWrapper getWrapperForBackgroundCompile(String jspUri) {
+        JspServletWrapper wrapper = rctxt.getWrapper(jspUri);
+        if (wrapper == null) {
+            // Same lock as serviceJspFile()
+            synchronized(this) {
+                wrapper = rctxt.getWrapper(jspUri);
+                if (wrapper == null) {
+                    wrapper = new JspServletWrapper(config, options, jspUri,
+                                                    rctxt);
+                    rctxt.addWrapper(jspUri,wrapper);
+                }
+            }
+        }
+        return wrapper;
+    }
+
+
+    /*
+     * Compiles all JSPs of the web application so that the first request for
+     * a JSP does not have to wait for the compilation. JSPs that were
+     * accessed most often in previous runs are compiled first.
+     */
+    private class BackgroundCompiler extends Thread {
+
+        private volatile boolean stopped = false;
+
+        BackgroundCompiler() {
+            super("JspBackgroundCompiler[" + context.getContextPath() + "]");
+            setDaemon(true);
+            setPriority(Thread.MIN_PRIORITY);
+        }
+
+        /*
+         * Waits for the compilation of the current JSP to finish so that the
+         * thread does not outlive the web application.
+         */
+        void stopCompiling() {
+            stopped = true;
+            try {
+                join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void run() {
+            long start = System.currentTimeMillis();
+            Set<String> jspUris = new LinkedHashSet<>();
+            Set<String> pages = new TreeSet<>();
+            findJsps("/", pages);
+            for (String jspUri : rctxt.getAccessHistory()) {
+                if (pages.contains(jspUri)) {
+                    jspUris.add(jspUri);
+                }
+            }
+            jspUris.addAll(pages);
+
+            if (log.isDebugEnabled()) {
+                log.debug(Localizer.getMessage("jsp.message.backgroundCompile.start",
+                        "" + jspUris.size(), context.getContextPath()));
+            }
+            int count = 0;
+            for (String jspUri : jspUris) {
+                if (stopped) {
+                    return;
+                }
+                try {
+                    getWrapperForBackgroundCompile(jspUri).compile();
+                    count++;
+                } catch (FileNotFoundException e) {
+                    // Removed since the JSPs were listed
+                } catch (Throwable t) {
+                    ExceptionUtils.handleThrowable(t);
+                    // The error will be reported when the JSP is requested
+                    if (log.isDebugEnabled()) {
+                        log.debug(Localizer.getMessage("jsp.message.backgroundCompile.fail",
+                                jspUri), t);
+                    }
+                }
+            }
+            if (log.isDebugEnabled()) {
+                log.debug(Localizer.getMessage("jsp.message.backgroundCompile.done",
+                        "" + count, context.getContextPath(),
+                        "" + (System.currentTimeMillis() - start)));
+            }
+        }
+
+        private void findJsps(String path, Set<String> result) {
+            Set<String> paths = context.getResourcePaths(path);
+            if (paths == null) {
+                return;
+            }
+            List<String> dirs = new ArrayList<>();
+            for (String resourcePath : paths) {
+                if (resourcePath.endsWith("/")) {
+                    if (!resourcePath.equals("/META-INF/")) {
+                        dirs.add(resourcePath);
+                    }
+                } else if (resourcePath.endsWith(".jsp") || resourcePath.endsWith(".jspx") ||
+                        options.getJspConfig().isJspPage(resourcePath)) {
+                    result.add(resourcePath);
+                }
+            }
+            for (String dir : dirs) {
+                findJsps(dir, result);
+            }
+        }
+    }
+
+
     private void handleMissingResource(HttpServletRequest request,
             HttpServletResponse response, String jspUri)
             throws ServletException, IOException {
@@ -88,7 +88,7 @@ public class JspServletWrapper {
     private long available = 0L;
     private final ServletConfig config;
     private final Options options;
-    private boolean firstTime = true;
+    private volatile boolean firstTime = true;
     /** Whether the servlet needs reloading on next access */
     private volatile boolean reload = true;
     private final boolean isTagFile;
@@ -98,6 +98,8 @@ public class JspServletWrapper {
     private volatile long servletClassLastModifiedTime;
     private long lastModificationTest = 0L;
     private long lastUsageTime = System.currentTimeMillis();
+    // Not synchronized, only used to order background compilation
+    private int accessCount;
     private FastRemovalDequeue<JspServletWrapper>.Entry unloadHandle;
     private final boolean unloadAllowed;
     private final boolean unloadByCount;
@@ -152,6 +154,27 @@ public class JspServletWrapper {
         this.reload = reload;
     }
 
+    /**
+     * Compiles the JSP if that has not been done since this wrapper was
+     * created. The servlet is not loaded.
+     *
+     * @throws JasperException if the JSP could not be compiled
+     * @throws FileNotFoundException if the JSP does not exist
+     */
+    public void compile() throws JasperException, FileNotFoundException {
+        if (firstTime) {
+            synchronized (this) {
+                if (firstTime) {
+                    if (ctxt.isRemoved()) {
+                        throw new FileNotFoundException(jspUri);
+                    }
+                    ctxt.compile();
+                    firstTime = false;
+                }
+            }
+        }
+    }
+
     public Servlet getServlet() throws ServletException {
         // DCL on 'reload' requires that 'reload' be volatile
         // (this also forces a read memory barrier, ensuring the
@@ -384,6 +407,8 @@ public class JspServletWrapper {
                 return;
             }
 
+            accessCount++;
+
         } catch (ServletException ex) {
             if (options.getDevelopment()) {
                 throw handleJspException(ex);
@@ -520,6 +545,13 @@ public class JspServletWrapper {
         return lastUsageTime;
     }
 
+    /**
+     * @return the approximate number of requests serviced by this JSP.
+     */
+    public int getAccessCount() {
+        return accessCount;
+    }
+
     /**
      * <p>Attempts to construct a JasperException that contains helpful information
      * about what went wrong. Uses the JSP compiler system to translate the line
@@ -25,9 +25,12 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -44,11 +47,13 @@ import org.apache.juli.logging.LogFactory;
 import org.apache.tomcat.JarScanType;
 import org.apache.tomcat.JarScanner;
 import org.apache.tomcat.JarScannerCallback;
+import org.apache.tomcat.ParallelJarScannerCallback;
 import org.apache.tomcat.util.descriptor.tld.TaglibXml;
 import org.apache.tomcat.util.descriptor.tld.TldParser;
 import org.apache.tomcat.util.descriptor.tld.TldResourcePath;
 import org.apache.tomcat.util.scan.Jar;
 import org.apache.tomcat.util.scan.JarFactory;
+import org.apache.tomcat.util.scan.JarScanCache;
 import org.xml.sax.SAXException;
 
 /**
@@ -61,6 +66,14 @@ public class TldScanner {
     private static final String WEB_INF = "/WEB-INF/";
     private final ServletContext context;
     private final TldParser tldParser;
+    private final boolean namespaceAware;
+    private final boolean validation;
+    private final boolean blockExternal;
+    private ClassLoader classLoader;
+    // Additional parsers for the JARs that are scanned in parallel
+    private final Deque<TldParser> jarTldParsers = new ArrayDeque<>();
+    // The TLD entries found in each JAR by previous scans, if enabled
+    private JarScanCache jarScanCache;
     private final Map<String, TldResourcePath> uriTldResourcePathMap = new HashMap<>();
     private final Map<TldResourcePath, TaglibXml> tldResourcePathTaglibXmlMap = new HashMap<>();
     private final List<String> listeners = new ArrayList<>();
@@ -84,6 +97,9 @@ public class TldScanner {
         this.context = context;
 
         this.tldParser = new TldParser(namespaceAware, validation, blockExternal);
+        this.namespaceAware = namespaceAware;
+        this.validation = validation;
+        this.blockExternal = blockExternal;
     }
 
     /**
@@ -143,6 +159,7 @@ public class TldScanner {
      */
     public void setClassLoader(ClassLoader classLoader) {
         tldParser.setClassLoader(classLoader);
+        this.classLoader = classLoader;
     }
 
     /**
@@ -261,7 +278,18 @@ public class TldScanner {
     public void scanJars() {
         JarScanner scanner = JarScannerFactory.getJarScanner(context);
         TldScannerCallback callback = new TldScannerCallback();
-        scanner.scan(JarScanType.TLD, context, callback);
+        jarScanCache = JarScanCache.getInstance(scanner, context, "tld");
+        try {
+            scanner.scan(JarScanType.TLD, context, callback);
+            if (jarScanCache != null) {
+                jarScanCache.save();
+            }
+        } finally {
+            jarScanCache = null;
+            synchronized (jarTldParsers) {
+                jarTldParsers.clear();
+            }
+        }
         if (callback.scanFoundNoTLDs()) {
             log.info(Localizer.getMessage("jsp.tldCache.noTldSummary"));
         }
@@ -279,6 +307,10 @@ public class TldScanner {
             return;
         }
         TaglibXml tld = tldParser.parse(path);
+        addTld(path, tld);
+    }
+
+    private void addTld(TldResourcePath path, TaglibXml tld) {
         String uri = tld.getUri();
         if (uri != null) {
             if (!uriTldResourcePathMap.containsKey(uri)) {
@@ -291,34 +323,110 @@ public class TldScanner {
         }
     }
 
-    class TldScannerCallback implements JarScannerCallback {
+    private TldParser takeJarTldParser() {
+        synchronized (jarTldParsers) {
+            TldParser parser = jarTldParsers.poll();
+            if (parser != null) {
+                return parser;
+            }
+        }
+        TldParser parser = new TldParser(namespaceAware, validation, blockExternal);
+        if (classLoader != null) {
+            parser.setClassLoader(classLoader);
+        }
+        return parser;
+    }
+
+    private void releaseJarTldParser(TldParser parser) {
+        synchronized (jarTldParsers) {
+            jarTldParsers.push(parser);
+        }
+    }
+
+    class TldScannerCallback implements ParallelJarScannerCallback {
+        // Only set for the callbacks that scan a single JAR, possibly in
+        // parallel with other JARs. These collect the parsed TLDs and add them
+        // to the scanner when they are merged.
+        private final Map<TldResourcePath,TaglibXml> jarTlds;
         private boolean foundJarWithoutTld = false;
         private boolean foundFileWithoutTld = false;
 
+        TldScannerCallback() {
+            this(null);
+        }
+
+        private TldScannerCallback(Map<TldResourcePath,TaglibXml> jarTlds) {
+            this.jarTlds = jarTlds;
+        }
+
+        @Override
+        public JarScannerCallback createPartialCallback() {
+            return new TldScannerCallback(new LinkedHashMap<TldResourcePath,TaglibXml>());
+        }
+
+        @Override
+        public void merge(JarScannerCallback partial) {
+            TldScannerCallback callback = (TldScannerCallback) partial;
+            for (Map.Entry<TldResourcePath,TaglibXml> entry : callback.jarTlds.entrySet()) {
+                if (!tldResourcePathTaglibXmlMap.containsKey(entry.getKey())) {
+                    addTld(entry.getKey(), entry.getValue());
+                }
+            }
+            if (callback.foundJarWithoutTld) {
+                foundJarWithoutTld = true;
+            }
+        }
+
+        private void parse(TldResourcePath path) throws IOException, SAXException {
+            if (jarTlds == null) {
+                parseTld(path);
+                return;
+            }
+            TldParser parser = takeJarTldParser();
+            try {
+                jarTlds.put(path, parser.parse(path));
+            } finally {
+                releaseJarTldParser(parser);
+            }
+        }
+
         @Override
         public void scan(JarURLConnection urlConn, String webappPath,
                 boolean isWebapp) throws IOException {
             boolean found = false;
             URL jarURL;
-            try (Jar jar = JarFactory.newInstance(urlConn.getURL())) {
-                jarURL = jar.getJarFileURL();
-                jar.nextEntry();
-                for (String entryName = jar.getEntryName();
-                    entryName != null;
-                    jar.nextEntry(), entryName = jar.getEntryName()) {
-                    if (!(entryName.startsWith("META-INF/") &&
-                            entryName.endsWith(TLD_EXT))) {
-                        continue;
-                    }
+            List<String[]> cachedEntries = null;
+            if (jarScanCache != null) {
+                cachedEntries = jarScanCache.get(urlConn.getURL());
+            }
+            if (cachedEntries != null) {
+                // The JAR has not changed since the previous scan, only the
+                // TLDs it contains need to be parsed
+                jarURL = urlConn.getJarFileURL();
+                for (String[] cachedEntry : cachedEntries) {
                     found = true;
-                    TldResourcePath tldResourcePath =
-                            new TldResourcePath(jarURL, webappPath, entryName);
-                    try {
-                        parseTld(tldResourcePath);
-                    } catch (SAXException e) {
-                        throw new IOException(e);
+                    parseJarEntry(jarURL, webappPath, cachedEntry[0]);
+                }
+            } else {
+                List<String[]> entries = new ArrayList<>();
+                try (Jar jar = JarFactory.newInstance(urlConn.getURL())) {
+                    jarURL = jar.getJarFileURL();
+                    jar.nextEntry();
+                    for (String entryName = jar.getEntryName();
+                        entryName != null;
+                        jar.nextEntry(), entryName = jar.getEntryName()) {
+                        if (!(entryName.startsWith("META-INF/") &&
+                                entryName.endsWith(TLD_EXT))) {
+                            continue;
+                        }
+                        found = true;
+                        entries.add(new String[] { entryName });
+                        parseJarEntry(jarURL, webappPath, entryName);
                     }
                 }
+                if (jarScanCache != null) {
+                    jarScanCache.put(urlConn.getURL(), entries);
+                }
             }
             if (found) {
                 if (log.isDebugEnabled()) {
@@ -332,6 +440,17 @@ public class TldScanner {
             }
         }
 
+        private void parseJarEntry(URL jarURL, String webappPath, String entryName)
+                throws IOException {
+            TldResourcePath tldResourcePath =
+                    new TldResourcePath(jarURL, webappPath, entryName);
+            try {
+                parse(tldResourcePath);
+            } catch (SAXException e) {
+                throw new IOException(e);
+            }
+        }
+
         @Override
         public void scan(File file, final String webappPath, boolean isWebapp)
                 throws IOException {
@@ -368,7 +487,7 @@ public class TldScanner {
                     try {
                         URL url = file.toUri().toURL();
                         TldResourcePath path = new TldResourcePath(url, resourcePath);
-                        parseTld(path);
+                        parse(path);
                     } catch (SAXException e) {
                         throw new IOException(e);
                     }
@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat;
+
+/**
+ * A {@link JarScannerCallback} that allows a {@link JarScanner} to process
+ * several JARs at the same time. Each JAR is passed to a separate partial
+ * callback, which may be used by any thread, and the results of the partial
+ * callbacks are then merged into this callback by the thread that started the
+ * scan in the order in which a sequential scan would have found the JARs. This
+ * keeps the outcome of a scan independent of the number of threads used.
+ */
+public interface ParallelJarScannerCallback extends JarScannerCallback {
+
+    /**
+     * Create a callback that will be used to process a single JAR, directory
+     * or /WEB-INF/classes. The returned callback must not modify any state
+     * that is shared with this callback or with other partial callbacks.
+     *
+     * @return a new callback to collect the results for a single JAR
+     */
+    public JarScannerCallback createPartialCallback();
+
+    /**
+     * Merge the results collected by a partial callback into this callback.
+     * This method is always called by the thread that started the scan. It is
+     * called for every partial callback, including those that failed with an
+     * exception, once the partial callback is no longer in use.
+     *
+     * @param partial A callback obtained from {@link #createPartialCallback()}
+     */
+    public void merge(JarScannerCallback partial);
+}
@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * Implemented by character writers that can also accept text that has
+ * already been encoded. This allows, for example, the static template text of
+ * a JSP to be encoded once rather than every time the page is rendered.
+ */
+public interface PreEncodedWriter {
+
+    /**
+     * Write text that has already been encoded with the given character set.
+     * The bytes are only written if the writer encodes characters with the
+     * same character set and any characters written previously have been
+     * completely encoded, so that the output is identical to writing the
+     * text as characters.
+     *
+     * @param b       The encoded text
+     * @param off     The offset of the first byte to write
+     * @param len     The number of bytes to write
+     * @param charset The character set used to encode the text
+     *
+     * @return <code>true</code> if the bytes were written,
+     *         <code>false</code> if the caller must write the text as
+     *         characters instead
+     *
+     * @throws IOException If an I/O error occurs
+     */
+    boolean writeEncoded(byte[] b, int off, int len, Charset charset) throws IOException;
+}
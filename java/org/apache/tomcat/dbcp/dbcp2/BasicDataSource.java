@@ -421,6 +421,79 @@ public class BasicDataSource implements DataSource, BasicDataSourceMXBean, MBean
         }
     }
 
+    /**
+     * True means the idle connections are held in a lock-free deque rather
+     * than in a deque guarded by a single lock.
+     */
+    private boolean lockFreeIdleObjects =
+            GenericObjectPoolConfig.DEFAULT_LOCK_FREE_IDLE_OBJECTS;
+
+    /**
+     * Returns the lockFreeIdleObjects property.
+     *
+     * @return <code>true</code> if the idle connections are held in a
+     *         lock-free deque
+     * @see GenericObjectPool#getLockFreeIdleObjects()
+     */
+    @Override
+    public synchronized boolean getLockFreeIdleObjects() {
+        return this.lockFreeIdleObjects;
+    }
+
+    /**
+     * <p>Sets the lockFreeIdleObjects property. True means the idle
+     * connections are held in a lock-free deque, which reduces contention
+     * when connections are borrowed and returned at a high rate.</p>
+     * <p>
+     * Note: this method currently has no effect once the pool has been
+     * initialized.  The pool is initialized the first time one of the
+     * following methods is invoked: <code>getConnection, setLogwriter,
+     * setLoginTimeout, getLoginTimeout, getLogWriter.</code></p>
+     *
+     * @param lockFreeIdleObjects the new value for the lockFreeIdleObjects
+     *        property
+     */
+    public synchronized void setLockFreeIdleObjects(boolean lockFreeIdleObjects) {
+        this.lockFreeIdleObjects = lockFreeIdleObjects;
+    }
+
+    /**
+     * True means a thread borrowing a connection is given the connection it
+     * returned most recently, if that connection is still idle.
+     */
+    private boolean threadAffinity =
+            GenericObjectPoolConfig.DEFAULT_THREAD_AFFINITY;
+
+    /**
+     * Returns the threadAffinity property.
+     *
+     * @return <code>true</code> if borrowing threads prefer the connection
+     *         they returned most recently
+     * @see GenericObjectPool#getThreadAffinity()
+     */
+    @Override
+    public synchronized boolean getThreadAffinity() {
+        return this.threadAffinity;
+    }
+
+    /**
+     * <p>Sets the threadAffinity property. True means a thread borrowing a
+     * connection is given the connection it returned most recently, if that
+     * connection is still idle. This property has no effect unless
+     * {@link #setLockFreeIdleObjects(boolean) lockFreeIdleObjects} is
+     * true.</p>
+     * <p>
+     * Note: this method currently has no effect once the pool has been
+     * initialized.  The pool is initialized the first time one of the
+     * following methods is invoked: <code>getConnection, setLogwriter,
+     * setLoginTimeout, getLoginTimeout, getLogWriter.</code></p>
+     *
+     * @param threadAffinity the new value for the threadAffinity property
+     */
+    public synchronized void setThreadAffinity(boolean threadAffinity) {
+        this.threadAffinity = threadAffinity;
+    }
+
     /**
      * The maximum number of active connections that can be allocated from
      * this pool at the same time, or negative for no limit.
@@ -532,6 +605,75 @@ public class BasicDataSource implements DataSource, BasicDataSourceMXBean, MBean
        }
     }
 
+    /**
+     * The number of idle connections the pool tries to keep available by
+     * opening connections in the background when connections are borrowed,
+     * or 0 to open none.
+     */
+    private int idleHeadroom = GenericObjectPoolConfig.DEFAULT_IDLE_HEADROOM;
+
+    /**
+     * Returns the number of idle connections the pool tries to keep available
+     * by opening connections in the background when connections are borrowed.
+     * The pool keeps more idle connections when they are borrowed faster than
+     * they can be opened, up to {@link #getMaxIdle()}.
+     *
+     * @return the number of idle connections to keep available
+     * @see GenericObjectPool#getIdleHeadroom()
+     */
+    @Override
+    public synchronized int getIdleHeadroom() {
+        return this.idleHeadroom;
+    }
+
+    /**
+     * Sets the number of idle connections the pool tries to keep available
+     * by opening connections in the background when connections are borrowed.
+     * Zero or less disables background creation.
+     *
+     * @param idleHeadroom the new value for idleHeadroom
+     * @see GenericObjectPool#setIdleHeadroom(int)
+     */
+    public synchronized void setIdleHeadroom(int idleHeadroom) {
+       this.idleHeadroom = idleHeadroom;
+       if (connectionPool != null) {
+           connectionPool.setIdleHeadroom(idleHeadroom);
+       }
+    }
+
+    /**
+     * The maximum number of connections the pool opens in the background at
+     * the same time.
+     */
+    private int maxConcurrentCreates =
+            GenericObjectPoolConfig.DEFAULT_MAX_CONCURRENT_CREATES;
+
+    /**
+     * Returns the maximum number of connections the pool opens in the
+     * background at the same time.
+     *
+     * @return the maximum number of concurrent background connections
+     * @see GenericObjectPool#getMaxConcurrentCreates()
+     */
+    @Override
+    public synchronized int getMaxConcurrentCreates() {
+        return this.maxConcurrentCreates;
+    }
+
+    /**
+     * Sets the maximum number of connections the pool opens in the background
+     * at the same time.
+     *
+     * @param maxConcurrentCreates the new value for maxConcurrentCreates
+     * @see GenericObjectPool#setMaxConcurrentCreates(int)
+     */
+    public synchronized void setMaxConcurrentCreates(int maxConcurrentCreates) {
+       this.maxConcurrentCreates = maxConcurrentCreates;
+       if (connectionPool != null) {
+           connectionPool.setMaxConcurrentCreates(maxConcurrentCreates);
+       }
+    }
+
     /**
      * The initial number of connections that are created when the pool
      * is started.
@@ -1004,6 +1146,54 @@ public class BasicDataSource implements DataSource, BasicDataSourceMXBean, MBean
         return 0;
     }
 
+    /**
+     * [Read Only] The total time spent waiting to borrow connections that have
+     * since been returned to this data source.
+     *
+     * @return the total borrow wait time in milliseconds
+     */
+    @Override
+    public long getBorrowWaitTimeMillis() {
+        // Copy reference to avoid NPE if close happens after null check
+        DataSource ds = dataSource;
+        if (ds instanceof PoolingDataSource) {
+            return ((PoolingDataSource<?>) ds).getBorrowWaitTimeMillis();
+        }
+        return 0;
+    }
+
+    /**
+     * [Read Only] The total time connections returned to this data source
+     * were held by the application.
+     *
+     * @return the total hold time in milliseconds
+     */
+    @Override
+    public long getHoldTimeMillis() {
+        // Copy reference to avoid NPE if close happens after null check
+        DataSource ds = dataSource;
+        if (ds instanceof PoolingDataSource) {
+            return ((PoolingDataSource<?>) ds).getHoldTimeMillis();
+        }
+        return 0;
+    }
+
+    /**
+     * [Read Only] The total time spent executing statements on connections
+     * returned to this data source.
+     *
+     * @return the total statement execution time in milliseconds
+     */
+    @Override
+    public long getStatementTimeMillis() {
+        // Copy reference to avoid NPE if close happens after null check
+        DataSource ds = dataSource;
+        if (ds instanceof PoolingDataSource) {
+            return ((PoolingDataSource<?>) ds).getStatementTimeMillis();
+        }
+        return 0;
+    }
+
     /**
      * The connection password to be passed to our JDBC driver to establish
      * a connection.
@@ -1304,6 +1494,36 @@ public class BasicDataSource implements DataSource, BasicDataSourceMXBean, MBean
         this.maxConnLifetimeMillis = maxConnLifetimeMillis;
     }
 
+    private long poolValidationIntervalMillis = -1;
+
+    /**
+     * Returns the time in milliseconds after a successful validation during
+     * which borrowed and returned connections are not validated. A value of
+     * zero or less validates every connection separately.
+     */
+    @Override
+    public long getPoolValidationIntervalMillis() {
+        return poolValidationIntervalMillis;
+    }
+
+    /**
+     * <p>Sets the time in milliseconds after a successful validation of any
+     * connection during which connections are not validated on borrow or on
+     * return. When such a validation fails, the idle connections are
+     * validated concurrently in the background so that connections to a
+     * database that went away are discarded in one go. A value of zero or
+     * less validates every connection separately.</p>
+     * <p>
+     * Note: this method currently has no effect once the pool has been
+     * initialized.  The pool is initialized the first time one of the
+     * following methods is invoked: <code>getConnection, setLogwriter,
+     * setLoginTimeout, getLoginTimeout, getLogWriter.</code></p>
+     * @param poolValidationIntervalMillis The time in milliseconds
+     */
+    public void setPoolValidationIntervalMillis(long poolValidationIntervalMillis) {
+        this.poolValidationIntervalMillis = poolValidationIntervalMillis;
+    }
+
     /**
      * When {@link #getMaxConnLifetimeMillis()} is set to limit connection lifetime,
      * this property determines whether or not log messages are generated when the
@@ -2204,6 +2424,8 @@ public class BasicDataSource implements DataSource, BasicDataSourceMXBean, MBean
         GenericObjectPoolConfig config = new GenericObjectPoolConfig();
         updateJmxName(config);
         config.setJmxEnabled(registeredJmxName != null);  // Disable JMX on the underlying pool if the DS is not registered.
+        config.setLockFreeIdleObjects(lockFreeIdleObjects);
+        config.setThreadAffinity(threadAffinity);
         GenericObjectPool<PoolableConnection> gop;
         if (abandonedConfig != null &&
                 (abandonedConfig.getRemoveAbandonedOnBorrow() ||
@@ -2216,6 +2438,8 @@ public class BasicDataSource implements DataSource, BasicDataSourceMXBean, MBean
         gop.setMaxTotal(maxTotal);
         gop.setMaxIdle(maxIdle);
         gop.setMinIdle(minIdle);
+        gop.setIdleHeadroom(idleHeadroom);
+        gop.setMaxConcurrentCreates(maxConcurrentCreates);
         gop.setMaxWaitMillis(maxWaitMillis);
         gop.setTestOnCreate(testOnCreate);
         gop.setTestOnBorrow(testOnBorrow);
@@ -2290,6 +2514,7 @@ public class BasicDataSource implements DataSource, BasicDataSourceMXBean, MBean
             connectionFactory.setPoolStatements(poolPreparedStatements);
             connectionFactory.setMaxOpenPrepatedStatements(maxOpenPreparedStatements);
             connectionFactory.setMaxConnLifetimeMillis(maxConnLifetimeMillis);
+            connectionFactory.setPoolValidationIntervalMillis(poolValidationIntervalMillis);
             connectionFactory.setRollbackOnReturn(getRollbackOnReturn());
             connectionFactory.setEnableAutoCommitOnReturn(getEnableAutoCommitOnReturn());
             connectionFactory.setDefaultQueryTimeout(getDefaultQueryTimeout());
@@ -69,9 +69,13 @@ public class BasicDataSourceFactory implements ObjectFactory {
     private static final String PROP_CACHESTATE ="cacheState";
     private static final String PROP_DRIVERCLASSNAME = "driverClassName";
     private static final String PROP_LIFO = "lifo";
+    private static final String PROP_LOCKFREEIDLEOBJECTS = "lockFreeIdleObjects";
+    private static final String PROP_THREADAFFINITY = "threadAffinity";
     private static final String PROP_MAXTOTAL = "maxTotal";
     private static final String PROP_MAXIDLE = "maxIdle";
     private static final String PROP_MINIDLE = "minIdle";
+    private static final String PROP_IDLEHEADROOM = "idleHeadroom";
+    private static final String PROP_MAXCONCURRENTCREATES = "maxConcurrentCreates";
     private static final String PROP_INITIALSIZE = "initialSize";
     private static final String PROP_MAXWAITMILLIS = "maxWaitMillis";
     private static final String PROP_TESTONCREATE = "testOnCreate";
@@ -106,6 +110,7 @@ public class BasicDataSourceFactory implements ObjectFactory {
     private static final String PROP_CONNECTIONPROPERTIES = "connectionProperties";
     private static final String PROP_MAXCONNLIFETIMEMILLIS = "maxConnLifetimeMillis";
     private static final String PROP_LOGEXPIREDCONNECTIONS = "logExpiredConnections";
+    private static final String PROP_POOLVALIDATIONINTERVALMILLIS = "poolValidationIntervalMillis";
     private static final String PROP_ROLLBACK_ON_RETURN = "rollbackOnReturn";
     private static final String PROP_ENABLE_AUTOCOMMIT_ON_RETURN = "enableAutoCommitOnReturn";
     private static final String PROP_DEFAULT_QUERYTIMEOUT = "defaultQueryTimeout";
@@ -142,9 +147,13 @@ public class BasicDataSourceFactory implements ObjectFactory {
         PROP_CACHESTATE,
         PROP_DRIVERCLASSNAME,
         PROP_LIFO,
+        PROP_LOCKFREEIDLEOBJECTS,
+        PROP_THREADAFFINITY,
         PROP_MAXTOTAL,
         PROP_MAXIDLE,
         PROP_MINIDLE,
+        PROP_IDLEHEADROOM,
+        PROP_MAXCONCURRENTCREATES,
         PROP_INITIALSIZE,
         PROP_MAXWAITMILLIS,
         PROP_TESTONCREATE,
@@ -173,6 +182,7 @@ public class BasicDataSourceFactory implements ObjectFactory {
         PROP_CONNECTIONPROPERTIES,
         PROP_MAXCONNLIFETIMEMILLIS,
         PROP_LOGEXPIREDCONNECTIONS,
+        PROP_POOLVALIDATIONINTERVALMILLIS,
         PROP_ROLLBACK_ON_RETURN,
         PROP_ENABLE_AUTOCOMMIT_ON_RETURN,
         PROP_DEFAULT_QUERYTIMEOUT,
@@ -400,6 +410,16 @@ public class BasicDataSourceFactory implements ObjectFactory {
             dataSource.setLifo(Boolean.valueOf(value).booleanValue());
         }
 
+        value = properties.getProperty(PROP_LOCKFREEIDLEOBJECTS);
+        if (value != null) {
+            dataSource.setLockFreeIdleObjects(Boolean.valueOf(value).booleanValue());
+        }
+
+        value = properties.getProperty(PROP_THREADAFFINITY);
+        if (value != null) {
+            dataSource.setThreadAffinity(Boolean.valueOf(value).booleanValue());
+        }
+
         value = properties.getProperty(PROP_MAXTOTAL);
         if (value != null) {
             dataSource.setMaxTotal(Integer.parseInt(value));
@@ -415,6 +435,16 @@ public class BasicDataSourceFactory implements ObjectFactory {
             dataSource.setMinIdle(Integer.parseInt(value));
         }
 
+        value = properties.getProperty(PROP_IDLEHEADROOM);
+        if (value != null) {
+            dataSource.setIdleHeadroom(Integer.parseInt(value));
+        }
+
+        value = properties.getProperty(PROP_MAXCONCURRENTCREATES);
+        if (value != null) {
+            dataSource.setMaxConcurrentCreates(Integer.parseInt(value));
+        }
+
         value = properties.getProperty(PROP_INITIALSIZE);
         if (value != null) {
             dataSource.setInitialSize(Integer.parseInt(value));
@@ -560,6 +590,11 @@ public class BasicDataSourceFactory implements ObjectFactory {
             dataSource.setLogExpiredConnections(Boolean.valueOf(value).booleanValue());
         }
 
+        value = properties.getProperty(PROP_POOLVALIDATIONINTERVALMILLIS);
+        if (value != null) {
+            dataSource.setPoolValidationIntervalMillis(Long.parseLong(value));
+        }
+
         value = properties.getProperty(PROP_JMX_NAME);
         if (value != null) {
             dataSource.setJmxName(value);
@@ -71,6 +71,18 @@ public interface BasicDataSourceMXBean {
      */
     boolean getLifo();
 
+    /**
+     * See {@link BasicDataSource#getLockFreeIdleObjects()}
+     * @return {@link BasicDataSource#getLockFreeIdleObjects()}
+     */
+    boolean getLockFreeIdleObjects();
+
+    /**
+     * See {@link BasicDataSource#getThreadAffinity()}
+     * @return {@link BasicDataSource#getThreadAffinity()}
+     */
+    boolean getThreadAffinity();
+
     /**
      * See {@link BasicDataSource#getMaxTotal()}
      * @return {@link BasicDataSource#getMaxTotal()}
@@ -89,6 +101,18 @@ public interface BasicDataSourceMXBean {
      */
     int getMinIdle();
 
+    /**
+     * See {@link BasicDataSource#getIdleHeadroom()}
+     * @return {@link BasicDataSource#getIdleHeadroom()}
+     */
+    int getIdleHeadroom();
+
+    /**
+     * See {@link BasicDataSource#getMaxConcurrentCreates()}
+     * @return {@link BasicDataSource#getMaxConcurrentCreates()}
+     */
+    int getMaxConcurrentCreates();
+
     /**
      * See {@link BasicDataSource#getInitialSize()}
      * @return {@link BasicDataSource#getInitialSize()}
@@ -167,6 +191,24 @@ public interface BasicDataSourceMXBean {
      */
     int getNumIdle();
 
+    /**
+     * See {@link BasicDataSource#getBorrowWaitTimeMillis()}
+     * @return {@link BasicDataSource#getBorrowWaitTimeMillis()}
+     */
+    long getBorrowWaitTimeMillis();
+
+    /**
+     * See {@link BasicDataSource#getHoldTimeMillis()}
+     * @return {@link BasicDataSource#getHoldTimeMillis()}
+     */
+    long getHoldTimeMillis();
+
+    /**
+     * See {@link BasicDataSource#getStatementTimeMillis()}
+     * @return {@link BasicDataSource#getStatementTimeMillis()}
+     */
+    long getStatementTimeMillis();
+
     /**
      * See {@link BasicDataSource#getPassword()}
      * @return {@link BasicDataSource#getPassword()}
@@ -222,6 +264,12 @@ public interface BasicDataSourceMXBean {
      */
     boolean getLogExpiredConnections();
 
+    /**
+     * See {@link BasicDataSource#getPoolValidationIntervalMillis()}
+     * @return {@link BasicDataSource#getPoolValidationIntervalMillis()}
+     */
+    long getPoolValidationIntervalMillis();
+
     /**
      * See {@link BasicDataSource#getRemoveAbandonedOnBorrow()}
      * @return {@link BasicDataSource#getRemoveAbandonedOnBorrow()}
@@ -78,12 +78,15 @@ public class DelegatingPreparedStatement extends DelegatingStatement
         if (getConnectionInternal() != null) {
             getConnectionInternal().setLastUsed();
         }
+        long start = System.nanoTime();
         try {
             return DelegatingResultSet.wrapResultSet(this,((PreparedStatement)getDelegate()).executeQuery());
         }
         catch (SQLException e) {
             handleException(e);
             throw new AssertionError();
+        } finally {
+            executed(start);
         }
     }
 
@@ -93,11 +96,14 @@ public class DelegatingPreparedStatement extends DelegatingStatement
         if (getConnectionInternal() != null) {
             getConnectionInternal().setLastUsed();
         }
+        long start = System.nanoTime();
         try {
             return ((PreparedStatement) getDelegate()).executeUpdate();
         } catch (SQLException e) {
             handleException(e);
             return 0;
+        } finally {
+            executed(start);
         }
     }
 
@@ -193,11 +199,14 @@ public class DelegatingPreparedStatement extends DelegatingStatement
         if (getConnectionInternal() != null) {
             getConnectionInternal().setLastUsed();
         }
+        long start = System.nanoTime();
         try {
             return ((PreparedStatement) getDelegate()).execute();
         } catch (SQLException e) {
             handleException(e);
             return false;
+        } finally {
+            executed(start);
         }
     }
 
@@ -178,6 +178,19 @@ public class DelegatingStatement extends AbandonedTrace implements Statement {
         }
     }
 
+    /**
+     * Adds the time spent executing this statement to the pooled connection
+     * that created it. Statements that wrap or are wrapped by this one are
+     * created by other connections, so the time is only counted once.
+     *
+     * @param start The {@link System#nanoTime()} the execution started at
+     */
+    protected void executed(long start) {
+        if (_conn instanceof PoolableConnection) {
+            ((PoolableConnection) _conn).addStatementTime(System.nanoTime() - start);
+        }
+    }
+
     protected void activate() throws SQLException {
         if(_stmt instanceof DelegatingStatement) {
             ((DelegatingStatement)_stmt).activate();
@@ -206,12 +219,15 @@ public class DelegatingStatement extends AbandonedTrace implements Statement {
         if (_conn != null) {
             _conn.setLastUsed();
         }
+        long start = System.nanoTime();
         try {
             return DelegatingResultSet.wrapResultSet(this,_stmt.executeQuery(sql));
         }
         catch (SQLException e) {
             handleException(e);
             throw new AssertionError();
+        } finally {
+            executed(start);
         }
     }
 
@@ -233,10 +249,13 @@ public class DelegatingStatement extends AbandonedTrace implements Statement {
         if (_conn != null) {
             _conn.setLastUsed();
         }
+        long start = System.nanoTime();
         try {
             return _stmt.executeUpdate(sql);
         } catch (SQLException e) {
             handleException(e); return 0;
+        } finally {
+            executed(start);
         }
     }
 
@@ -290,11 +309,14 @@ public class DelegatingStatement extends AbandonedTrace implements Statement {
         if (_conn != null) {
             _conn.setLastUsed();
         }
+        long start = System.nanoTime();
         try {
             return _stmt.execute(sql);
         } catch (SQLException e) {
             handleException(e);
             return false;
+        } finally {
+            executed(start);
         }
     }
 
@@ -344,11 +366,14 @@ public class DelegatingStatement extends AbandonedTrace implements Statement {
         if (_conn != null) {
             _conn.setLastUsed();
         }
+        long start = System.nanoTime();
         try {
             return _stmt.executeBatch();
         } catch (SQLException e) {
             handleException(e);
             throw new AssertionError();
+        } finally {
+            executed(start);
         }
     }
 
@@ -383,11 +408,14 @@ public class DelegatingStatement extends AbandonedTrace implements Statement {
         if (_conn != null) {
             _conn.setLastUsed();
         }
+        long start = System.nanoTime();
         try {
             return _stmt.executeUpdate(sql, autoGeneratedKeys);
         } catch (SQLException e) {
             handleException(e);
             return 0;
+        } finally {
+            executed(start);
         }
     }
 
@@ -397,11 +425,14 @@ public class DelegatingStatement extends AbandonedTrace implements Statement {
         if (_conn != null) {
             _conn.setLastUsed();
         }
+        long start = System.nanoTime();
         try {
             return _stmt.executeUpdate(sql, columnIndexes);
         } catch (SQLException e) {
             handleException(e);
             return 0;
+        } finally {
+            executed(start);
         }
     }
 
@@ -411,11 +442,14 @@ public class DelegatingStatement extends AbandonedTrace implements Statement {
         if (_conn != null) {
             _conn.setLastUsed();
         }
+        long start = System.nanoTime();
         try {
             return _stmt.executeUpdate(sql, columnNames);
         } catch (SQLException e) {
             handleException(e);
             return 0;
+        } finally {
+            executed(start);
         }
     }
 
@@ -425,11 +459,14 @@ public class DelegatingStatement extends AbandonedTrace implements Statement {
         if (_conn != null) {
             _conn.setLastUsed();
         }
+        long start = System.nanoTime();
         try {
             return _stmt.execute(sql, autoGeneratedKeys);
         } catch (SQLException e) {
             handleException(e);
             return false;
+        } finally {
+            executed(start);
         }
     }
 
@@ -439,11 +476,14 @@ public class DelegatingStatement extends AbandonedTrace implements Statement {
         if (_conn != null) {
             _conn.setLastUsed();
         }
+        long start = System.nanoTime();
         try {
             return _stmt.execute(sql, columnIndexes);
         } catch (SQLException e) {
             handleException(e);
             return false;
+        } finally {
+            executed(start);
         }
     }
 
@@ -453,11 +493,14 @@ public class DelegatingStatement extends AbandonedTrace implements Statement {
         if (_conn != null) {
             _conn.setLastUsed();
         }
+        long start = System.nanoTime();
         try {
             return _stmt.execute(sql, columnNames);
         } catch (SQLException e) {
             handleException(e);
             return false;
+        } finally {
+            executed(start);
         }
     }
 
@@ -22,6 +22,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.management.InstanceAlreadyExistsException;
 import javax.management.InstanceNotFoundException;
@@ -71,6 +72,12 @@ public class PoolableConnection extends DelegatingConnection<Connection>
      */
     private boolean _fatalSqlExceptionThrown = false;
 
+    /**
+     * Timeout in seconds of {@link Connection#isValid(int)} if no validation
+     * timeout is set, so that a validation never waits indefinitely.
+     */
+    private static final int DEFAULT_IS_VALID_TIMEOUT = 5;
+
     /**
      * SQL_STATE codes considered to signal fatal conditions. Overrides the
      * defaults in {@link Utils#DISCONNECTION_SQL_CODES} (plus anything starting
@@ -81,6 +88,9 @@ public class PoolableConnection extends DelegatingConnection<Connection>
     /** Whether or not to fast fail validation after fatal connection errors */
     private final boolean _fastFailValidation;
 
+    /** Time spent executing statements created by this connection, in nanoseconds */
+    private final AtomicLong _statementTime = new AtomicLong();
+
     /**
      *
      * @param conn my underlying connection
@@ -121,6 +131,22 @@ public class PoolableConnection extends DelegatingConnection<Connection>
    }
 
 
+    /**
+     * Adds to the time spent executing statements created by this connection.
+     * @param time the execution time in nanoseconds
+     */
+    void addStatementTime(long time) {
+        _statementTime.addAndGet(time);
+    }
+
+    /**
+     * @return the total time spent executing statements created by this
+     *         connection in nanoseconds
+     */
+    long getStatementTime() {
+        return _statementTime.get();
+    }
+
     @Override
     protected void passivate() throws SQLException {
         super.passivate();
@@ -259,7 +285,8 @@ public class PoolableConnection extends DelegatingConnection<Connection>
      *       this connection has previously thrown a fatal disconnection exception,
      *       a {@code SQLException} is thrown. </li>
      *   <li>If {@code sql} is null, the driver's
-     *       #{@link Connection#isValid(int) isValid(timeout)} is called.
+     *       #{@link Connection#isValid(int) isValid(timeout)} is called, with
+     *       a timeout of 5 seconds if {@code timeout} is not positive.
      *       If it returns {@code false}, {@code SQLException} is thrown;
      *       otherwise, this method returns successfully.</li>
      *   <li>If {@code sql} is not null, it is executed as a query and if the resulting
@@ -271,13 +298,11 @@ public class PoolableConnection extends DelegatingConnection<Connection>
      * @throws SQLException if validation fails or an SQLException occurs during validation
      */
     public void validate(String sql, int timeout) throws SQLException {
-        if (_fastFailValidation && _fatalSqlExceptionThrown) {
-            throw new SQLException(Utils.getMessage("poolableConnection.validate.fastFail"));
-        }
+        validateFastFail();
 
         if (sql == null || sql.length() == 0) {
-            if (timeout < 0) {
-                timeout = 0;
+            if (timeout <= 0) {
+                timeout = DEFAULT_IS_VALID_TIMEOUT;
             }
             if (!isValid(timeout)) {
                 throw new SQLException("isValid() returned false");
@@ -306,6 +331,20 @@ public class PoolableConnection extends DelegatingConnection<Connection>
         }
     }
 
+    /**
+     * Performs the part of {@link #validate(String, int)} that needs no round
+     * trip to the database.
+     *
+     * @throws SQLException if {@code fastFailValidation} is {@code true} and
+     *         this connection has previously thrown a fatal disconnection
+     *         exception
+     */
+    void validateFastFail() throws SQLException {
+        if (_fastFailValidation && _fatalSqlExceptionThrown) {
+            throw new SQLException(Utils.getMessage("poolableConnection.validate.fastFail"));
+        }
+    }
+
     /**
      * Checks the SQLState of the input exception and any nested SQLExceptions it wraps.
      * <p>
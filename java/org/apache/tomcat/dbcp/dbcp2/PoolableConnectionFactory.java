@@ -31,9 +31,11 @@ import org.apache.tomcat.dbcp.pool2.KeyedObjectPool;
 import org.apache.tomcat.dbcp.pool2.ObjectPool;
 import org.apache.tomcat.dbcp.pool2.PooledObject;
 import org.apache.tomcat.dbcp.pool2.PooledObjectFactory;
+import org.apache.tomcat.dbcp.pool2.PooledObjectState;
 import org.apache.tomcat.dbcp.pool2.impl.DefaultPooledObject;
 import org.apache.tomcat.dbcp.pool2.impl.GenericKeyedObjectPool;
 import org.apache.tomcat.dbcp.pool2.impl.GenericKeyedObjectPoolConfig;
+import org.apache.tomcat.dbcp.pool2.impl.GenericObjectPool;
 
 /**
  * A {@link PooledObjectFactory} that creates
@@ -173,6 +175,24 @@ public class PoolableConnectionFactory
         this.maxConnLifetimeMillis = maxConnLifetimeMillis;
     }
 
+    /**
+     * Sets the time in milliseconds after a successful validation of any
+     * borrowed or returned connection during which connections are not
+     * validated on borrow or on return. When such a validation fails, the idle
+     * connections of a {@link GenericObjectPool} are validated concurrently in
+     * the background and successes are ignored until they have been
+     * validated. Validations by the evictor are not affected. A value of zero or less
+     * validates every connection separately. The default value is -1.
+     * @param poolValidationIntervalMillis The time in milliseconds
+     */
+    public void setPoolValidationIntervalMillis(long poolValidationIntervalMillis) {
+        this.poolValidationIntervalMillis = poolValidationIntervalMillis;
+    }
+
+    public long getPoolValidationIntervalMillis() {
+        return poolValidationIntervalMillis;
+    }
+
 
     public boolean isEnableAutoCommitOnReturn() {
         return enableAutoCommitOnReturn;
@@ -339,23 +359,74 @@ public class PoolableConnectionFactory
     public boolean validateObject(PooledObject<PoolableConnection> p) {
         try {
             validateLifetime(p);
+        } catch (Exception e) {
+            if (log.isDebugEnabled()) {
+                log.debug(Utils.getMessage(
+                        "poolableConnectionFactory.validateObject.fail"), e);
+            }
+            return false;
+        }
+
+        // Borrowed and returned connections are not validated against the
+        // database while another connection was validated recently
+        long interval = poolValidationIntervalMillis;
+        PooledObjectState state = p.getState();
+        boolean inUse = interval > 0 && (state == PooledObjectState.ALLOCATED ||
+                state == PooledObjectState.RETURNING);
+        long now = System.currentTimeMillis();
 
-            validateConnection(p.getObject());
+        try {
+            if (inUse && now - lastValidatedMillis < interval) {
+                validateConnectionState(p.getObject());
+            } else {
+                validateConnection(p.getObject());
+                if (inUse && !isValidatingIdleObjects()) {
+                    // Not while the idle connections are checked after a
+                    // failure, the pool is not known to be healthy yet
+                    lastValidatedMillis = now;
+                }
+            }
             return true;
         } catch (Exception e) {
             if (log.isDebugEnabled()) {
                 log.debug(Utils.getMessage(
                         "poolableConnectionFactory.validateObject.fail"), e);
             }
+            if (inUse) {
+                lastValidatedMillis = 0;
+                ObjectPool<PoolableConnection> pool = _pool;
+                if (pool instanceof GenericObjectPool) {
+                    ((GenericObjectPool<PoolableConnection>) pool).validateIdleObjects();
+                }
+            }
             return false;
         }
     }
 
+    /**
+     * @return <code>true</code> while the pool validates its idle connections
+     *         after a validation failed
+     */
+    private boolean isValidatingIdleObjects() {
+        ObjectPool<PoolableConnection> pool = _pool;
+        return pool instanceof GenericObjectPool &&
+                ((GenericObjectPool<PoolableConnection>) pool).isValidatingIdleObjects();
+    }
+
     public void validateConnection(PoolableConnection conn) throws SQLException {
+        validateConnectionState(conn);
+        conn.validate(_validationQuery, _validationQueryTimeout);
+    }
+
+    /**
+     * Performs the checks of {@link #validateConnection(PoolableConnection)}
+     * that need no round trip to the database.
+     */
+    private void validateConnectionState(PoolableConnection conn) throws SQLException {
         if(conn.isClosed()) {
             throw new SQLException("validateConnection: connection closed");
         }
-        conn.validate(_validationQuery, _validationQueryTimeout);
+        conn.validateFastFail();
     }
 
     @Override
@@ -473,6 +544,8 @@ public class PoolableConnectionFactory
     private int maxOpenPreparedStatements =
         GenericKeyedObjectPoolConfig.DEFAULT_MAX_TOTAL_PER_KEY;
     private long maxConnLifetimeMillis = -1;
+    private volatile long poolValidationIntervalMillis = -1;
+    private volatile long lastValidatedMillis = 0;
     private final AtomicLong connectionIndex = new AtomicLong(0);
     private Integer defaultQueryTimeout = null;
 
@@ -21,6 +21,8 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
 import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 import javax.sql.DataSource;
@@ -49,6 +51,11 @@ public class PoolingDataSource<C extends Connection> implements DataSource, Auto
     /** Controls access to the underlying connection */
     private boolean accessToUnderlyingConnectionAllowed = false;
 
+    /** Time spent waiting for, holding and executing statements on connections, in nanoseconds */
+    private final AtomicLong borrowWaitTime = new AtomicLong();
+    private final AtomicLong holdTime = new AtomicLong();
+    private final AtomicLong statementTime = new AtomicLong();
+
     public PoolingDataSource(ObjectPool<C> pool) {
         if (null == pool) {
             throw new NullPointerException("Pool must not be null.");
@@ -104,6 +111,30 @@ public class PoolingDataSource<C extends Connection> implements DataSource, Auto
         this.accessToUnderlyingConnectionAllowed = allow;
     }
 
+    /**
+     * @return the total time spent waiting to borrow connections that have
+     *         since been returned, in milliseconds
+     */
+    public long getBorrowWaitTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(borrowWaitTime.get());
+    }
+
+    /**
+     * @return the total time returned connections were held by the
+     *         application, in milliseconds
+     */
+    public long getHoldTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(holdTime.get());
+    }
+
+    /**
+     * @return the total time spent executing statements on returned
+     *         connections, in milliseconds
+     */
+    public long getStatementTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(statementTime.get());
+    }
+
     /* JDBC_4_ANT_KEY_BEGIN */
     @Override
     public boolean isWrapperFor(Class<?> iface) throws SQLException {
@@ -130,11 +161,12 @@ public class PoolingDataSource<C extends Connection> implements DataSource, Auto
     @Override
     public Connection getConnection() throws SQLException {
         try {
+            long start = System.nanoTime();
             C conn = _pool.borrowObject();
             if (conn == null) {
                 return null;
             }
-            return new PoolGuardConnectionWrapper<>(conn);
+            return new PoolGuardConnectionWrapper<>(conn, start);
         } catch(SQLException e) {
             throw e;
         } catch(NoSuchElementException e) {
@@ -211,8 +243,16 @@ public class PoolingDataSource<C extends Connection> implements DataSource, Auto
     private class PoolGuardConnectionWrapper<D extends Connection>
             extends DelegatingConnection<D> {
 
-        PoolGuardConnectionWrapper(D delegate) {
+        private final long borrowTime;
+        private final long waitTime;
+        private final long statementTimeAtBorrow;
+
+        PoolGuardConnectionWrapper(D delegate, long start) {
             super(delegate);
+            borrowTime = System.nanoTime();
+            waitTime = borrowTime - start;
+            statementTimeAtBorrow = delegate instanceof PoolableConnection ?
+                    ((PoolableConnection) delegate).getStatementTime() : 0;
         }
 
         /**
@@ -239,9 +279,17 @@ public class PoolingDataSource<C extends Connection> implements DataSource, Auto
 
         @Override
         public void close() throws SQLException {
-            if (getDelegateInternal() != null) {
+            D delegate = getDelegateInternal();
+            if (delegate != null) {
+                long hold = System.nanoTime() - borrowTime;
+                long statement = delegate instanceof PoolableConnection ?
+                        ((PoolableConnection) delegate).getStatementTime() - statementTimeAtBorrow : 0;
                 super.close();
                 super.setDelegate(null);
+                borrowWaitTime.addAndGet(waitTime);
+                holdTime.addAndGet(hold);
+                statementTime.addAndGet(statement);
+                RequestJdbcTime.add(waitTime, hold, statement);
             }
         }
 
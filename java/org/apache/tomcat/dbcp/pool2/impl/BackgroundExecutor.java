@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.dbcp.pool2.impl;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Provides a shared executor used by all pools to create and validate idle
+ * objects in the background. Threads are only started when there is work to do and exit
+ * after being idle for a short period so no thread is left running when the
+ * pools are not in use which, in application server environments, could lead
+ * to memory leaks and/or prevent applications from shutting down or reloading
+ * cleanly.
+ * <p>
+ * This class has package scope to prevent its inclusion in the pool public API.
+ * The class declaration below should *not* be changed to public.
+ * <p>
+ * This class is intended to be thread-safe.
+ */
+class BackgroundExecutor {
+
+    /** Time in milliseconds an idle background thread waits before exiting */
+    private static final long KEEP_ALIVE = 1000;
+
+    /** Executor instance */
+    private static final ThreadPoolExecutor _executor = new ThreadPoolExecutor(
+            0, Integer.MAX_VALUE, KEEP_ALIVE, TimeUnit.MILLISECONDS,
+            new SynchronousQueue<Runnable>(), new BackgroundThreadFactory());
+
+    /** Prevent instantiation */
+    private BackgroundExecutor() {
+        // Hide the default constructor
+    }
+
+    /**
+     * Execute the specified task. Callers are responsible for
+     * limiting the number of tasks they submit concurrently.
+     * @param task      Task to be executed
+     */
+    static void execute(Runnable task) {
+        _executor.execute(task);
+    }
+
+    /**
+     * Creates the background threads. The threads are created with a privileged
+     * action so they do not inherit the access control context of the thread
+     * that submitted the task, and with a context class loader set to the
+     * class loader that loaded this library. Inheriting either from a web
+     * application thread is likely to result in retaining a reference to the
+     * web application class loader which would be a memory leak.
+     */
+    private static class BackgroundThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadCount = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            return AccessController.doPrivileged(new PrivilegedAction<Thread>() {
+                @Override
+                public Thread run() {
+                    Thread t = new Thread(r, "commons-pool-BackgroundThread-" +
+                            threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    t.setContextClassLoader(BackgroundExecutor.class.getClassLoader());
+                    return t;
+                }
+            });
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("BackgroundExecutor []");
+        return builder.toString();
+    }
+}
@@ -115,6 +115,9 @@ public abstract class BaseGenericObjectPool<T> extends BaseObject {
     private final StatsStore idleTimes = new StatsStore(MEAN_TIMING_STATS_CACHE_SIZE);
     private final StatsStore waitTimes = new StatsStore(MEAN_TIMING_STATS_CACHE_SIZE);
     private final AtomicLong maxBorrowWaitTimeMillis = new AtomicLong(0L);
+    private final AtomicLong evictionRunCount = new AtomicLong(0);
+    private final StatsStore evictionRunTimes = new StatsStore(MEAN_TIMING_STATS_CACHE_SIZE);
+    private final AtomicLong maxEvictionRunTimeMicros = new AtomicLong(0L);
     private volatile SwallowedExceptionListener swallowedExceptionListener = null;
 
 
@@ -823,6 +826,33 @@ public abstract class BaseGenericObjectPool<T> extends BaseObject {
         return maxBorrowWaitTimeMillis.get();
     }
 
+    /**
+     * The number of times the idle object evictor has run for this pool.
+     * @return number of evictor runs since the pool was created
+     */
+    public final long getEvictionRunCount() {
+        return evictionRunCount.get();
+    }
+
+    /**
+     * The mean time an evictor run, including the creation of objects to
+     * maintain the minimum number of idle objects, has taken based on the
+     * last {@link #MEAN_TIMING_STATS_CACHE_SIZE} runs.
+     * @return mean duration in microseconds of the recent evictor runs
+     */
+    public final long getMeanEvictionRunTimeMicros() {
+        return evictionRunTimes.getMean();
+    }
+
+    /**
+     * The maximum time an evictor run has taken.
+     * @return maximum duration in microseconds of an evictor run since the
+     * pool was created
+     */
+    public final long getMaxEvictionRunTimeMicros() {
+        return maxEvictionRunTimeMicros.get();
+    }
+
     /**
      * The number of instances currently idle in this pool.
      * @return count of instances available for checkout from the pool
@@ -905,6 +935,24 @@ public abstract class BaseGenericObjectPool<T> extends BaseObject {
         activeTimes.add(activeTime);
     }
 
+    /**
+     * Updates statistics after an evictor run.
+     * @param runTime the duration (in microseconds) of the run
+     */
+    final void updateStatsEviction(long runTime) {
+        evictionRunCount.incrementAndGet();
+        evictionRunTimes.add(runTime);
+
+        // lock-free optimistic-locking maximum
+        long currentMax;
+        do {
+            currentMax = maxEvictionRunTimeMicros.get();
+            if (currentMax >= runTime) {
+                break;
+            }
+        } while (!maxEvictionRunTimeMicros.compareAndSet(currentMax, runTime));
+    }
+
     /**
      * Unregisters this pool's MBean.
      */
@@ -1031,6 +1079,7 @@ public abstract class BaseGenericObjectPool<T> extends BaseObject {
                     Thread.currentThread().setContextClassLoader(cl);
                 }
 
+                long start = System.nanoTime();
                 // Evict from the pool
                 try {
                     evict();
@@ -1047,6 +1096,7 @@ public abstract class BaseGenericObjectPool<T> extends BaseObject {
                 } catch (Exception e) {
                     swallowException(e);
                 }
+                updateStatsEviction((System.nanoTime() - start) / 1000);
             } finally {
                 // Restore the previous CCL
                 Thread.currentThread().setContextClassLoader(savedClassLoader);
@@ -1290,6 +1340,12 @@ public abstract class BaseGenericObjectPool<T> extends BaseObject {
         builder.append(waitTimes);
         builder.append(", maxBorrowWaitTimeMillis=");
         builder.append(maxBorrowWaitTimeMillis);
+        builder.append(", evictionRunCount=");
+        builder.append(evictionRunCount);
+        builder.append(", evictionRunTimes=");
+        builder.append(evictionRunTimes);
+        builder.append(", maxEvictionRunTimeMicros=");
+        builder.append(maxEvictionRunTimeMicros);
         builder.append(", swallowedExceptionListener=");
         builder.append(swallowedExceptionListener);
     }
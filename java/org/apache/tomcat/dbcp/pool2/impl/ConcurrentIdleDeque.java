@@ -0,0 +1,560 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.dbcp.pool2.impl;
+
+import java.lang.ref.WeakReference;
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An unbounded deque of idle objects based on lock-free linked nodes. It is
+ * an alternative to {@link LinkedBlockingDeque}, which guards every operation
+ * with a single lock, for pools with a high borrow rate.
+ * <p>
+ * Threads waiting for an element are queued. If the deque is fair, an element
+ * added while threads are waiting is handed directly to the thread that has
+ * been waiting longest. Otherwise the element is linked and the thread that
+ * started waiting most recently is woken up to take it, although another
+ * thread may take it first.
+ * <p>
+ * If thread affinity is enabled, {@link #pollFirst()} first tries to return
+ * the element the calling thread added most recently, if no other thread has
+ * taken it since. The thread only holds a weak reference to that element.
+ * <p>
+ * {@link #size()} runs in constant time. The removal of a given element and
+ * the bulk operations run in linear time. Iterators are weakly consistent.
+ * Null elements are not permitted.
+ * <p>
+ * This class has package scope to prevent its inclusion in the pool public API.
+ * The class declaration below should *not* be changed to public.
+ *
+ * @param <E> the type of elements held in this collection
+ */
+class ConcurrentIdleDeque<E> extends AbstractQueue<E>
+        implements IdleObjectDeque<E> {
+
+    /*
+     * Elements are wrapped in nodes that are claimed with a CAS before the
+     * element is returned. This allows an element to be taken through the
+     * thread affinity cache while its node is still linked in the deque; such
+     * claimed nodes are skipped and unlinked by the other operations.
+     */
+
+    /** Marks a waiter that stopped waiting without receiving an element */
+    private static final Object CANCELLED = new Object();
+
+    private final ConcurrentLinkedDeque<Node<E>> nodes = new ConcurrentLinkedDeque<>();
+
+    /** Number of unclaimed nodes */
+    private final AtomicInteger count = new AtomicInteger(0);
+
+    private final ConcurrentLinkedDeque<Waiter> waiters = new ConcurrentLinkedDeque<>();
+
+    private final boolean fairness;
+
+    /** The node each thread added most recently, if thread affinity is enabled */
+    private final ThreadLocal<WeakReference<Node<E>>> threadNode;
+
+    /**
+     * Creates a deque.
+     *
+     * @param fairness true means threads waiting to take elements are served
+     *                 as if waiting in a FIFO request queue
+     * @param threadAffinity true means {@link #pollFirst()} prefers the
+     *                 element the calling thread added most recently
+     */
+    public ConcurrentIdleDeque(boolean fairness, boolean threadAffinity) {
+        this.fairness = fairness;
+        this.threadNode = threadAffinity ? new ThreadLocal<WeakReference<Node<E>>>() : null;
+    }
+
+
+    // Adding elements
+
+    @Override
+    public void addFirst(E e) {
+        offerFirst(e);
+    }
+
+    @Override
+    public void addLast(E e) {
+        offerLast(e);
+    }
+
+    @Override
+    public boolean offerFirst(E e) {
+        add(e, true);
+        return true;
+    }
+
+    @Override
+    public boolean offerLast(E e) {
+        add(e, false);
+        return true;
+    }
+
+    @Override
+    public boolean offer(E e) {
+        return offerLast(e);
+    }
+
+    @Override
+    public void push(E e) {
+        addFirst(e);
+    }
+
+    private void add(E e, boolean first) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        if (fairness && handOff(e)) {
+            return;
+        }
+        Node<E> node = link(e, first);
+        if (threadNode != null) {
+            threadNode.set(new WeakReference<>(node));
+        }
+        if (fairness) {
+            // A thread may have started waiting after handOff() found none
+            signalWaiters();
+        } else {
+            wakeWaiter();
+        }
+    }
+
+    private Node<E> link(E e, boolean first) {
+        Node<E> node = new Node<>(e, first);
+        count.incrementAndGet();
+        if (first) {
+            nodes.offerFirst(node);
+        } else {
+            nodes.offerLast(node);
+        }
+        return node;
+    }
+
+    /**
+     * Wakes up the thread that started waiting most recently so that it
+     * tries to take an element. Used if the deque is not fair.
+     */
+    private void wakeWaiter() {
+        Waiter w = waiters.peekLast();
+        if (w != null) {
+            LockSupport.unpark(w.thread);
+        }
+    }
+
+    /**
+     * Hands the element to the thread that has been waiting longest. Used if
+     * the deque is fair.
+     *
+     * @return true if a waiting thread received the element
+     */
+    private boolean handOff(E e) {
+        Waiter w;
+        while ((w = waiters.pollFirst()) != null) {
+            if (w.compareAndSet(null, e)) {
+                LockSupport.unpark(w.thread);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Hands linked elements to waiting threads until there are no more
+     * waiting threads or elements. Used if the deque is fair.
+     */
+    private void signalWaiters() {
+        while (!waiters.isEmpty()) {
+            E e = unlinkFirst();
+            if (e == null) {
+                return;
+            }
+            if (!handOff(e)) {
+                link(e, true);
+            }
+        }
+    }
+
+
+    // Removing elements
+
+    @Override
+    public E pollFirst() {
+        if (threadNode != null) {
+            WeakReference<Node<E>> ref = threadNode.get();
+            if (ref != null) {
+                threadNode.set(null);
+                Node<E> node = ref.get();
+                if (node != null && claim(node)) {
+                    if (node.first) {
+                        nodes.removeFirstOccurrence(node);
+                    } else {
+                        nodes.removeLastOccurrence(node);
+                    }
+                    return node.item;
+                }
+            }
+        }
+        return unlinkFirst();
+    }
+
+    @Override
+    public E pollLast() {
+        Node<E> node;
+        while ((node = nodes.pollLast()) != null) {
+            if (claim(node)) {
+                return node.item;
+            }
+        }
+        return null;
+    }
+
+    private E unlinkFirst() {
+        Node<E> node;
+        while ((node = nodes.pollFirst()) != null) {
+            if (claim(node)) {
+                return node.item;
+            }
+        }
+        return null;
+    }
+
+    private boolean claim(Node<E> node) {
+        if (node.compareAndSet(false, true)) {
+            count.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public E poll() {
+        return pollFirst();
+    }
+
+    @Override
+    public E pop() {
+        return removeFirst();
+    }
+
+    @Override
+    public E removeFirst() {
+        E e = pollFirst();
+        if (e == null) {
+            throw new NoSuchElementException();
+        }
+        return e;
+    }
+
+    @Override
+    public E removeLast() {
+        E e = pollLast();
+        if (e == null) {
+            throw new NoSuchElementException();
+        }
+        return e;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return removeFirstOccurrence(o);
+    }
+
+    @Override
+    public boolean removeFirstOccurrence(Object o) {
+        return removeOccurrence(o, nodes.iterator());
+    }
+
+    @Override
+    public boolean removeLastOccurrence(Object o) {
+        return removeOccurrence(o, nodes.descendingIterator());
+    }
+
+    private boolean removeOccurrence(Object o, Iterator<Node<E>> it) {
+        if (o == null) {
+            return false;
+        }
+        while (it.hasNext()) {
+            Node<E> node = it.next();
+            if (o.equals(node.item) && claim(node)) {
+                it.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    // Waiting for elements
+
+    @Override
+    public E takeFirst() throws InterruptedException {
+        return awaitFirst(false, 0);
+    }
+
+    @Override
+    public E pollFirst(long timeout, TimeUnit unit) throws InterruptedException {
+        return awaitFirst(true, unit.toNanos(timeout));
+    }
+
+    /*
+     * If the deque is fair, the waiter receives elements through handOff()
+     * and marks itself as CANCELLED when it stops waiting for any other
+     * reason. Otherwise the waiter is only used to wake up the thread.
+     */
+    @SuppressWarnings("unchecked")
+    private E awaitFirst(boolean timed, long nanos) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        E e = pollFirst();
+        if (e != null || timed && nanos <= 0) {
+            return e;
+        }
+        long deadline = System.nanoTime() + nanos;
+        Waiter w = new Waiter(Thread.currentThread());
+        waiters.offerLast(w);
+        boolean queued = true;
+        try {
+            for (;;) {
+                Object handed = w.get();
+                if (handed != null) {
+                    queued = false;
+                    return (E) handed;
+                }
+                // An element may have been added before this thread was queued
+                e = unlinkFirst();
+                if (e != null) {
+                    if (!fairness || w.compareAndSet(null, CANCELLED)) {
+                        return e;
+                    }
+                    // Another element was handed to this thread meanwhile
+                    queued = false;
+                    add(e, true);
+                    return (E) w.get();
+                }
+                if (timed) {
+                    nanos = deadline - System.nanoTime();
+                    if (nanos <= 0) {
+                        if (!fairness || w.compareAndSet(null, CANCELLED)) {
+                            return null;
+                        }
+                        queued = false;
+                        return (E) w.get();
+                    }
+                    LockSupport.parkNanos(this, nanos);
+                } else {
+                    LockSupport.park(this);
+                }
+                if (Thread.interrupted()) {
+                    if (fairness && !w.compareAndSet(null, CANCELLED)) {
+                        // Give the element to another thread
+                        queued = false;
+                        add((E) w.get(), true);
+                    }
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            if (queued) {
+                waiters.removeLastOccurrence(w);
+                // Pass on a wake up this thread may have consumed
+                if (fairness) {
+                    signalWaiters();
+                } else if (!isEmpty()) {
+                    wakeWaiter();
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean hasTakeWaiters() {
+        return !waiters.isEmpty();
+    }
+
+    @Override
+    public int getTakeQueueLength() {
+        return waiters.size();
+    }
+
+    @Override
+    public void interuptTakeWaiters() {
+        for (Waiter w : waiters) {
+            w.thread.interrupt();
+        }
+    }
+
+
+    // Examining elements
+
+    @Override
+    public E peek() {
+        return peekFirst();
+    }
+
+    @Override
+    public E peekFirst() {
+        return peek(nodes.iterator());
+    }
+
+    @Override
+    public E peekLast() {
+        return peek(nodes.descendingIterator());
+    }
+
+    private E peek(Iterator<Node<E>> it) {
+        while (it.hasNext()) {
+            Node<E> node = it.next();
+            if (!node.get()) {
+                return node.item;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public E getFirst() {
+        E e = peekFirst();
+        if (e == null) {
+            throw new NoSuchElementException();
+        }
+        return e;
+    }
+
+    @Override
+    public E getLast() {
+        E e = peekLast();
+        if (e == null) {
+            throw new NoSuchElementException();
+        }
+        return e;
+    }
+
+    @Override
+    public int size() {
+        return count.get();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return count.get() == 0;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Itr(nodes.iterator());
+    }
+
+    @Override
+    public Iterator<E> descendingIterator() {
+        return new Itr(nodes.descendingIterator());
+    }
+
+    /**
+     * Iterates over the unclaimed nodes of the underlying deque.
+     */
+    private class Itr implements Iterator<E> {
+
+        private final Iterator<Node<E>> it;
+        private Node<E> next;
+        private Node<E> lastRet;
+
+        Itr(Iterator<Node<E>> it) {
+            this.it = it;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (it.hasNext()) {
+                Node<E> node = it.next();
+                if (!node.get()) {
+                    next = node;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public E next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            lastRet = next;
+            advance();
+            return lastRet.item;
+        }
+
+        @Override
+        public void remove() {
+            if (lastRet == null) {
+                throw new IllegalStateException();
+            }
+            // The underlying iterator has moved past lastRet
+            if (claim(lastRet)) {
+                nodes.removeFirstOccurrence(lastRet);
+            }
+            lastRet = null;
+        }
+    }
+
+    /**
+     * An element of the deque. The node is marked once its element has been
+     * claimed.
+     */
+    private static final class Node<E> extends AtomicBoolean {
+        private static final long serialVersionUID = 1L;
+
+        private final E item;
+        private final boolean first;
+
+        Node(E item, boolean first) {
+            this.item = item;
+            this.first = first;
+        }
+    }
+
+    /**
+     * A thread waiting for an element. The value is the element handed to the
+     * thread, or {@link ConcurrentIdleDeque#CANCELLED} once the thread stopped
+     * waiting.
+     */
+    private static final class Waiter extends AtomicReference<Object> {
+        private static final long serialVersionUID = 1L;
+
+        private final Thread thread;
+
+        Waiter(Thread thread) {
+            this.thread = thread;
+        }
+    }
+}
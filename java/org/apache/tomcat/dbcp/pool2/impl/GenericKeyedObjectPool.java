@@ -226,6 +226,39 @@ public class GenericKeyedObjectPool<K,T> extends BaseGenericObjectPool<T>
         return minIdlePerKey;
     }
 
+    /**
+     * Returns the maximum duration of an idle object evictor run. A run ends
+     * once it has run for that long, and the next run continues from the key
+     * and object at which it stopped. This spreads the eviction of pools with
+     * many keys over several runs. A value of zero or less means a run is
+     * only limited by {@link #getNumTestsPerEvictionRun()} and the number of
+     * keys.
+     *
+     * @return the maximum duration of an evictor run in milliseconds
+     *
+     * @see #setEvictionTimeSliceMillis(long)
+     */
+    @Override
+    public long getEvictionTimeSliceMillis() {
+        return evictionTimeSliceMillis;
+    }
+
+    /**
+     * Sets the maximum duration of an idle object evictor run. A run ends
+     * once it has run for that long, and the next run continues from the key
+     * and object at which it stopped. A value of zero or less means a run is
+     * only limited by {@link #getNumTestsPerEvictionRun()} and the number of
+     * keys.
+     *
+     * @param evictionTimeSliceMillis the maximum duration of an evictor run
+     *                                in milliseconds
+     *
+     * @see #getEvictionTimeSliceMillis()
+     */
+    public void setEvictionTimeSliceMillis(long evictionTimeSliceMillis) {
+        this.evictionTimeSliceMillis = evictionTimeSliceMillis;
+    }
+
     /**
      * Sets the configuration.
      *
@@ -239,6 +272,7 @@ public class GenericKeyedObjectPool<K,T> extends BaseGenericObjectPool<T>
         setMaxTotalPerKey(conf.getMaxTotalPerKey());
         setMaxTotal(conf.getMaxTotal());
         setMinIdlePerKey(conf.getMinIdlePerKey());
+        setEvictionTimeSliceMillis(conf.getEvictionTimeSliceMillis());
         setMaxWaitMillis(conf.getMaxWaitMillis());
         setBlockWhenExhausted(conf.getBlockWhenExhausted());
         setTestOnCreate(conf.getTestOnCreate());
@@ -866,15 +900,17 @@ public class GenericKeyedObjectPool<K,T> extends BaseGenericObjectPool<T>
      * Successive activations of this method examine objects in keyed sub-pools
      * in sequence, cycling through the keys and examining objects in
      * oldest-to-youngest order within the keyed sub-pools.
+     * <p>
+     * Each activation continues from the key and object the previous one
+     * stopped at. It stops once it has examined
+     * {@link #getNumTestsPerEvictionRun()} objects, once it has visited every
+     * key or, if {@link #getEvictionTimeSliceMillis()} is positive, once it
+     * has run for that long.
      */
     @Override
     public void evict() throws Exception {
         assertOpen();
 
-        if (getNumIdle() == 0) {
-            return;
-        }
-
         PooledObject<T> underTest = null;
         EvictionPolicy<T> evictionPolicy = getEvictionPolicy();
 
@@ -886,10 +922,24 @@ public class GenericKeyedObjectPool<K,T> extends BaseGenericObjectPool<T>
 
             boolean testWhileIdle = getTestWhileIdle();
 
+            long timeSlice = getEvictionTimeSliceMillis();
+            long deadline = System.nanoTime() +
+                    TimeUnit.MILLISECONDS.toNanos(timeSlice);
+            boolean keysCopied = false;
+
             for (int i = 0, m = getNumTests(); i < m; i++) {
+                if (timeSlice > 0 && System.nanoTime() - deadline >= 0) {
+                    // Continue with the next run
+                    return;
+                }
                 if(evictionIterator == null || !evictionIterator.hasNext()) {
                     if (evictionKeyIterator == null ||
                             !evictionKeyIterator.hasNext()) {
+                        if (keysCopied) {
+                            // All keys visited in this run
+                            return;
+                        }
+                        keysCopied = true;
                         List<K> keyCopy = new ArrayList<>();
                         Lock readLock = keyLock.readLock();
                         readLock.lock();
@@ -901,6 +951,9 @@ public class GenericKeyedObjectPool<K,T> extends BaseGenericObjectPool<T>
                         evictionKeyIterator = keyCopy.iterator();
                     }
                     while (evictionKeyIterator.hasNext()) {
+                        if (timeSlice > 0 && System.nanoTime() - deadline >= 0) {
+                            return;
+                        }
                         evictionKey = evictionKeyIterator.next();
                         ObjectDeque<T> objectDeque = poolMap.get(evictionKey);
                         if (objectDeque == null) {
@@ -1264,11 +1317,13 @@ public class GenericKeyedObjectPool<K,T> extends BaseGenericObjectPool<T>
      * @return The number of objects to test for validity
      */
     private int getNumTests() {
-        int totalIdle = getNumIdle();
         int numTests = getNumTestsPerEvictionRun();
         if (numTests >= 0) {
-            return Math.min(numTests, totalIdle);
+            // Not limited by the number of idle objects as counting them
+            // visits every key. A run ends once all keys have been visited.
+            return numTests;
         }
+        int totalIdle = getNumIdle();
         return(int)(Math.ceil(totalIdle/Math.abs((double)numTests)));
     }
 
@@ -1515,6 +1570,8 @@ public class GenericKeyedObjectPool<K,T> extends BaseGenericObjectPool<T>
         GenericKeyedObjectPoolConfig.DEFAULT_MIN_IDLE_PER_KEY;
     private volatile int maxTotalPerKey =
         GenericKeyedObjectPoolConfig.DEFAULT_MAX_TOTAL_PER_KEY;
+    private volatile long evictionTimeSliceMillis =
+        GenericKeyedObjectPoolConfig.DEFAULT_EVICTION_TIME_SLICE_MILLIS;
     private final KeyedPooledObjectFactory<K,T> factory;
     private final boolean fairness;
 
@@ -46,6 +46,13 @@ public class GenericKeyedObjectPoolConfig extends BaseObjectPoolConfig {
      */
     public static final int DEFAULT_MIN_IDLE_PER_KEY = 0;
 
+    /**
+     * The default value for the {@code evictionTimeSliceMillis} configuration
+     * attribute.
+     * @see GenericKeyedObjectPool#getEvictionTimeSliceMillis()
+     */
+    public static final long DEFAULT_EVICTION_TIME_SLICE_MILLIS = -1L;
+
     /**
      * The default value for the {@code maxIdlePerKey} configuration attribute.
      * @see GenericKeyedObjectPool#getMaxIdlePerKey()
@@ -61,6 +68,8 @@ public class GenericKeyedObjectPoolConfig extends BaseObjectPoolConfig {
 
     private int maxTotal = DEFAULT_MAX_TOTAL;
 
+    private long evictionTimeSliceMillis = DEFAULT_EVICTION_TIME_SLICE_MILLIS;
+
     /**
      * Create a new configuration with default settings.
      */
@@ -145,6 +154,32 @@ public class GenericKeyedObjectPoolConfig extends BaseObjectPoolConfig {
         this.minIdlePerKey = minIdlePerKey;
     }
 
+    /**
+     * Get the value for the {@code evictionTimeSliceMillis} configuration
+     * attribute for pools created with this configuration instance.
+     *
+     * @return  The current setting of {@code evictionTimeSliceMillis} for
+     *          this configuration instance
+     *
+     * @see GenericKeyedObjectPool#getEvictionTimeSliceMillis()
+     */
+    public long getEvictionTimeSliceMillis() {
+        return evictionTimeSliceMillis;
+    }
+
+    /**
+     * Set the value for the {@code evictionTimeSliceMillis} configuration
+     * attribute for pools created with this configuration instance.
+     *
+     * @param evictionTimeSliceMillis The new setting of
+     *        {@code evictionTimeSliceMillis} for this configuration instance
+     *
+     * @see GenericKeyedObjectPool#setEvictionTimeSliceMillis(long)
+     */
+    public void setEvictionTimeSliceMillis(long evictionTimeSliceMillis) {
+        this.evictionTimeSliceMillis = evictionTimeSliceMillis;
+    }
+
     /**
      * Get the value for the {@code maxIdlePerKey} configuration attribute
      * for pools created with this configuration instance.
@@ -189,6 +224,8 @@ public class GenericKeyedObjectPoolConfig extends BaseObjectPoolConfig {
         builder.append(maxIdlePerKey);
         builder.append(", maxTotalPerKey=");
         builder.append(maxTotalPerKey);
+        builder.append(", evictionTimeSliceMillis=");
+        builder.append(evictionTimeSliceMillis);
         builder.append(", maxTotal=");
         builder.append(maxTotal);
     }
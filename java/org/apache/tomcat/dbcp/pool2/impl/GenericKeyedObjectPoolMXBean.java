@@ -182,6 +182,26 @@ public interface GenericKeyedObjectPoolMXBean<K> {
      * @return See {@link GenericKeyedObjectPool#getMaxBorrowWaitTimeMillis()}
      */
     long getMaxBorrowWaitTimeMillis();
+    /**
+     * See {@link GenericKeyedObjectPool#getEvictionRunCount()}
+     * @return See {@link GenericKeyedObjectPool#getEvictionRunCount()}
+     */
+    long getEvictionRunCount();
+    /**
+     * See {@link GenericKeyedObjectPool#getMeanEvictionRunTimeMicros()}
+     * @return See {@link GenericKeyedObjectPool#getMeanEvictionRunTimeMicros()}
+     */
+    long getMeanEvictionRunTimeMicros();
+    /**
+     * See {@link GenericKeyedObjectPool#getMaxEvictionRunTimeMicros()}
+     * @return See {@link GenericKeyedObjectPool#getMaxEvictionRunTimeMicros()}
+     */
+    long getMaxEvictionRunTimeMicros();
+    /**
+     * See {@link GenericKeyedObjectPool#getEvictionTimeSliceMillis()}
+     * @return See {@link GenericKeyedObjectPool#getEvictionTimeSliceMillis()}
+     */
+    long getEvictionTimeSliceMillis();
     /**
      * See {@link GenericKeyedObjectPool#getCreationStackTrace()}
      * @return See {@link GenericKeyedObjectPool#getCreationStackTrace()}
@@ -19,11 +19,15 @@ package org.apache.tomcat.dbcp.pool2.impl;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.tomcat.dbcp.pool2.ObjectPool;
@@ -109,7 +113,14 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
         }
         this.factory = factory;
 
-        idleObjects = new LinkedBlockingDeque<>(config.getFairness());
+        lockFreeIdleObjects = config.getLockFreeIdleObjects();
+        threadAffinity = lockFreeIdleObjects && config.getThreadAffinity();
+        if (lockFreeIdleObjects) {
+            idleObjects = new ConcurrentIdleDeque<>(config.getFairness(),
+                    threadAffinity);
+        } else {
+            idleObjects = new LinkedBlockingDeque<>(config.getFairness());
+        }
 
         setConfig(config);
 
@@ -220,6 +231,104 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
         return minIdle;
     }
 
+    /**
+     * Returns whether the idle objects are held in a deque based on lock-free
+     * linked nodes rather than in a deque guarded by a single lock. The
+     * lock-free deque reduces contention between threads borrowing and
+     * returning objects at a high rate. If the pool is fair, a returned
+     * object is handed directly to the thread that has been waiting longest,
+     * which reduces throughput when threads often have to wait. Otherwise
+     * the thread that started waiting most recently is woken up.
+     *
+     * @return <code>true</code> if the idle objects are held in a lock-free
+     *         deque
+     *
+     * @see GenericObjectPoolConfig#setLockFreeIdleObjects(boolean)
+     */
+    @Override
+    public boolean getLockFreeIdleObjects() {
+        return lockFreeIdleObjects;
+    }
+
+    /**
+     * Returns whether a borrowing thread is given the object it returned most
+     * recently, if that object is still idle, regardless of the LIFO setting.
+     * This keeps the objects used by a thread warm and avoids the shared end
+     * of the idle object deque. It is only available with
+     * {@link #getLockFreeIdleObjects()}.
+     *
+     * @return <code>true</code> if borrowing threads prefer the object they
+     *         returned most recently
+     *
+     * @see GenericObjectPoolConfig#setThreadAffinity(boolean)
+     */
+    @Override
+    public boolean getThreadAffinity() {
+        return threadAffinity;
+    }
+
+    /**
+     * Sets the number of idle objects the pool tries to keep available by
+     * creating objects in the background when objects are borrowed. This
+     * allows a borrow to be served by an idle object rather than waiting for
+     * a new object to be created. When the objects are being borrowed faster
+     * than they can be created, the pool keeps enough idle objects for the
+     * borrows expected while an object is being created. The number of idle
+     * objects is never increased above {@link #getMaxIdle()} and the total
+     * number of objects is never increased above {@link #getMaxTotal()}. A
+     * value of zero or less disables background creation.
+     *
+     * @param idleHeadroom
+     *            The number of idle objects to keep available
+     *
+     * @see #getIdleHeadroom()
+     * @see #setMaxConcurrentCreates(int)
+     */
+    public void setIdleHeadroom(int idleHeadroom) {
+        this.idleHeadroom = idleHeadroom;
+    }
+
+    /**
+     * Returns the number of idle objects the pool tries to keep available by
+     * creating objects in the background when objects are borrowed.
+     *
+     * @return The number of idle objects to keep available
+     *
+     * @see #setIdleHeadroom(int)
+     */
+    @Override
+    public int getIdleHeadroom() {
+        return idleHeadroom;
+    }
+
+    /**
+     * Sets the maximum number of objects this pool creates in the background
+     * at the same time. This limits the load placed on the resource the
+     * objects connect to when the pool is growing quickly.
+     *
+     * @param maxConcurrentCreates
+     *            The maximum number of concurrent background creations
+     *
+     * @see #getMaxConcurrentCreates()
+     * @see #setIdleHeadroom(int)
+     */
+    public void setMaxConcurrentCreates(int maxConcurrentCreates) {
+        this.maxConcurrentCreates = maxConcurrentCreates;
+    }
+
+    /**
+     * Returns the maximum number of objects this pool creates in the
+     * background at the same time.
+     *
+     * @return The maximum number of concurrent background creations
+     *
+     * @see #setMaxConcurrentCreates(int)
+     */
+    @Override
+    public int getMaxConcurrentCreates() {
+        return maxConcurrentCreates;
+    }
+
     /**
      * Whether or not abandoned object removal is configured for this pool.
      *
@@ -301,6 +410,8 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
         setLifo(conf.getLifo());
         setMaxIdle(conf.getMaxIdle());
         setMinIdle(conf.getMinIdle());
+        setIdleHeadroom(conf.getIdleHeadroom());
+        setMaxConcurrentCreates(conf.getMaxConcurrentCreates());
         setMaxTotal(conf.getMaxTotal());
         setMaxWaitMillis(conf.getMaxWaitMillis());
         setBlockWhenExhausted(conf.getBlockWhenExhausted());
@@ -428,6 +539,8 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
             if (blockWhenExhausted) {
                 p = idleObjects.pollFirst();
                 if (p == null) {
+                    // Create further objects in the background meanwhile
+                    ensureHeadroom();
                     p = create();
                     if (p != null) {
                         create = true;
@@ -451,6 +564,8 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
             } else {
                 p = idleObjects.pollFirst();
                 if (p == null) {
+                    // Create further objects in the background meanwhile
+                    ensureHeadroom();
                     p = create();
                     if (p != null) {
                         create = true;
@@ -510,6 +625,8 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
         }
 
         updateStatsBorrow(p, System.currentTimeMillis() - waitTime);
+        updateBorrowRate();
+        ensureHeadroom();
 
         return p.getObject();
     }
@@ -896,6 +1013,193 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
         }
     }
 
+    /**
+     * Updates the smoothed borrow rate once per {@link #RATE_WINDOW}.
+     */
+    private void updateBorrowRate() {
+        if (getIdleHeadroom() <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long start = rateWindowStart.get();
+        if (now - start >= RATE_WINDOW && rateWindowStart.compareAndSet(start, now)) {
+            long borrows = getBorrowedCount();
+            double rate = (double) (borrows - rateWindowBorrows) / (now - start);
+            rateWindowBorrows = borrows;
+            borrowRate = (borrowRate + rate) / 2;
+        }
+    }
+
+    /**
+     * Submits background creations until the idle objects and the pending
+     * creations cover the idle headroom and the waiting threads. The headroom
+     * is raised to the number of borrows expected while an object is being
+     * created.
+     */
+    private void ensureHeadroom() {
+        int headroom = getIdleHeadroom();
+        if (headroom <= 0 || isClosed()) {
+            return;
+        }
+        int target = Math.max(headroom, (int) Math.ceil(borrowRate * createTime));
+        int localMaxIdle = getMaxIdle();
+        if (localMaxIdle >= 0) {
+            target = Math.min(target, localMaxIdle);
+        }
+        int deficit = target + idleObjects.getTakeQueueLength() -
+                idleObjects.size() - pendingCreates.get();
+        int localMaxConcurrentCreates = getMaxConcurrentCreates();
+        while (deficit > 0) {
+            int pending = pendingCreates.get();
+            if (pending >= localMaxConcurrentCreates) {
+                return;
+            }
+            if (!pendingCreates.compareAndSet(pending, pending + 1)) {
+                continue;
+            }
+            try {
+                BackgroundExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        createIdleObject();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                pendingCreates.decrementAndGet();
+                return;
+            }
+            deficit--;
+        }
+    }
+
+    /**
+     * Creates an object and adds it to the idle objects. Invoked by a
+     * background creation thread.
+     */
+    private void createIdleObject() {
+        boolean added = false;
+        try {
+            long start = System.currentTimeMillis();
+            PooledObject<T> p = create();
+            if (p == null) {
+                // Pool is at maxTotal
+                return;
+            }
+            long elapsed = System.currentTimeMillis() - start;
+            createTime = createTime == 0 ? elapsed : (createTime + elapsed) / 2;
+            addIdleObject(p);
+            added = true;
+            if (isClosed()) {
+                // Pool closed while object was being created. Make sure
+                // the object added above is destroyed.
+                clear();
+                added = false;
+            }
+        } catch (Exception e) {
+            swallowException(e);
+        } finally {
+            // Only once the object is idle, so that it is always counted
+            pendingCreates.decrementAndGet();
+        }
+        if (added) {
+            // Keep up with the borrow rate
+            ensureHeadroom();
+        }
+    }
+
+    /**
+     * Validates all the idle objects concurrently, using at most
+     * {@link #getMaxConcurrentCreates()} background threads, and destroys the
+     * objects that fail validation. This is intended to be
+     * called once an object failed validation, for example because the
+     * resource the objects are connected to went away, so that the remaining
+     * invalid objects are discarded in one go rather than one per borrow.
+     * <p>
+     * Objects that are borrowed or tested by the evictor before their
+     * validation starts are skipped. This method does nothing while the idle
+     * objects from a previous call are still being validated.
+     */
+    public void validateIdleObjects() {
+        if (isClosed() || !validatingIdleObjects.compareAndSet(false, true)) {
+            return;
+        }
+        final List<PooledObject<T>> objects = new ArrayList<>(idleObjects);
+        if (objects.isEmpty()) {
+            validatingIdleObjects.set(false);
+            return;
+        }
+        // Each task validates objects until none are left
+        int tasks = Math.max(1, Math.min(getMaxConcurrentCreates(), objects.size()));
+        final AtomicInteger next = new AtomicInteger(0);
+        final AtomicInteger running = new AtomicInteger(tasks);
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    int i;
+                    while ((i = next.getAndIncrement()) < objects.size()) {
+                        validateIdleObject(objects.get(i));
+                    }
+                } finally {
+                    if (running.decrementAndGet() == 0) {
+                        validatingIdleObjects.set(false);
+                    }
+                }
+            }
+        };
+        for (int i = 0; i < tasks; i++) {
+            try {
+                BackgroundExecutor.execute(task);
+            } catch (RejectedExecutionException e) {
+                task.run();
+            }
+        }
+    }
+
+    /**
+     * Are the idle objects being validated by {@link #validateIdleObjects()}?
+     *
+     * @return <code>true</code> if a validation of the idle objects is in
+     *         progress
+     */
+    public boolean isValidatingIdleObjects() {
+        return validatingIdleObjects.get();
+    }
+
+    /**
+     * Validates an idle object the same way the evictor does when
+     * {@link #getTestWhileIdle()} is set and destroys it if it is invalid.
+     * Invoked by a background thread.
+     *
+     * @param p The object to validate
+     */
+    private void validateIdleObject(PooledObject<T> p) {
+        if (isClosed() || !p.startEvictionTest()) {
+            // Object was borrowed or is being tested by the evictor
+            return;
+        }
+        try {
+            boolean valid = false;
+            try {
+                factory.activateObject(p);
+                if (factory.validateObject(p)) {
+                    factory.passivateObject(p);
+                    valid = true;
+                }
+            } catch (Exception e) {
+                // Invalid
+            }
+            if (valid) {
+                p.endEvictionTest(idleObjects);
+            } else {
+                destroy(p);
+                destroyedByEvictorCount.incrementAndGet();
+            }
+        } catch (Exception e) {
+            swallowException(e);
+        }
+    }
+
     @Override
     void ensureMinIdle() throws Exception {
         ensureIdle(getMinIdle(), true);
@@ -1111,6 +1415,10 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
 
     private volatile int maxIdle = GenericObjectPoolConfig.DEFAULT_MAX_IDLE;
     private volatile int minIdle = GenericObjectPoolConfig.DEFAULT_MIN_IDLE;
+    private volatile int idleHeadroom =
+        GenericObjectPoolConfig.DEFAULT_IDLE_HEADROOM;
+    private volatile int maxConcurrentCreates =
+        GenericObjectPoolConfig.DEFAULT_MAX_CONCURRENT_CREATES;
     private final PooledObjectFactory<T> factory;
 
 
@@ -1133,7 +1441,23 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
      * {@link #_maxActive} objects created at any one time.
      */
     private final AtomicLong createCount = new AtomicLong(0);
-    private final LinkedBlockingDeque<PooledObject<T>> idleObjects;
+    private final IdleObjectDeque<PooledObject<T>> idleObjects;
+    private final boolean lockFreeIdleObjects;
+    private final boolean threadAffinity;
+
+    // Background creation of idle objects
+    private static final long RATE_WINDOW = 1000;
+    private final AtomicInteger pendingCreates = new AtomicInteger(0);
+    private final AtomicLong rateWindowStart =
+        new AtomicLong(System.currentTimeMillis());
+    private volatile long rateWindowBorrows = 0;
+    /* Smoothed number of borrows per millisecond */
+    private volatile double borrowRate = 0;
+    /* Smoothed number of milliseconds it takes to create an object */
+    private volatile double createTime = 0;
+
+    // Background validation of idle objects
+    private final AtomicBoolean validatingIdleObjects = new AtomicBoolean(false);
 
     // JMX specific attributes
     private static final String ONAME_BASE =
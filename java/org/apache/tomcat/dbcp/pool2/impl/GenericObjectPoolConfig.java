@@ -46,6 +46,33 @@ public class GenericObjectPoolConfig extends BaseObjectPoolConfig {
      */
     public static final int DEFAULT_MIN_IDLE = 0;
 
+    /**
+     * The default value for the {@code idleHeadroom} configuration attribute.
+     * @see GenericObjectPool#getIdleHeadroom()
+     */
+    public static final int DEFAULT_IDLE_HEADROOM = 0;
+
+    /**
+     * The default value for the {@code maxConcurrentCreates} configuration
+     * attribute.
+     * @see GenericObjectPool#getMaxConcurrentCreates()
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_CREATES = 2;
+
+    /**
+     * The default value for the {@code lockFreeIdleObjects} configuration
+     * attribute.
+     * @see GenericObjectPool#getLockFreeIdleObjects()
+     */
+    public static final boolean DEFAULT_LOCK_FREE_IDLE_OBJECTS = false;
+
+    /**
+     * The default value for the {@code threadAffinity} configuration
+     * attribute.
+     * @see GenericObjectPool#getThreadAffinity()
+     */
+    public static final boolean DEFAULT_THREAD_AFFINITY = false;
+
 
     private int maxTotal = DEFAULT_MAX_TOTAL;
 
@@ -53,6 +80,14 @@ public class GenericObjectPoolConfig extends BaseObjectPoolConfig {
 
     private int minIdle = DEFAULT_MIN_IDLE;
 
+    private int idleHeadroom = DEFAULT_IDLE_HEADROOM;
+
+    private int maxConcurrentCreates = DEFAULT_MAX_CONCURRENT_CREATES;
+
+    private boolean lockFreeIdleObjects = DEFAULT_LOCK_FREE_IDLE_OBJECTS;
+
+    private boolean threadAffinity = DEFAULT_THREAD_AFFINITY;
+
     /**
      * Get the value for the {@code maxTotal} configuration attribute
      * for pools created with this configuration instance.
@@ -133,6 +168,114 @@ public class GenericObjectPoolConfig extends BaseObjectPoolConfig {
         this.minIdle = minIdle;
     }
 
+
+    /**
+     * Get the value for the {@code idleHeadroom} configuration attribute
+     * for pools created with this configuration instance.
+     *
+     * @return  The current setting of {@code idleHeadroom} for this
+     *          configuration instance
+     *
+     * @see GenericObjectPool#getIdleHeadroom()
+     */
+    public int getIdleHeadroom() {
+        return idleHeadroom;
+    }
+
+    /**
+     * Set the value for the {@code idleHeadroom} configuration attribute for
+     * pools created with this configuration instance.
+     *
+     * @param idleHeadroom The new setting of {@code idleHeadroom}
+     *        for this configuration instance
+     *
+     * @see GenericObjectPool#setIdleHeadroom(int)
+     */
+    public void setIdleHeadroom(int idleHeadroom) {
+        this.idleHeadroom = idleHeadroom;
+    }
+
+
+    /**
+     * Get the value for the {@code maxConcurrentCreates} configuration
+     * attribute for pools created with this configuration instance.
+     *
+     * @return  The current setting of {@code maxConcurrentCreates} for this
+     *          configuration instance
+     *
+     * @see GenericObjectPool#getMaxConcurrentCreates()
+     */
+    public int getMaxConcurrentCreates() {
+        return maxConcurrentCreates;
+    }
+
+    /**
+     * Set the value for the {@code maxConcurrentCreates} configuration
+     * attribute for pools created with this configuration instance.
+     *
+     * @param maxConcurrentCreates The new setting of
+     *        {@code maxConcurrentCreates} for this configuration instance
+     *
+     * @see GenericObjectPool#setMaxConcurrentCreates(int)
+     */
+    public void setMaxConcurrentCreates(int maxConcurrentCreates) {
+        this.maxConcurrentCreates = maxConcurrentCreates;
+    }
+
+
+    /**
+     * Get the value for the {@code lockFreeIdleObjects} configuration
+     * attribute for pools created with this configuration instance.
+     *
+     * @return  The current setting of {@code lockFreeIdleObjects} for this
+     *          configuration instance
+     *
+     * @see GenericObjectPool#getLockFreeIdleObjects()
+     */
+    public boolean getLockFreeIdleObjects() {
+        return lockFreeIdleObjects;
+    }
+
+    /**
+     * Set the value for the {@code lockFreeIdleObjects} configuration
+     * attribute for pools created with this configuration instance.
+     *
+     * @param lockFreeIdleObjects The new setting of
+     *        {@code lockFreeIdleObjects} for this configuration instance
+     *
+     * @see GenericObjectPool#getLockFreeIdleObjects()
+     */
+    public void setLockFreeIdleObjects(boolean lockFreeIdleObjects) {
+        this.lockFreeIdleObjects = lockFreeIdleObjects;
+    }
+
+
+    /**
+     * Get the value for the {@code threadAffinity} configuration attribute
+     * for pools created with this configuration instance.
+     *
+     * @return  The current setting of {@code threadAffinity} for this
+     *          configuration instance
+     *
+     * @see GenericObjectPool#getThreadAffinity()
+     */
+    public boolean getThreadAffinity() {
+        return threadAffinity;
+    }
+
+    /**
+     * Set the value for the {@code threadAffinity} configuration attribute
+     * for pools created with this configuration instance.
+     *
+     * @param threadAffinity The new setting of {@code threadAffinity}
+     *        for this configuration instance
+     *
+     * @see GenericObjectPool#getThreadAffinity()
+     */
+    public void setThreadAffinity(boolean threadAffinity) {
+        this.threadAffinity = threadAffinity;
+    }
+
     @Override
     public GenericObjectPoolConfig clone() {
         try {
@@ -151,5 +294,13 @@ public class GenericObjectPoolConfig extends BaseObjectPoolConfig {
         builder.append(maxIdle);
         builder.append(", minIdle=");
         builder.append(minIdle);
+        builder.append(", idleHeadroom=");
+        builder.append(idleHeadroom);
+        builder.append(", maxConcurrentCreates=");
+        builder.append(maxConcurrentCreates);
+        builder.append(", lockFreeIdleObjects=");
+        builder.append(lockFreeIdleObjects);
+        builder.append(", threadAffinity=");
+        builder.append(threadAffinity);
     }
 }
@@ -72,6 +72,26 @@ public interface GenericObjectPoolMXBean {
      * @return See {@link GenericObjectPool#getMinIdle()}
      */
     int getMinIdle();
+    /**
+     * See {@link GenericObjectPool#getIdleHeadroom()}
+     * @return See {@link GenericObjectPool#getIdleHeadroom()}
+     */
+    int getIdleHeadroom();
+    /**
+     * See {@link GenericObjectPool#getMaxConcurrentCreates()}
+     * @return See {@link GenericObjectPool#getMaxConcurrentCreates()}
+     */
+    int getMaxConcurrentCreates();
+    /**
+     * See {@link GenericObjectPool#getLockFreeIdleObjects()}
+     * @return See {@link GenericObjectPool#getLockFreeIdleObjects()}
+     */
+    boolean getLockFreeIdleObjects();
+    /**
+     * See {@link GenericObjectPool#getThreadAffinity()}
+     * @return See {@link GenericObjectPool#getThreadAffinity()}
+     */
+    boolean getThreadAffinity();
     /**
      * See {@link GenericObjectPool#getNumActive()}
      * @return See {@link GenericObjectPool#getNumActive()}
@@ -169,6 +189,21 @@ public interface GenericObjectPoolMXBean {
      * @return See {@link GenericObjectPool#getMaxBorrowWaitTimeMillis()}
      */
     long getMaxBorrowWaitTimeMillis();
+    /**
+     * See {@link GenericObjectPool#getEvictionRunCount()}
+     * @return See {@link GenericObjectPool#getEvictionRunCount()}
+     */
+    long getEvictionRunCount();
+    /**
+     * See {@link GenericObjectPool#getMeanEvictionRunTimeMicros()}
+     * @return See {@link GenericObjectPool#getMeanEvictionRunTimeMicros()}
+     */
+    long getMeanEvictionRunTimeMicros();
+    /**
+     * See {@link GenericObjectPool#getMaxEvictionRunTimeMicros()}
+     * @return See {@link GenericObjectPool#getMaxEvictionRunTimeMicros()}
+     */
+    long getMaxEvictionRunTimeMicros();
     /**
      * See {@link GenericObjectPool#getCreationStackTrace()}
      * @return See {@link GenericObjectPool#getCreationStackTrace()}
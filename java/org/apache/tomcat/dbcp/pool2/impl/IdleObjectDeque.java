@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.dbcp.pool2.impl;
+
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The operations {@link GenericObjectPool} requires from the deque that holds
+ * its idle objects, in addition to those of {@link Deque}.
+ * <p>
+ * This interface has package scope to prevent its inclusion in the pool
+ * public API. The interface declaration below should *not* be changed to
+ * public.
+ *
+ * @param <E> the type of elements held in the deque
+ */
+interface IdleObjectDeque<E> extends Deque<E> {
+
+    /**
+     * Unlinks the first element in the queue, waiting until there is an
+     * element to unlink if the queue is empty.
+     *
+     * @return the unlinked element
+     * @throws InterruptedException if the current thread is interrupted
+     */
+    E takeFirst() throws InterruptedException;
+
+    /**
+     * Unlinks the first element in the queue, waiting up to the specified
+     * wait time if necessary for an element to become available.
+     *
+     * @param timeout length of time to wait
+     * @param unit units that timeout is expressed in
+     * @return the unlinked element, or {@code null} if the specified waiting
+     *         time elapses before an element is available
+     * @throws InterruptedException if the current thread is interrupted
+     */
+    E pollFirst(long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * Returns true if there are threads waiting to take instances from this
+     * deque.
+     *
+     * @return true if there is at least one thread waiting on this deque's
+     *         notEmpty condition.
+     */
+    boolean hasTakeWaiters();
+
+    /**
+     * Returns the length of the queue of threads waiting to take instances
+     * from this deque.
+     *
+     * @return number of threads waiting on this deque's notEmpty condition.
+     */
+    int getTakeQueueLength();
+
+    /**
+     * Interrupts the threads currently waiting to take an object from the
+     * pool.
+     */
+    void interuptTakeWaiters();
+}
@@ -19,7 +19,6 @@ package org.apache.tomcat.dbcp.pool2.impl;
 import java.io.Serializable;
 import java.util.AbstractQueue;
 import java.util.Collection;
-import java.util.Deque;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.concurrent.TimeUnit;
@@ -58,7 +57,7 @@ import java.util.concurrent.locks.Condition;
  * @since 2.0
  */
 class LinkedBlockingDeque<E> extends AbstractQueue<E>
-        implements Deque<E>, Serializable {
+        implements IdleObjectDeque<E>, Serializable {
 
     /*
      * Implemented as a simple doubly-linked list protected by a
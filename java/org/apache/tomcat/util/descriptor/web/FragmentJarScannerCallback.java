@@ -22,12 +22,15 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.JarURLConnection;
 import java.net.URL;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.tomcat.JarScannerCallback;
 import org.apache.tomcat.util.scan.Jar;
 import org.apache.tomcat.util.scan.JarFactory;
+import org.apache.tomcat.util.scan.JarScanCache;
 import org.xml.sax.InputSource;
 
 /**
@@ -42,6 +45,7 @@ public class FragmentJarScannerCallback implements JarScannerCallback {
     private final boolean parseRequired;
     private final Map<String,WebXml> fragments = new HashMap<>();
     private boolean ok  = true;
+    private JarScanCache jarScanCache = null;
 
     public FragmentJarScannerCallback(WebXmlParser webXmlParser, boolean delegate,
             boolean parseRequired) {
@@ -68,8 +72,20 @@ public class FragmentJarScannerCallback implements JarScannerCallback {
             // web-fragment.xml files don't need to be parsed if they are never
             // going to be used.
             if (isWebapp && parseRequired) {
-                jar = JarFactory.newInstance(url);
-                is = jar.getInputStream(FRAGMENT_LOCATION);
+                List<String[]> cached = null;
+                if (jarScanCache != null) {
+                    cached = jarScanCache.get(url);
+                }
+                // Unchanged JARs without a web-fragment.xml are not opened
+                if (cached == null || !cached.isEmpty()) {
+                    jar = JarFactory.newInstance(url);
+                    is = jar.getInputStream(FRAGMENT_LOCATION);
+                    if (jarScanCache != null && cached == null) {
+                        jarScanCache.put(url, is == null ?
+                                Collections.<String[]>emptyList() :
+                                Collections.singletonList(new String[] { FRAGMENT_LOCATION }));
+                    }
+                }
             }
 
             if (is == null) {
@@ -154,6 +170,18 @@ public class FragmentJarScannerCallback implements JarScannerCallback {
         // handle multiple web-fragment.xml files.
     }
 
+    /**
+     * Set the cache used to record which JARs contain a web-fragment.xml so
+     * that unchanged JARs without one do not need to be opened on the next
+     * scan.
+     *
+     * @param jarScanCache The cache or <code>null</code> to always open the
+     *                         JARs
+     */
+    public void setJarScanCache(JarScanCache jarScanCache) {
+        this.jarScanCache = jarScanCache;
+    }
+
     public boolean isOk() {
         return ok;
     }
@@ -0,0 +1,283 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.scan;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.ServletContext;
+
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.JarScanner;
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * Results of scanning JAR files that are kept in the work directory of a web
+ * application so that JARs that have not changed since the previous start do
+ * not have to be opened and scanned again. The results for a JAR are a list
+ * of records, each of which is an array of strings. The meaning of the
+ * records is defined by the component that uses the cache.
+ * <p>
+ * A JAR is identified by its path, size and last modification time. Only
+ * JARs that are files on disk are cached. The cache is written by
+ * {@link #save()} and then only contains the JARs that were used since it was
+ * loaded so that the results for removed JARs are dropped.
+ * <p>
+ * Instances are thread safe.
+ */
+public class JarScanCache {
+
+    private static final Log log = LogFactory.getLog(JarScanCache.class);
+    private static final StringManager sm = StringManager.getManager(Constants.Package);
+
+    private static final int MAGIC = 0x4A534331;
+    private static final int VERSION = 1;
+
+    private final File file;
+    private final Map<String,Entry> loaded = new HashMap<>();
+    private final Map<String,Entry> used = new HashMap<>();
+    private boolean modified = false;
+
+
+    /**
+     * Create a cache that is stored in the given file. Any results already
+     * stored in the file are read.
+     *
+     * @param file The file the cache is stored in
+     */
+    public JarScanCache(File file) {
+        this.file = file;
+        load();
+    }
+
+
+    /**
+     * Obtain the cache with the given name for a web application if the
+     * application's {@link JarScanner} is configured to cache scan results.
+     *
+     * @param jarScanner The JAR scanner used by the web application
+     * @param context    The web application
+     * @param name       The name of the cache, which must be unique within
+     *                       the web application
+     *
+     * @return the cache or <code>null</code> if results should not be cached
+     *         or the web application has no work directory
+     */
+    public static JarScanCache getInstance(JarScanner jarScanner,
+            ServletContext context, String name) {
+        if (!(jarScanner instanceof StandardJarScanner) ||
+                !((StandardJarScanner) jarScanner).isCacheScanResults()) {
+            return null;
+        }
+        Object workDir = context.getAttribute(ServletContext.TEMPDIR);
+        if (!(workDir instanceof File) || !((File) workDir).isDirectory()) {
+            return null;
+        }
+        return new JarScanCache(new File((File) workDir, "jar-scan-" + name + ".cache"));
+    }
+
+
+    /**
+     * Obtain the results recorded for a JAR.
+     *
+     * @param jarURL The URL of the JAR, either a <code>jar:</code> URL or a
+     *                   <code>file:</code> URL
+     *
+     * @return the results or <code>null</code> if the results for the JAR are
+     *         not known or the JAR has changed since they were recorded
+     */
+    public List<String[]> get(URL jarURL) {
+        File jarFile = getJarFile(jarURL);
+        if (jarFile == null) {
+            return null;
+        }
+        String path = jarFile.getAbsolutePath();
+        synchronized (this) {
+            Entry entry = loaded.get(path);
+            if (entry == null || entry.size != jarFile.length() ||
+                    entry.lastModified != jarFile.lastModified()) {
+                return null;
+            }
+            used.put(path, entry);
+            return entry.records;
+        }
+    }
+
+
+    /**
+     * Record the results for a JAR. Results for JARs that are not files on
+     * disk are ignored.
+     *
+     * @param jarURL  The URL of the JAR, either a <code>jar:</code> URL or a
+     *                    <code>file:</code> URL
+     * @param records The results of scanning the JAR
+     */
+    public void put(URL jarURL, List<String[]> records) {
+        File jarFile = getJarFile(jarURL);
+        if (jarFile == null) {
+            return;
+        }
+        String path = jarFile.getAbsolutePath();
+        Entry entry = new Entry(jarFile.length(), jarFile.lastModified(),
+                Collections.unmodifiableList(new ArrayList<>(records)));
+        synchronized (this) {
+            loaded.put(path, entry);
+            used.put(path, entry);
+            modified = true;
+        }
+    }
+
+
+    /**
+     * Write the results for the JARs that have been used since this cache was
+     * loaded to the cache file.
+     */
+    public synchronized void save() {
+        if (!modified && used.size() == loaded.size()) {
+            return;
+        }
+        File tmp = new File(file.getAbsolutePath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(used.size());
+            for (Map.Entry<String,Entry> mapEntry : used.entrySet()) {
+                Entry entry = mapEntry.getValue();
+                out.writeUTF(mapEntry.getKey());
+                out.writeLong(entry.size);
+                out.writeLong(entry.lastModified);
+                out.writeInt(entry.records.size());
+                for (String[] record : entry.records) {
+                    out.writeInt(record.length);
+                    for (String value : record) {
+                        out.writeBoolean(value != null);
+                        if (value != null) {
+                            out.writeUTF(value);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.warn(sm.getString("jarScanCache.saveFail", file), e);
+            if (!tmp.delete()) {
+                tmp.deleteOnExit();
+            }
+            return;
+        }
+        if (file.exists() && !file.delete() || !tmp.renameTo(file)) {
+            log.warn(sm.getString("jarScanCache.saveFail", file));
+            if (!tmp.delete()) {
+                tmp.deleteOnExit();
+            }
+            return;
+        }
+        loaded.keySet().retainAll(used.keySet());
+        modified = false;
+    }
+
+
+    private void load() {
+        if (!file.isFile()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                log.debug(sm.getString("jarScanCache.ignored", file));
+                return;
+            }
+            int entries = in.readInt();
+            for (int i = 0; i < entries; i++) {
+                String path = in.readUTF();
+                long size = in.readLong();
+                long lastModified = in.readLong();
+                int recordCount = in.readInt();
+                List<String[]> records = new ArrayList<>(recordCount);
+                for (int j = 0; j < recordCount; j++) {
+                    String[] record = new String[in.readInt()];
+                    for (int k = 0; k < record.length; k++) {
+                        if (in.readBoolean()) {
+                            record[k] = in.readUTF();
+                        }
+                    }
+                    records.add(record);
+                }
+                loaded.put(path, new Entry(size, lastModified,
+                        Collections.unmodifiableList(records)));
+            }
+        } catch (IOException | RuntimeException e) {
+            // Start again with an empty cache
+            log.warn(sm.getString("jarScanCache.loadFail", file), e);
+            loaded.clear();
+        }
+    }
+
+
+    /*
+     * Returns the JAR file on disk for jar:file:...!/ and file:....jar URLs
+     * and null for everything else, including JARs nested in other JARs.
+     */
+    private static File getJarFile(URL url) {
+        String urlString = url.toString();
+        if (urlString.startsWith("jar:")) {
+            urlString = urlString.substring(4);
+            int separator = urlString.indexOf("!/");
+            if (separator == -1 || separator != urlString.length() - 2) {
+                return null;
+            }
+            urlString = urlString.substring(0, separator);
+        }
+        if (!urlString.startsWith("file:") || !urlString.endsWith(Constants.JAR_EXT)) {
+            return null;
+        }
+        try {
+            File jarFile = new File(new URI(urlString));
+            return jarFile.isFile() ? jarFile : null;
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+
+    private static class Entry {
+        private final long size;
+        private final long lastModified;
+        private final List<String[]> records;
+
+        public Entry(long size, long lastModified, List<String[]> records) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.records = records;
+        }
+    }
+}
@@ -23,9 +23,15 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.net.URLConnection;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.servlet.ServletContext;
 
@@ -35,9 +41,11 @@ import org.apache.tomcat.JarScanFilter;
 import org.apache.tomcat.JarScanType;
 import org.apache.tomcat.JarScanner;
 import org.apache.tomcat.JarScannerCallback;
+import org.apache.tomcat.ParallelJarScannerCallback;
 import org.apache.tomcat.util.ExceptionUtils;
 import org.apache.tomcat.util.buf.UriUtil;
 import org.apache.tomcat.util.res.StringManager;
+import org.apache.tomcat.util.threads.TaskThreadFactory;
 
 /**
  * The default {@link JarScanner} implementation scans the WEB-INF/lib directory
@@ -50,6 +58,8 @@ import org.apache.tomcat.util.res.StringManager;
  *   <li>Testing all files to see if they are JARs (disabled by default)</li>
  *   <li>Testing all directories to see if they are exploded JARs
  *       (disabled by default)</li>
+ *   <li>Processing several JARs at the same time for callbacks that implement
+ *       {@link ParallelJarScannerCallback} (disabled by default)</li>
  * </ul>
  * All of the extensions may be controlled via configuration.
  */
@@ -109,6 +119,32 @@ public class StandardJarScanner implements JarScanner {
         this.scanBootstrapClassPath = scanBootstrapClassPath;
     }
 
+    /**
+     * Controls the number of threads used to process the JARs found by a scan.
+     * Only callbacks that implement {@link ParallelJarScannerCallback} are
+     * passed more than one JAR at a time.
+     */
+    private int scanThreadCount = 1;
+    public int getScanThreadCount() {
+        return scanThreadCount;
+    }
+    public void setScanThreadCount(int scanThreadCount) {
+        this.scanThreadCount = scanThreadCount;
+    }
+
+    /**
+     * Controls whether the callbacks that support it keep the results of
+     * scanning JAR files in the work directory of the web application for use
+     * on the next start. See {@link JarScanCache}.
+     */
+    private boolean cacheScanResults = false;
+    public boolean isCacheScanResults() {
+        return cacheScanResults;
+    }
+    public void setCacheScanResults(boolean cacheScanResults) {
+        this.cacheScanResults = cacheScanResults;
+    }
+
     /**
      * Controls the filtering of the results from the scan for JARs
      */
@@ -142,6 +178,9 @@ public class StandardJarScanner implements JarScanner {
         }
 
         Set<URL> processedURLs = new HashSet<>();
+        // The JARs are found first and then processed in the same order so
+        // that they may be processed in parallel
+        List<ScanTarget> targets = new ArrayList<>();
 
         // Scan WEB-INF/lib
         Set<String> dirList = context.getResourcePaths(Constants.WEB_INF_LIB);
@@ -160,7 +199,8 @@ public class StandardJarScanner implements JarScanner {
                     try {
                         url = context.getResource(path);
                         processedURLs.add(url);
-                        process(scanType, callback, url, path, true);
+                        targets.add(new ScanTarget(
+                                url, path, true, "jarScan.webinflibFail"));
                     } catch (IOException e) {
                         log.warn(sm.getString("jarScan.webinflibFail", url), e);
                     }
@@ -186,11 +226,9 @@ public class StandardJarScanner implements JarScanner {
                     if (webInfURL != null) {
                         processedURLs.add(webInfURL);
                     }
-                    try {
-                        callback.scanWebInfClasses();
-                    } catch (IOException e) {
-                        log.warn(sm.getString("jarScan.webinfclassesFail"), e);
-                    }
+                    targets.add(new ScanTarget(
+                            null, Constants.WEB_INF_CLASSES, true,
+                            "jarScan.webinfclassesFail"));
                 }
             }
         } catch (MalformedURLException e) {
@@ -250,13 +288,8 @@ public class StandardJarScanner implements JarScanner {
                             if (urls[i].equals(webInfURL)) {
                                 webappPath = Constants.WEB_INF_CLASSES;
                             }
-                            try {
-                                process(scanType, callback, urls[i], webappPath, isWebapp);
-                            } catch (IOException ioe) {
-                                log.warn(sm.getString(
-                                        "jarScan.classloaderFail", urls[i]),
-                                                ioe);
-                            }
+                            targets.add(new ScanTarget(urls[i], webappPath,
+                                    isWebapp, "jarScan.classloaderFail"));
                         } else {
                             // JAR / directory has been skipped
                             if (log.isTraceEnabled()) {
@@ -270,6 +303,88 @@ public class StandardJarScanner implements JarScanner {
                 classLoader = classLoader.getParent();
             }
         }
+
+        process(scanType, callback, targets);
+    }
+
+
+    /*
+     * Pass the JARs to the callback. If the callback supports it and more than
+     * one thread is configured the JARs are processed in parallel and the
+     * results merged in the order in which the JARs were found.
+     */
+    private void process(final JarScanType scanType, JarScannerCallback callback,
+            List<ScanTarget> targets) {
+
+        int threadCount = Math.min(getScanThreadCount(), targets.size());
+        if (threadCount < 2 || !(callback instanceof ParallelJarScannerCallback)) {
+            for (ScanTarget target : targets) {
+                process(scanType, callback, target);
+            }
+            return;
+        }
+
+        ParallelJarScannerCallback parallelCallback =
+                (ParallelJarScannerCallback) callback;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount,
+                new TaskThreadFactory("JarScanner-", true, Thread.NORM_PRIORITY));
+        try {
+            List<JarScannerCallback> partials = new ArrayList<>(targets.size());
+            List<Future<?>> futures = new ArrayList<>(targets.size());
+            for (final ScanTarget target : targets) {
+                final JarScannerCallback partial =
+                        parallelCallback.createPartialCallback();
+                partials.add(partial);
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        process(scanType, partial, target);
+                    }
+                }));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException e) {
+                    // Processing the JAR sequentially would have failed with
+                    // the same exception
+                    parallelCallback.merge(partials.get(i));
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    throw new IllegalStateException(cause);
+                }
+                parallelCallback.merge(partials.get(i));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn(sm.getString("jarScan.interrupted"), e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+
+    private void process(JarScanType scanType, JarScannerCallback callback,
+            ScanTarget target) {
+        if (target.url == null) {
+            try {
+                callback.scanWebInfClasses();
+            } catch (IOException e) {
+                log.warn(sm.getString(target.failKey), e);
+            }
+        } else {
+            try {
+                process(scanType, callback, target.url, target.webappPath,
+                        target.isWebapp);
+            } catch (IOException e) {
+                log.warn(sm.getString(target.failKey, target.url), e);
+            }
+        }
     }
 
 
@@ -356,6 +471,27 @@ public class StandardJarScanner implements JarScanner {
     }
 
 
+    /*
+     * A JAR or directory to pass to the callback. A null URL represents
+     * /WEB-INF/classes.
+     */
+    private static class ScanTarget {
+
+        private final URL url;
+        private final String webappPath;
+        private final boolean isWebapp;
+        private final String failKey;
+
+        public ScanTarget(URL url, String webappPath, boolean isWebapp,
+                String failKey) {
+            this.url = url;
+            this.webappPath = webappPath;
+            this.isWebapp = isWebapp;
+            this.failKey = failKey;
+        }
+    }
+
+
     private static class ClassPathEntry {
 
         private final boolean jar;
@@ -20,20 +20,29 @@ import java.lang.ref.WeakReference;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Proxy;
+import java.nio.channels.CompletionHandler;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -114,6 +123,57 @@ public class ConnectionPool {
      */
     private ThreadPoolExecutor cancellator = new ThreadPoolExecutor(0,1,1000,TimeUnit.MILLISECONDS,new LinkedBlockingQueue<Runnable>());
 
+    /**
+     * Executor service used to invoke the handlers of asynchronous connection
+     * requests. It has at most one thread per processor, handlers beyond that
+     * are queued.
+     */
+    private final ThreadPoolExecutor asyncHandlerExecutor = createAsyncHandlerExecutor();
+
+    /**
+     * Number of connections being opened in the background
+     */
+    private final AtomicInteger pendingCreates = new AtomicInteger(0);
+
+    /**
+     * Number of borrows while {@link PoolProperties#idleHeadroom idleHeadroom} is set
+     */
+    private final AtomicLong borrowCount = new AtomicLong(0);
+
+    /**
+     * Start of the window in which the borrow rate is measured
+     */
+    private final AtomicLong rateWindowStart = new AtomicLong(System.currentTimeMillis());
+
+    private volatile long rateWindowBorrows = 0;
+
+    /**
+     * Smoothed number of borrows per millisecond
+     */
+    private volatile double borrowRate = 0;
+
+    /**
+     * Smoothed number of milliseconds it takes to open a connection in the background
+     */
+    private volatile double createTime = 0;
+
+    /**
+     * Time the last validation of a connection succeeded, while
+     * {@link PoolProperties#poolValidationInterval poolValidationInterval} is set
+     */
+    private volatile long lastValidated = 0;
+
+    /**
+     * Set while the idle connections are validated after a failed validation
+     */
+    private final AtomicBoolean revalidating = new AtomicBoolean(false);
+
+    /**
+     * Asynchronous connection requests that are waiting for a connection
+     */
+    private final Set<AsyncRequest<?>> asyncRequests =
+            Collections.newSetFromMap(new ConcurrentHashMap<AsyncRequest<?>,Boolean>());
+
     /**
      * reference to the JMX mbean
      */
@@ -126,6 +186,37 @@ public class ConnectionPool {
 
     private AtomicLong poolVersion = new AtomicLong(Long.MIN_VALUE);
 
+    /**
+     * Length of the window in which the borrow rate is measured
+     */
+    private static final long RATE_WINDOW = 1000;
+
+    /**
+     * The connection each thread returned most recently, if
+     * {@link PoolConfiguration#getUseThreadAffinity()} is enabled
+     */
+    private ThreadLocal<WeakReference<PooledConnection>> threadConnection = null;
+
+    /**
+     * Number of entries in the idle queue for connections that have been
+     * reclaimed by the thread that returned them and are in use
+     */
+    private final AtomicInteger staleIdle = new AtomicInteger(0);
+
+    /**
+     * Number of connections that are in use, whether or not they are tracked
+     * in the busy queue
+     */
+    private final AtomicInteger active = new AtomicInteger(0);
+
+    /**
+     * Total time in nanoseconds spent waiting for connections, holding them
+     * and executing statements on them
+     */
+    private final AtomicLong borrowWaitTime = new AtomicLong(0);
+    private final AtomicLong holdTime = new AtomicLong(0);
+    private final AtomicLong statementTime = new AtomicLong(0);
+
     //===============================================================================
     //         PUBLIC METHODS
     //===============================================================================
@@ -173,6 +264,27 @@ public class ConnectionPool {
         }
     }
 
+    /**
+     * Retrieves a connection without blocking the calling thread.
+     * If no connection is available, or can be created, the request is queued and is handed the next
+     * connection that is returned to the pool, or failed with a {@link PoolExhaustedException} once
+     * {@link PoolProperties#maxWait maxWait} has expired.
+     * The handler is always invoked on a background thread of this pool, never on the thread making the
+     * request or on a thread returning a connection. The pool has at most one such thread per processor
+     * so the handler must not block, it should hand any lengthy work off to another executor.
+     * @param <A> The type of the attachment
+     * @param attachment The object passed to the handler
+     * @param handler The handler that receives the connection or the cause of the failure
+     * @throws SQLException if the pool is misconfigured and doesn't support async retrieval
+     */
+    public <A> void getConnectionAsync(A attachment, CompletionHandler<Connection,? super A> handler) throws SQLException {
+        //we can only queue a request if the underlying queue supports it.
+        if (!(idle instanceof FairBlockingQueue<?>)) {
+            throw new SQLException("Connection pool is misconfigured, doesn't support async retrieval. Set the 'fair' property to 'true'");
+        }
+        new AsyncRequest<>(attachment, handler).borrow();
+    }
+
     /**
      * Borrows a connection from the pool. If a connection is available (in the idle queue) or the pool has not reached
      * {@link PoolProperties#maxActive maxActive} connections a connection is returned immediately.
@@ -182,7 +294,9 @@ public class ConnectionPool {
      */
     public Connection getConnection() throws SQLException {
         //check out a connection
+        long start = System.nanoTime();
         PooledConnection con = borrowConnection(-1,null,null);
+        con.setBorrowWaitTime(System.nanoTime() - start);
         return setupConnection(con);
     }
 
@@ -203,7 +317,9 @@ public class ConnectionPool {
      */
     public Connection getConnection(String username, String password) throws SQLException {
         // check out a connection
+        long start = System.nanoTime();
         PooledConnection con = borrowConnection(-1, username, password);
+        con.setBorrowWaitTime(System.nanoTime() - start);
         return setupConnection(con);
     }
 
@@ -245,7 +361,7 @@ public class ConnectionPool {
      * @return int - number of established connections that are being used by the application
      */
     public int getActive() {
-        return busy.size();
+        return active.get();
     }
 
     /**
@@ -253,7 +369,38 @@ public class ConnectionPool {
      * @return int - number of established connections not being used
      */
     public int getIdle() {
-        return idle.size();
+        return Math.max(0, idle.size() - staleIdle.get());
+    }
+
+    /**
+     * Returns the total time spent waiting for connections of this pool.
+     * @return the time in milliseconds, for the connections that have been
+     *         returned
+     */
+    public long getBorrowWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(borrowWaitTime.get());
+    }
+
+    /**
+     * Returns the total time connections of this pool have been held by the
+     * application.
+     * @return the time in milliseconds, for the connections that have been
+     *         returned
+     */
+    public long getHoldTime() {
+        return TimeUnit.NANOSECONDS.toMillis(holdTime.get());
+    }
+
+    /**
+     * Returns the total time spent executing statements on connections of
+     * this pool. Statements are only timed if the
+     * {@link org.apache.tomcat.jdbc.pool.interceptor.StatementTimeInterceptor}
+     * is configured.
+     * @return the time in milliseconds, for the connections that have been
+     *         returned
+     */
+    public long getStatementTime() {
+        return TimeUnit.NANOSECONDS.toMillis(statementTime.get());
     }
 
     /**
@@ -272,6 +419,7 @@ public class ConnectionPool {
     /**
      * configures a pooled connection as a proxy.
      * This Proxy implements {@link java.sql.Connection} and {@link javax.sql.PooledConnection} interfaces.
+     * A {@link DelegatingConnection} is used instead if {@link PoolConfiguration#getUseDelegatingConnection()} is enabled.
      * All calls on {@link java.sql.Connection} methods will be propagated down to the actual JDBC connection except for the
      * {@link java.sql.Connection#close()} method.
      * @param con a {@link PooledConnection} to wrap in a Proxy
@@ -279,6 +427,8 @@ public class ConnectionPool {
      * @throws SQLException if an interceptor can't be configured, if the proxy can't be instantiated
      */
     protected Connection setupConnection(PooledConnection con) throws SQLException {
+        //start tracking the time the connection is held
+        con.borrowed(System.nanoTime());
         //fetch previously cached interceptor proxy - one per connection
         JdbcInterceptor handler = con.getHandler();
         if (handler==null) {
@@ -315,6 +465,11 @@ public class ConnectionPool {
             }
         }
 
+        if (getPoolProperties().getUseDelegatingConnection() && con.getXAConnection() == null) {
+            //without interceptors, the chain only holds the ProxyConnection
+            return new DelegatingConnection(this, con, (handler instanceof ProxyConnection) ? null : handler);
+        }
+
         try {
             getProxyConstructor(con.getXAConnection() != null);
             //create the proxy
@@ -368,6 +523,10 @@ public class ConnectionPool {
         if (poolCleaner!=null) {
             poolCleaner.stopRunning();
         }
+        //fail queued async requests, no more connections will be handed out
+        for (AsyncRequest<?> request : asyncRequests) {
+            request.cancel(new SQLException("Connection pool closed."));
+        }
 
         /* release all idle connections */
         BlockingQueue<PooledConnection> pool = (idle.size()>0)?idle:(force?busy:idle);
@@ -378,10 +537,13 @@ public class ConnectionPool {
                 //close it and retrieve the next one, if one is available
                 while (con != null) {
                     //close the connection
-                    if (pool==idle)
-                        release(con);
-                    else
+                    if (pool==idle) {
+                        //connections in use will be released when returned
+                        if (acquireIdle(con)) release(con);
+                    } else {
+                        removeBusy(con);
                         abandon(con);
+                    }
                     if (pool.size()>0) {
                         con = pool.poll(1000, TimeUnit.MILLISECONDS);
                     } else {
@@ -433,6 +595,10 @@ public class ConnectionPool {
             idle = new LinkedBlockingQueue<>();
         }
 
+        if (properties.getUseThreadAffinity()) {
+            threadConnection = new ThreadLocal<>();
+        }
+
         initializePoolCleaner(properties);
 
         //create JMX MBean
@@ -622,15 +788,26 @@ public class ConnectionPool {
 
         //get the current time stamp
         long now = System.currentTimeMillis();
+        //try to reclaim the connection this thread returned last
+        if (threadConnection != null) {
+            PooledConnection con = acquireThreadConnection();
+            if (con != null) {
+                PooledConnection result = borrowConnection(now, con, username, password);
+                if (result != null) return result;
+            }
+        }
         //see if there is one available immediately
-        PooledConnection con = idle.poll();
+        PooledConnection con = pollIdle();
 
         while (true) {
             if (con!=null) {
                 //configure the connection and return it
                 PooledConnection result = borrowConnection(now, con, username, password);
                 //null should never be returned, but was in a previous impl.
-                if (result!=null) return result;
+                if (result!=null) {
+                    replenish();
+                    return result;
+                }
             }
 
             //if we get here, see if we need to create one
@@ -643,6 +820,8 @@ public class ConnectionPool {
                     //if we got here, two threads passed through the first if
                     size.decrementAndGet();
                 } else {
+                    //open further connections in the background while this one connects
+                    replenish();
                     //create a connection, we're below the limit
                     return createConnection(now, con, username, password);
                 }
@@ -660,6 +839,9 @@ public class ConnectionPool {
             try {
                 //retrieve an existing connection
                 con = idle.poll(timetowait, TimeUnit.MILLISECONDS);
+                if (con != null && !acquireIdle(con)) {
+                    con = pollIdle();
+                }
             } catch (InterruptedException ex) {
                 if (getPoolProperties().getPropagateInterruptState()) {
                     Thread.currentThread().interrupt();
@@ -675,7 +857,7 @@ public class ConnectionPool {
                     jmxPool.notify(org.apache.tomcat.jdbc.pool.jmx.ConnectionPool.POOL_EMPTY, "Pool empty - no wait.");
                 }
                 throw new PoolExhaustedException("[" + Thread.currentThread().getName()+"] " +
-                        "NoWait: Pool empty. Unable to fetch a connection, none available["+busy.size()+" in use].");
+                        "NoWait: Pool empty. Unable to fetch a connection, none available["+getActive()+" in use].");
             }
             //we didn't get a connection, lets see if we timed out
             if (con == null) {
@@ -685,7 +867,7 @@ public class ConnectionPool {
                     }
                     throw new PoolExhaustedException("[" + Thread.currentThread().getName()+"] " +
                         "Timeout: Pool empty. Unable to fetch a connection in " + (maxWait / 1000) +
-                        " seconds, none available[size:"+size.get() +"; busy:"+busy.size()+"; idle:"+idle.size()+"; lastwait:"+timetowait+"].");
+                        " seconds, none available[size:"+size.get() +"; busy:"+getActive()+"; idle:"+idle.size()+"; lastwait:"+timetowait+"].");
                 } else {
                     //no timeout, lets try again
                     continue;
@@ -719,9 +901,7 @@ public class ConnectionPool {
                 if (getPoolProperties().isLogAbandoned()) {
                     con.setStackTrace(getThreadDump());
                 }
-                if (!busy.offer(con)) {
-                    log.debug("Connection doesn't fit into busy array, connection will not be traceable.");
-                }
+                addBusy(con);
                 return con;
             } else {
                 //validation failed, make sure we disconnect
@@ -748,6 +928,109 @@ public class ConnectionPool {
         }//catch
     }
 
+    /**
+     * Records a borrow and opens connections in the background if fewer than
+     * {@link PoolProperties#idleHeadroom idleHeadroom} connections are idle.
+     */
+    private void replenish() {
+        if (poolProperties.getIdleHeadroom() <= 0) return;
+        long borrows = borrowCount.incrementAndGet();
+        long now = System.currentTimeMillis();
+        long start = rateWindowStart.get();
+        if ((now - start) >= RATE_WINDOW && rateWindowStart.compareAndSet(start, now)) {
+            //smooth the borrow rate of the last window with the previous rate
+            double rate = (double) (borrows - rateWindowBorrows) / (now - start);
+            rateWindowBorrows = borrows;
+            borrowRate = (borrowRate + rate) / 2;
+        }
+        fillHeadroom();
+    }
+
+    /**
+     * Submits background connection creations until the idle connections and
+     * the pending creations cover the headroom and the waiting threads.
+     * The headroom is raised to the number of borrows expected while a
+     * connection is being opened.
+     */
+    private void fillHeadroom() {
+        int headroom = poolProperties.getIdleHeadroom();
+        if (headroom <= 0 || isClosed()) return;
+        int target = Math.max(headroom, (int) Math.ceil(borrowRate * createTime));
+        target = Math.min(target, poolProperties.getMaxIdle());
+        int deficit = target + waitcount.get() - (idle.size() - staleIdle.get()) - pendingCreates.get();
+        int maxCreates = poolProperties.getMaxConcurrentCreates();
+        while (deficit > 0) {
+            int pending = pendingCreates.get();
+            if (pending >= maxCreates) return;
+            if (!pendingCreates.compareAndSet(pending, pending + 1)) continue;
+            //reserve the connection, the same way a borrow does
+            if (size.incrementAndGet() > poolProperties.getMaxActive()) {
+                size.decrementAndGet();
+                pendingCreates.decrementAndGet();
+                return;
+            }
+            try {
+                getBackgroundExecutor().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        createIdleConnection();
+                    }
+                });
+            } catch (RejectedExecutionException x) {
+                size.decrementAndGet();
+                pendingCreates.decrementAndGet();
+                return;
+            }
+            deficit--;
+        }
+    }
+
+    /**
+     * Opens a connection, for which the pool size has already been reserved,
+     * and adds it to the idle queue. Invoked by a creator thread.
+     */
+    private void createIdleConnection() {
+        boolean added = false;
+        try {
+            if (isClosed()) {
+                size.decrementAndGet();
+                return;
+            }
+            long start = System.currentTimeMillis();
+            PooledConnection con = create(false);
+            boolean error = true;
+            con.lock();
+            try {
+                con.connect();
+                if (con.validate(PooledConnection.VALIDATE_INIT)) {
+                    con.setTimestamp(System.currentTimeMillis());
+                    error = false;
+                } else {
+                    log.warn("Validation of a connection opened in the background failed, enable logValidationErrors for more details.");
+                }
+            } catch (Exception x) {
+                log.warn("Unable to open a connection in the background.", x);
+            } finally {
+                if (error) release(con);
+                con.unlock();
+            }
+            long elapsed = System.currentTimeMillis() - start;
+            createTime = (createTime==0) ? elapsed : (createTime + elapsed) / 2;
+            if (error) return;
+            if (threadConnection != null) con.getAffinityState().set(PooledConnection.AFFINITY_QUEUED);
+            if (isClosed() || !idle.offer(con)) {
+                release(con);
+                return;
+            }
+            added = true;
+        } finally {
+            //only once the connection is idle, so that it is always counted
+            pendingCreates.decrementAndGet();
+        }
+        //keep up with the borrow rate
+        if (added) fillHeadroom();
+    }
+
     /**
      * Validates and configures a previously idle connection
      * @param now - timestamp
@@ -785,9 +1068,7 @@ public class ConnectionPool {
                         //set the stack trace for this pool
                         con.setStackTrace(getThreadDump());
                     }
-                    if (!busy.offer(con)) {
-                        log.debug("Connection doesn't fit into busy array, connection will not be traceable.");
-                    }
+                    addBusy(con);
                     return con;
                 }
             }
@@ -809,9 +1090,7 @@ public class ConnectionPool {
                         //set the stack trace for this pool
                         con.setStackTrace(getThreadDump());
                     }
-                    if (!busy.offer(con)) {
-                        log.debug("Connection doesn't fit into busy array, connection will not be traceable.");
-                    }
+                    addBusy(con);
                     return con;
                 } else {
                     //validation failed.
@@ -837,6 +1116,141 @@ public class ConnectionPool {
             }
         }
     }
+    /**
+     * Retrieves a connection from the idle queue without waiting, skipping
+     * the entries of connections that have been reclaimed by the thread that
+     * returned them.
+     * @return an idle connection or <code>null</code> if none is available
+     */
+    private PooledConnection pollIdle() {
+        PooledConnection con = idle.poll();
+        while (con != null && !acquireIdle(con)) {
+            con = idle.poll();
+        }
+        return con;
+    }
+
+    /**
+     * Acquires a connection whose entry has been taken from the idle queue.
+     * @param con the connection
+     * @return <code>false</code> if the entry was stale as the connection was
+     *         reclaimed by the thread that returned it and is still in use
+     */
+    private boolean acquireIdle(PooledConnection con) {
+        if (threadConnection == null) return true;
+        int state = con.getAffinityState().getAndSet(PooledConnection.AFFINITY_IN_USE);
+        if ((state & PooledConnection.AFFINITY_IN_USE) == 0) return true;
+        if ((state & PooledConnection.AFFINITY_QUEUED) != 0) staleIdle.decrementAndGet();
+        return false;
+    }
+
+    /**
+     * Reclaims the connection the current thread returned most recently,
+     * unless another thread is using it.
+     * @return the connection or <code>null</code> if it is not available
+     */
+    private PooledConnection acquireThreadConnection() {
+        WeakReference<PooledConnection> ref = threadConnection.get();
+        PooledConnection con = (ref == null) ? null : ref.get();
+        if (con == null) return null;
+        AtomicInteger state = con.getAffinityState();
+        while (true) {
+            int current = state.get();
+            if ((current & PooledConnection.AFFINITY_IN_USE) != 0) return null;
+            if (state.compareAndSet(current, current | PooledConnection.AFFINITY_IN_USE)) {
+                //the entry in the idle queue, if any, is now stale
+                if ((current & PooledConnection.AFFINITY_QUEUED) != 0) staleIdle.incrementAndGet();
+                return con;
+            }
+        }
+    }
+
+    /**
+     * Returns true if the connection has been reclaimed through the thread
+     * affinity fast path, even though its entry is still in the idle queue.
+     * @param con the connection
+     * @return <code>true</code> if the connection is in use
+     */
+    private boolean isThreadBorrowed(PooledConnection con) {
+        return threadConnection != null &&
+                (con.getAffinityState().get() & PooledConnection.AFFINITY_IN_USE) != 0;
+    }
+
+    /**
+     * Returns true if the connections in use have to be kept in the busy
+     * queue.
+     * @return <code>true</code> if busy connections are tracked
+     */
+    private boolean isTrackBusy() {
+        PoolConfiguration properties = getPoolProperties();
+        return properties.getTrackBusyConnections() || properties.isRemoveAbandoned() ||
+                properties.getSuspectTimeout() > 0;
+    }
+
+    /**
+     * Marks a borrowed connection as in use and adds it to the busy queue if
+     * busy connections are tracked.
+     * @param con the connection
+     */
+    private void addBusy(PooledConnection con) {
+        if (!con.getBusy().compareAndSet(false, true)) return;
+        active.incrementAndGet();
+        if (isTrackBusy() && !busy.offer(con)) {
+            log.debug("Connection doesn't fit into busy array, connection will not be traceable.");
+        }
+    }
+
+    /**
+     * Marks a connection as no longer in use and removes it from the busy
+     * queue.
+     * @param con the connection
+     * @return <code>false</code> if the connection was not in use, for example
+     *         because it has been abandoned
+     */
+    private boolean removeBusy(PooledConnection con) {
+        if (!con.getBusy().compareAndSet(true, false)) return false;
+        active.decrementAndGet();
+        //the queue may hold connections even if tracking has been disabled since
+        if (!busy.isEmpty()) busy.remove(con);
+        return true;
+    }
+
+    /**
+     * Makes a returned connection available to other threads.
+     * @param con the connection
+     * @return <code>false</code> if the idle queue did not accept the connection
+     */
+    private boolean offerIdle(PooledConnection con) {
+        if (threadConnection == null) return idle.offer(con);
+        WeakReference<PooledConnection> ref = threadConnection.get();
+        if (ref == null || ref.get() != con) {
+            threadConnection.set(new WeakReference<>(con));
+        }
+        int state = con.getAffinityState().getAndSet(PooledConnection.AFFINITY_QUEUED);
+        if ((state & PooledConnection.AFFINITY_QUEUED) != 0) {
+            //the entry is still in the idle queue and no longer stale
+            staleIdle.decrementAndGet();
+            return true;
+        }
+        if (idle.offer(con)) return true;
+        con.getAffinityState().set(PooledConnection.AFFINITY_IN_USE);
+        return false;
+    }
+
+    /**
+     * Removes the entry of a released connection from the idle queue.
+     * @param con the connection
+     */
+    private void removeIdle(PooledConnection con) {
+        if (idle.remove(con) && threadConnection != null) {
+            //prevent the connection from being reclaimed
+            int state = con.getAffinityState().getAndSet(PooledConnection.AFFINITY_IN_USE);
+            if (state == (PooledConnection.AFFINITY_IN_USE | PooledConnection.AFFINITY_QUEUED)) {
+                staleIdle.decrementAndGet();
+            }
+        }
+    }
+
     /**
      * Terminate the current transaction for the given connection.
      * @param con The connection
@@ -862,6 +1276,26 @@ public class ConnectionPool {
 
     }
 
+    /**
+     * Adds the time a returned connection was used to the totals of the pool
+     * and to the request processed by the current thread, if any.
+     * @param con the connection
+     */
+    private void recordUsage(PooledConnection con) {
+        long borrowTime = con.getBorrowTime();
+        if (borrowTime == 0) {
+            return;
+        }
+        long wait = con.getBorrowWaitTime();
+        long hold = System.nanoTime() - borrowTime;
+        long statement = con.getStatementTime();
+        con.returned();
+        borrowWaitTime.addAndGet(wait);
+        holdTime.addAndGet(hold);
+        statementTime.addAndGet(statement);
+        RequestJdbcTime.add(wait, hold, statement);
+    }
+
     /**
      * Determines if a connection should be closed upon return to the pool.
      * @param con - the connection
@@ -881,11 +1315,15 @@ public class ConnectionPool {
     /**
      * Returns a connection to the pool
      * If the pool is closed, the connection will be released
-     * If the connection is not part of the busy queue, it will be released.
+     * If the connection is not marked as in use, it will be released.
      * If {@link PoolProperties#testOnReturn} is set to true it will be validated
      * @param con PooledConnection to be returned to the pool
      */
     protected void returnConnection(PooledConnection con) {
+        if (con != null) {
+            recordUsage(con);
+        }
+
         if (isClosed()) {
             //if the connection pool is closed
             //close the connection instead of returning it
@@ -897,14 +1335,14 @@ public class ConnectionPool {
             try {
                 con.lock();
 
-                if (busy.remove(con)) {
+                if (removeBusy(con)) {
 
                     if (!shouldClose(con,PooledConnection.VALIDATE_RETURN)) {
                         con.setStackTrace(null);
                         con.setTimestamp(System.currentTimeMillis());
-                        if (((idle.size()>=poolProperties.getMaxIdle()) && !poolProperties.isPoolSweeperEnabled()) || (!idle.offer(con))) {
+                        if (((getIdle()>=poolProperties.getMaxIdle()) && !poolProperties.isPoolSweeperEnabled()) || (!offerIdle(con))) {
                             if (log.isDebugEnabled()) {
-                                log.debug("Connection ["+con+"] will be closed and not returned to the pool, idle["+idle.size()+"]>=maxIdle["+poolProperties.getMaxIdle()+"] idle.offer failed.");
+                                log.debug("Connection ["+con+"] will be closed and not returned to the pool, idle["+getIdle()+"]>=maxIdle["+poolProperties.getMaxIdle()+"] idle.offer failed.");
                             }
                             release(con);
                         }
@@ -916,7 +1354,7 @@ public class ConnectionPool {
                     } //end if
                 } else {
                     if (log.isDebugEnabled()) {
-                        log.debug("Connection ["+con+"] will be closed and not returned to the pool, busy.remove failed.");
+                        log.debug("Connection ["+con+"] will be closed and not returned to the pool, connection not in use.");
                     }
                     release(con);
                 }
@@ -933,7 +1371,7 @@ public class ConnectionPool {
      */
     protected boolean shouldAbandon() {
         if (poolProperties.getAbandonWhenPercentageFull()==0) return true;
-        float used = busy.size();
+        float used = getActive();
         float max  = poolProperties.getMaxActive();
         float perc = poolProperties.getAbandonWhenPercentageFull();
         return (used/max*100f)>=perc;
@@ -959,7 +1397,7 @@ public class ConnectionPool {
                     long time = con.getTimestamp();
                     long now = System.currentTimeMillis();
                     if (shouldAbandon() && (now - time) > con.getAbandonTimeout()) {
-                        busy.remove(con);
+                        removeBusy(con);
                         abandon(con);
                         setToNull = true;
                     } else if (sto > 0 && (now - time) > (sto * 1000L)) {
@@ -991,21 +1429,21 @@ public class ConnectionPool {
     public void checkIdle(boolean ignoreMinSize) {
 
         try {
-            if (idle.size()==0) return;
+            if (getIdle()==0) return;
             long now = System.currentTimeMillis();
             Iterator<PooledConnection> unlocked = idle.iterator();
-            while ( (ignoreMinSize || (idle.size()>=getPoolProperties().getMinIdle())) && unlocked.hasNext()) {
+            while ( (ignoreMinSize || (getIdle()>=getPoolProperties().getMinIdle())) && unlocked.hasNext()) {
                 PooledConnection con = unlocked.next();
                 boolean setToNull = false;
                 try {
                     con.lock();
                     //the con been taken out, we can't clean it up
-                    if (busy.contains(con))
+                    if (con.getBusy().get() || isThreadBorrowed(con))
                         continue;
                     long time = con.getTimestamp();
                     if (shouldReleaseIdle(now, con, time)) {
                         release(con);
-                        idle.remove(con);
+                        removeIdle(con);
                         setToNull = true;
                     } else {
                         //do nothing
@@ -1042,10 +1480,10 @@ public class ConnectionPool {
                 try {
                     con.lock();
                     //the con been taken out, we can't clean it up
-                    if (busy.contains(con))
+                    if (con.getBusy().get() || isThreadBorrowed(con))
                         continue;
                     if (!con.validate(PooledConnection.VALIDATE_IDLE)) {
-                        idle.remove(con);
+                        removeIdle(con);
                         release(con);
                     }
                 } finally {
@@ -1060,6 +1498,101 @@ public class ConnectionPool {
 
     }
 
+    /**
+     * Returns true if a connection of the pool was validated successfully
+     * within the {@link PoolConfiguration#getPoolValidationInterval()}.
+     * @param now the current time
+     * @return <code>true</code> if connections don't have to be validated
+     */
+    boolean isRecentlyValidated(long now) {
+        long interval = getPoolProperties().getPoolValidationInterval();
+        return interval > 0 && (now - lastValidated) < interval;
+    }
+
+    /**
+     * Invoked when a borrowed or returned connection was validated successfully.
+     * @param now the time the validation was started
+     */
+    void validationSucceeded(long now) {
+        if (getPoolProperties().getPoolValidationInterval() > 0 && !revalidating.get()) {
+            lastValidated = now;
+        }
+    }
+
+    /**
+     * Invoked when the validation of a borrowed or returned connection failed. If
+     * {@link PoolConfiguration#getPoolValidationInterval()} is set, the pool
+     * is no longer considered healthy and all idle connections are validated
+     * in the background, by at most
+     * {@link PoolConfiguration#getMaxConcurrentCreates()} threads at a time.
+     */
+    void validationFailed() {
+        if (getPoolProperties().getPoolValidationInterval() <= 0) return;
+        lastValidated = 0;
+        if (isClosed() || !revalidating.compareAndSet(false, true)) return;
+        final List<PooledConnection> cons = new ArrayList<>();
+        try {
+            Iterator<PooledConnection> unlocked = idle.iterator();
+            while (unlocked.hasNext()) {
+                cons.add(unlocked.next());
+            }
+        } catch (ConcurrentModificationException e) {
+            log.debug("Unable to list the idle connections to validate." ,e);
+        }
+        if (cons.isEmpty()) {
+            revalidating.set(false);
+            return;
+        }
+        //each task validates connections until none are left
+        int tasks = Math.max(1, Math.min(getPoolProperties().getMaxConcurrentCreates(), cons.size()));
+        final AtomicInteger next = new AtomicInteger(0);
+        final AtomicInteger running = new AtomicInteger(tasks);
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    int i;
+                    while ((i = next.getAndIncrement()) < cons.size()) {
+                        revalidateIdle(cons.get(i));
+                    }
+                } finally {
+                    if (running.decrementAndGet() == 0) {
+                        revalidating.set(false);
+                    }
+                }
+            }
+        };
+        for (int i = 0; i < tasks; i++) {
+            try {
+                getBackgroundExecutor().execute(task);
+            } catch (RejectedExecutionException x) {
+                task.run();
+            }
+        }
+    }
+
+    /**
+     * Validates an idle connection and releases it if it is invalid.
+     * Invoked by a background thread.
+     * @param con the connection
+     */
+    private void revalidateIdle(PooledConnection con) {
+        try {
+            con.lock();
+            //the con been taken out or closed, we can't clean it up
+            if (isClosed() || con.getBusy().get() || isThreadBorrowed(con) || con.isReleased())
+                return;
+            if (!con.revalidate()) {
+                removeIdle(con);
+                release(con);
+            }
+        } catch (Exception e) {
+            log.warn("Validation of an idle connection failed.",e);
+        } finally {
+            con.unlock();
+        }
+    }
+
     /**
      * Creates a stack trace representing the existing thread's current state.
      * @return a string object representing the current state.
@@ -1226,7 +1759,12 @@ public class ConnectionPool {
                 if (result!=null) return result;
                 if (configured.compareAndSet(false, true)) {
                     try {
-                        pc = borrowConnection(System.currentTimeMillis(),pc, null, null);
+                        if (acquireIdle(pc)) {
+                            pc = borrowConnection(System.currentTimeMillis(),pc, null, null);
+                        } else {
+                            //the connection was reclaimed by the thread that returned it
+                            pc = borrowConnection(-1, null, null);
+                        }
                         result = ConnectionPool.this.setupConnection(pc);
                     } catch (SQLException x) {
                         cause = x;
@@ -1279,6 +1817,239 @@ public class ConnectionPool {
 
 
 
+    /**
+     * A request for a connection made by {@link ConnectionPool#getConnectionAsync(Object, CompletionHandler)}.
+     * It waits in the idle queue if no connection is available and is handed
+     * the next connection that is returned to the pool.
+     * @param <A> The type of the attachment
+     */
+    protected class AsyncRequest<A> implements FairBlockingQueue.ItemCallback<PooledConnection>, Runnable {
+        private final A attachment;
+        private final CompletionHandler<Connection,? super A> handler;
+        private final long start = System.currentTimeMillis();
+        private volatile ScheduledFuture<?> timeout = null;
+
+        public AsyncRequest(A attachment, CompletionHandler<Connection,? super A> handler) {
+            this.attachment = attachment;
+            this.handler = handler;
+        }
+
+        /**
+         * Borrows a connection without waiting or queues this request.
+         */
+        protected void borrow() {
+            PooledConnection con;
+            try {
+                con = borrowConnection(0, null, null);
+            } catch (PoolExhaustedException x) {
+                waitcount.incrementAndGet();
+                asyncRequests.add(this);
+                con = ((FairBlockingQueue<PooledConnection>) idle).pollAsync(this);
+                if (con != null) {
+                    //a connection has been returned in the meantime
+                    itemAvailable(con);
+                    return;
+                }
+                long maxWait = getPoolProperties().getMaxWait();
+                if (maxWait > 0) {
+                    long remaining = Math.max(0, maxWait - (System.currentTimeMillis() - start));
+                    timeout = getAsyncTimer().schedule(this, remaining, TimeUnit.MILLISECONDS);
+                }
+                return;
+            } catch (SQLException x) {
+                failed(x);
+                return;
+            }
+            setup(con);
+        }
+
+        /**
+         * Invoked with the connection handed to this request. Either by the
+         * thread returning the connection, which may still hold the lock of
+         * the connection, or, if a connection was returned while this request
+         * was queued, by the thread making the request. The connection is
+         * handed over on a background thread.
+         */
+        @Override
+        public void itemAvailable(final PooledConnection con) {
+            done();
+            getBackgroundExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    handOver(con);
+                }
+            });
+        }
+
+        private void handOver(PooledConnection con) {
+            if (!acquireIdle(con)) {
+                //the connection was reclaimed by the thread that returned it
+                borrow();
+                return;
+            }
+            try {
+                con = borrowConnection(System.currentTimeMillis(), con, null, null);
+            } catch (SQLException x) {
+                failed(x);
+                return;
+            }
+            if (con == null) {
+                borrow();
+            } else {
+                setup(con);
+            }
+        }
+
+        /**
+         * Invoked by the timer once maxWait has expired.
+         */
+        @Override
+        public void run() {
+            long maxWait = getPoolProperties().getMaxWait();
+            if (cancel(new PoolExhaustedException("[" + Thread.currentThread().getName()+"] " +
+                    "Timeout: Pool empty. Unable to fetch a connection in " + (maxWait / 1000) +
+                    " seconds, none available[size:"+size.get() +"; busy:"+getActive()+"; idle:"+idle.size()+"].")) &&
+                    jmxPool!=null) {
+                jmxPool.notify(org.apache.tomcat.jdbc.pool.jmx.ConnectionPool.POOL_EMPTY, "Pool empty - timeout.");
+            }
+        }
+
+        /**
+         * Fails this request if it is still waiting for a connection.
+         * @param cause The exception passed to the handler
+         * @return <code>true</code> if the request was failed
+         */
+        protected boolean cancel(SQLException cause) {
+            if (((FairBlockingQueue<PooledConnection>) idle).removeCallback(this)) {
+                done();
+                failed(cause);
+                return true;
+            }
+            return false;
+        }
+
+        private void done() {
+            ScheduledFuture<?> timeout = this.timeout;
+            if (timeout != null) timeout.cancel(false);
+            if (asyncRequests.remove(this)) waitcount.decrementAndGet();
+        }
+
+        private void setup(PooledConnection con) {
+            Connection result;
+            try {
+                result = setupConnection(con);
+            } catch (SQLException x) {
+                failed(x);
+                return;
+            }
+            completed(result);
+        }
+
+        private void completed(final Connection result) {
+            asyncHandlerExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        handler.completed(result, attachment);
+                    } catch (Throwable t) {
+                        log.error("Asynchronous connection request handler failed.", t);
+                    }
+                }
+            });
+        }
+
+        private void failed(final SQLException x) {
+            asyncHandlerExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        handler.failed(x, attachment);
+                    } catch (Throwable t) {
+                        log.error("Asynchronous connection request handler failed.", t);
+                    }
+                }
+            });
+        }
+    }
+
+    private static volatile ScheduledThreadPoolExecutor asyncTimer = null;
+
+    /**
+     * @return the timer, shared by all pools, that fails asynchronous
+     *         connection requests once they time out
+     */
+    private static ScheduledThreadPoolExecutor getAsyncTimer() {
+        ScheduledThreadPoolExecutor timer = asyncTimer;
+        if (timer == null) {
+            synchronized (ConnectionPool.class) {
+                timer = asyncTimer;
+                if (timer == null) {
+                    timer = new ScheduledThreadPoolExecutor(1, new PoolThreadFactory("Async Timer"));
+                    //the thread stops when no request is waiting
+                    timer.setKeepAliveTime(1000, TimeUnit.MILLISECONDS);
+                    timer.allowCoreThreadTimeOut(true);
+                    timer.setRemoveOnCancelPolicy(true);
+                    asyncTimer = timer;
+                }
+            }
+        }
+        return timer;
+    }
+
+    private static volatile ThreadPoolExecutor backgroundExecutor = null;
+
+    /**
+     * @return the executor, shared by all pools, that opens and validates
+     *         connections in the background. Each pool limits its own number
+     *         of tasks.
+     */
+    private static ThreadPoolExecutor getBackgroundExecutor() {
+        ThreadPoolExecutor executor = backgroundExecutor;
+        if (executor == null) {
+            synchronized (ConnectionPool.class) {
+                executor = backgroundExecutor;
+                if (executor == null) {
+                    //threads stop when no connection is being opened or validated
+                    executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 1000, TimeUnit.MILLISECONDS,
+                            new SynchronousQueue<Runnable>(), new PoolThreadFactory("Background"));
+                    backgroundExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    private static ThreadPoolExecutor createAsyncHandlerExecutor() {
+        int threads = Runtime.getRuntime().availableProcessors();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 1000, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new PoolThreadFactory("Async Handler"));
+        //the threads stop when no handler is being invoked
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Creates the daemon threads of the executors used by the pools.
+     */
+    private static class PoolThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger(0);
+
+        public PoolThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            ClassLoader loader = ConnectionPool.class.getClassLoader();
+            Thread t = new Thread(r, "Tomcat JDBC Pool " + name + "[" + System.identityHashCode(loader) + "-" +
+                    count.incrementAndGet() + "]");
+            t.setDaemon(true);
+            t.setContextClassLoader(loader);
+            return t;
+        }
+    }
+
     private static volatile Timer poolCleanTimer = null;
     private static HashSet<PoolCleaner> cleaners = new HashSet<>();
 
@@ -1351,8 +2122,7 @@ public class ConnectionPool {
                 try {
                     if (pool.getPoolProperties().isRemoveAbandoned())
                         pool.checkAbandoned();
-                    if (pool.getPoolProperties().getMinIdle() < pool.idle
-                            .size())
+                    if (pool.getPoolProperties().getMinIdle() < pool.getIdle())
                         pool.checkIdle();
                     if (pool.getPoolProperties().isTestWhileIdle())
                         pool.testAllIdle();
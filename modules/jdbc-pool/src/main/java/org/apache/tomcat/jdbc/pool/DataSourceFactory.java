@@ -124,6 +124,18 @@ public class DataSourceFactory implements ObjectFactory {
 
     protected static final String PROP_IGNOREEXCEPTIONONPRELOAD = "ignoreExceptionOnPreLoad";
 
+    protected static final String PROP_USETHREADAFFINITY = "useThreadAffinity";
+
+    protected static final String PROP_TRACKBUSYCONNECTIONS = "trackBusyConnections";
+
+    protected static final String PROP_USEDELEGATINGCONNECTION = "useDelegatingConnection";
+
+    protected static final String PROP_IDLEHEADROOM = "idleHeadroom";
+
+    protected static final String PROP_MAXCONCURRENTCREATES = "maxConcurrentCreates";
+
+    protected static final String PROP_POOLVALIDATIONINTERVAL = "poolValidationInterval";
+
     public static final int UNKNOWN_TRANSACTIONISOLATION = -1;
 
     public static final String OBJECT_NAME = "object_name";
@@ -179,7 +191,13 @@ public class DataSourceFactory implements ObjectFactory {
         PROP_USEDISPOSABLECONNECTIONFACADE,
         PROP_LOGVALIDATIONERRORS,
         PROP_PROPAGATEINTERRUPTSTATE,
-        PROP_IGNOREEXCEPTIONONPRELOAD
+        PROP_IGNOREEXCEPTIONONPRELOAD,
+        PROP_USETHREADAFFINITY,
+        PROP_TRACKBUSYCONNECTIONS,
+        PROP_USEDELEGATINGCONNECTION,
+        PROP_IDLEHEADROOM,
+        PROP_MAXCONCURRENTCREATES,
+        PROP_POOLVALIDATIONINTERVAL
     };
 
     // -------------------------------------------------- ObjectFactory Methods
@@ -528,6 +546,36 @@ public class DataSourceFactory implements ObjectFactory {
             poolProperties.setIgnoreExceptionOnPreLoad(Boolean.parseBoolean(value));
         }
 
+        value = properties.getProperty(PROP_USETHREADAFFINITY);
+        if (value != null) {
+            poolProperties.setUseThreadAffinity(Boolean.parseBoolean(value));
+        }
+
+        value = properties.getProperty(PROP_TRACKBUSYCONNECTIONS);
+        if (value != null) {
+            poolProperties.setTrackBusyConnections(Boolean.parseBoolean(value));
+        }
+
+        value = properties.getProperty(PROP_USEDELEGATINGCONNECTION);
+        if (value != null) {
+            poolProperties.setUseDelegatingConnection(Boolean.parseBoolean(value));
+        }
+
+        value = properties.getProperty(PROP_IDLEHEADROOM);
+        if (value != null) {
+            poolProperties.setIdleHeadroom(Integer.parseInt(value));
+        }
+
+        value = properties.getProperty(PROP_MAXCONCURRENTCREATES);
+        if (value != null) {
+            poolProperties.setMaxConcurrentCreates(Integer.parseInt(value));
+        }
+
+        value = properties.getProperty(PROP_POOLVALIDATIONINTERVAL);
+        if (value != null) {
+            poolProperties.setPoolValidationInterval(Long.parseLong(value));
+        }
+
         return poolProperties;
     }
 
@@ -17,6 +17,7 @@
 package org.apache.tomcat.jdbc.pool;
 
 import java.io.PrintWriter;
+import java.nio.channels.CompletionHandler;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
@@ -143,6 +144,21 @@ public class DataSourceProxy implements PoolConfiguration {
         return pool.getConnectionAsync();
     }
 
+    /**
+     * Retrieves a connection without blocking the calling thread.
+     * @param <A> The type of the attachment
+     * @param attachment The object passed to the handler
+     * @param handler The handler that receives the connection or the cause of the failure
+     * @throws SQLException Connection error
+     * @see ConnectionPool#getConnectionAsync(Object, CompletionHandler)
+     */
+    public <A> void getConnectionAsync(A attachment, CompletionHandler<Connection,? super A> handler) throws SQLException {
+        if (pool == null)
+            createPool().getConnectionAsync(attachment, handler);
+        else
+            pool.getConnectionAsync(attachment, handler);
+    }
+
     /**
      * Get a database connection.
      * {@link javax.sql.XADataSource#getXAConnection()}
@@ -731,6 +747,39 @@ public class DataSourceProxy implements PoolConfiguration {
         }
     }
 
+    /**
+     * @return the total time in milliseconds spent waiting for connections
+     */
+    public long getBorrowWaitTime() {
+        try {
+            return createPool().getBorrowWaitTime();
+        }catch (SQLException x) {
+            throw new RuntimeException(x);
+        }
+    }
+
+    /**
+     * @return the total time in milliseconds connections have been held
+     */
+    public long getHoldTime() {
+        try {
+            return createPool().getHoldTime();
+        }catch (SQLException x) {
+            throw new RuntimeException(x);
+        }
+    }
+
+    /**
+     * @return the total time in milliseconds spent executing statements
+     */
+    public long getStatementTime() {
+        try {
+            return createPool().getStatementTime();
+        }catch (SQLException x) {
+            throw new RuntimeException(x);
+        }
+    }
+
     /**
      * @return the current size of the pool
      */
@@ -1362,6 +1411,102 @@ public class DataSourceProxy implements PoolConfiguration {
         getPoolProperties().setIgnoreExceptionOnPreLoad(ignoreExceptionOnPreLoad);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setUseThreadAffinity(boolean useThreadAffinity) {
+        getPoolProperties().setUseThreadAffinity(useThreadAffinity);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean getUseThreadAffinity() {
+        return getPoolProperties().getUseThreadAffinity();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setTrackBusyConnections(boolean trackBusyConnections) {
+        getPoolProperties().setTrackBusyConnections(trackBusyConnections);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean getTrackBusyConnections() {
+        return getPoolProperties().getTrackBusyConnections();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setUseDelegatingConnection(boolean useDelegatingConnection) {
+        getPoolProperties().setUseDelegatingConnection(useDelegatingConnection);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean getUseDelegatingConnection() {
+        return getPoolProperties().getUseDelegatingConnection();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setIdleHeadroom(int idleHeadroom) {
+        getPoolProperties().setIdleHeadroom(idleHeadroom);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getIdleHeadroom() {
+        return getPoolProperties().getIdleHeadroom();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setMaxConcurrentCreates(int maxConcurrentCreates) {
+        getPoolProperties().setMaxConcurrentCreates(maxConcurrentCreates);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getMaxConcurrentCreates() {
+        return getPoolProperties().getMaxConcurrentCreates();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setPoolValidationInterval(long poolValidationInterval) {
+        getPoolProperties().setPoolValidationInterval(poolValidationInterval);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getPoolValidationInterval() {
+        return getPoolProperties().getPoolValidationInterval();
+    }
+
     public void purge()  {
         try {
             createPool().purge();
@@ -0,0 +1,643 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.jdbc.pool;
+
+import java.lang.reflect.Method;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.ClientInfoStatus;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.NClob;
+import java.sql.PreparedStatement;
+import java.sql.SQLClientInfoException;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Struct;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+
+import javax.sql.ConnectionEventListener;
+import javax.sql.StatementEventListener;
+
+/**
+ * A hand written alternative to the {@link java.lang.reflect.Proxy} that the
+ * pool hands out for each borrowed connection. It is used when
+ * {@link PoolConfiguration#getUseDelegatingConnection()} is enabled and the
+ * connection is not an XA connection.
+ * <p>
+ * If no JDBC interceptors are configured, calls are made directly on the
+ * underlying connection. Otherwise calls are passed to the interceptor chain
+ * with {@link Method} instances that are resolved once and shared by all
+ * connections, so interceptors always see the same instance for a given
+ * method.
+ * <p>
+ * A DelegatingConnection is only valid until it is closed, in the same way as
+ * a connection wrapped in a {@link DisposableConnectionFacade}.
+ */
+public class DelegatingConnection implements Connection, javax.sql.PooledConnection {
+
+    private static final Method CREATE_STATEMENT = method("createStatement");
+    private static final Method PREPARE_STATEMENT = method("prepareStatement", String.class);
+    private static final Method PREPARE_CALL = method("prepareCall", String.class);
+    private static final Method NATIVE_SQL = method("nativeSQL", String.class);
+    private static final Method SET_AUTO_COMMIT = method("setAutoCommit", boolean.class);
+    private static final Method GET_AUTO_COMMIT = method("getAutoCommit");
+    private static final Method COMMIT = method("commit");
+    private static final Method ROLLBACK = method("rollback");
+    private static final Method CLOSE = method("close");
+    private static final Method IS_CLOSED = method("isClosed");
+    private static final Method GET_META_DATA = method("getMetaData");
+    private static final Method SET_READ_ONLY = method("setReadOnly", boolean.class);
+    private static final Method IS_READ_ONLY = method("isReadOnly");
+    private static final Method SET_CATALOG = method("setCatalog", String.class);
+    private static final Method GET_CATALOG = method("getCatalog");
+    private static final Method SET_TRANSACTION_ISOLATION = method("setTransactionIsolation", int.class);
+    private static final Method GET_TRANSACTION_ISOLATION = method("getTransactionIsolation");
+    private static final Method GET_WARNINGS = method("getWarnings");
+    private static final Method CLEAR_WARNINGS = method("clearWarnings");
+    private static final Method CREATE_STATEMENT_2 = method("createStatement", int.class, int.class);
+    private static final Method PREPARE_STATEMENT_3 = method("prepareStatement", String.class, int.class, int.class);
+    private static final Method PREPARE_CALL_3 = method("prepareCall", String.class, int.class, int.class);
+    private static final Method GET_TYPE_MAP = method("getTypeMap");
+    private static final Method SET_TYPE_MAP = method("setTypeMap", Map.class);
+    private static final Method SET_HOLDABILITY = method("setHoldability", int.class);
+    private static final Method GET_HOLDABILITY = method("getHoldability");
+    private static final Method SET_SAVEPOINT = method("setSavepoint");
+    private static final Method SET_SAVEPOINT_NAME = method("setSavepoint", String.class);
+    private static final Method ROLLBACK_SAVEPOINT = method("rollback", Savepoint.class);
+    private static final Method RELEASE_SAVEPOINT = method("releaseSavepoint", Savepoint.class);
+    private static final Method CREATE_STATEMENT_3 = method("createStatement", int.class, int.class, int.class);
+    private static final Method PREPARE_STATEMENT_4 = method("prepareStatement", String.class, int.class, int.class, int.class);
+    private static final Method PREPARE_CALL_4 = method("prepareCall", String.class, int.class, int.class, int.class);
+    private static final Method PREPARE_STATEMENT_KEYS = method("prepareStatement", String.class, int.class);
+    private static final Method PREPARE_STATEMENT_INDEXES = method("prepareStatement", String.class, int[].class);
+    private static final Method PREPARE_STATEMENT_NAMES = method("prepareStatement", String.class, String[].class);
+    private static final Method CREATE_CLOB = method("createClob");
+    private static final Method CREATE_BLOB = method("createBlob");
+    private static final Method CREATE_NCLOB = method("createNClob");
+    private static final Method CREATE_SQLXML = method("createSQLXML");
+    private static final Method IS_VALID = method("isValid", int.class);
+    private static final Method SET_CLIENT_INFO = method("setClientInfo", String.class, String.class);
+    private static final Method SET_CLIENT_INFO_PROPERTIES = method("setClientInfo", Properties.class);
+    private static final Method GET_CLIENT_INFO = method("getClientInfo", String.class);
+    private static final Method GET_CLIENT_INFO_PROPERTIES = method("getClientInfo");
+    private static final Method CREATE_ARRAY_OF = method("createArrayOf", String.class, Object[].class);
+    private static final Method CREATE_STRUCT = method("createStruct", String.class, Object[].class);
+    private static final Method SET_SCHEMA = method("setSchema", String.class);
+    private static final Method GET_SCHEMA = method("getSchema");
+    private static final Method ABORT = method("abort", Executor.class);
+    private static final Method SET_NETWORK_TIMEOUT = method("setNetworkTimeout", Executor.class, int.class);
+    private static final Method GET_NETWORK_TIMEOUT = method("getNetworkTimeout");
+    private static final Method UNWRAP = method("unwrap", Class.class);
+    private static final Method IS_WRAPPER_FOR = method("isWrapperFor", Class.class);
+    private static final Method GET_CONNECTION;
+
+    static {
+        try {
+            GET_CONNECTION = javax.sql.PooledConnection.class.getMethod("getConnection");
+        } catch (NoSuchMethodException x) {
+            throw new IllegalStateException(x);
+        }
+    }
+
+    private static Method method(String name, Class<?>... parameterTypes) {
+        try {
+            return Connection.class.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException x) {
+            throw new IllegalStateException(x);
+        }
+    }
+
+    private final ConnectionPool pool;
+
+    /**
+     * The pooled connection, <code>null</code> once this connection is closed
+     */
+    private volatile PooledConnection connection;
+
+    /**
+     * The head of the interceptor chain, <code>null</code> if no interceptors
+     * are configured or once this connection is closed
+     */
+    private volatile JdbcInterceptor handler;
+
+    /**
+     * Creates a connection for a borrowed pooled connection.
+     * @param pool the pool owning the connection
+     * @param connection the pooled connection
+     * @param handler the interceptor chain or <code>null</code> to call the
+     *        underlying connection directly
+     */
+    protected DelegatingConnection(ConnectionPool pool, PooledConnection connection, JdbcInterceptor handler) {
+        this.pool = pool;
+        this.connection = connection;
+        this.handler = handler;
+    }
+
+    private PooledConnection getPooledConnection() throws SQLException {
+        PooledConnection con = connection;
+        if (con == null || con.isDiscarded()) {
+            throw new SQLException("Connection has already been closed.");
+        }
+        return con;
+    }
+
+    private Connection getDelegate() throws SQLException {
+        return getPooledConnection().getConnection();
+    }
+
+    private Object invoke(Method method, Object[] args) throws SQLException {
+        JdbcInterceptor next = handler;
+        if (next == null) {
+            throw new SQLException("PooledConnection has already been closed.");
+        }
+        try {
+            return next.invoke(this, method, args);
+        } catch (SQLException | RuntimeException | Error x) {
+            throw x;
+        } catch (Throwable t) {
+            throw new SQLException(t);
+        }
+    }
+
+    private static SQLClientInfoException toClientInfoException(SQLException x) {
+        if (x instanceof SQLClientInfoException) {
+            return (SQLClientInfoException) x;
+        }
+        return new SQLClientInfoException(x.getMessage(), x.getSQLState(), x.getErrorCode(),
+                Collections.<String,ClientInfoStatus>emptyMap(), x);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (handler != null) {
+            try {
+                invoke(CLOSE, null);
+            } finally {
+                handler = null;
+                connection = null;
+            }
+            return;
+        }
+        PooledConnection con = connection;
+        if (con == null) return; //noop for already closed.
+        connection = null;
+        pool.returnConnection(con);
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        if (handler != null) return ((Boolean) invoke(IS_CLOSED, null)).booleanValue();
+        PooledConnection con = connection;
+        return con == null || con.isDiscarded();
+    }
+
+    @Override
+    public boolean isValid(int timeout) throws SQLException {
+        if (handler != null) return ((Boolean) invoke(IS_VALID, new Object[] {Integer.valueOf(timeout)})).booleanValue();
+        if (connection == null) return false;
+        return getDelegate().isValid(timeout);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (handler != null) return (T) invoke(UNWRAP, new Object[] {iface});
+        PooledConnection con = getPooledConnection();
+        if (iface == PooledConnection.class) {
+            return (T) con;
+        } else if (iface.isInstance(con.getConnection())) {
+            return iface.cast(con.getConnection());
+        } else {
+            throw new SQLException("Not a wrapper of "+iface.getName());
+        }
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        if (handler != null) return ((Boolean) invoke(IS_WRAPPER_FOR, new Object[] {iface})).booleanValue();
+        return iface.isInstance(getDelegate());
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (handler != null) return (Connection) invoke(GET_CONNECTION, null);
+        return getDelegate();
+    }
+
+    @Override
+    public void addConnectionEventListener(ConnectionEventListener listener) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeConnectionEventListener(ConnectionEventListener listener) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void addStatementEventListener(StatementEventListener listener) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeStatementEventListener(StatementEventListener listener) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String toString() {
+        PooledConnection con = connection;
+        return "DelegatingConnection["+(con!=null?con.toString():"null")+"]";
+    }
+
+    @Override
+    public Statement createStatement() throws SQLException {
+        if (handler != null) return (Statement) invoke(CREATE_STATEMENT, null);
+        return getDelegate().createStatement();
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        if (handler != null) return (PreparedStatement) invoke(PREPARE_STATEMENT, new Object[] {sql});
+        return getDelegate().prepareStatement(sql);
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql) throws SQLException {
+        if (handler != null) return (CallableStatement) invoke(PREPARE_CALL, new Object[] {sql});
+        return getDelegate().prepareCall(sql);
+    }
+
+    @Override
+    public String nativeSQL(String sql) throws SQLException {
+        if (handler != null) return (String) invoke(NATIVE_SQL, new Object[] {sql});
+        return getDelegate().nativeSQL(sql);
+    }
+
+    @Override
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+        if (handler != null) {
+            invoke(SET_AUTO_COMMIT, new Object[] {Boolean.valueOf(autoCommit)});
+            return;
+        }
+        getDelegate().setAutoCommit(autoCommit);
+    }
+
+    @Override
+    public boolean getAutoCommit() throws SQLException {
+        if (handler != null) return ((Boolean) invoke(GET_AUTO_COMMIT, null)).booleanValue();
+        return getDelegate().getAutoCommit();
+    }
+
+    @Override
+    public void commit() throws SQLException {
+        if (handler != null) {
+            invoke(COMMIT, null);
+            return;
+        }
+        getDelegate().commit();
+    }
+
+    @Override
+    public void rollback() throws SQLException {
+        if (handler != null) {
+            invoke(ROLLBACK, null);
+            return;
+        }
+        getDelegate().rollback();
+    }
+
+    @Override
+    public DatabaseMetaData getMetaData() throws SQLException {
+        if (handler != null) return (DatabaseMetaData) invoke(GET_META_DATA, null);
+        return getDelegate().getMetaData();
+    }
+
+    @Override
+    public void setReadOnly(boolean readOnly) throws SQLException {
+        if (handler != null) {
+            invoke(SET_READ_ONLY, new Object[] {Boolean.valueOf(readOnly)});
+            return;
+        }
+        getDelegate().setReadOnly(readOnly);
+    }
+
+    @Override
+    public boolean isReadOnly() throws SQLException {
+        if (handler != null) return ((Boolean) invoke(IS_READ_ONLY, null)).booleanValue();
+        return getDelegate().isReadOnly();
+    }
+
+    @Override
+    public void setCatalog(String catalog) throws SQLException {
+        if (handler != null) {
+            invoke(SET_CATALOG, new Object[] {catalog});
+            return;
+        }
+        getDelegate().setCatalog(catalog);
+    }
+
+    @Override
+    public String getCatalog() throws SQLException {
+        if (handler != null) return (String) invoke(GET_CATALOG, null);
+        return getDelegate().getCatalog();
+    }
+
+    @Override
+    public void setTransactionIsolation(int level) throws SQLException {
+        if (handler != null) {
+            invoke(SET_TRANSACTION_ISOLATION, new Object[] {Integer.valueOf(level)});
+            return;
+        }
+        getDelegate().setTransactionIsolation(level);
+    }
+
+    @Override
+    public int getTransactionIsolation() throws SQLException {
+        if (handler != null) return ((Integer) invoke(GET_TRANSACTION_ISOLATION, null)).intValue();
+        return getDelegate().getTransactionIsolation();
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        if (handler != null) return (SQLWarning) invoke(GET_WARNINGS, null);
+        return getDelegate().getWarnings();
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+        if (handler != null) {
+            invoke(CLEAR_WARNINGS, null);
+            return;
+        }
+        getDelegate().clearWarnings();
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+        if (handler != null) return (Statement) invoke(CREATE_STATEMENT_2,
+                new Object[] {Integer.valueOf(resultSetType), Integer.valueOf(resultSetConcurrency)});
+        return getDelegate().createStatement(resultSetType, resultSetConcurrency);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency)
+            throws SQLException {
+        if (handler != null) return (PreparedStatement) invoke(PREPARE_STATEMENT_3,
+                new Object[] {sql, Integer.valueOf(resultSetType), Integer.valueOf(resultSetConcurrency)});
+        return getDelegate().prepareStatement(sql, resultSetType, resultSetConcurrency);
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency)
+            throws SQLException {
+        if (handler != null) return (CallableStatement) invoke(PREPARE_CALL_3,
+                new Object[] {sql, Integer.valueOf(resultSetType), Integer.valueOf(resultSetConcurrency)});
+        return getDelegate().prepareCall(sql, resultSetType, resultSetConcurrency);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String,Class<?>> getTypeMap() throws SQLException {
+        if (handler != null) return (Map<String,Class<?>>) invoke(GET_TYPE_MAP, null);
+        return getDelegate().getTypeMap();
+    }
+
+    @Override
+    public void setTypeMap(Map<String,Class<?>> map) throws SQLException {
+        if (handler != null) {
+            invoke(SET_TYPE_MAP, new Object[] {map});
+            return;
+        }
+        getDelegate().setTypeMap(map);
+    }
+
+    @Override
+    public void setHoldability(int holdability) throws SQLException {
+        if (handler != null) {
+            invoke(SET_HOLDABILITY, new Object[] {Integer.valueOf(holdability)});
+            return;
+        }
+        getDelegate().setHoldability(holdability);
+    }
+
+    @Override
+    public int getHoldability() throws SQLException {
+        if (handler != null) return ((Integer) invoke(GET_HOLDABILITY, null)).intValue();
+        return getDelegate().getHoldability();
+    }
+
+    @Override
+    public Savepoint setSavepoint() throws SQLException {
+        if (handler != null) return (Savepoint) invoke(SET_SAVEPOINT, null);
+        return getDelegate().setSavepoint();
+    }
+
+    @Override
+    public Savepoint setSavepoint(String name) throws SQLException {
+        if (handler != null) return (Savepoint) invoke(SET_SAVEPOINT_NAME, new Object[] {name});
+        return getDelegate().setSavepoint(name);
+    }
+
+    @Override
+    public void rollback(Savepoint savepoint) throws SQLException {
+        if (handler != null) {
+            invoke(ROLLBACK_SAVEPOINT, new Object[] {savepoint});
+            return;
+        }
+        getDelegate().rollback(savepoint);
+    }
+
+    @Override
+    public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+        if (handler != null) {
+            invoke(RELEASE_SAVEPOINT, new Object[] {savepoint});
+            return;
+        }
+        getDelegate().releaseSavepoint(savepoint);
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability)
+            throws SQLException {
+        if (handler != null) return (Statement) invoke(CREATE_STATEMENT_3,
+                new Object[] {Integer.valueOf(resultSetType), Integer.valueOf(resultSetConcurrency),
+                        Integer.valueOf(resultSetHoldability)});
+        return getDelegate().createStatement(resultSetType, resultSetConcurrency, resultSetHoldability);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency,
+            int resultSetHoldability) throws SQLException {
+        if (handler != null) return (PreparedStatement) invoke(PREPARE_STATEMENT_4,
+                new Object[] {sql, Integer.valueOf(resultSetType), Integer.valueOf(resultSetConcurrency),
+                        Integer.valueOf(resultSetHoldability)});
+        return getDelegate().prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency,
+            int resultSetHoldability) throws SQLException {
+        if (handler != null) return (CallableStatement) invoke(PREPARE_CALL_4,
+                new Object[] {sql, Integer.valueOf(resultSetType), Integer.valueOf(resultSetConcurrency),
+                        Integer.valueOf(resultSetHoldability)});
+        return getDelegate().prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+        if (handler != null) return (PreparedStatement) invoke(PREPARE_STATEMENT_KEYS,
+                new Object[] {sql, Integer.valueOf(autoGeneratedKeys)});
+        return getDelegate().prepareStatement(sql, autoGeneratedKeys);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+        if (handler != null) return (PreparedStatement) invoke(PREPARE_STATEMENT_INDEXES,
+                new Object[] {sql, columnIndexes});
+        return getDelegate().prepareStatement(sql, columnIndexes);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+        if (handler != null) return (PreparedStatement) invoke(PREPARE_STATEMENT_NAMES,
+                new Object[] {sql, columnNames});
+        return getDelegate().prepareStatement(sql, columnNames);
+    }
+
+    @Override
+    public Clob createClob() throws SQLException {
+        if (handler != null) return (Clob) invoke(CREATE_CLOB, null);
+        return getDelegate().createClob();
+    }
+
+    @Override
+    public Blob createBlob() throws SQLException {
+        if (handler != null) return (Blob) invoke(CREATE_BLOB, null);
+        return getDelegate().createBlob();
+    }
+
+    @Override
+    public NClob createNClob() throws SQLException {
+        if (handler != null) return (NClob) invoke(CREATE_NCLOB, null);
+        return getDelegate().createNClob();
+    }
+
+    @Override
+    public SQLXML createSQLXML() throws SQLException {
+        if (handler != null) return (SQLXML) invoke(CREATE_SQLXML, null);
+        return getDelegate().createSQLXML();
+    }
+
+    @Override
+    public void setClientInfo(String name, String value) throws SQLClientInfoException {
+        try {
+            if (handler != null) {
+                invoke(SET_CLIENT_INFO, new Object[] {name, value});
+                return;
+            }
+            getDelegate().setClientInfo(name, value);
+        } catch (SQLException x) {
+            throw toClientInfoException(x);
+        }
+    }
+
+    @Override
+    public void setClientInfo(Properties properties) throws SQLClientInfoException {
+        try {
+            if (handler != null) {
+                invoke(SET_CLIENT_INFO_PROPERTIES, new Object[] {properties});
+                return;
+            }
+            getDelegate().setClientInfo(properties);
+        } catch (SQLException x) {
+            throw toClientInfoException(x);
+        }
+    }
+
+    @Override
+    public String getClientInfo(String name) throws SQLException {
+        if (handler != null) return (String) invoke(GET_CLIENT_INFO, new Object[] {name});
+        return getDelegate().getClientInfo(name);
+    }
+
+    @Override
+    public Properties getClientInfo() throws SQLException {
+        if (handler != null) return (Properties) invoke(GET_CLIENT_INFO_PROPERTIES, null);
+        return getDelegate().getClientInfo();
+    }
+
+    @Override
+    public Array createArrayOf(String typeName, Object[] elements) throws SQLException {
+        if (handler != null) return (Array) invoke(CREATE_ARRAY_OF, new Object[] {typeName, elements});
+        return getDelegate().createArrayOf(typeName, elements);
+    }
+
+    @Override
+    public Struct createStruct(String typeName, Object[] attributes) throws SQLException {
+        if (handler != null) return (Struct) invoke(CREATE_STRUCT, new Object[] {typeName, attributes});
+        return getDelegate().createStruct(typeName, attributes);
+    }
+
+    @Override
+    public void setSchema(String schema) throws SQLException {
+        if (handler != null) {
+            invoke(SET_SCHEMA, new Object[] {schema});
+            return;
+        }
+        getDelegate().setSchema(schema);
+    }
+
+    @Override
+    public String getSchema() throws SQLException {
+        if (handler != null) return (String) invoke(GET_SCHEMA, null);
+        return getDelegate().getSchema();
+    }
+
+    @Override
+    public void abort(Executor executor) throws SQLException {
+        if (handler != null) {
+            invoke(ABORT, new Object[] {executor});
+            return;
+        }
+        getDelegate().abort(executor);
+    }
+
+    @Override
+    public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+        if (handler != null) {
+            invoke(SET_NETWORK_TIMEOUT, new Object[] {executor, Integer.valueOf(milliseconds)});
+            return;
+        }
+        getDelegate().setNetworkTimeout(executor, milliseconds);
+    }
+
+    @Override
+    public int getNetworkTimeout() throws SQLException {
+        if (handler != null) return ((Integer) invoke(GET_NETWORK_TIMEOUT, null)).intValue();
+        return getDelegate().getNetworkTimeout();
+    }
+}
@@ -111,6 +111,8 @@ public class FairBlockingQueue<E> implements BlockingQueue<E> {
         }
         //if we exchanged an object with another thread, wake it up.
         if (!isLinux && c!=null) c.countDown();
+        //asynchronous waiters are notified on this thread
+        if (c instanceof FairBlockingQueue.CallbackExchange) ((CallbackExchange) c).notifyCallback();
         //we have an unbounded queue, so always return true
         return true;
     }
@@ -216,6 +218,53 @@ public class FairBlockingQueue<E> implements BlockingQueue<E> {
         return result;
     }
 
+    /**
+     * Request an item from the queue without blocking. If the queue is empty
+     * the callback is added to the waiters and will be invoked, once the
+     * queue lock has been released, by the thread that offers the next item.
+     * @param callback - the callback to notify when an item becomes available
+     * @return - an item if one was available, in which case the callback is not
+     *           registered, or <code>null</code>
+     */
+    public E pollAsync(ItemCallback<E> callback) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            E item = items.poll();
+            if (item==null) {
+                waiters.addLast(new CallbackExchange(callback));
+            }
+            return item;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a callback registered by {@link #pollAsync(ItemCallback)}
+     * @param callback - the callback to remove
+     * @return - <code>true</code> if the callback was still waiting and will
+     *           not be invoked, <code>false</code> if it has been or is being
+     *           handed an item
+     */
+    public boolean removeCallback(ItemCallback<E> callback) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Iterator<ExchangeCountDownLatch<E>> it = waiters.iterator();
+            while (it.hasNext()) {
+                ExchangeCountDownLatch<E> c = it.next();
+                if (c instanceof FairBlockingQueue.CallbackExchange && ((CallbackExchange) c).callback==callback) {
+                    it.remove();
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -508,6 +557,31 @@ public class FairBlockingQueue<E> implements BlockingQueue<E> {
         }
     }
 
+    /**
+     * Receives the item requested by {@link FairBlockingQueue#pollAsync(ItemCallback)}.
+     * @param <E> Type of element in the queue
+     */
+    public interface ItemCallback<E> {
+        /**
+         * Invoked by the thread that offered the item, after the queue lock
+         * has been released. The offering thread may hold other locks, so
+         * the item should be processed on another thread.
+         * @param item - the item
+         */
+        public void itemAvailable(E item);
+    }
+
+    protected class CallbackExchange extends ExchangeCountDownLatch<E> {
+        protected final ItemCallback<E> callback;
+        public CallbackExchange(ItemCallback<E> callback) {
+            super(1);
+            this.callback = callback;
+        }
+        public void notifyCallback() {
+            callback.itemAvailable(getItem());
+        }
+    }
+
     //------------------------------------------------------------------
     // Iterator safe from concurrent modification exceptions
     //------------------------------------------------------------------
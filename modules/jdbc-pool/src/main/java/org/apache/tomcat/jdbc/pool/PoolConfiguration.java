@@ -409,7 +409,7 @@ public interface PoolConfiguration {
     /**
      * The indication of whether objects will be validated before being borrowed from the pool.
      * If the object fails to validate, it will be dropped from the pool, and we will attempt to borrow another.
-     * NOTE - for a true value to have any effect, the validationQuery parameter must be set to a non-null string.
+     * NOTE - if the validationQuery parameter is null and no validator is set, {@link java.sql.Connection#isValid(int)} is used.
      * Default value is false
      * In order to have a more efficient validation, see {@link #setValidationInterval(long)}
      * @return true if the connection is to be validated upon borrowing a connection from the pool
@@ -420,7 +420,7 @@ public interface PoolConfiguration {
     /**
      * The indication of whether objects will be validated before being borrowed from the pool.
      * If the object fails to validate, it will be dropped from the pool, and we will attempt to borrow another.
-     * NOTE - for a true value to have any effect, the validationQuery parameter must be set to a non-null string.
+     * NOTE - if the validationQuery parameter is null and no validator is set, {@link java.sql.Connection#isValid(int)} is used.
      * Default value is false
      * In order to have a more efficient validation, see {@link #setValidationInterval(long)}
      * @param testOnBorrow set to true if validation should take place before a connection is handed out to the application
@@ -431,7 +431,7 @@ public interface PoolConfiguration {
     /**
      * The indication of whether objects will be validated after being returned to the pool.
      * If the object fails to validate, it will be dropped from the pool.
-     * NOTE - for a true value to have any effect, the validationQuery parameter must be set to a non-null string.
+     * NOTE - if the validationQuery parameter is null and no validator is set, {@link java.sql.Connection#isValid(int)} is used.
      * Default value is false
      * In order to have a more efficient validation, see {@link #setValidationInterval(long)}
      * @return true if validation should take place after a connection is returned to the pool
@@ -442,7 +442,7 @@ public interface PoolConfiguration {
     /**
      * The indication of whether objects will be validated after being returned to the pool.
      * If the object fails to validate, it will be dropped from the pool.
-     * NOTE - for a true value to have any effect, the validationQuery parameter must be set to a non-null string.
+     * NOTE - if the validationQuery parameter is null and no validator is set, {@link java.sql.Connection#isValid(int)} is used.
      * Default value is false
      * In order to have a more efficient validation, see {@link #setValidationInterval(long)}
      * @param testOnReturn true if validation should take place after a connection is returned to the pool
@@ -519,7 +519,9 @@ public interface PoolConfiguration {
      * Example values are SELECT 1(mysql),
      * select 1 from dual(oracle),
      * SELECT 1(MS Sql Server)
-     * @param validationQuery the query used for validation or null if no validation is performed
+     * If null and no validator is set, connections are validated with
+     * {@link java.sql.Connection#isValid(int)}.
+     * @param validationQuery the query used for validation or null to validate with isValid
      */
     public void setValidationQuery(String validationQuery);
 
@@ -894,4 +896,95 @@ public interface PoolConfiguration {
      */
     public boolean isIgnoreExceptionOnPreLoad();
 
+    /**
+     * Set to true if a thread should first try to borrow the connection it returned most recently.
+     * The connection is reclaimed without going through the idle queue, unless another thread
+     * has borrowed it in the meantime, in which case the idle queue is used as usual.
+     * This setting only takes effect when the pool is created.
+     * @param useThreadAffinity set to true to enable the thread affinity fast path when borrowing connections
+     */
+    public void setUseThreadAffinity(boolean useThreadAffinity);
+
+    /**
+     * Returns true if a thread first tries to borrow the connection it returned most recently.
+     * @return true if the thread affinity fast path is used when borrowing connections
+     */
+    public boolean getUseThreadAffinity();
+
+    /**
+     * Set to false to avoid keeping the connections that are in use in a queue when they are borrowed and returned.
+     * The queue is only needed to find abandoned and suspect connections and to close the connections in use
+     * when the pool is closed. It is always maintained if {@link #isRemoveAbandoned()} is true or
+     * {@link #getSuspectTimeout()} is greater than zero.
+     * @param trackBusyConnections set to false to disable the tracking of busy connections
+     */
+    public void setTrackBusyConnections(boolean trackBusyConnections);
+
+    /**
+     * Returns true if the connections that are in use are kept in a queue.
+     * @return true if busy connections are tracked
+     */
+    public boolean getTrackBusyConnections();
+
+    /**
+     * Set to true to return a {@link DelegatingConnection} instead of a {@link java.lang.reflect.Proxy} for
+     * connections that are not XA connections. Without JDBC interceptors, calls are passed directly to the
+     * underlying connection. With interceptors, calls are passed to the interceptor chain with shared,
+     * pre-resolved {@link java.lang.reflect.Method} instances.
+     * The returned connections always behave as if {@link #setUseDisposableConnectionFacade(boolean)} was enabled.
+     * @param useDelegatingConnection set to true to wrap connections in a DelegatingConnection
+     */
+    public void setUseDelegatingConnection(boolean useDelegatingConnection);
+
+    /**
+     * Returns true if connections are wrapped in a {@link DelegatingConnection} instead of a reflection proxy.
+     * @return true if connections are wrapped in a DelegatingConnection
+     */
+    public boolean getUseDelegatingConnection();
+
+    /**
+     * The number of idle connections the pool tries to keep available ahead of demand.
+     * When a borrow leaves fewer idle connections, new connections are opened in the background,
+     * so that a burst of requests doesn't have to wait for connections to be established.
+     * The number is raised when the borrow rate would use up the headroom before a new connection
+     * can be opened, up to {@link #getMaxIdle()}. The default value is 0, which disables background creation.
+     * @param idleHeadroom the number of idle connections to keep available
+     */
+    public void setIdleHeadroom(int idleHeadroom);
+
+    /**
+     * Returns the number of idle connections the pool tries to keep available ahead of demand.
+     * @return the number of idle connections to keep available, 0 if connections are not created in the background
+     */
+    public int getIdleHeadroom();
+
+    /**
+     * The maximum number of connections that are opened in the background at the same time
+     * to maintain the {@link #getIdleHeadroom()}.
+     * @param maxConcurrentCreates the maximum number of connections opened in parallel
+     */
+    public void setMaxConcurrentCreates(int maxConcurrentCreates);
+
+    /**
+     * Returns the maximum number of connections that are opened in the background at the same time.
+     * @return the maximum number of connections opened in parallel
+     */
+    public int getMaxConcurrentCreates();
+
+    /**
+     * Avoid validating every connection separately: once any connection of the pool has been validated
+     * successfully, connections are not validated on borrow or on return for this many milliseconds.
+     * When a validation fails, the idle connections are validated concurrently in the background so that
+     * connections to a database that went away are discarded quickly. Idle and initial validations are not
+     * affected. The default value is 0, which validates every connection separately.
+     * @param poolValidationInterval the time in milliseconds the pool is considered healthy after a successful validation
+     */
+    public void setPoolValidationInterval(long poolValidationInterval);
+
+    /**
+     * Returns the time in milliseconds the pool is considered healthy after a successful validation.
+     * @return the time in milliseconds the pool is considered healthy after a successful validation, 0 if disabled
+     */
+    public long getPoolValidationInterval();
+
 }
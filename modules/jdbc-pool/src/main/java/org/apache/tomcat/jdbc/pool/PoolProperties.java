@@ -89,6 +89,12 @@ public class PoolProperties implements PoolConfiguration, Cloneable, Serializabl
     private volatile boolean logValidationErrors = false;
     private volatile boolean propagateInterruptState = false;
     private volatile boolean ignoreExceptionOnPreLoad = false;
+    private volatile long poolValidationInterval = 0;
+    private volatile int maxConcurrentCreates = 2;
+    private volatile int idleHeadroom = 0;
+    private volatile boolean useDelegatingConnection = false;
+    private volatile boolean trackBusyConnections = true;
+    private volatile boolean useThreadAffinity = false;
 
     /**
      * {@inheritDoc}
@@ -1301,6 +1307,102 @@ public class PoolProperties implements PoolConfiguration, Cloneable, Serializabl
         this.ignoreExceptionOnPreLoad = ignoreExceptionOnPreLoad;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setUseThreadAffinity(boolean useThreadAffinity) {
+        this.useThreadAffinity = useThreadAffinity;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean getUseThreadAffinity() {
+        return useThreadAffinity;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setTrackBusyConnections(boolean trackBusyConnections) {
+        this.trackBusyConnections = trackBusyConnections;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean getTrackBusyConnections() {
+        return trackBusyConnections;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setUseDelegatingConnection(boolean useDelegatingConnection) {
+        this.useDelegatingConnection = useDelegatingConnection;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean getUseDelegatingConnection() {
+        return useDelegatingConnection;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setIdleHeadroom(int idleHeadroom) {
+        this.idleHeadroom = idleHeadroom;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getIdleHeadroom() {
+        return idleHeadroom;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setMaxConcurrentCreates(int maxConcurrentCreates) {
+        this.maxConcurrentCreates = maxConcurrentCreates;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getMaxConcurrentCreates() {
+        return maxConcurrentCreates;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setPoolValidationInterval(long poolValidationInterval) {
+        this.poolValidationInterval = poolValidationInterval;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getPoolValidationInterval() {
+        return poolValidationInterval;
+    }
+
     @Override
     protected Object clone() throws CloneNotSupportedException {
         // TODO Auto-generated method stub
@@ -23,6 +23,8 @@ import java.sql.Statement;
 import java.util.HashMap;
 import java.util.Properties;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.juli.logging.Log;
@@ -60,6 +62,13 @@ public class PooledConnection {
      * Validate when connection is initialized flag
      */
     public static final int VALIDATE_INIT = 4;
+
+    /**
+     * Timeout in seconds of {@link java.sql.Connection#isValid(int)} if no
+     * validation query timeout is set, so that a validation never waits
+     * indefinitely.
+     */
+    static final int DEFAULT_IS_VALID_TIMEOUT = 5;
     /**
      * The properties for the connection pool
      */
@@ -117,6 +126,35 @@ public class PooledConnection {
 
     private volatile boolean suspect = false;
 
+    /**
+     * Set in {@link #affinityState} while the connection is borrowed by a
+     * thread. Only used if {@link PoolConfiguration#getUseThreadAffinity()}
+     * returns true.
+     */
+    static final int AFFINITY_IN_USE = 1;
+    /**
+     * Set in {@link #affinityState} while the idle queue holds an entry for
+     * the connection. The entry remains in the queue if the connection is
+     * reclaimed by the thread that returned it.
+     */
+    static final int AFFINITY_QUEUED = 2;
+
+    private final AtomicInteger affinityState = new AtomicInteger(0);
+
+    /**
+     * Set while the connection is borrowed, whether or not it is tracked in
+     * the busy queue of the pool.
+     */
+    private final AtomicBoolean busy = new AtomicBoolean(false);
+
+    /**
+     * Time in nanoseconds spent waiting for, holding and executing statements
+     * on the connection since it was last borrowed.
+     */
+    private volatile long borrowWaitTime = 0;
+    private volatile long borrowTime = 0;
+    private final AtomicLong statementTime = new AtomicLong(0);
+
     private java.sql.Driver driver = null;
 
     /**
@@ -475,9 +513,54 @@ public class PooledConnection {
             return true;
         }
 
+        //or if another connection of the pool has
+        if ((validateAction == VALIDATE_BORROW || validateAction == VALIDATE_RETURN) &&
+            parent.isRecentlyValidated(now)) {
+            return true;
+        }
+
+        //only validations of borrowed and returned connections affect the
+        //validations of the other connections
+        boolean inUse = validateAction == VALIDATE_BORROW || validateAction == VALIDATE_RETURN;
+        if (executeValidation(validateAction, sql)) {
+            this.lastValidated = now;
+            if (inUse) parent.validationSucceeded(now);
+            return true;
+        } else {
+            if (inUse) parent.validationFailed();
+            return false;
+        }
+    } //validate
+
+    /**
+     * Validates the connection regardless of the configured test flags and
+     * validation intervals. Used by the pool to validate its idle connections
+     * once a validation failed.
+     * @return <code>true</code> if the connection is valid
+     */
+    boolean revalidate() {
+        if (this.isDiscarded()) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        if (executeValidation(VALIDATE_IDLE, null)) {
+            this.lastValidated = now;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Validates the connection with the configured validator, the given SQL,
+     * the init SQL or the validation query. If none is configured,
+     * {@link java.sql.Connection#isValid(int)} is used.
+     * @param validateAction the validation action
+     * @param sql the SQL to be used during validation
+     * @return <code>true</code> if the connection is valid
+     */
+    private boolean executeValidation(int validateAction, String sql) {
         if (poolProperties.getValidator() != null) {
             if (poolProperties.getValidator().validate(connection, validateAction)) {
-                this.lastValidated = now;
                 return true;
             } else {
                 if (getPoolProperties().getLogValidationErrors()) {
@@ -497,18 +580,36 @@ public class PooledConnection {
             query = poolProperties.getValidationQuery();
         }
 
+        int validationQueryTimeout = poolProperties.getValidationQueryTimeout();
+
+        if (query == null) {
+            try {
+                if (connection.isValid(validationQueryTimeout > 0 ? validationQueryTimeout : DEFAULT_IS_VALID_TIMEOUT)) {
+                    return true;
+                }
+                if (getPoolProperties().getLogValidationErrors()) {
+                    log.error("Validation through Connection.isValid() failed.");
+                }
+            } catch (Exception ex) {
+                if (getPoolProperties().getLogValidationErrors()) {
+                    log.warn("Connection.isValid() validation error", ex);
+                } else if (log.isDebugEnabled()) {
+                    log.debug("Unable to validate object:",ex);
+                }
+            }
+            return false;
+        }
+
         Statement stmt = null;
         try {
             stmt = connection.createStatement();
 
-            int validationQueryTimeout = poolProperties.getValidationQueryTimeout();
             if (validationQueryTimeout > 0) {
                 stmt.setQueryTimeout(validationQueryTimeout);
             }
 
             stmt.execute(query);
             stmt.close();
-            this.lastValidated = now;
             return true;
         } catch (Exception ex) {
             if (getPoolProperties().getLogValidationErrors()) {
@@ -520,7 +621,7 @@ public class PooledConnection {
                 try { stmt.close();} catch (Exception ignore2){/*NOOP*/}
         }
         return false;
-    } //validate
+    }
 
     /**
      * The time limit for how long the object
@@ -738,4 +839,76 @@ public class PooledConnection {
         return attributes;
     }
 
+    /**
+     * Returns the state used by the pool to hand this connection to threads
+     * without using the idle queue.
+     * @return the combination of the <code>AFFINITY_</code> flags
+     */
+    AtomicInteger getAffinityState() {
+        return affinityState;
+    }
+
+    /**
+     * Returns the flag used by the pool to mark this connection as borrowed.
+     * @return the flag that is set while the connection is in use
+     */
+    AtomicBoolean getBusy() {
+        return busy;
+    }
+
+    /**
+     * Adds to the time spent executing statements on this connection since it
+     * was borrowed. Used by interceptors that time statements, such as
+     * {@link org.apache.tomcat.jdbc.pool.interceptor.StatementTimeInterceptor}.
+     * @param nanos the execution time in nanoseconds
+     */
+    public void addStatementTime(long nanos) {
+        statementTime.addAndGet(nanos);
+    }
+
+    /**
+     * @return the time in nanoseconds spent executing statements on this
+     *         connection since it was borrowed
+     */
+    public long getStatementTime() {
+        return statementTime.get();
+    }
+
+    /**
+     * @return the time in nanoseconds the borrower of this connection waited
+     *         for it
+     */
+    public long getBorrowWaitTime() {
+        return borrowWaitTime;
+    }
+
+    void setBorrowWaitTime(long borrowWaitTime) {
+        this.borrowWaitTime = borrowWaitTime;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} the connection was handed out
+     *         at, 0 if it is not in use
+     */
+    long getBorrowTime() {
+        return borrowTime;
+    }
+
+    /**
+     * Starts tracking the use of the connection, once it is handed out.
+     * @param borrowTime the current {@link System#nanoTime()}
+     */
+    void borrowed(long borrowTime) {
+        this.borrowTime = borrowTime;
+        statementTime.set(0);
+    }
+
+    /**
+     * Stops tracking the use of the connection, once it is returned.
+     */
+    void returned() {
+        borrowTime = 0;
+        borrowWaitTime = 0;
+    }
+
 }
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.jdbc.pool;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+
+/**
+ * Attributes the time spent using connections to the request processed by the
+ * current thread, when the pool runs inside Tomcat. The pool doesn't depend on
+ * Tomcat, so the method that records the time is looked up once as a method
+ * handle.
+ */
+final class RequestJdbcTime {
+
+    private static final Log log = LogFactory.getLog(RequestJdbcTime.class);
+
+    private static final MethodHandle addCurrentJdbcTime;
+
+    static {
+        MethodHandle m = null;
+        try {
+            Class<?> clazz = Class.forName("org.apache.coyote.RequestInfo", false,
+                    RequestJdbcTime.class.getClassLoader());
+            m = MethodHandles.publicLookup().findStatic(clazz, "addCurrentJdbcTime",
+                    MethodType.methodType(void.class, long.class, long.class, long.class));
+        } catch (ReflectiveOperationException | LinkageError x) {
+            //not running inside Tomcat
+        }
+        addCurrentJdbcTime = m;
+    }
+
+    private RequestJdbcTime() {
+        // Hide the default constructor
+    }
+
+    /**
+     * Adds the time spent using a connection to the current request, if any.
+     * @param waitTime the time in nanoseconds spent waiting for the connection
+     * @param holdTime the time in nanoseconds the connection was held
+     * @param statementTime the time in nanoseconds spent executing statements
+     */
+    static void add(long waitTime, long holdTime, long statementTime) {
+        if (addCurrentJdbcTime == null) {
+            return;
+        }
+        try {
+            addCurrentJdbcTime.invokeExact(waitTime, holdTime, statementTime);
+        } catch (Error x) {
+            throw x;
+        } catch (Throwable x) {
+            if (log.isDebugEnabled()) {
+                log.debug("Unable to record the JDBC time of the current request.", x);
+            }
+        }
+    }
+}
@@ -0,0 +1,632 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.jdbc.pool.interceptor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Pattern;
+
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
+import org.apache.tomcat.jdbc.pool.PooledConnection;
+
+/**
+ * A variant of the {@link SlowQueryReportJmx} that groups queries by their
+ * shape, the SQL text with all literals replaced by <code>?</code>, and
+ * records the execution times of each shape in a lock-free histogram.
+ * <p>
+ * At most <code>maxQueries</code> shapes are tracked. Once that limit is
+ * reached the least frequently executed shape is replaced by the new one,
+ * which inherits its execution count (the space-saving algorithm). The most
+ * frequently executed shapes are therefore always retained and their counts
+ * are over-estimated by no more than the reported count error.
+ * <p>
+ * The statistics are exposed through the MBean of this interceptor, which is
+ * always registered, regardless of the <code>notifyPool</code> setting.
+ */
+public class SlowQueryReportHistogram extends SlowQueryReportJmx implements SlowQueryReportHistogramMBean {
+
+    private static final Log log = LogFactory.getLog(SlowQueryReportHistogram.class);
+
+    /**
+     * we will be keeping track of query shapes on a per pool basis
+     */
+    protected static final ConcurrentHashMap<String,ConcurrentHashMap<String,ShapeStats>> perPoolShapes =
+        new ConcurrentHashMap<>();
+
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\?(?: ?, ?\\?)+");
+
+    protected static volatile CompositeType QUERY_SHAPE_TYPE;
+
+    /**
+     * the query shapes that are used for this interceptor.
+     */
+    protected volatile ConcurrentHashMap<String,ShapeStats> shapes = null;
+
+    /**
+     * Returns the query shape stats for a given pool
+     * @param poolname - the name of the pool we want to retrieve stats for
+     * @return a hash map containing statistics for 0 to maxQueries shapes
+     */
+    public static ConcurrentHashMap<String,ShapeStats> getPoolShapes(String poolname) {
+        return perPoolShapes.get(poolname);
+    }
+
+    protected static CompositeType getShapeCompositeType() {
+        if (QUERY_SHAPE_TYPE==null) {
+            try {
+                QUERY_SHAPE_TYPE = new CompositeType(
+                        SlowQueryReportHistogram.class.getName(),
+                        "Composite data type for query shape statistics",
+                        ShapeStats.getFieldNames(),
+                        ShapeStats.getFieldDescriptions(),
+                        ShapeStats.getFieldTypes());
+            }catch (OpenDataException x) {
+                log.warn("Unable to initialize composite data type for JMX query shape stats.",x);
+            }
+        }
+        return QUERY_SHAPE_TYPE;
+    }
+
+    /**
+     * Normalises the SQL text so that executions of the same statement with
+     * different literals are grouped together. String and numeric literals
+     * are replaced by <code>?</code>, lists of parameters are collapsed to a
+     * single <code>?</code>, comments are removed and white space is
+     * collapsed to a single space. Quoted identifiers are kept as is.
+     * @param sql the SQL text
+     * @return the shape of the query
+     */
+    public static String normalize(String sql) {
+        if (sql==null) return "";
+        final int len = sql.length();
+        StringBuilder buf = new StringBuilder(len);
+        int i = 0;
+        while (i < len) {
+            char c = sql.charAt(i);
+            if (c=='\'') {
+                //string literal, a doubled quote is an escaped quote
+                i++;
+                while (i < len) {
+                    if (sql.charAt(i)=='\'') {
+                        if (i+1 < len && sql.charAt(i+1)=='\'') {
+                            i+=2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                i++;
+                buf.append('?');
+            } else if (c=='"' || c=='`') {
+                //quoted identifier
+                int end = sql.indexOf(c, i+1);
+                if (end < 0) end = len-1;
+                buf.append(sql, i, end+1);
+                i = end+1;
+            } else if (c=='-' && i+1 < len && sql.charAt(i+1)=='-') {
+                int end = sql.indexOf('\n', i);
+                i = (end < 0) ? len : end;
+            } else if (c=='/' && i+1 < len && sql.charAt(i+1)=='*') {
+                int end = sql.indexOf("*/", i+2);
+                i = (end < 0) ? len : end+2;
+                appendSpace(buf);
+            } else if (Character.isWhitespace(c)) {
+                appendSpace(buf);
+                i++;
+            } else if (c>='0' && c<='9') {
+                //numeric literal, including decimals, exponents and hex
+                i++;
+                while (i < len) {
+                    char n = sql.charAt(i);
+                    if (Character.isLetterOrDigit(n) || n=='.') {
+                        i++;
+                    } else if ((n=='+' || n=='-') && (sql.charAt(i-1)=='e' || sql.charAt(i-1)=='E')) {
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                removeSign(buf);
+                buf.append('?');
+            } else if (Character.isLetter(c) || c=='_') {
+                //identifier or key word, may contain digits
+                int start = i++;
+                while (i < len) {
+                    char n = sql.charAt(i);
+                    if (Character.isLetterOrDigit(n) || n=='_' || n=='$') {
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                buf.append(sql, start, i);
+            } else {
+                buf.append(c);
+                i++;
+            }
+        }
+        int end = buf.length();
+        if (end > 0 && buf.charAt(end-1)==' ') buf.setLength(end-1);
+        String shape = buf.toString();
+        if (shape.indexOf('?') >= 0) {
+            shape = PARAMETER_LIST.matcher(shape).replaceAll("?");
+        }
+        return shape;
+    }
+
+    /**
+     * Removes a unary sign in front of a numeric literal.
+     */
+    private static void removeSign(StringBuilder buf) {
+        int len = buf.length();
+        if (len==0) return;
+        char sign = buf.charAt(len-1);
+        if (sign!='-' && sign!='+') return;
+        int i = len-2;
+        if (i >= 0 && buf.charAt(i)==' ') i--;
+        if (i >= 0) {
+            char prev = buf.charAt(i);
+            //a binary operator follows an operand
+            if (Character.isLetterOrDigit(prev) || prev=='?' || prev==')' ||
+                    prev=='"' || prev=='`' || prev=='_' || prev=='$') {
+                return;
+            }
+        }
+        buf.setLength(len-1);
+    }
+
+    private static void appendSpace(StringBuilder buf) {
+        int len = buf.length();
+        if (len > 0 && buf.charAt(len-1)!=' ') buf.append(' ');
+    }
+
+    public SlowQueryReportHistogram() {
+        super();
+    }
+
+    /**
+     * Queries are not tracked by their full SQL text.
+     * @param sql the SQL text
+     * @return always <code>null</code>
+     */
+    @Override
+    protected QueryStats getQueryStats(String sql) {
+        return null;
+    }
+
+    @Override
+    protected String reportQuery(String query, Object[] args, String name, long start, long delta) {
+        String sql = super.reportQuery(query, args, name, start, delta);
+        ShapeStats stats = getShapeStats(sql);
+        if (stats != null) stats.add(delta, start, false);
+        return sql;
+    }
+
+    @Override
+    protected String reportSlowQuery(String query, Object[] args, String name, long start, long delta) {
+        String sql = super.reportSlowQuery(query, args, name, start, delta);
+        ShapeStats stats = getShapeStats(sql);
+        if (stats != null) {
+            stats.add(delta, start, true);
+            if (isLogSlow() && log.isWarnEnabled()) {
+                log.warn("Slow Query Report SQL="+sql+"; time="+delta+" ms;");
+            }
+        }
+        return sql;
+    }
+
+    @Override
+    protected String reportFailedQuery(String query, Object[] args, String name, long start, Throwable t) {
+        String sql = super.reportFailedQuery(query, args, name, start, t);
+        ShapeStats stats = getShapeStats(sql);
+        if (stats != null) {
+            long now = System.currentTimeMillis();
+            //start is not set for statements that do not execute a query
+            long delta = (start > 0) ? now - start : -1;
+            stats.failure(delta, now);
+            if (isLogFailed() && log.isWarnEnabled()) {
+                log.warn("Failed Query Report SQL="+sql+"; time="+delta+" ms;");
+            }
+        }
+        return sql;
+    }
+
+    /**
+     * Returns the statistics for the shape of the given query, replacing the
+     * least frequently executed shape if <code>maxQueries</code> shapes are
+     * already tracked.
+     * @param sql the SQL text
+     * @return the statistics or <code>null</code> if shapes are not tracked
+     */
+    protected ShapeStats getShapeStats(String sql) {
+        if (this.maxQueries <= 0) return null;
+        ConcurrentHashMap<String,ShapeStats> shapes = this.shapes;
+        if (shapes==null) {
+            if (log.isWarnEnabled()) log.warn("Connection has already been closed or abandoned");
+            return null;
+        }
+        String shape = normalize(sql);
+        ShapeStats stats = shapes.get(shape);
+        if (stats==null) {
+            //only new shapes take the lock, executions of known shapes don't
+            synchronized (shapes) {
+                stats = shapes.get(shape);
+                if (stats==null) {
+                    long error = 0;
+                    if (shapes.size() >= maxQueries) {
+                        ShapeStats min = null;
+                        for (ShapeStats s : shapes.values()) {
+                            if (min==null || s.getCount() < min.getCount()) min = s;
+                        }
+                        if (min!=null) {
+                            shapes.remove(min.getQuery());
+                            error = min.getCount();
+                            if (log.isDebugEnabled()) log.debug("Replacing query shape, capacity reached:"+min.getQuery());
+                        }
+                    }
+                    stats = new ShapeStats(shape, error);
+                    shapes.put(shape, stats);
+                }
+            }
+        }
+        return stats;
+    }
+
+    @Override
+    public void poolStarted(ConnectionPool pool) {
+        super.poolStarted(pool);
+        shapes = perPoolShapes.get(pool.getName());
+        if (shapes==null) {
+            shapes = new ConcurrentHashMap<>();
+            if (perPoolShapes.putIfAbsent(pool.getName(), shapes)!=null) {
+                //there already was one
+                shapes = perPoolShapes.get(pool.getName());
+            }
+        }
+    }
+
+    @Override
+    public void poolClosed(ConnectionPool pool) {
+        perPoolShapes.remove(pool.getName());
+        super.poolClosed(pool);
+    }
+
+    @Override
+    public void reset(ConnectionPool parent, PooledConnection con) {
+        super.reset(parent, con);
+        if (parent!=null)
+            shapes = perPoolShapes.get(parent.getName());
+        else
+            shapes = null;
+    }
+
+    /**
+     * The shape statistics are only available through the MBean.
+     */
+    @Override
+    protected boolean isRegisterMBean() {
+        return true;
+    }
+
+    /**
+     * JMX operation - remove all stats for this connection pool
+     */
+    @Override
+    public void resetStats() {
+        super.resetStats();
+        ConcurrentHashMap<String,ShapeStats> shapes = perPoolShapes.get(poolName);
+        if (shapes!=null) {
+            synchronized (shapes) {
+                shapes.clear();
+            }
+        }
+    }
+
+    /**
+     * JMX operation - returns the query shapes we have collected.
+     * @return - the shape statistics as composite data, most frequent first
+     */
+    @Override
+    public CompositeData[] getQueryShapesCD() throws OpenDataException {
+        ConcurrentHashMap<String,ShapeStats> shapes = perPoolShapes.get(poolName);
+        if (shapes==null) return null;
+        List<ShapeStats> list = new ArrayList<>(shapes.values());
+        Collections.sort(list, new Comparator<ShapeStats>() {
+            @Override
+            public int compare(ShapeStats s1, ShapeStats s2) {
+                return Long.compare(s2.getCount(), s1.getCount());
+            }
+        });
+        CompositeData[] result = new CompositeData[list.size()];
+        for (int i=0; i<result.length; i++) {
+            result[i] = list.get(i).getCompositeData(getShapeCompositeType());
+        }
+        return result;
+    }
+
+
+    /**
+     * Execution statistics of a query shape.
+     */
+    public static class ShapeStats {
+        static final String[] FIELD_NAMES = new String[] {
+            "query",
+            "count",
+            "countError",
+            "slowCount",
+            "failureCount",
+            "totalTime",
+            "minTime",
+            "maxTime",
+            "meanTime",
+            "p50Time",
+            "p90Time",
+            "p99Time",
+            "p999Time",
+            "lastInvocation"
+        };
+
+        static final String[] FIELD_DESCRIPTIONS = new String[] {
+            "The normalised SQL query",
+            "The number of executions, including those inherited from replaced shapes",
+            "The maximum over-estimation of the number of executions",
+            "The number of executions that exceeded the threshold",
+            "The number of failed executions",
+            "The total time spent in executions recorded for this shape",
+            "The shortest execution time",
+            "The longest execution time",
+            "The mean execution time",
+            "The median execution time",
+            "The 90th percentile execution time",
+            "The 99th percentile execution time",
+            "The 99.9th percentile execution time",
+            "The date and time of the last invocation"
+        };
+
+        static final OpenType<?>[] FIELD_TYPES = new OpenType[] {
+            SimpleType.STRING,
+            SimpleType.LONG,
+            SimpleType.LONG,
+            SimpleType.LONG,
+            SimpleType.LONG,
+            SimpleType.LONG,
+            SimpleType.LONG,
+            SimpleType.LONG,
+            SimpleType.DOUBLE,
+            SimpleType.LONG,
+            SimpleType.LONG,
+            SimpleType.LONG,
+            SimpleType.LONG,
+            SimpleType.LONG
+        };
+
+        private static final double[] PERCENTILES = new double[] {50.0, 90.0, 99.0, 99.9};
+
+        private final String query;
+        private final long countError;
+        private final AtomicLong count;
+        private final AtomicLong slowCount = new AtomicLong();
+        private final AtomicLong failureCount = new AtomicLong();
+        private final Histogram histogram = new Histogram();
+        private volatile long lastInvocation = 0;
+
+        public static String[] getFieldNames() {
+            return FIELD_NAMES;
+        }
+
+        public static String[] getFieldDescriptions() {
+            return FIELD_DESCRIPTIONS;
+        }
+
+        public static OpenType<?>[] getFieldTypes() {
+            return FIELD_TYPES;
+        }
+
+        public ShapeStats(String query, long countError) {
+            this.query = query;
+            this.countError = countError;
+            this.count = new AtomicLong(countError);
+        }
+
+        public CompositeDataSupport getCompositeData(final CompositeType type) throws OpenDataException {
+            long[] percentiles = histogram.getValuesAtPercentiles(PERCENTILES);
+            long executions = histogram.getCount();
+            Object[] values = new Object[] {
+                    query,
+                    Long.valueOf(getCount()),
+                    Long.valueOf(countError),
+                    Long.valueOf(getSlowCount()),
+                    Long.valueOf(getFailureCount()),
+                    Long.valueOf(histogram.getTotal()),
+                    Long.valueOf(histogram.getMin()),
+                    Long.valueOf(histogram.getMax()),
+                    Double.valueOf(executions > 0 ? (double) histogram.getTotal() / executions : 0),
+                    Long.valueOf(percentiles[0]),
+                    Long.valueOf(percentiles[1]),
+                    Long.valueOf(percentiles[2]),
+                    Long.valueOf(percentiles[3]),
+                    Long.valueOf(lastInvocation)
+            };
+            return new CompositeDataSupport(type, FIELD_NAMES, values);
+        }
+
+        public void add(long delta, long now, boolean slow) {
+            count.incrementAndGet();
+            if (slow) slowCount.incrementAndGet();
+            histogram.record(delta);
+            lastInvocation = now;
+        }
+
+        public void failure(long delta, long now) {
+            count.incrementAndGet();
+            failureCount.incrementAndGet();
+            if (delta >= 0) histogram.record(delta);
+            lastInvocation = now;
+        }
+
+        public String getQuery() {
+            return query;
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getCountError() {
+            return countError;
+        }
+
+        public long getSlowCount() {
+            return slowCount.get();
+        }
+
+        public long getFailureCount() {
+            return failureCount.get();
+        }
+
+        public long getLastInvocation() {
+            return lastInvocation;
+        }
+
+        public Histogram getHistogram() {
+            return histogram;
+        }
+
+        @Override
+        public String toString() {
+            return "ShapeStats[query:"+query+", count:"+getCount()+", countError:"+countError+"]";
+        }
+    }
+
+
+    /**
+     * A lock-free histogram of execution times in milliseconds. Values below
+     * 32 are recorded exactly, larger values in buckets that have a relative
+     * width of at most 1/16 of the value. Values are capped at
+     * {@link Integer#MAX_VALUE}.
+     */
+    public static class Histogram {
+        private static final int SUB_BUCKET_BITS = 5;
+        private static final int SUB_BUCKET_HALF_BITS = SUB_BUCKET_BITS - 1;
+        private static final long MAX_VALUE = Integer.MAX_VALUE;
+        private static final int BUCKET_COUNT = getIndex(MAX_VALUE) + 1;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong max = new AtomicLong();
+
+        static int getIndex(long value) {
+            int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+            if (shift < 0) shift = 0;
+            return (shift << SUB_BUCKET_HALF_BITS) + (int) (value >>> shift);
+        }
+
+        /**
+         * @param index the index of a bucket
+         * @return the largest value that is recorded in the bucket
+         */
+        static long getHighestValue(int index) {
+            if (index < (1 << SUB_BUCKET_BITS)) return index;
+            int shift = (index >>> SUB_BUCKET_HALF_BITS) - 1;
+            long subBucket = index - (shift << SUB_BUCKET_HALF_BITS);
+            return ((subBucket + 1) << shift) - 1;
+        }
+
+        public void record(long value) {
+            if (value < 0) value = 0;
+            if (value > MAX_VALUE) value = MAX_VALUE;
+            buckets.incrementAndGet(getIndex(value));
+            count.incrementAndGet();
+            total.addAndGet(value);
+            long current = min.get();
+            while (value < current && !min.compareAndSet(current, value)) {
+                current = min.get();
+            }
+            current = max.get();
+            while (value > current && !max.compareAndSet(current, value)) {
+                current = max.get();
+            }
+        }
+
+        /**
+         * Returns the values at the given percentiles. Each value is the upper
+         * bound of the bucket that contains the percentile, but never more
+         * than the largest recorded value.
+         * @param percentiles the percentiles in ascending order, each between 0 and 100
+         * @return the values at the percentiles, 0 if nothing was recorded
+         */
+        public long[] getValuesAtPercentiles(double... percentiles) {
+            long[] values = new long[percentiles.length];
+            long[] snapshot = new long[BUCKET_COUNT];
+            long recorded = 0;
+            for (int i=0; i<BUCKET_COUNT; i++) {
+                snapshot[i] = buckets.get(i);
+                recorded += snapshot[i];
+            }
+            if (recorded==0) return values;
+            long highest = max.get();
+            int bucket = 0;
+            long cumulative = snapshot[0];
+            for (int p=0; p<percentiles.length; p++) {
+                long target = Math.max(1, (long) Math.ceil(percentiles[p] / 100.0 * recorded));
+                while (cumulative < target && bucket < BUCKET_COUNT - 1) {
+                    cumulative += snapshot[++bucket];
+                }
+                values[p] = Math.min(getHighestValue(bucket), highest);
+            }
+            return values;
+        }
+
+        public long getValueAtPercentile(double percentile) {
+            return getValuesAtPercentiles(percentile)[0];
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getTotal() {
+            return total.get();
+        }
+
+        public long getMin() {
+            long value = min.get();
+            return value==Long.MAX_VALUE ? 0 : value;
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+    }
+}
@@ -278,10 +278,18 @@ public class SlowQueryReportJmx extends SlowQueryReport implements NotificationE
         return oname;
     }
 
+    /**
+     * @return <code>true</code> if this interceptor registers its own MBean
+     *         rather than sending notifications through the pool's MBean
+     */
+    protected boolean isRegisterMBean() {
+        return !isNotifyPool();
+    }
+
     protected void registerJmx() {
         try {
             //only if we notify the pool itself
-            if (isNotifyPool()) {
+            if (!isRegisterMBean()) {
 
             } else if (getCompositeType()!=null) {
                 ObjectName oname = getObjectName(getClass(),poolName);
@@ -1,4 +1,5 @@
-/* Licensed to the Apache Software Foundation (ASF) under one or more
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
  * contributor license agreements.  See the NOTICE file distributed with
  * this work for additional information regarding copyright ownership.
  * The ASF licenses this file to You under the Apache License, Version 2.0
@@ -15,14 +16,31 @@
  */
 package org.apache.tomcat.jdbc.pool.interceptor;
 
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.RuntimeOperationsException;
+
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
 import org.apache.tomcat.jdbc.pool.ConnectionPool;
 import org.apache.tomcat.jdbc.pool.PoolProperties.InterceptorProperty;
 import org.apache.tomcat.jdbc.pool.PooledConnection;
@@ -30,8 +48,17 @@ import org.apache.tomcat.jdbc.pool.PooledConnection;
 /**
  * Interceptor that caches {@code PreparedStatement} and/or
  * {@code CallableStatement} instances on a connection.
+ * <p>
+ * Statements are cached per connection and keyed on the SQL and on the other
+ * arguments used to prepare them, such as the result set type, concurrency
+ * and holdability. When a limit is reached, the statement of the connection
+ * that was returned to the cache least recently is closed to make room.
+ * Statistics are kept per pool and are exposed through JMX if JMX is enabled
+ * for the pool.
  */
-public class StatementCache extends StatementDecoratorInterceptor {
+public class StatementCache extends StatementDecoratorInterceptor implements StatementCacheMBean {
+    private static final Log log = LogFactory.getLog(StatementCache.class);
+
     protected static final String[] ALL_TYPES = new String[] {PREPARE_STATEMENT,PREPARE_CALL};
     protected static final String[] CALLABLE_TYPE = new String[] {PREPARE_CALL};
     protected static final String[] PREPARED_TYPE = new String[] {PREPARE_STATEMENT};
@@ -39,26 +66,47 @@ public class StatementCache extends StatementDecoratorInterceptor {
 
     protected static final String STATEMENT_CACHE_ATTR = StatementCache.class.getName() + ".cache";
 
+    /**
+     * The number of distinct statements, relative to <code>max</code>, whose
+     * use is counted to select the statements to pre-warm.
+     */
+    private static final int TRACKED_STATEMENTS_FACTOR = 10;
+
     /*begin properties for the statement cache*/
     private boolean cachePrepared = true;
     private boolean cacheCallable = false;
     private int maxCacheSize = 50;
+    private int maxCacheSizePerConnection = 0;
+    private int prewarmCount = 0;
     private PooledConnection pcon;
     private String[] types;
 
 
+    @Override
     public boolean isCachePrepared() {
         return cachePrepared;
     }
 
+    @Override
     public boolean isCacheCallable() {
         return cacheCallable;
     }
 
+    @Override
     public int getMaxCacheSize() {
         return maxCacheSize;
     }
 
+    @Override
+    public int getMaxCacheSizePerConnection() {
+        return maxCacheSizePerConnection;
+    }
+
+    @Override
+    public int getPrewarmCount() {
+        return prewarmCount;
+    }
+
     public String[] getTypes() {
         return types;
     }
@@ -76,6 +124,10 @@ public class StatementCache extends StatementDecoratorInterceptor {
         if (p!=null) cacheCallable = p.getValueAsBoolean(cacheCallable);
         p = properties.get("max");
         if (p!=null) maxCacheSize = p.getValueAsInt(maxCacheSize);
+        p = properties.get("maxPerConnection");
+        if (p!=null) maxCacheSizePerConnection = p.getValueAsInt(maxCacheSizePerConnection);
+        p = properties.get("prewarm");
+        if (p!=null) prewarmCount = p.getValueAsInt(prewarmCount);
         if (cachePrepared && cacheCallable) {
             this.types = ALL_TYPES;
         } else if (cachePrepared) {
@@ -89,24 +141,107 @@ public class StatementCache extends StatementDecoratorInterceptor {
     }
     /*end properties for the statement cache*/
 
-    /*begin the cache size*/
-    private static ConcurrentHashMap<ConnectionPool,AtomicInteger> cacheSizeMap =
+    /*begin the cache size and statistics*/
+    private static ConcurrentHashMap<ConnectionPool,CacheStats> cacheStatsMap =
+        new ConcurrentHashMap<>();
+
+    private static final ConcurrentHashMap<String,StatementCache> mbeans =
         new ConcurrentHashMap<>();
 
     private AtomicInteger cacheSize;
 
+    private CacheStats stats;
+
     @Override
     public void poolStarted(ConnectionPool pool) {
-        cacheSizeMap.putIfAbsent(pool, new AtomicInteger(0));
+        cacheStatsMap.putIfAbsent(pool, new CacheStats());
+        stats = cacheStatsMap.get(pool);
+        cacheSize = stats.size;
+        if (pool.getPoolProperties().isJmxEnabled()) {
+            registerJmx(pool.getName());
+        }
         super.poolStarted(pool);
     }
 
     @Override
     public void poolClosed(ConnectionPool pool) {
-        cacheSizeMap.remove(pool);
+        cacheStatsMap.remove(pool);
+        deregisterJmx(pool.getName());
         super.poolClosed(pool);
     }
-    /*end the cache size*/
+
+    @Override
+    public int getCachedStatementCount() {
+        AtomicInteger size = cacheSize;
+        return size == null ? 0 : size.get();
+    }
+
+    @Override
+    public long getHitCount() {
+        CacheStats s = stats;
+        return s == null ? 0 : s.hits.get();
+    }
+
+    @Override
+    public long getMissCount() {
+        CacheStats s = stats;
+        return s == null ? 0 : s.misses.get();
+    }
+
+    @Override
+    public double getHitRatio() {
+        long hits = getHitCount();
+        long total = hits + getMissCount();
+        return total == 0 ? 0 : ((double) hits) / total;
+    }
+
+    @Override
+    public long getEvictionCount() {
+        CacheStats s = stats;
+        return s == null ? 0 : s.evictions.get();
+    }
+
+    @Override
+    public long getPrewarmedCount() {
+        CacheStats s = stats;
+        return s == null ? 0 : s.prewarmed.get();
+    }
+
+    @Override
+    public void resetStatistics() {
+        CacheStats s = stats;
+        if (s != null) {
+            s.hits.set(0);
+            s.misses.set(0);
+            s.evictions.set(0);
+            s.prewarmed.set(0);
+        }
+    }
+
+    protected ObjectName getObjectName(String poolName) throws JMException {
+        return new ObjectName(ConnectionPool.POOL_JMX_TYPE_PREFIX +
+                StatementCache.class.getName() + ",name=" + poolName);
+    }
+
+    protected void registerJmx(String poolName) {
+        if (mbeans.putIfAbsent(poolName, this) != null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, getObjectName(poolName));
+        } catch (JMException | RuntimeOperationsException e) {
+            mbeans.remove(poolName);
+            log.warn("Jmx registration failed, no JMX data will be exposed for the statement cache.", e);
+        }
+    }
+
+    protected void deregisterJmx(String poolName) {
+        if (mbeans.remove(poolName) == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(getObjectName(poolName));
+        } catch (JMException | RuntimeOperationsException e) {
+            log.debug("Jmx deregistration failed.", e);
+        }
+    }
+    /*end the cache size and statistics*/
 
     /*begin the actual statement cache*/
     @Override
@@ -114,29 +249,32 @@ public class StatementCache extends StatementDecoratorInterceptor {
         super.reset(parent, con);
         if (parent==null) {
             cacheSize = null;
+            stats = null;
             this.pcon = null;
         } else {
-            cacheSize = cacheSizeMap.get(parent);
+            stats = cacheStatsMap.get(parent);
+            cacheSize = (stats != null) ? stats.size : null;
             this.pcon = con;
             if (!pcon.getAttributes().containsKey(STATEMENT_CACHE_ATTR)) {
-                ConcurrentHashMap<String,CachedStatement> cache =
-                        new ConcurrentHashMap<>();
-                pcon.getAttributes().put(STATEMENT_CACHE_ATTR,cache);
+                pcon.getAttributes().put(STATEMENT_CACHE_ATTR, new StatementMap());
             }
         }
     }
 
     @Override
     public void disconnected(ConnectionPool parent, PooledConnection con, boolean finalizing) {
-        @SuppressWarnings("unchecked")
-        ConcurrentHashMap<String,CachedStatement> statements =
-            (ConcurrentHashMap<String,CachedStatement>)con.getAttributes().get(STATEMENT_CACHE_ATTR);
+        StatementMap statements = (StatementMap) con.getAttributes().get(STATEMENT_CACHE_ATTR);
 
         if (statements!=null) {
-            for (Map.Entry<String, CachedStatement> p : statements.entrySet()) {
-                closeStatement(p.getValue());
+            List<CachedStatement> cached;
+            synchronized (statements) {
+                cached = new ArrayList<>(statements.values());
+                //a new physical connection will be pre-warmed again
+                statements.prewarmed = false;
+            }
+            for (CachedStatement st : cached) {
+                closeStatement(st);
             }
-            statements.clear();
         }
 
         super.disconnected(parent, con, finalizing);
@@ -154,7 +292,8 @@ public class StatementCache extends StatementDecoratorInterceptor {
         boolean process = process(this.types, method, false);
         if (process) {
             Object result = null;
-            CachedStatement statementProxy = new CachedStatement((Statement)statement,sql);
+            CachedStatement statementProxy = new CachedStatement((Statement)statement,sql,
+                    new CacheKey(method, args));
             result = constructor.newInstance(new Object[] { statementProxy });
             statementProxy.setActualProxy(result);
             statementProxy.setConnection(proxy);
@@ -169,12 +308,19 @@ public class StatementCache extends StatementDecoratorInterceptor {
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
         boolean process = process(this.types, method, false);
         if (process && args.length>0 && args[0] instanceof String) {
-            CachedStatement statement = isCached((String)args[0]);
+            if (prewarmCount > 0) {
+                prewarm(proxy);
+            }
+            CacheKey key = new CacheKey(method, args);
+            if (stats != null) {
+                stats.recordUse(key, prewarmCount > 0 ? maxCacheSize * TRACKED_STATEMENTS_FACTOR : 0);
+            }
+            CachedStatement statement = takeStatement(key);
             if (statement!=null) {
-                //remove it from the cache since it is used
-                removeStatement(statement);
+                if (stats != null) stats.hits.incrementAndGet();
                 return statement.getActualProxy();
             } else {
+                if (stats != null) stats.misses.incrementAndGet();
                 return super.invoke(proxy, method, args);
             }
         } else {
@@ -182,60 +328,277 @@ public class StatementCache extends StatementDecoratorInterceptor {
         }
     }
 
+    /**
+     * Prepares the statements that are used most often on the pool, the
+     * first time a new physical connection is used to prepare a statement.
+     * @param proxy the connection proxy that the statements belong to
+     */
+    protected void prewarm(Object proxy) {
+        StatementMap cache = getCache();
+        synchronized (cache) {
+            if (cache.prewarmed) return;
+            cache.prewarmed = true;
+        }
+        if (stats == null) return;
+        for (CacheKey key : stats.getMostUsed(prewarmCount)) {
+            if (!process(this.types, key.getMethod(), false)) continue;
+            try {
+                Object result = super.invoke(proxy, key.getMethod(), key.getArgs());
+                if (result != null && Proxy.isProxyClass(result.getClass()) &&
+                        Proxy.getInvocationHandler(result) instanceof CachedStatement) {
+                    CachedStatement statement = (CachedStatement) Proxy.getInvocationHandler(result);
+                    if (cacheStatement(statement)) {
+                        statement.cached = true;
+                        stats.prewarmed.incrementAndGet();
+                    } else {
+                        statement.forceClose();
+                    }
+                } else if (result instanceof Statement) {
+                    ((Statement) result).close();
+                }
+            } catch (Throwable t) {
+                if (t instanceof ThreadDeath) {
+                    throw (ThreadDeath) t;
+                }
+                if (t instanceof VirtualMachineError) {
+                    throw (VirtualMachineError) t;
+                }
+                log.debug("Unable to pre-warm statement ["+key+"].", t);
+            }
+        }
+    }
+
+    private StatementMap getCache() {
+        return (StatementMap) pcon.getAttributes().get(STATEMENT_CACHE_ATTR);
+    }
+
     public CachedStatement isCached(String sql) {
-        @SuppressWarnings("unchecked")
-        ConcurrentHashMap<String,CachedStatement> cache =
-            (ConcurrentHashMap<String,CachedStatement>)pcon.getAttributes().get(STATEMENT_CACHE_ATTR);
-        return cache.get(sql);
+        CachedStatement statement = isCached(new CacheKey(PREPARE_STATEMENT, new Object[] {sql}));
+        if (statement == null) {
+            statement = isCached(new CacheKey(PREPARE_CALL, new Object[] {sql}));
+        }
+        return statement;
     }
 
-    public boolean cacheStatement(CachedStatement proxy) {
-        @SuppressWarnings("unchecked")
-        ConcurrentHashMap<String,CachedStatement> cache =
-            (ConcurrentHashMap<String,CachedStatement>)pcon.getAttributes().get(STATEMENT_CACHE_ATTR);
-        if (proxy.getSql()==null) {
-            return false;
-        } else if (cache.containsKey(proxy.getSql())) {
-            return false;
-        } else if (cacheSize.get()>=maxCacheSize) {
-            return false;
-        } else if (cacheSize.incrementAndGet()>maxCacheSize) {
+    public CachedStatement isCached(CacheKey key) {
+        StatementMap cache = getCache();
+        synchronized (cache) {
+            return cache.get(key);
+        }
+    }
+
+    private CachedStatement takeStatement(CacheKey key) {
+        StatementMap cache = getCache();
+        CachedStatement statement;
+        synchronized (cache) {
+            statement = cache.remove(key);
+        }
+        if (statement != null) {
             cacheSize.decrementAndGet();
+        }
+        return statement;
+    }
+
+    public boolean cacheStatement(CachedStatement proxy) {
+        StatementMap cache = getCache();
+        CacheKey key = proxy.getKey();
+        if (proxy.getSql()==null || key==null) {
             return false;
-        } else {
+        }
+        CachedStatement evicted = null;
+        synchronized (cache) {
+            if (cache.containsKey(key)) {
+                return false;
+            }
+            boolean reserved = false;
+            if (maxCacheSizePerConnection <= 0 || cache.size() < maxCacheSizePerConnection) {
+                if (cacheSize.incrementAndGet() > maxCacheSize) {
+                    cacheSize.decrementAndGet();
+                } else {
+                    reserved = true;
+                }
+            }
+            if (!reserved) {
+                if (cache.isEmpty()) {
+                    return false;
+                }
+                //take the place of the least recently returned statement
+                Iterator<CachedStatement> it = cache.values().iterator();
+                evicted = it.next();
+                it.remove();
+            }
             //cache the statement
-            cache.put(proxy.getSql(), proxy);
-            return true;
+            cache.put(key, proxy);
         }
+        if (evicted != null) {
+            if (stats != null) stats.evictions.incrementAndGet();
+            evicted.closeEvicted();
+        }
+        return true;
     }
 
     public boolean removeStatement(CachedStatement proxy) {
-        @SuppressWarnings("unchecked")
-        ConcurrentHashMap<String,CachedStatement> cache =
-            (ConcurrentHashMap<String,CachedStatement>)pcon.getAttributes().get(STATEMENT_CACHE_ATTR);
-        if (cache.remove(proxy.getSql()) != null) {
-            cacheSize.decrementAndGet();
-            return true;
-        } else {
+        StatementMap cache = getCache();
+        CacheKey key = proxy.getKey();
+        if (key == null) {
             return false;
         }
+        synchronized (cache) {
+            if (cache.get(key) != proxy) {
+                return false;
+            }
+            cache.remove(key);
+        }
+        cacheSize.decrementAndGet();
+        return true;
     }
     /*end the actual statement cache*/
 
 
+    /**
+     * Identifies a cached statement by the method and the arguments used to
+     * prepare it.
+     */
+    public static final class CacheKey {
+        private final String name;
+        private final Method method;
+        private final Object[] args;
+        private final int hash;
+
+        public CacheKey(Method method, Object[] args) {
+            this(method.getName(), method, args);
+        }
+
+        private CacheKey(String name, Object[] args) {
+            this(name, null, args);
+        }
+
+        private CacheKey(String name, Method method, Object[] args) {
+            this.name = name;
+            this.method = method;
+            this.args = copy(args);
+            this.hash = 31 * name.hashCode() + Arrays.deepHashCode(this.args);
+        }
+
+        private static Object[] copy(Object[] args) {
+            Object[] result = args.clone();
+            for (int i = 0; i < result.length; i++) {
+                if (result[i] instanceof int[]) {
+                    result[i] = ((int[]) result[i]).clone();
+                } else if (result[i] instanceof Object[]) {
+                    result[i] = ((Object[]) result[i]).clone();
+                }
+            }
+            return result;
+        }
+
+        public Method getMethod() {
+            return method;
+        }
+
+        public Object[] getArgs() {
+            return copy(args);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) obj;
+            return hash == other.hash && name.equals(other.name) && Arrays.deepEquals(args, other.args);
+        }
+
+        @Override
+        public String toString() {
+            return name + Arrays.deepToString(args);
+        }
+    }
+
+
+    /**
+     * The statements cached on a connection in the order in which they were
+     * returned to the cache.
+     */
+    private static final class StatementMap extends LinkedHashMap<CacheKey,CachedStatement> {
+        private static final long serialVersionUID = 1L;
+
+        private boolean prewarmed = false;
+    }
+
+
+    /**
+     * Cache statistics shared by all connections of a pool.
+     */
+    private static final class CacheStats {
+        private final AtomicInteger size = new AtomicInteger(0);
+        private final AtomicLong hits = new AtomicLong(0);
+        private final AtomicLong misses = new AtomicLong(0);
+        private final AtomicLong evictions = new AtomicLong(0);
+        private final AtomicLong prewarmed = new AtomicLong(0);
+        private final ConcurrentHashMap<CacheKey,AtomicLong> usage = new ConcurrentHashMap<>();
+
+        private void recordUse(CacheKey key, int maxTracked) {
+            if (maxTracked <= 0) return;
+            AtomicLong count = usage.get(key);
+            if (count == null) {
+                if (usage.size() >= maxTracked) return;
+                count = new AtomicLong(0);
+                AtomicLong existing = usage.putIfAbsent(key, count);
+                if (existing != null) count = existing;
+            }
+            count.incrementAndGet();
+        }
+
+        private List<CacheKey> getMostUsed(int max) {
+            final Map<CacheKey,Long> counts = new HashMap<>();
+            for (Map.Entry<CacheKey,AtomicLong> entry : usage.entrySet()) {
+                counts.put(entry.getKey(), Long.valueOf(entry.getValue().get()));
+            }
+            List<CacheKey> keys = new ArrayList<>(counts.keySet());
+            Collections.sort(keys, new Comparator<CacheKey>() {
+                @Override
+                public int compare(CacheKey o1, CacheKey o2) {
+                    return counts.get(o2).compareTo(counts.get(o1));
+                }
+            });
+            return keys.subList(0, Math.min(max, keys.size()));
+        }
+    }
+
+
     protected class CachedStatement extends StatementDecoratorInterceptor.StatementProxy<Statement> {
         boolean cached = false;
+        private final CacheKey key;
+
         public CachedStatement(Statement parent, String sql) {
+            this(parent, sql, null);
+        }
+
+        public CachedStatement(Statement parent, String sql, CacheKey key) {
             super(parent, sql);
+            this.key = key;
+        }
+
+        public CacheKey getKey() {
+            return key;
         }
 
         @Override
         public void closeInvoked() {
             //should we cache it
             boolean shouldClose = true;
-            if (cacheSize.get() < maxCacheSize) {
+            if (key != null) {
                 //cache a proxy so that we don't reuse the facade
-                CachedStatement proxy = new CachedStatement(getDelegate(),getSql());
+                CachedStatement proxy = new CachedStatement(getDelegate(),getSql(),key);
                 try {
                     //create a new facade
                     Object actualProxy = getConstructor().newInstance(new Object[] { proxy });
@@ -263,8 +626,14 @@ public class StatementCache extends StatementDecoratorInterceptor {
             super.closeInvoked();
         }
 
+        /**
+         * Closes a statement that has already been removed from the cache to
+         * make room for another one.
+         */
+        void closeEvicted() {
+            super.closeInvoked();
+        }
+
     }
 
 }
-
-
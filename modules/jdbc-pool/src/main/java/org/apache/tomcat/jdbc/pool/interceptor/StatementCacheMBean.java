@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.jdbc.pool.interceptor;
+
+/**
+ * Statistics of the {@link StatementCache} of a connection pool.
+ */
+public interface StatementCacheMBean {
+
+    public boolean isCachePrepared();
+
+    public boolean isCacheCallable();
+
+    public int getMaxCacheSize();
+
+    public int getMaxCacheSizePerConnection();
+
+    public int getPrewarmCount();
+
+    /**
+     * @return the number of statements cached across all connections of the pool
+     */
+    public int getCachedStatementCount();
+
+    /**
+     * @return the number of statements that were taken from the cache
+     */
+    public long getHitCount();
+
+    /**
+     * @return the number of cacheable statements that were not in the cache
+     */
+    public long getMissCount();
+
+    /**
+     * @return the ratio of hits to all look ups, or 0 if there were none
+     */
+    public double getHitRatio();
+
+    /**
+     * @return the number of statements that were closed to make room for
+     *         more recently used statements
+     */
+    public long getEvictionCount();
+
+    /**
+     * @return the number of statements that were prepared when a new
+     *         connection was first used
+     */
+    public long getPrewarmedCount();
+
+    /**
+     * Resets the hit, miss, eviction and pre-warm counters.
+     */
+    public void resetStatistics();
+}
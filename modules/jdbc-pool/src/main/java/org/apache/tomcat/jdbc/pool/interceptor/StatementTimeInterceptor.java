@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.jdbc.pool.interceptor;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
+import org.apache.tomcat.jdbc.pool.JdbcInterceptor;
+import org.apache.tomcat.jdbc.pool.PooledConnection;
+
+/**
+ * Measures the time spent executing statements and adds it to the connection
+ * they were created by. The pool adds the time to its statistics, and to the
+ * request being processed when running inside Tomcat, once the connection is
+ * returned.
+ */
+public class StatementTimeInterceptor extends AbstractCreateStatementInterceptor {
+    private static final Log log = LogFactory.getLog(StatementTimeInterceptor.class);
+
+    /**
+     * the constructors that are used to create statement proxies
+     */
+    protected static final Constructor<?>[] constructors =
+        new Constructor[AbstractCreateStatementInterceptor.STATEMENT_TYPE_COUNT];
+
+    /**
+     * The connection the statements are created by
+     */
+    protected volatile PooledConnection pooledConnection = null;
+
+    @Override
+    public void reset(ConnectionPool parent, PooledConnection con) {
+        pooledConnection = con;
+    }
+
+    @Override
+    public void closeInvoked() {
+        // NOOP
+    }
+
+    /**
+     * Creates a constructor for a proxy class, if one doesn't already exist
+     * @param idx - the index of the constructor
+     * @param clazz - the interface that the proxy will implement
+     * @return - returns a constructor used to create new instances
+     * @throws NoSuchMethodException Constructor not found
+     */
+    protected Constructor<?> getConstructor(int idx, Class<?> clazz) throws NoSuchMethodException {
+        if (constructors[idx]==null) {
+            Class<?> proxyClass = Proxy.getProxyClass(StatementTimeInterceptor.class.getClassLoader(), new Class[] {clazz});
+            constructors[idx] = proxyClass.getConstructor(new Class[] { InvocationHandler.class });
+        }
+        return constructors[idx];
+    }
+
+    /**
+     * Creates a statement proxy that times the executions
+     */
+    @Override
+    public Object createStatement(Object proxy, Method method, Object[] args, Object statement, long time) {
+        PooledConnection con = pooledConnection;
+        if (con == null) {
+            return statement;
+        }
+        try {
+            String name = method.getName();
+            Constructor<?> constructor = null;
+            if (compare(CREATE_STATEMENT,name)) {
+                constructor = getConstructor(CREATE_STATEMENT_IDX,Statement.class);
+            }else if (compare(PREPARE_STATEMENT,name)) {
+                constructor = getConstructor(PREPARE_STATEMENT_IDX,PreparedStatement.class);
+            }else if (compare(PREPARE_CALL,name)) {
+                constructor = getConstructor(PREPARE_CALL_IDX,CallableStatement.class);
+            }else {
+                //do nothing, might be a future unsupported method
+                return statement;
+            }
+            return constructor.newInstance(new Object[] { new StatementProxy(statement, con) });
+        }catch (Exception x) {
+            log.warn("Unable to create statement proxy to time statements.",x);
+        }
+        return statement;
+    }
+
+    /**
+     * Class to measure statement execution time
+     */
+    protected class StatementProxy implements InvocationHandler {
+        protected boolean closed = false;
+        protected Object delegate;
+        protected final PooledConnection con;
+
+        public StatementProxy(Object parent, PooledConnection con) {
+            this.delegate = parent;
+            this.con = con;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            final String name = method.getName();
+            boolean close = compare(JdbcInterceptor.CLOSE_VAL,name);
+            //allow close to be called multiple times
+            if (close && closed) return null;
+            if (compare(JdbcInterceptor.ISCLOSED_VAL,name)) return Boolean.valueOf(closed);
+            if (closed) throw new SQLException("Statement closed.");
+            boolean process = isExecute(method, false);
+            long start = process ? System.nanoTime() : 0;
+            try {
+                return method.invoke(delegate,args);
+            } catch (InvocationTargetException t) {
+                if (t.getCause() != null) {
+                    throw t.getCause();
+                } else {
+                    throw t;
+                }
+            } finally {
+                if (process) {
+                    con.addStatementTime(System.nanoTime() - start);
+                }
+                if (close) {
+                    closed = true;
+                    delegate = null;
+                }
+            }
+        }
+    }
+}
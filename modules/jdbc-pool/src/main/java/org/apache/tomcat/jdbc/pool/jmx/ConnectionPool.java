@@ -164,6 +164,21 @@ public class ConnectionPool extends NotificationBroadcasterSupport implements Co
         return pool.getWaitCount();
     }
 
+    @Override
+    public long getBorrowWaitTime() {
+        return pool.getBorrowWaitTime();
+    }
+
+    @Override
+    public long getHoldTime() {
+        return pool.getHoldTime();
+    }
+
+    @Override
+    public long getStatementTime() {
+        return pool.getStatementTime();
+    }
+
     //=================================================================
     //       POOL OPERATIONS
     //=================================================================
@@ -872,6 +887,103 @@ public class ConnectionPool extends NotificationBroadcasterSupport implements Co
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setUseThreadAffinity(boolean useThreadAffinity) {
+        // noop - this pool is already running
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean getUseThreadAffinity() {
+        return getPoolProperties().getUseThreadAffinity();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setTrackBusyConnections(boolean trackBusyConnections) {
+        getPoolProperties().setTrackBusyConnections(trackBusyConnections);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean getTrackBusyConnections() {
+        return getPoolProperties().getTrackBusyConnections();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setUseDelegatingConnection(boolean useDelegatingConnection) {
+        getPoolProperties().setUseDelegatingConnection(useDelegatingConnection);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean getUseDelegatingConnection() {
+        return getPoolProperties().getUseDelegatingConnection();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setIdleHeadroom(int idleHeadroom) {
+        getPoolProperties().setIdleHeadroom(idleHeadroom);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getIdleHeadroom() {
+        return getPoolProperties().getIdleHeadroom();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setMaxConcurrentCreates(int maxConcurrentCreates) {
+        getPoolProperties().setMaxConcurrentCreates(maxConcurrentCreates);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getMaxConcurrentCreates() {
+        return getPoolProperties().getMaxConcurrentCreates();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setPoolValidationInterval(long poolValidationInterval) {
+        getPoolProperties().setPoolValidationInterval(poolValidationInterval);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getPoolValidationInterval() {
+        return getPoolProperties().getPoolValidationInterval();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -35,6 +35,12 @@ public interface ConnectionPoolMBean extends PoolConfiguration  {
 
     public int getWaitCount();
 
+    public long getBorrowWaitTime();
+
+    public long getHoldTime();
+
+    public long getStatementTime();
+
     //=================================================================
     //       POOL OPERATIONS
     //=================================================================
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.jdbc.test;
+
+import java.sql.Connection;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolConfiguration;
+import org.apache.tomcat.jdbc.test.driver.Driver;
+
+/**
+ * Measures the overhead of borrowing and returning connections from multiple
+ * threads. The test driver is used so that only the pool is measured.
+ */
+public class BorrowReturnPerformanceTest {
+
+    private static final int ITERATIONS =
+            Integer.getInteger("jdbc.benchmark.iterations", 50000).intValue();
+
+    @Test
+    public void testThreads8Connections8() throws Exception {
+        doTest(8, 8);
+    }
+
+    @Test
+    public void testThreads16Connections8() throws Exception {
+        doTest(16, 8);
+    }
+
+    private void doTest(int threadCount, int maxActive) throws Exception {
+        for (boolean fair : new boolean[] {false, true}) {
+            for (boolean affinity : new boolean[] {false, true}) {
+                // Warm up, then measure
+                run(threadCount, maxActive, fair, affinity, ITERATIONS / 10);
+                long delta = run(threadCount, maxActive, fair, affinity, ITERATIONS);
+                System.out.println("[BorrowReturn] threads:" + threadCount +
+                        " maxActive:" + maxActive + " fair:" + fair +
+                        " useThreadAffinity:" + affinity + " complete:" + delta +
+                        " ms. Iterations:" + (threadCount * ITERATIONS));
+            }
+        }
+    }
+
+    private long run(int threadCount, int maxActive, boolean fair,
+            boolean affinity, final int iterations) throws Exception {
+        PoolConfiguration p = new DefaultProperties();
+        p.setDriverClassName(Driver.class.getName());
+        p.setUrl(Driver.url);
+        p.setJmxEnabled(false);
+        p.setTestWhileIdle(false);
+        p.setTestOnBorrow(false);
+        p.setTestOnReturn(false);
+        p.setRemoveAbandoned(false);
+        p.setTimeBetweenEvictionRunsMillis(30000);
+        p.setInitialSize(maxActive);
+        p.setMinIdle(maxActive);
+        p.setMaxIdle(maxActive);
+        p.setMaxActive(maxActive);
+        p.setMaxWait(30000);
+        p.setFairQueue(fair);
+        p.setUseThreadAffinity(affinity);
+        final DataSource ds = new DataSource();
+        ds.setPoolProperties(p);
+        try {
+            ds.getConnection().close();
+            final CountDownLatch start = new CountDownLatch(1);
+            final CountDownLatch done = new CountDownLatch(threadCount);
+            final Exception[] errors = new Exception[threadCount];
+            for (int i = 0; i < threadCount; i++) {
+                final int index = i;
+                Thread t = new Thread("borrow-return-" + i) {
+                    @Override
+                    public void run() {
+                        try {
+                            start.await();
+                            for (int j = 0; j < iterations; j++) {
+                                Connection con = ds.getConnection();
+                                con.close();
+                            }
+                        } catch (Exception x) {
+                            errors[index] = x;
+                        } finally {
+                            done.countDown();
+                        }
+                    }
+                };
+                t.start();
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            done.await();
+            long delta = (System.nanoTime() - begin) / 1000000;
+            for (Exception x : errors) {
+                if (x != null) {
+                    throw x;
+                }
+            }
+            Assert.assertEquals(0, ds.getPool().getActive());
+            return delta;
+        } finally {
+            ds.close(true);
+            Driver.reset();
+        }
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.jdbc.test;
+
+import java.nio.channels.CompletionHandler;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolConfiguration;
+import org.apache.tomcat.jdbc.pool.PoolExhaustedException;
+import org.apache.tomcat.jdbc.test.driver.Driver;
+
+public class TestAsyncConnection {
+
+    protected volatile DataSource ds = null;
+
+    @Before
+    public void setUp() throws Exception {
+        PoolConfiguration p = new DefaultProperties();
+        p.setDriverClassName(Driver.class.getName());
+        p.setUrl(Driver.url);
+        p.setJmxEnabled(false);
+        p.setTestWhileIdle(false);
+        p.setTestOnBorrow(false);
+        p.setInitialSize(0);
+        p.setMaxActive(1);
+        p.setMaxWait(10000);
+        p.setFairQueue(true);
+        ds = new DataSource();
+        ds.setPoolProperties(p);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ds.close(true);
+        Driver.reset();
+    }
+
+    @Test
+    public void testAvailable() throws Exception {
+        Handler handler = new Handler();
+        ds.getConnectionAsync("a", handler);
+        Assert.assertTrue(handler.latch.await(5, TimeUnit.SECONDS));
+        Assert.assertNotNull(handler.con);
+        Assert.assertNotSame(Thread.currentThread(), handler.thread);
+        Assert.assertEquals("a", handler.attachment);
+        handler.con.close();
+    }
+
+    @Test
+    public void testCompletedOnReturn() throws Exception {
+        final Connection con = ds.getConnection();
+        Handler handler = new Handler();
+        ds.getConnectionAsync(null, handler);
+        Assert.assertEquals(1, handler.latch.getCount());
+        Assert.assertEquals(1, ds.getPool().getWaitCount());
+
+        Thread t = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    con.close();
+                } catch (SQLException x) {
+                    // Ignore
+                }
+            }
+        };
+        t.start();
+        Assert.assertTrue(handler.latch.await(5, TimeUnit.SECONDS));
+        // The handler is not run by the thread returning the connection
+        Assert.assertNotSame(t, handler.thread);
+        Assert.assertNotNull(handler.con);
+        Assert.assertFalse(handler.con.isClosed());
+        Assert.assertEquals(0, ds.getPool().getWaitCount());
+        Assert.assertEquals(1, ds.getPool().getActive());
+        handler.con.close();
+        Assert.assertEquals(1, ds.getPool().getIdle());
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        ds.getPoolProperties().setMaxWait(200);
+        Connection con = ds.getConnection();
+        Handler handler = new Handler();
+        long start = System.currentTimeMillis();
+        ds.getConnectionAsync(null, handler);
+        Assert.assertTrue(handler.latch.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(System.currentTimeMillis() - start >= 150);
+        Assert.assertTrue(handler.cause instanceof PoolExhaustedException);
+        Assert.assertNotSame(Thread.currentThread(), handler.thread);
+        Assert.assertEquals(0, ds.getPool().getWaitCount());
+        // The timed out request must not receive the connection
+        con.close();
+        Assert.assertEquals(1, ds.getPool().getIdle());
+        Assert.assertNull(handler.con);
+    }
+
+    @Test
+    public void testPoolClosed() throws Exception {
+        ds.getConnection();
+        Handler handler = new Handler();
+        ds.getConnectionAsync(null, handler);
+        ds.close(true);
+        Assert.assertTrue(handler.latch.await(5, TimeUnit.SECONDS));
+        Assert.assertNotNull(handler.cause);
+    }
+
+    @Test
+    public void testHandlerReturnsConnection() throws Exception {
+        Connection con = ds.getConnection();
+        Handler handler1 = new Handler(true);
+        Handler handler2 = new Handler(true);
+        ds.getConnectionAsync(null, handler1);
+        ds.getConnectionAsync(null, handler2);
+        Assert.assertEquals(2, ds.getPool().getWaitCount());
+        // Each handler returns the connection, which hands it to the next one
+        con.close();
+        Assert.assertTrue(handler1.latch.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(handler2.latch.await(5, TimeUnit.SECONDS));
+        Assert.assertNull(handler1.cause);
+        Assert.assertNull(handler2.cause);
+        Assert.assertNotSame(Thread.currentThread(), handler1.thread);
+        Assert.assertNotSame(Thread.currentThread(), handler2.thread);
+        Assert.assertEquals(0, ds.getPool().getWaitCount());
+        Assert.assertEquals(0, ds.getPool().getActive());
+        Assert.assertEquals(1, ds.getPool().getIdle());
+    }
+
+    @Test
+    public void testHandlerThreadsBounded() throws Exception {
+        int requests = 8;
+        ds.getPoolProperties().setMaxActive(requests);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(requests);
+        final AtomicInteger running = new AtomicInteger(0);
+        final AtomicInteger maxRunning = new AtomicInteger(0);
+        final Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread,Boolean>());
+        CompletionHandler<Connection,Object> handler = new CompletionHandler<Connection,Object>() {
+            @Override
+            public void completed(Connection result, Object attachment) {
+                threads.add(Thread.currentThread());
+                int current = running.incrementAndGet();
+                int max = maxRunning.get();
+                while (current > max && !maxRunning.compareAndSet(max, current)) {
+                    max = maxRunning.get();
+                }
+                try {
+                    // A handler that blocks
+                    release.await();
+                    result.close();
+                } catch (Exception x) {
+                    // Ignore
+                } finally {
+                    running.decrementAndGet();
+                    done.countDown();
+                }
+            }
+
+            @Override
+            public void failed(Throwable exc, Object attachment) {
+                done.countDown();
+            }
+        };
+        for (int i = 0; i < requests; i++) {
+            ds.getConnectionAsync(null, handler);
+        }
+        int limit = Math.min(requests, Runtime.getRuntime().availableProcessors());
+        int i = 0;
+        while (running.get() < limit && i++ < 100) {
+            Thread.sleep(50);
+        }
+        // The handlers beyond the number of handler threads are queued
+        Thread.sleep(200);
+        Assert.assertEquals(limit, running.get());
+        release.countDown();
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(limit, maxRunning.get());
+        Assert.assertTrue(threads.size() <= limit);
+        Assert.assertEquals(0, ds.getPool().getActive());
+    }
+
+    @Test(expected=SQLException.class)
+    public void testNotFair() throws Exception {
+        ds.getPoolProperties().setFairQueue(false);
+        ds.getConnectionAsync(null, new Handler());
+    }
+
+    private static class Handler implements CompletionHandler<Connection,Object> {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final boolean close;
+        volatile Connection con;
+        volatile Throwable cause;
+        volatile Object attachment;
+        volatile Thread thread;
+
+        Handler() {
+            this(false);
+        }
+
+        Handler(boolean close) {
+            this.close = close;
+        }
+
+        @Override
+        public void completed(Connection result, Object attachment) {
+            this.con = result;
+            this.attachment = attachment;
+            this.thread = Thread.currentThread();
+            if (close) {
+                try {
+                    result.close();
+                } catch (SQLException x) {
+                    this.cause = x;
+                }
+            }
+            latch.countDown();
+        }
+
+        @Override
+        public void failed(Throwable exc, Object attachment) {
+            this.cause = exc;
+            this.attachment = attachment;
+            this.thread = Thread.currentThread();
+            latch.countDown();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.jdbc.test;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.DelegatingConnection;
+import org.apache.tomcat.jdbc.pool.JdbcInterceptor;
+import org.apache.tomcat.jdbc.pool.PoolConfiguration;
+import org.apache.tomcat.jdbc.pool.PooledConnection;
+import org.apache.tomcat.jdbc.test.driver.Driver;
+
+public class TestDelegatingConnection {
+
+    protected volatile DataSource ds = null;
+
+    @Before
+    public void setUp() throws Exception {
+        PoolConfiguration p = new DefaultProperties();
+        p.setDriverClassName(Driver.class.getName());
+        p.setUrl(Driver.url);
+        p.setJmxEnabled(false);
+        p.setTestWhileIdle(false);
+        p.setTestOnBorrow(false);
+        p.setTestOnReturn(false);
+        p.setInitialSize(0);
+        p.setMinIdle(0);
+        p.setMaxIdle(10);
+        p.setMaxActive(10);
+        p.setMaxWait(10000);
+        p.setRemoveAbandoned(false);
+        p.setUseDelegatingConnection(true);
+        ds = new DataSource();
+        ds.setPoolProperties(p);
+        RecordingInterceptor.methods.clear();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ds.close(true);
+        Driver.reset();
+    }
+
+    @Test
+    public void testDirect() throws Exception {
+        Connection con = ds.getConnection();
+        Assert.assertTrue(con instanceof DelegatingConnection);
+        Assert.assertFalse(Proxy.isProxyClass(con.getClass()));
+        Assert.assertFalse(con.isClosed());
+        Connection real = ((javax.sql.PooledConnection) con).getConnection();
+        Assert.assertTrue(real instanceof org.apache.tomcat.jdbc.test.driver.Connection);
+        Assert.assertSame(real, con.unwrap(org.apache.tomcat.jdbc.test.driver.Connection.class));
+        Assert.assertNotNull(con.unwrap(PooledConnection.class));
+        Statement st = con.createStatement();
+        Assert.assertTrue(st instanceof org.apache.tomcat.jdbc.test.driver.Statement);
+        Assert.assertEquals(1, ds.getPool().getActive());
+
+        con.close();
+        Assert.assertTrue(con.isClosed());
+        Assert.assertFalse(con.isValid(0));
+        Assert.assertEquals(0, ds.getPool().getActive());
+        Assert.assertEquals(1, ds.getPool().getIdle());
+        // Closing twice is a no-op
+        con.close();
+        Assert.assertEquals(1, ds.getPool().getIdle());
+        try {
+            con.createStatement();
+            Assert.fail("Connection should have been closed.");
+        } catch (SQLException x) {
+            // Expected
+        }
+
+        // The closed wrapper is not affected by the next borrow
+        Connection con2 = ds.getConnection();
+        Assert.assertTrue(con.isClosed());
+        Assert.assertFalse(con2.isClosed());
+        con2.close();
+    }
+
+    @Test
+    public void testInterceptors() throws Exception {
+        ds.getPoolProperties().setJdbcInterceptors(RecordingInterceptor.class.getName());
+        Connection con1 = ds.getConnection();
+        Connection con2 = ds.getConnection();
+        Assert.assertTrue(con1 instanceof DelegatingConnection);
+        con1.createStatement();
+        con2.createStatement();
+        Assert.assertFalse(con1.getAutoCommit());
+        con1.close();
+        con2.close();
+        Assert.assertTrue(con1.isClosed());
+        Assert.assertEquals(2, ds.getPool().getIdle());
+        try {
+            con1.createStatement();
+            Assert.fail("Connection should have been closed.");
+        } catch (SQLException x) {
+            // Expected
+        }
+
+        List<Method> methods = RecordingInterceptor.methods;
+        Assert.assertEquals(5, methods.size());
+        Assert.assertEquals("createStatement", methods.get(0).getName());
+        // Method instances are shared by all connections
+        Assert.assertSame(methods.get(0), methods.get(1));
+        Assert.assertEquals("getAutoCommit", methods.get(2).getName());
+        Assert.assertEquals("close", methods.get(3).getName());
+        Assert.assertSame(methods.get(3), methods.get(4));
+    }
+
+    @Test
+    public void testNoBusyTracking() throws Exception {
+        ds.getPoolProperties().setUseDelegatingConnection(false);
+        ds.getPoolProperties().setTrackBusyConnections(false);
+        Connection con1 = ds.getConnection();
+        Connection con2 = ds.getConnection();
+        Assert.assertEquals(2, ds.getPool().getActive());
+        con1.close();
+        Assert.assertEquals(1, ds.getPool().getActive());
+        Assert.assertEquals(1, ds.getPool().getIdle());
+        con2.close();
+        Assert.assertEquals(0, ds.getPool().getActive());
+        Assert.assertEquals(2, ds.getPool().getIdle());
+    }
+
+    @Test
+    public void testBusyTrackingForAbandoned() throws Exception {
+        ds.getPoolProperties().setTrackBusyConnections(false);
+        ds.getPoolProperties().setRemoveAbandoned(true);
+        ds.getPoolProperties().setRemoveAbandonedTimeout(1);
+        Connection con = ds.getConnection();
+        Assert.assertEquals(1, ds.getPool().getActive());
+        Thread.sleep(1500);
+        ds.getPool().checkAbandoned();
+        Assert.assertTrue(con.isClosed());
+        Assert.assertEquals(0, ds.getPool().getActive());
+        Assert.assertEquals(0, ds.getPool().getSize());
+        con.close();
+        Assert.assertEquals(0, ds.getPool().getIdle());
+    }
+
+    public static class RecordingInterceptor extends JdbcInterceptor {
+
+        static final List<Method> methods = Collections.synchronizedList(new ArrayList<Method>());
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            methods.add(method);
+            return super.invoke(proxy, method, args);
+        }
+
+        @Override
+        public void reset(ConnectionPool parent, PooledConnection con) {
+            // NOOP
+        }
+    }
+}
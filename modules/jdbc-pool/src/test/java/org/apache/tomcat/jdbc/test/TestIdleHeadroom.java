@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.jdbc.test;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolConfiguration;
+import org.apache.tomcat.jdbc.test.driver.Driver;
+
+public class TestIdleHeadroom {
+
+    protected volatile DataSource ds = null;
+
+    @Before
+    public void setUp() throws Exception {
+        PoolConfiguration p = new DefaultProperties();
+        p.setDriverClassName(Driver.class.getName());
+        p.setUrl(Driver.url);
+        p.setJmxEnabled(false);
+        p.setTestWhileIdle(false);
+        p.setTestOnBorrow(false);
+        p.setInitialSize(0);
+        p.setMinIdle(0);
+        p.setMaxIdle(10);
+        p.setMaxActive(10);
+        p.setMaxWait(10000);
+        p.setTimeBetweenEvictionRunsMillis(30000);
+        p.setIdleHeadroom(3);
+        ds = new DataSource();
+        ds.setPoolProperties(p);
+        Driver.reset();
+        Driver.connectDelay = 100;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ds.close(true);
+        Driver.reset();
+    }
+
+    @Test
+    public void testHeadroom() throws Exception {
+        List<Connection> cons = new ArrayList<>();
+        cons.add(ds.getConnection());
+        waitForIdle(3);
+        Assert.assertEquals(4, Driver.connectCount.get());
+        Assert.assertEquals(4, ds.getPool().getSize());
+
+        // Borrowing an idle connection doesn't wait for a connect
+        CountDownLatch gate = new CountDownLatch(1);
+        Driver.connectGate = gate;
+        cons.add(ds.getConnection());
+        Assert.assertEquals(4, Driver.connectCount.get());
+        gate.countDown();
+        waitForIdle(3);
+        Assert.assertEquals(5, ds.getPool().getSize());
+        Assert.assertEquals(5, Driver.connectCount.get());
+        for (Connection con : cons) {
+            con.close();
+        }
+        Assert.assertEquals(5, ds.getPool().getIdle());
+    }
+
+    @Test
+    public void testMaxActive() throws Exception {
+        ds.getPoolProperties().setMaxActive(3);
+        ds.getPoolProperties().setIdleHeadroom(5);
+        Connection con = ds.getConnection();
+        waitForIdle(2);
+        Thread.sleep(2 * Driver.connectDelay);
+        Assert.assertEquals(3, ds.getPool().getSize());
+        Assert.assertEquals(3, Driver.connectCount.get());
+        con.close();
+    }
+
+    @Test
+    public void testMaxConcurrentCreates() throws Exception {
+        ds.getPoolProperties().setMaxConcurrentCreates(1);
+        Connection con = ds.getConnection();
+        waitForIdle(3);
+        // Only one connection is opened at a time in the background, while
+        // the borrowing thread may still be opening its own
+        Assert.assertTrue(Driver.maxConnecting.get() <= 2);
+        Assert.assertEquals(4, Driver.connectCount.get());
+        con.close();
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        ds.getPoolProperties().setIdleHeadroom(0);
+        Connection con = ds.getConnection();
+        Thread.sleep(2 * Driver.connectDelay);
+        Assert.assertEquals(1, Driver.connectCount.get());
+        Assert.assertEquals(0, ds.getPool().getIdle());
+        con.close();
+    }
+
+    private void waitForIdle(int count) throws InterruptedException {
+        long timeout = System.currentTimeMillis() + 5000;
+        while (ds.getPool().getIdle() < count && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(count, ds.getPool().getIdle());
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.jdbc.test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.coyote.Request;
+import org.apache.coyote.RequestInfo;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolConfiguration;
+import org.apache.tomcat.jdbc.pool.interceptor.StatementTimeInterceptor;
+import org.apache.tomcat.jdbc.test.driver.Driver;
+
+public class TestJdbcTime {
+
+    protected volatile DataSource ds = null;
+
+    @Before
+    public void setUp() throws Exception {
+        PoolConfiguration p = new DefaultProperties();
+        p.setDriverClassName(Driver.class.getName());
+        p.setUrl(Driver.url);
+        p.setJmxEnabled(false);
+        p.setTestWhileIdle(false);
+        p.setTestOnBorrow(false);
+        p.setInitialSize(0);
+        p.setMinIdle(0);
+        p.setMaxIdle(10);
+        p.setMaxActive(10);
+        p.setJdbcInterceptors(StatementTimeInterceptor.class.getName());
+        ds = new DataSource();
+        ds.setPoolProperties(p);
+        Driver.reset();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        RequestInfo.unbind();
+        ds.close(true);
+        Driver.reset();
+    }
+
+    @Test
+    public void testTimes() throws Exception {
+        Driver.connectDelay = 100;
+        try (Connection con = ds.getConnection()) {
+            try (Statement st = con.createStatement()) {
+                Assert.assertTrue(Proxy.isProxyClass(st.getClass()));
+                st.execute("select 1");
+            }
+            Thread.sleep(100);
+            // Nothing is recorded until the connection is returned
+            Assert.assertEquals(0, ds.getHoldTime());
+        }
+        Assert.assertTrue(ds.getBorrowWaitTime() >= 100);
+        Assert.assertTrue(ds.getHoldTime() >= 100);
+        Assert.assertTrue(ds.getStatementTime() <= ds.getHoldTime());
+
+        long holdTime = ds.getHoldTime();
+        ds.getConnection().close();
+        Assert.assertTrue(ds.getHoldTime() >= holdTime);
+    }
+
+    @Test
+    public void testRequestAttribution() throws Exception {
+        RequestInfo info = new Request().getRequestProcessor();
+        info.bind();
+        Driver.connectDelay = 50;
+        try (Connection con = ds.getConnection()) {
+            Thread.sleep(50);
+        }
+        Assert.assertEquals(ds.getHoldTime(), info.getRequestJdbcHoldTime());
+        Assert.assertEquals(ds.getBorrowWaitTime(), info.getRequestJdbcWaitTime());
+        Assert.assertTrue(info.getRequestJdbcWaitTime() >= 50);
+
+        // Connections returned once the request is unbound are not attributed
+        RequestInfo.unbind();
+        long holdTime = info.getRequestJdbcHoldTime();
+        Connection con = ds.getConnection();
+        Thread.sleep(20);
+        con.close();
+        Assert.assertEquals(holdTime, info.getRequestJdbcHoldTime());
+    }
+}
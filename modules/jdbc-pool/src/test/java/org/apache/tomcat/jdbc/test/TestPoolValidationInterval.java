@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.jdbc.test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolConfiguration;
+import org.apache.tomcat.jdbc.test.driver.Driver;
+
+public class TestPoolValidationInterval {
+
+    protected volatile DataSource ds = null;
+
+    @Before
+    public void setUp() throws Exception {
+        PoolConfiguration p = new DefaultProperties();
+        p.setDriverClassName(Driver.class.getName());
+        p.setUrl(Driver.url);
+        p.setJmxEnabled(false);
+        p.setValidationQuery(null);
+        p.setTestWhileIdle(false);
+        p.setTestOnBorrow(true);
+        p.setTestOnReturn(true);
+        p.setInitialSize(5);
+        p.setMinIdle(0);
+        p.setMaxIdle(10);
+        p.setMaxActive(10);
+        p.setTimeBetweenEvictionRunsMillis(30000);
+        p.setPoolValidationInterval(30000);
+        ds = new DataSource();
+        ds.setPoolProperties(p);
+        Driver.reset();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ds.close(true);
+        Driver.reset();
+    }
+
+    @Test
+    public void testIsValid() throws Exception {
+        ds.getPoolProperties().setPoolValidationInterval(0);
+        Connection con = ds.getConnection();
+        Assert.assertTrue(Driver.validCount.get() > 0);
+        int count = Driver.validCount.get();
+        con.close();
+        // Each borrow and each return is validated
+        for (int i = 0; i < 5; i++) {
+            ds.getConnection().close();
+        }
+        Assert.assertEquals(count + 11, Driver.validCount.get());
+        // Without a validationQueryTimeout, isValid() still times out
+        Assert.assertEquals(5, Driver.lastValidTimeout);
+        ds.getPoolProperties().setValidationQueryTimeout(2);
+        ds.getConnection().close();
+        Assert.assertEquals(2, Driver.lastValidTimeout);
+    }
+
+    @Test
+    public void testCoalesced() throws Exception {
+        Connection[] cons = new Connection[5];
+        for (int i = 0; i < cons.length; i++) {
+            cons[i] = ds.getConnection();
+        }
+        for (Connection con : cons) {
+            con.close();
+        }
+        // Only the first validation was performed
+        Assert.assertEquals(1, Driver.validCount.get());
+    }
+
+    @Test
+    public void testRevalidateIdle() throws Exception {
+        ds.getPoolProperties().setPoolValidationInterval(100);
+        ds.getConnection().close();
+        Assert.assertEquals(5, ds.getPool().getIdle());
+        Thread.sleep(200);
+
+        ds.getPoolProperties().setMaxConcurrentCreates(2);
+        Driver.validDelay = 50;
+        Driver.valid = false;
+        try {
+            ds.getConnection();
+            Assert.fail("Invalid connection was handed out");
+        } catch (SQLException x) {
+            // Expected
+        }
+        // All idle connections are validated and closed in the background
+        long timeout = System.currentTimeMillis() + 5000;
+        while (ds.getPool().getIdle() > 0 && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(0, ds.getPool().getIdle());
+        Assert.assertEquals(0, ds.getPool().getSize());
+        // At most maxConcurrentCreates idle connections are validated at a
+        // time, while the borrowing thread may validate a new connection
+        Assert.assertTrue(Driver.maxValidating.get() <= 3);
+
+        Driver.valid = true;
+        ds.getConnection().close();
+        Assert.assertEquals(1, ds.getPool().getIdle());
+    }
+
+    @Test
+    public void testIdleValidationSucceeded() throws Exception {
+        ds.getPoolProperties().setPoolValidationInterval(100);
+        ds.getPoolProperties().setValidationInterval(0);
+        ds.getPoolProperties().setTestWhileIdle(true);
+        ds.getConnection().close();
+        Thread.sleep(200);
+
+        ds.getPool().testAllIdle();
+        int count = Driver.validCount.get();
+        Assert.assertTrue(count > 1);
+        // Validating the idle connections does not skip the next borrow
+        ds.getConnection().close();
+        Assert.assertEquals(count + 1, Driver.validCount.get());
+    }
+
+    @Test
+    public void testIdleValidationFailed() throws Exception {
+        ds.getPoolProperties().setValidationInterval(0);
+        ds.getPoolProperties().setTestWhileIdle(true);
+        ds.getConnection().close();
+        Assert.assertEquals(1, Driver.validCount.get());
+
+        Driver.valid = false;
+        ds.getPool().testAllIdle();
+        Assert.assertEquals(0, ds.getPool().getIdle());
+        // The idle failures do not reset the pool validation interval
+        int count = Driver.validCount.get();
+        Driver.valid = true;
+        ds.getConnection().close();
+        Assert.assertEquals(count, Driver.validCount.get());
+    }
+}
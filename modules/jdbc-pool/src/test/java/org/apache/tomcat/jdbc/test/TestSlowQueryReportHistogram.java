@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.jdbc.test;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolConfiguration;
+import org.apache.tomcat.jdbc.pool.interceptor.SlowQueryReport;
+import org.apache.tomcat.jdbc.pool.interceptor.SlowQueryReportHistogram;
+import org.apache.tomcat.jdbc.pool.interceptor.SlowQueryReportHistogram.Histogram;
+import org.apache.tomcat.jdbc.pool.interceptor.SlowQueryReportHistogram.ShapeStats;
+import org.apache.tomcat.jdbc.test.driver.Driver;
+
+public class TestSlowQueryReportHistogram {
+
+    protected volatile DataSource ds = null;
+
+    @Before
+    public void setUp() throws Exception {
+        PoolConfiguration p = new DefaultProperties();
+        p.setDriverClassName(Driver.class.getName());
+        p.setUrl(Driver.url);
+        p.setName("TestSlowQueryReportHistogram");
+        p.setJmxEnabled(false);
+        p.setTestWhileIdle(false);
+        p.setTestOnBorrow(false);
+        p.setInitialSize(0);
+        p.setMaxActive(1);
+        p.setJdbcInterceptors(SlowQueryReportHistogram.class.getName() + "(threshold=-1,maxQueries=2,logSlow=false)");
+        ds = new DataSource();
+        ds.setPoolProperties(p);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ds.close(true);
+        Driver.reset();
+    }
+
+    @Test
+    public void testNormalize() {
+        Assert.assertEquals("select * from t where a = ? and b = ?",
+                SlowQueryReportHistogram.normalize("select *  from t\n where a = 'x''y' and b = 42"));
+        Assert.assertEquals("select * from t where a in (?)",
+                SlowQueryReportHistogram.normalize("select * from t where a in (1, 2.5,-3e-4 , 'z')"));
+        Assert.assertEquals("select col1 from \"tab 2\" where c = ?",
+                SlowQueryReportHistogram.normalize("select col1 /* hint */ from \"tab 2\" where c = ? -- comment"));
+        Assert.assertEquals("update t set v = ? - ? where id = ?",
+                SlowQueryReportHistogram.normalize("update t set v = 0x1F - 1 where id = -1"));
+        Assert.assertEquals("", SlowQueryReportHistogram.normalize(null));
+    }
+
+    @Test
+    public void testHistogram() {
+        Histogram h = new Histogram();
+        Assert.assertEquals(0, h.getValueAtPercentile(50));
+        for (int i = 1; i <= 1000; i++) {
+            h.record(i);
+        }
+        Assert.assertEquals(1000, h.getCount());
+        Assert.assertEquals(500500, h.getTotal());
+        Assert.assertEquals(1, h.getMin());
+        Assert.assertEquals(1000, h.getMax());
+        long[] values = h.getValuesAtPercentiles(50, 90, 99, 100);
+        assertWithin(500, values[0]);
+        assertWithin(900, values[1]);
+        assertWithin(990, values[2]);
+        Assert.assertEquals(1000, values[3]);
+        // Small values are exact
+        h = new Histogram();
+        h.record(3);
+        h.record(7);
+        Assert.assertEquals(3, h.getValueAtPercentile(50));
+        Assert.assertEquals(7, h.getValueAtPercentile(99));
+        // Out of range values are clamped
+        h.record(-5);
+        h.record(Long.MAX_VALUE);
+        Assert.assertEquals(0, h.getMin());
+        Assert.assertEquals(Integer.MAX_VALUE, h.getMax());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        Assert.assertTrue("Expected " + expected + " but was " + actual,
+                actual >= expected && actual <= expected + expected / 16);
+    }
+
+    @Test
+    public void testTopK() throws Exception {
+        Connection con = ds.getConnection();
+        execute(con, "select * from a where id = 1", 3);
+        execute(con, "select * from a where id = 2", 2);
+        execute(con, "select * from b where id = 'x'", 1);
+        Map<String,ShapeStats> shapes = SlowQueryReportHistogram.getPoolShapes(ds.getPool().getName());
+        Assert.assertEquals(2, shapes.size());
+        ShapeStats a = shapes.get("select * from a where id = ?");
+        Assert.assertEquals(5, a.getCount());
+        Assert.assertEquals(0, a.getCountError());
+        Assert.assertEquals(5, a.getHistogram().getCount());
+        Assert.assertEquals(5, a.getSlowCount());
+
+        // The least frequent shape is replaced and its count inherited
+        execute(con, "select * from c", 1);
+        Assert.assertEquals(2, shapes.size());
+        Assert.assertNull(shapes.get("select * from b where id = ?"));
+        ShapeStats c = shapes.get("select * from c");
+        Assert.assertEquals(2, c.getCount());
+        Assert.assertEquals(1, c.getCountError());
+        Assert.assertEquals(1, c.getHistogram().getCount());
+        Assert.assertNotNull(shapes.get("select * from a where id = ?"));
+
+        // Queries are not tracked by their SQL text
+        Assert.assertEquals(0, SlowQueryReport.getPoolStats(ds.getPool().getName()).size());
+        con.close();
+    }
+
+    @Test
+    public void testJmx() throws Exception {
+        Connection con = ds.getConnection();
+        execute(con, "select 1", 1);
+        execute(con, "select 2 from dual", 2);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName oname = new ObjectName(ConnectionPool.POOL_JMX_TYPE_PREFIX +
+                SlowQueryReportHistogram.class.getName() + ",name=" + ds.getPool().getName());
+        Assert.assertTrue(server.isRegistered(oname));
+        CompositeData[] data = (CompositeData[]) server.getAttribute(oname, "QueryShapesCD");
+        Assert.assertEquals(2, data.length);
+        Assert.assertEquals("select ? from dual", data[0].get("query"));
+        Assert.assertEquals(Long.valueOf(2), data[0].get("count"));
+        Assert.assertEquals(Long.valueOf(0), data[0].get("countError"));
+        Assert.assertNotNull(data[0].get("p99Time"));
+        Assert.assertEquals("select ?", data[1].get("query"));
+
+        server.invoke(oname, "resetStats", null, null);
+        data = (CompositeData[]) server.getAttribute(oname, "QueryShapesCD");
+        Assert.assertEquals(0, data.length);
+        con.close();
+
+        ds.close(true);
+        Assert.assertFalse(server.isRegistered(oname));
+    }
+
+    private static void execute(Connection con, String sql, int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            Statement st = con.createStatement();
+            st.executeQuery(sql).close();
+            st.close();
+        }
+    }
+}
@@ -16,14 +16,20 @@
  */
 package org.apache.tomcat.jdbc.test;
 
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Test;
 
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
 import org.apache.tomcat.jdbc.pool.JdbcInterceptor;
 import org.apache.tomcat.jdbc.pool.interceptor.StatementCache;
 import org.apache.tomcat.jdbc.pool.interceptor.StatementCounterInterceptor;
@@ -175,6 +181,95 @@ public class TestStatementCache extends DefaultTestCase {
         con2.close();
     }
 
+    @Test
+    public void testKeyIncludesArguments() throws Exception {
+        init();
+        config(true,false,100);
+        Connection con = datasource.getConnection();
+        con.prepareStatement("select 1").close();
+        Assert.assertEquals(1,interceptor.getCacheSize().get());
+        PreparedStatement ps = con.prepareStatement("select 1", Statement.RETURN_GENERATED_KEYS);
+        Assert.assertEquals("Different arguments, not taken from the cache", 1, interceptor.getCacheSize().get());
+        ps.close();
+        Assert.assertEquals(2,interceptor.getCacheSize().get());
+        ps = con.prepareStatement("select 1");
+        Assert.assertEquals(1,interceptor.getCacheSize().get());
+        ps.close();
+        con.close();
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() throws Exception {
+        init();
+        datasource.setJdbcInterceptors(
+                TestStatementCacheInterceptor.class.getName()
+                + "(prepared=true,callable=false,max=100,maxPerConnection=2);"
+                + StatementCounterInterceptor.class.getName());
+        Connection con = datasource.getConnection();
+        StatementCounterInterceptor counter = findInterceptor(con, StatementCounterInterceptor.class);
+        con.prepareStatement("select 1").close();
+        con.prepareStatement("select 2").close();
+        // Taken from the cache and returned, "select 2" is now the oldest
+        con.prepareStatement("select 1").close();
+        con.prepareStatement("select 3").close();
+        Assert.assertEquals(2, interceptor.getCacheSize().get());
+        Assert.assertEquals("Evicted statement is closed", 2, counter.getActiveCount());
+        Assert.assertEquals(1, interceptor.getEvictionCount());
+
+        long hits = interceptor.getHitCount();
+        con.prepareStatement("select 1").close();
+        Assert.assertEquals(hits + 1, interceptor.getHitCount());
+        con.prepareStatement("select 2").close();
+        Assert.assertEquals(hits + 1, interceptor.getHitCount());
+        Assert.assertEquals(2, interceptor.getEvictionCount());
+        con.close();
+    }
+
+    @Test
+    public void testPrewarm() throws Exception {
+        init();
+        datasource.setJdbcInterceptors(TestStatementCacheInterceptor.class.getName()+
+                "(prepared=true,callable=false,max=100,prewarm=2)");
+        Connection con1 = datasource.getConnection();
+        for (int i=0; i<3; i++) {
+            con1.prepareStatement("select 1").close();
+        }
+        for (int i=0; i<2; i++) {
+            con1.prepareStatement("select 2").close();
+        }
+        con1.prepareStatement("select 3").close();
+        Assert.assertEquals(0, interceptor.getPrewarmedCount());
+
+        // A different physical connection
+        Connection con2 = datasource.getConnection();
+        long hits = interceptor.getHitCount();
+        con2.prepareStatement("select 2").close();
+        Assert.assertEquals(2, interceptor.getPrewarmedCount());
+        Assert.assertEquals(hits + 1, interceptor.getHitCount());
+        Assert.assertEquals(5, interceptor.getCacheSize().get());
+        con1.close();
+        con2.close();
+    }
+
+    @Test
+    public void testJmx() throws Exception {
+        init();
+        datasource.getPoolProperties().setJmxEnabled(true);
+        config(true,false,100);
+        Connection con = datasource.getConnection();
+        con.prepareStatement("select 1").close();
+        con.prepareStatement("select 1").close();
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        ObjectName oname = new ObjectName(ConnectionPool.POOL_JMX_TYPE_PREFIX +
+                StatementCache.class.getName() + ",name=" + datasource.getPool().getName());
+        Assert.assertEquals(Long.valueOf(1), mbs.getAttribute(oname, "HitCount"));
+        Assert.assertEquals(Long.valueOf(1), mbs.getAttribute(oname, "MissCount"));
+        Assert.assertEquals(Integer.valueOf(1), mbs.getAttribute(oname, "CachedStatementCount"));
+        con.close();
+        datasource.close();
+        Assert.assertFalse(mbs.isRegistered(oname));
+    }
+
 
     public static class TestStatementCacheInterceptor extends StatementCache {
         public TestStatementCacheInterceptor() {
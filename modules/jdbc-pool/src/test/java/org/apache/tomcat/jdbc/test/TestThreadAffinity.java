@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.jdbc.test;
+
+import java.sql.Connection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolConfiguration;
+import org.apache.tomcat.jdbc.test.driver.Driver;
+
+public class TestThreadAffinity {
+
+    protected volatile DataSource ds = null;
+
+    @Before
+    public void setUp() throws Exception {
+        PoolConfiguration p = new DefaultProperties();
+        p.setDriverClassName(Driver.class.getName());
+        p.setUrl(Driver.url);
+        p.setJmxEnabled(false);
+        p.setTestWhileIdle(false);
+        p.setTestOnBorrow(false);
+        p.setTestOnReturn(false);
+        p.setInitialSize(0);
+        p.setMinIdle(0);
+        p.setMaxIdle(10);
+        p.setMaxActive(10);
+        p.setMaxWait(10000);
+        p.setRemoveAbandoned(false);
+        p.setUseThreadAffinity(true);
+        ds = new DataSource();
+        ds.setPoolProperties(p);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ds.close(true);
+        Driver.reset();
+    }
+
+    @Test
+    public void testReclaimConnection() throws Exception {
+        Connection con1 = ds.getConnection();
+        Connection con2 = ds.getConnection();
+        Connection real1 = getRealConnection(con1);
+        Connection real2 = getRealConnection(con2);
+        con2.close();
+        con1.close();
+        Assert.assertEquals(2, ds.getPool().getIdle());
+        // The connection returned last is reclaimed, not the oldest idle one
+        con1 = ds.getConnection();
+        Assert.assertSame(real1, getRealConnection(con1));
+        Assert.assertEquals(1, ds.getPool().getIdle());
+        Assert.assertEquals(1, ds.getPool().getActive());
+        con1.close();
+        con1 = ds.getConnection();
+        Assert.assertSame(real1, getRealConnection(con1));
+        con1.close();
+        Assert.assertEquals(2, ds.getPool().getIdle());
+        Assert.assertEquals(2, ds.getPool().getSize());
+        Assert.assertNotSame(real1, real2);
+        Assert.assertEquals(2, Driver.connectCount.get());
+    }
+
+    @Test
+    public void testReclaimedConnectionNotShared() throws Exception {
+        ds.getPoolProperties().setMaxActive(1);
+        ds.getPoolProperties().setMaxIdle(1);
+        final Connection con = ds.getConnection();
+        final Connection real = getRealConnection(con);
+        con.close();
+        // Reclaimed while its entry is still in the idle queue
+        final Connection reclaimed = ds.getConnection();
+        Assert.assertSame(real, getRealConnection(reclaimed));
+        Assert.assertEquals(0, ds.getPool().getIdle());
+
+        final AtomicReference<Connection> other = new AtomicReference<>();
+        final AtomicReference<Exception> error = new AtomicReference<>();
+        Thread t = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Connection con = ds.getConnection();
+                    other.set(getRealConnection(con));
+                    con.close();
+                } catch (Exception x) {
+                    error.set(x);
+                }
+            }
+        };
+        t.start();
+        // The other thread has to wait for the connection to be returned
+        Thread.sleep(500);
+        Assert.assertNull(other.get());
+        reclaimed.close();
+        t.join();
+        Assert.assertNull(error.get());
+        Assert.assertSame(real, other.get());
+        Assert.assertEquals(1, ds.getPool().getIdle());
+        Assert.assertEquals(1, ds.getPool().getSize());
+    }
+
+    @Test
+    public void testCheckIdleIgnoresStaleEntries() throws Exception {
+        ds.getPoolProperties().setMinIdle(2);
+        Connection con1 = ds.getConnection();
+        Connection con2 = ds.getConnection();
+        Connection con3 = ds.getConnection();
+        con1.close();
+        con2.close();
+        con3.close();
+        // Reclaimed while its entry is still in the idle queue
+        Connection reclaimed = ds.getConnection();
+        Assert.assertEquals(2, ds.getPool().getIdle());
+        ds.getPool().purgeOnReturn();
+        ds.getPool().checkIdle();
+        // Releasing stops once the live idle connections drop below minIdle
+        Assert.assertEquals(1, ds.getPool().getIdle());
+        Assert.assertEquals(2, ds.getPool().getSize());
+        reclaimed.close();
+    }
+
+    @Test
+    public void testConcurrentBorrow() throws Exception {
+        doTestConcurrentBorrow(false);
+    }
+
+    @Test
+    public void testConcurrentBorrowFair() throws Exception {
+        doTestConcurrentBorrow(true);
+    }
+
+    private void doTestConcurrentBorrow(boolean fair) throws Exception {
+        ds.getPoolProperties().setFairQueue(fair);
+        ds.getPoolProperties().setMaxActive(4);
+        ds.getPoolProperties().setMaxIdle(4);
+        final Set<Connection> inUse =
+                Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<Connection,Boolean>()));
+        final AtomicInteger failures = new AtomicInteger(0);
+        Thread[] threads = new Thread[10];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < 2000; j++) {
+                            Connection con = ds.getConnection();
+                            Connection real = getRealConnection(con);
+                            if (!inUse.add(real)) {
+                                failures.incrementAndGet();
+                            }
+                            if (j % 10 == 0) {
+                                Thread.yield();
+                            }
+                            inUse.remove(real);
+                            con.close();
+                        }
+                    } catch (Exception x) {
+                        x.printStackTrace();
+                        failures.incrementAndGet();
+                    }
+                }
+            };
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        Assert.assertEquals(0, failures.get());
+        Assert.assertEquals(0, ds.getPool().getActive());
+        Assert.assertEquals(ds.getPool().getSize(), ds.getPool().getIdle());
+        Assert.assertTrue(ds.getPool().getSize() <= 4);
+    }
+
+    private static Connection getRealConnection(Connection con) throws Exception {
+        return ((javax.sql.PooledConnection) con).getConnection();
+    }
+}
@@ -166,7 +166,25 @@ public class Connection implements java.sql.Connection {
 
     @Override
     public boolean isValid(int timeout) throws SQLException {
-        return false;
+        Driver.validCount.incrementAndGet();
+        Driver.lastValidTimeout = timeout;
+        int current = Driver.validating.incrementAndGet();
+        try {
+            int max = Driver.maxValidating.get();
+            while (current > max && !Driver.maxValidating.compareAndSet(max, current)) {
+                max = Driver.maxValidating.get();
+            }
+            if (Driver.validDelay > 0) {
+                try {
+                    Thread.sleep(Driver.validDelay);
+                } catch (InterruptedException x) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return Driver.valid;
+        } finally {
+            Driver.validating.decrementAndGet();
+        }
     }
 
     @Override
@@ -22,6 +22,8 @@ import java.sql.DriverPropertyInfo;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
 import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
@@ -29,10 +31,51 @@ public class Driver implements java.sql.Driver {
     public static final String url = "jdbc:tomcat:test";
     public static final AtomicInteger connectCount = new AtomicInteger(0);
     public static final AtomicInteger disconnectCount = new AtomicInteger(0);
+    /**
+     * Milliseconds each connect takes, to simulate the latency of
+     * establishing a connection to a remote database.
+     */
+    public static volatile long connectDelay = 0;
+    /**
+     * If set, connects wait, for at most ten seconds, until the latch is
+     * released.
+     */
+    public static volatile CountDownLatch connectGate = null;
+    /**
+     * Number of connects in progress and the highest number seen at the
+     * same time.
+     */
+    public static final AtomicInteger connecting = new AtomicInteger(0);
+    public static final AtomicInteger maxConnecting = new AtomicInteger(0);
+    /**
+     * Number of {@link java.sql.Connection#isValid(int)} calls and the value
+     * they return, to simulate a database that went away.
+     */
+    public static final AtomicInteger validCount = new AtomicInteger(0);
+    public static volatile boolean valid = true;
+    /**
+     * Milliseconds each {@link java.sql.Connection#isValid(int)} call takes,
+     * the number of calls in progress, the highest number seen at the same
+     * time and the timeout of the last call.
+     */
+    public static volatile long validDelay = 0;
+    public static final AtomicInteger validating = new AtomicInteger(0);
+    public static final AtomicInteger maxValidating = new AtomicInteger(0);
+    public static volatile int lastValidTimeout = -1;
 
     public static void reset() {
         connectCount.set(0);
         disconnectCount.set(0);
+        connectDelay = 0;
+        connectGate = null;
+        connecting.set(0);
+        maxConnecting.set(0);
+        validCount.set(0);
+        valid = true;
+        validDelay = 0;
+        validating.set(0);
+        maxValidating.set(0);
+        lastValidTimeout = -1;
     }
 
     static {
@@ -54,7 +97,29 @@ public class Driver implements java.sql.Driver {
 
     @Override
     public Connection connect(String url, Properties info) throws SQLException {
-        connectCount.addAndGet(1);
+        int current = connecting.incrementAndGet();
+        try {
+            int max = maxConnecting.get();
+            while (current > max && !maxConnecting.compareAndSet(max, current)) {
+                max = maxConnecting.get();
+            }
+            long delay = connectDelay;
+            CountDownLatch gate = connectGate;
+            try {
+                if (delay > 0) {
+                    Thread.sleep(delay);
+                }
+                if (gate != null) {
+                    gate.await(10, TimeUnit.SECONDS);
+                }
+            } catch (InterruptedException x) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Connect interrupted.", x);
+            }
+            connectCount.addAndGet(1);
+        } finally {
+            connecting.decrementAndGet();
+        }
         return new org.apache.tomcat.jdbc.test.driver.Connection(info);
     }
 
@@ -195,6 +195,25 @@ public class TestBeanELResolver {
         resolver.getValue(context, new TesterBean(BEAN_NAME), PROPERTY01_NAME);
     }
 
+    /**
+     * Tests that the exception thrown by the getter method is the cause.
+     */
+    @Test
+    public void testGetValue08() {
+        BeanELResolver resolver = new BeanELResolver();
+        ELContext context = new StandardELContext(ELManager.getExpressionFactory());
+
+        // Twice to check the cached property
+        for (int i = 0; i < 2; i++) {
+            try {
+                resolver.getValue(context, new TesterBean(BEAN_NAME), PROPERTY01_NAME);
+                Assert.fail();
+            } catch (ELException e) {
+                Assert.assertEquals(Exception.class, e.getCause().getClass());
+            }
+        }
+    }
+
     /**
      * Tests that a null context results in an NPE as per EL Javadoc.
      */
@@ -273,6 +292,36 @@ public class TestBeanELResolver {
         resolver.setValue(context, new TesterBean(BEAN_NAME), PROPERTY01_NAME, PROPERTY_VALUE);
     }
 
+    /**
+     * Tests that a property is writable after it has been checked with
+     * isReadOnly.
+     */
+    @Test
+    public void testSetValue08() {
+        BeanELResolver resolver = new BeanELResolver();
+        ELContext context = new StandardELContext(ELManager.getExpressionFactory());
+
+        TesterBean bean = new TesterBean(BEAN_NAME);
+        Assert.assertFalse(resolver.isReadOnly(context, bean, "valueC"));
+        Integer[] values = new Integer[] {Integer.valueOf(1)};
+        resolver.setValue(context, bean, "valueC", values);
+
+        Assert.assertSame(values, bean.getValueC());
+        Assert.assertSame(values, resolver.getValue(context, bean, "valueC"));
+    }
+
+    /**
+     * Tests that an exception will be thrown when the value has the wrong
+     * type.
+     */
+    @Test(expected = ELException.class)
+    public void testSetValue09() {
+        BeanELResolver resolver = new BeanELResolver();
+        ELContext context = new StandardELContext(ELManager.getExpressionFactory());
+
+        resolver.setValue(context, new TesterBean(BEAN_NAME), "valueC", PROPERTY_VALUE);
+    }
+
     /**
      * Tests that a null context results in an NPE as per EL Javadoc.
      */
@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.ha.deploy;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.catalina.ha.CatalinaCluster;
+import org.apache.catalina.ha.ClusterMessage;
+import org.apache.catalina.startup.LoggingBaseTest;
+import org.apache.catalina.tribes.Channel;
+import org.apache.catalina.tribes.Member;
+import org.apache.catalina.tribes.membership.MemberImpl;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+
+public class TestFarmWarDeployer extends LoggingBaseTest {
+
+    private final List<Member[]> sentTo = new CopyOnWriteArrayList<>();
+    private final List<ClusterMessage> acks = new CopyOnWriteArrayList<>();
+    private Member local;
+    private Member[] members;
+    private FarmWarDeployer deployer;
+
+    @Before
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        local = new MemberImpl("127.0.0.1", 4000, 0);
+        members = new Member[] {
+                new MemberImpl("127.0.0.1", 4001, 0),
+                new MemberImpl("127.0.0.1", 4002, 0) };
+
+        Channel channel = EasyMock.createNiceMock(Channel.class);
+        channel.send(EasyMock.<Member[]>anyObject(), EasyMock.<Serializable>anyObject(),
+                EasyMock.anyInt());
+        EasyMock.expectLastCall().andStubAnswer(new IAnswer<Object>() {
+            @Override
+            public Object answer() throws Throwable {
+                sentTo.add((Member[]) EasyMock.getCurrentArguments()[0]);
+                return null;
+            }
+        });
+        CatalinaCluster cluster = EasyMock.createNiceMock(CatalinaCluster.class);
+        EasyMock.expect(cluster.getMembers()).andStubReturn(members);
+        EasyMock.expect(cluster.getLocalMember()).andStubReturn(local);
+        EasyMock.expect(cluster.getChannel()).andStubReturn(channel);
+        cluster.send(EasyMock.anyObject(ClusterMessage.class), EasyMock.anyObject(Member.class));
+        EasyMock.expectLastCall().andStubAnswer(new IAnswer<Object>() {
+            @Override
+            public Object answer() throws Throwable {
+                acks.add((ClusterMessage) EasyMock.getCurrentArguments()[0]);
+                return null;
+            }
+        });
+        EasyMock.replay(channel, cluster);
+
+        deployer = new FarmWarDeployer();
+        deployer.setCluster(cluster);
+        deployer.setDeltaSync(true);
+        deployer.setChunkSize(4096);
+        deployer.resendExecutor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    @Override
+    public void tearDown() throws Exception {
+        deployer.resendExecutor.shutdownNow();
+        super.tearDown();
+    }
+
+    @Test
+    public void testSendToSnapshotAndRecordAcks() throws Exception {
+        File war = write("app.war", 64 * 1024, 1);
+        deployer.install("/app", war);
+
+        Assert.assertEquals(16, sentTo.size());
+        for (Member[] dest : sentTo) {
+            Assert.assertArrayEquals(members, dest);
+        }
+        FileDelta.Signature signature = deployer.signatures.get("app.war");
+        // Nothing is recorded without an acknowledgement
+        Assert.assertTrue(signature.getMembers().isEmpty());
+
+        deployer.messageReceived(ack(members[0], war, false, true));
+        deployer.messageReceived(ack(members[1], war, false, false));
+        Assert.assertTrue(signature.getMembers().contains(members[0]));
+        Assert.assertFalse(signature.getMembers().contains(members[1]));
+    }
+
+    @Test
+    public void testFullTransferAfterFailedDelta() throws Exception {
+        File war = write("app.war", 64 * 1024, 1);
+        deployer.install("/app", war);
+        FileDelta.Signature signature = deployer.signatures.get("app.war");
+        signature.getMembers().add(members[0]);
+        signature.getMembers().add(members[1]);
+        sentTo.clear();
+
+        byte[] content = Files.readAllBytes(war.toPath());
+        content[100] ^= 0x55;
+        Files.write(war.toPath(), content);
+        deployer.install("/app", war);
+        int deltaMessages = sentTo.size();
+        Assert.assertTrue(deltaMessages < 16);
+        deployer.messageReceived(ack(members[1], war, true, false));
+
+        long timeout = System.currentTimeMillis() + 5000;
+        while (sentTo.size() == deltaMessages && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        deployer.resendExecutor.shutdown();
+        Assert.assertEquals(deltaMessages + 16, sentTo.size());
+        for (Member[] dest : sentTo.subList(deltaMessages, sentTo.size())) {
+            Assert.assertArrayEquals(new Member[] { members[1] }, dest);
+        }
+    }
+
+    @Test
+    public void testFailedDeltaIgnored() throws Exception {
+        FileMessage msg = new FileMessage(members[0], "app.war", "/app");
+        msg.setFileDigest(new byte[] { 1 });
+        msg.setBaseFileDigest(new byte[] { 2 });
+        Assert.assertFalse(deployer.isFailedDelta(msg));
+        deployer.failedDeltas.put("app.war", new byte[] { 1 });
+        Assert.assertTrue(deployer.isFailedDelta(msg));
+
+        // The complete file is never ignored
+        msg.setBaseFileDigest(null);
+        Assert.assertFalse(deployer.isFailedDelta(msg));
+
+        // Neither is a new version
+        msg.setFileDigest(new byte[] { 3 });
+        msg.setBaseFileDigest(new byte[] { 1 });
+        Assert.assertFalse(deployer.isFailedDelta(msg));
+        Assert.assertNull(deployer.failedDeltas.get("app.war"));
+    }
+
+    private FileAckMessage ack(Member from, File war, boolean delta, boolean success)
+            throws IOException {
+        FileMessage msg = new FileMessage(local, war.getName(), "/app");
+        msg.setFileDigest(FileDelta.digest(war));
+        if (delta) {
+            msg.setBaseFileDigest(new byte[16]);
+        }
+        return new FileAckMessage(from, msg, success);
+    }
+
+    private File write(String name, int length, long seed) throws IOException {
+        byte[] content = new byte[length];
+        new Random(seed).nextBytes(content);
+        File f = new File(getTemporaryDirectory(), name);
+        try (OutputStream os = new FileOutputStream(f)) {
+            os.write(content);
+        }
+        return f;
+    }
+}
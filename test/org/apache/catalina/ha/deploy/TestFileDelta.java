@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.ha.deploy;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.catalina.startup.LoggingBaseTest;
+
+public class TestFileDelta extends LoggingBaseTest {
+
+    private static final int BLOCK_SIZE = 1024;
+    private static final int CHUNK_SIZE = 4096;
+
+    @Test
+    public void testFullTransfer() throws Exception {
+        byte[] content = randomBytes(100 * 1024 + 17, 1);
+        File source = write("source.war", content);
+        File target = new File(getTemporaryDirectory(), "target.war");
+
+        FileMessageFactory read = FileMessageFactory.getInstance(source, false, CHUNK_SIZE);
+        read.setFileDigest(FileDelta.digest(source));
+        Assert.assertEquals(26, read.getTotalNrOfMessages());
+        Assert.assertTrue(transfer(read, FileMessageFactory.getInstance(target, true)));
+
+        Assert.assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+    }
+
+    @Test
+    public void testExactMultipleOfChunkSize() throws Exception {
+        byte[] content = randomBytes(4 * CHUNK_SIZE, 2);
+        File source = write("source.war", content);
+        File target = new File(getTemporaryDirectory(), "target.war");
+
+        FileMessageFactory read = FileMessageFactory.getInstance(source, false, CHUNK_SIZE);
+        Assert.assertTrue(transfer(read, FileMessageFactory.getInstance(target, true)));
+
+        Assert.assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+    }
+
+    @Test
+    public void testDeltaTransfer() throws Exception {
+        byte[] base = randomBytes(200 * BLOCK_SIZE, 3);
+        // Change a few bytes, insert a few bytes and append some bytes
+        byte[] changed = new byte[base.length + 13 + 100];
+        System.arraycopy(base, 0, changed, 0, 50 * BLOCK_SIZE);
+        System.arraycopy(randomBytes(13, 4), 0, changed, 50 * BLOCK_SIZE, 13);
+        System.arraycopy(base, 50 * BLOCK_SIZE, changed, 50 * BLOCK_SIZE + 13,
+                base.length - 50 * BLOCK_SIZE);
+        changed[150 * BLOCK_SIZE] ^= 0x55;
+        System.arraycopy(randomBytes(100, 5), 0, changed, base.length + 13, 100);
+
+        File baseFile = write("base.war", base);
+        File source = write("source.war", changed);
+        File target = new File(getTemporaryDirectory(), "target.war");
+
+        FileDelta.Signature signature = FileDelta.Signature.create(baseFile, BLOCK_SIZE);
+        Assert.assertEquals(200, signature.getBlockCount());
+        List<FileDelta.Range> ranges = FileDelta.diff(source, signature, CHUNK_SIZE);
+        long sent = 0;
+        int copies = 0;
+        for (FileDelta.Range range : ranges) {
+            if (range.isCopy()) {
+                copies++;
+            } else {
+                sent += range.getLength();
+            }
+        }
+        Assert.assertEquals(3, copies);
+        Assert.assertTrue("Sent " + sent + " bytes", sent < 3 * BLOCK_SIZE);
+
+        FileMessageFactory read = FileMessageFactory.getInstance(source, false, CHUNK_SIZE);
+        read.setFileDigest(FileDelta.digest(source));
+        read.setDelta(ranges, signature.getDigest());
+        FileMessageFactory write = FileMessageFactory.getInstance(target, true);
+        write.setBaseFile(baseFile);
+        Assert.assertTrue(transfer(read, write));
+
+        Assert.assertArrayEquals(changed, Files.readAllBytes(target.toPath()));
+    }
+
+    @Test
+    public void testDeltaBaseMismatch() throws Exception {
+        byte[] base = randomBytes(20 * BLOCK_SIZE, 6);
+        File baseFile = write("base.war", base);
+        File source = write("source.war", base);
+        File target = new File(getTemporaryDirectory(), "target.war");
+
+        FileDelta.Signature signature = FileDelta.Signature.create(baseFile, BLOCK_SIZE);
+        FileMessageFactory read = FileMessageFactory.getInstance(source, false, CHUNK_SIZE);
+        read.setFileDigest(FileDelta.digest(source));
+        read.setDelta(FileDelta.diff(source, signature, CHUNK_SIZE), signature.getDigest());
+
+        // The receiver has a different previous version
+        base[0] ^= 0x01;
+        write("base.war", base);
+        FileMessageFactory write = FileMessageFactory.getInstance(target, true);
+        write.setBaseFile(baseFile);
+        try {
+            transfer(read, write);
+            Assert.fail();
+        } catch (IOException expected) {
+            // Expected
+        }
+        Assert.assertFalse(target.exists());
+    }
+
+    @Test
+    public void testChecksumMismatch() throws Exception {
+        File source = write("source.war", randomBytes(3 * CHUNK_SIZE, 7));
+        File target = new File(getTemporaryDirectory(), "target.war");
+
+        FileMessageFactory read = FileMessageFactory.getInstance(source, false, CHUNK_SIZE);
+        read.setFileDigest(FileDelta.digest(source));
+        FileMessageFactory write = FileMessageFactory.getInstance(target, true);
+        FileMessage msg = read.readMessage(new FileMessage(null, "target.war", "/target"));
+        msg.getData()[10] ^= 0x01;
+        try {
+            write.writeMessage(msg);
+            Assert.fail();
+        } catch (IOException expected) {
+            // Expected
+        }
+        Assert.assertFalse(target.exists());
+    }
+
+    private boolean transfer(FileMessageFactory read, FileMessageFactory write)
+            throws IOException {
+        boolean complete = false;
+        FileMessage msg = read.readMessage(new FileMessage(null, "target.war", "/target"));
+        while (msg != null) {
+            // The receiver keeps a reference to messages received out of order
+            FileMessage copy = new FileMessage(null, msg.getFileName(), msg.getContextName());
+            if (msg.isCopy()) {
+                copy.setCopy(msg.getBaseOffset(), msg.getCopyLength());
+            } else {
+                copy.setData(Arrays.copyOf(msg.getData(), msg.getDataLength()),
+                        msg.getDataLength());
+            }
+            copy.setChecksum(msg.getChecksum());
+            copy.setFileDigest(msg.getFileDigest());
+            copy.setBaseFileDigest(msg.getBaseFileDigest());
+            copy.setMessageNumber(msg.getMessageNumber());
+            copy.setTotalNrOfMsgs(msg.getTotalNrOfMsgs());
+            complete = write.writeMessage(copy);
+            msg = read.readMessage(msg);
+        }
+        return complete;
+    }
+
+    private File write(String name, byte[] content) throws IOException {
+        File f = new File(getTemporaryDirectory(), name);
+        try (OutputStream os = new FileOutputStream(f)) {
+            os.write(content);
+        }
+        return f;
+    }
+
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] result = new byte[length];
+        new Random(seed).nextBytes(result);
+        return result;
+    }
+}
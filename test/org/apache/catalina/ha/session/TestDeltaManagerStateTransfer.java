@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.ha.session;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.catalina.Session;
+import org.apache.catalina.core.StandardContext;
+import org.apache.catalina.ha.CatalinaCluster;
+import org.apache.catalina.ha.ClusterMessage;
+import org.apache.catalina.tribes.Member;
+import org.apache.catalina.tribes.membership.MemberImpl;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+
+public class TestDeltaManagerStateTransfer {
+
+    private final List<ClusterMessage> sent = new ArrayList<>();
+    private final List<Member> sentTo = new ArrayList<>();
+    private Member[] members;
+    private DeltaManager manager;
+
+    @Before
+    public void setUp() throws Exception {
+        members = new Member[] {
+                new MemberImpl("127.0.0.1", 4001, 0),
+                new MemberImpl("127.0.0.1", 4002, 0),
+                new MemberImpl("127.0.0.1", 4003, 0) };
+
+        CatalinaCluster cluster = EasyMock.createNiceMock(CatalinaCluster.class);
+        EasyMock.expect(cluster.getMembers()).andStubReturn(members);
+        cluster.send(EasyMock.anyObject(ClusterMessage.class), EasyMock.anyObject(Member.class));
+        EasyMock.expectLastCall().andStubAnswer(new IAnswer<Object>() {
+            @Override
+            public Object answer() throws Throwable {
+                sent.add((ClusterMessage) EasyMock.getCurrentArguments()[0]);
+                sentTo.add((Member) EasyMock.getCurrentArguments()[1]);
+                return null;
+            }
+        });
+        EasyMock.replay(cluster);
+
+        manager = createManager(cluster);
+    }
+
+    private static DeltaManager createManager(CatalinaCluster cluster) {
+        DeltaManager manager = new DeltaManager();
+        manager.setName("test");
+        manager.setContext(new StandardContext());
+        manager.setCluster(cluster);
+        manager.setParallelStateTransfer(true);
+        return manager;
+    }
+
+    @Test
+    public void testSessionPartitions() {
+        for (int i = 0; i < 1000; i++) {
+            int partition = DeltaManager.getSessionPartition("ID" + i, 3);
+            Assert.assertTrue(partition >= 0 && partition < 3);
+        }
+    }
+
+    @Test
+    public void testPartitionRoundTrip() throws Exception {
+        int[] partition = manager.deserializeSessionPartition(
+                manager.serializeSessionPartition(2, 5));
+        Assert.assertEquals(2, partition[0]);
+        Assert.assertEquals(5, partition[1]);
+    }
+
+    @Test
+    public void testTransferCompletesAfterAllPartitions() throws Exception {
+        manager.requestSessionPartitions(System.currentTimeMillis());
+        Assert.assertEquals(3, sent.size());
+        for (int i = 0; i < members.length; i++) {
+            SessionMessage msg = (SessionMessage) sent.get(i);
+            Assert.assertEquals(SessionMessage.EVT_GET_ALL_SESSIONS, msg.getEventType());
+            Assert.assertEquals(i, manager.deserializeSessionPartition(msg.getSession())[0]);
+            Assert.assertSame(members[i], sentTo.get(i));
+        }
+
+        for (int i = 0; i < members.length; i++) {
+            Assert.assertFalse(manager.getStateTransfered());
+            manager.handleALL_SESSION_TRANSFERCOMPLETE(transferComplete(), members[i]);
+        }
+        Assert.assertTrue(manager.getStateTransfered());
+    }
+
+    @Test
+    public void testPartitionReassignedWithoutContextManager() throws Exception {
+        manager.requestSessionPartitions(System.currentTimeMillis());
+        sent.clear();
+        sentTo.clear();
+
+        manager.handleALL_SESSION_NOCONTEXTMANAGER(noContextManager(), members[1]);
+        Assert.assertFalse(manager.isNoContextManagerReceived());
+        Assert.assertEquals(1, sent.size());
+        Assert.assertNotSame(members[1], sentTo.get(0));
+        Assert.assertEquals(1, manager.deserializeSessionPartition(
+                ((SessionMessage) sent.get(0)).getSession())[0]);
+
+        manager.handleALL_SESSION_NOCONTEXTMANAGER(noContextManager(), members[0]);
+        manager.handleALL_SESSION_NOCONTEXTMANAGER(noContextManager(), members[2]);
+        Assert.assertTrue(manager.isNoContextManagerReceived());
+    }
+
+    @Test
+    public void testLocalChangeKeptDuringBackgroundTransfer() throws Exception {
+        manager.setBackgroundStateTransfer(true);
+        DeltaManager remote = createManager(null);
+
+        // The copy held by the other member is older than the local change
+        DeltaSession stale = createSession(remote, "STALE", "remote");
+        Thread.sleep(20);
+        DeltaSession local = createSession(manager, "STALE", "local");
+        // The local session is older than the copy held by the other member
+        DeltaSession older = createSession(manager, "NEWER", "local");
+        Thread.sleep(20);
+        DeltaSession newer = createSession(remote, "NEWER", "remote");
+
+        manager.deserializeSessions(remote.serializeSessions(new Session[] { stale, newer }));
+
+        Assert.assertSame(local, manager.findSession("STALE"));
+        Assert.assertEquals("local", local.getAttribute("value"));
+        Session replaced = manager.findSession("NEWER");
+        Assert.assertNotSame(older, replaced);
+        Assert.assertEquals("remote", replaced.getSession().getAttribute("value"));
+    }
+
+    @Test
+    public void testStopBackgroundTransfer() throws Exception {
+        manager.setBackgroundStateTransfer(true);
+        manager.setStateTransferTimeout(-1);
+        manager.startBackgroundStateTransfer();
+        long timeout = System.currentTimeMillis() + 5000;
+        while (!manager.isStateTransferInProgress() && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(manager.isStateTransferInProgress());
+
+        manager.stopBackgroundStateTransfer();
+        Assert.assertFalse(manager.isStateTransferInProgress());
+        // No session is fetched once the transfer has stopped
+        sent.clear();
+        Assert.assertNull(manager.findSession("UNKNOWN"));
+        Assert.assertTrue(sent.isEmpty());
+    }
+
+    private static DeltaSession createSession(DeltaManager manager, String id, String value) {
+        DeltaSession session = (DeltaSession) manager.createEmptySession();
+        session.setValid(true);
+        session.setCreationTime(System.currentTimeMillis());
+        session.setId(id, false);
+        session.access();
+        session.setAttribute("value", value, false, false);
+        session.endAccess();
+        return session;
+    }
+
+    private SessionMessage transferComplete() {
+        SessionMessage msg = new SessionMessageImpl("test",
+                SessionMessage.EVT_ALL_SESSION_TRANSFERCOMPLETE, null,
+                "SESSION-STATE-TRANSFERED", "SESSION-STATE-TRANSFERED");
+        msg.setTimestamp(System.currentTimeMillis());
+        return msg;
+    }
+
+    private SessionMessage noContextManager() {
+        return new SessionMessageImpl("test", SessionMessage.EVT_ALL_SESSION_NOCONTEXTMANAGER,
+                null, "NO-CONTEXT-MANAGER", "NO-CONTEXT-MANAGER");
+    }
+}
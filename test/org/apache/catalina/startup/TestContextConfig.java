@@ -17,8 +17,12 @@
 package org.apache.catalina.startup;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
 
 import javax.servlet.Servlet;
 import javax.servlet.ServletContainerInitializer;
@@ -34,7 +38,9 @@ import org.junit.Test;
 
 import org.apache.catalina.Context;
 import org.apache.catalina.core.StandardContext;
+import org.apache.catalina.loader.MyAnnotatedServlet;
 import org.apache.tomcat.util.buf.ByteChunk;
+import org.apache.tomcat.util.scan.StandardJarScanner;
 
 public class TestContextConfig extends TomcatBaseTest {
 
@@ -153,6 +159,70 @@ public class TestContextConfig extends TomcatBaseTest {
         assertPageContains("/test/TesterServlet2", "OK");
     }
 
+    @Test
+    public void testParallelAnnotationScan() throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+
+        File appDir = new File("test/webapp-fragments");
+        Context context = tomcat.addWebapp(null, "/test", appDir.getAbsolutePath());
+        ((StandardJarScanner) context.getJarScanner()).setScanThreadCount(4);
+
+        tomcat.start();
+
+        assertPageContains("/test/TesterServlet1", "OK");
+        assertPageContains("/test/TesterServlet2", "OK");
+    }
+
+    @Test
+    public void testCacheScanResults() throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+
+        File appDir = new File(getTemporaryDirectory(), "scan-cache");
+        File libDir = new File(appDir, "WEB-INF/lib");
+        Assert.assertTrue(libDir.mkdirs());
+        addDeleteOnTearDown(appDir);
+        String entryName = MyAnnotatedServlet.class.getName().replace('.', '/') + ".class";
+        try (JarOutputStream jos = new JarOutputStream(
+                new FileOutputStream(new File(libDir, "annotated.jar")));
+                InputStream is = MyAnnotatedServlet.class.getResourceAsStream(
+                        "/" + entryName)) {
+            jos.putNextEntry(new JarEntry(entryName));
+            byte[] buf = new byte[4096];
+            int n;
+            while ((n = is.read(buf)) > 0) {
+                jos.write(buf, 0, n);
+            }
+            jos.closeEntry();
+        }
+
+        StandardContext context = (StandardContext) tomcat.addWebapp(
+                null, "/test", appDir.getAbsolutePath());
+        ((StandardJarScanner) context.getJarScanner()).setCacheScanResults(true);
+
+        tomcat.start();
+        assertPageContains("/test/annotatedServlet", "This is generated by an annotated servlet");
+
+        File workDir = new File(context.getWorkPath());
+        File[] cacheFiles = new File[] {
+                new File(workDir, "jar-scan-annotations.cache"),
+                new File(workDir, "jar-scan-web-fragment.cache") };
+        for (File cacheFile : cacheFiles) {
+            Assert.assertTrue(cacheFile.getName(), cacheFile.isFile());
+            Assert.assertTrue(cacheFile.setLastModified(1000000000000L));
+        }
+
+        context.stop();
+        context.start();
+        assertPageContains("/test/annotatedServlet", "This is generated by an annotated servlet");
+
+        // The JAR is unchanged so the results were read from the caches and
+        // the caches were not written again
+        for (File cacheFile : cacheFiles) {
+            Assert.assertEquals(cacheFile.getName(), 1000000000000L,
+                    cacheFile.lastModified());
+        }
+    }
+
     private static class CustomDefaultServletSCI
             implements ServletContainerInitializer {
 
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.tribes.group;
+
+import java.io.Serializable;
+import java.nio.channels.CompletionHandler;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.catalina.tribes.Channel;
+import org.apache.catalina.tribes.Member;
+
+public class TestRpcChannel {
+
+    private static final byte[] RPC_ID = new byte[] {1, 2, 3, 4, 5, 6, 7, 8};
+
+    private GroupChannel channel1;
+    private GroupChannel channel2;
+    private RpcChannel rpc1;
+    private RpcChannel rpc2;
+    private Member[] destination;
+    private volatile long replyDelay = 0;
+
+    @Before
+    public void setUp() throws Exception {
+        channel1 = new GroupChannel();
+        channel2 = new GroupChannel();
+        // No membership required, requests are sent to the local member of
+        // the other channel
+        channel1.start(Channel.SND_RX_SEQ | Channel.SND_TX_SEQ);
+        channel2.start(Channel.SND_RX_SEQ | Channel.SND_TX_SEQ);
+        rpc1 = new RpcChannel(RPC_ID, channel1, new EchoCallback());
+        rpc2 = new RpcChannel(RPC_ID, channel2, new EchoCallback());
+        destination = new Member[] {channel2.getLocalMember(false)};
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        rpc1.breakdown();
+        rpc2.breakdown();
+        channel1.stop(Channel.DEFAULT);
+        channel2.stop(Channel.DEFAULT);
+    }
+
+    @Test
+    public void testSendAsync() throws Exception {
+        Future<Response[]> future = rpc1.sendAsync(destination, "hello",
+                RpcChannel.FIRST_REPLY, Channel.SEND_OPTIONS_DEFAULT, 5000);
+        Response[] responses = future.get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(1, responses.length);
+        Assert.assertEquals("echo:hello", responses[0].getMessage());
+        Assert.assertTrue(future.isDone());
+    }
+
+    @Test
+    public void testManyInFlight() throws Exception {
+        replyDelay = 100;
+        List<Future<Response[]>> futures = new ArrayList<>();
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 20; i++) {
+            futures.add(rpc1.sendAsync(destination, Integer.valueOf(i),
+                    RpcChannel.FIRST_REPLY, Channel.SEND_OPTIONS_ASYNCHRONOUS, 10000));
+        }
+        for (int i = 0; i < 20; i++) {
+            Response[] responses = futures.get(i).get(10, TimeUnit.SECONDS);
+            Assert.assertEquals(1, responses.length);
+            Assert.assertEquals("echo:" + i, responses[0].getMessage());
+        }
+        // The receiver processes the requests one after the other, the
+        // sender must not have waited for each reply before the next request
+        Assert.assertTrue(System.currentTimeMillis() - start < 10000);
+    }
+
+    @Test
+    public void testCompletionHandler() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicInteger completed = new AtomicInteger();
+        rpc1.sendAsync(destination, "handler", RpcChannel.FIRST_REPLY,
+                Channel.SEND_OPTIONS_DEFAULT, 5000, "attachment",
+                new CompletionHandler<Response[],String>() {
+                    @Override
+                    public void completed(Response[] result, String attachment) {
+                        if (result.length == 1 && "attachment".equals(attachment)) {
+                            completed.incrementAndGet();
+                        }
+                        latch.countDown();
+                    }
+
+                    @Override
+                    public void failed(Throwable exc, String attachment) {
+                        latch.countDown();
+                    }
+                });
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, completed.get());
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        replyDelay = 2000;
+        Future<Response[]> future = rpc1.sendAsync(destination, "slow",
+                RpcChannel.FIRST_REPLY, Channel.SEND_OPTIONS_ASYNCHRONOUS, 200);
+        // Like send(), a timeout completes with the replies received so far
+        Response[] responses = future.get(1000, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(0, responses.length);
+    }
+
+    @Test
+    public void testNoDestination() throws Exception {
+        Future<Response[]> future = rpc1.sendAsync(new Member[0], "nobody",
+                RpcChannel.FIRST_REPLY, Channel.SEND_OPTIONS_DEFAULT, 5000);
+        Assert.assertTrue(future.isDone());
+        Assert.assertEquals(0, future.get().length);
+    }
+
+    @Test
+    public void testBreakdown() throws Exception {
+        replyDelay = 2000;
+        Future<Response[]> future = rpc1.sendAsync(destination, "slow",
+                RpcChannel.FIRST_REPLY, Channel.SEND_OPTIONS_ASYNCHRONOUS, 60000);
+        Assert.assertFalse(future.isDone());
+        // Pending requests are completed, nobody will receive their replies
+        rpc1.breakdown();
+        Assert.assertTrue(future.isDone());
+        Assert.assertEquals(0, future.get().length);
+
+        future = rpc1.sendAsync(destination, "late",
+                RpcChannel.FIRST_REPLY, Channel.SEND_OPTIONS_ASYNCHRONOUS, 60000);
+        Assert.assertTrue(future.isDone());
+    }
+
+    private class EchoCallback implements RpcCallback {
+        @Override
+        public Serializable replyRequest(Serializable msg, Member sender) {
+            if (replyDelay > 0) {
+                try {
+                    Thread.sleep(replyDelay);
+                } catch (InterruptedException e) {
+                    // Ignore
+                }
+            }
+            return "echo:" + msg;
+        }
+
+        @Override
+        public void leftOver(Serializable msg, Member sender) {
+            // NO-OP
+        }
+    }
+}
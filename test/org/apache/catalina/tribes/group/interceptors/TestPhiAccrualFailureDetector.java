@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.tribes.group.interceptors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.catalina.tribes.Member;
+import org.apache.catalina.tribes.group.ChannelInterceptorBase;
+import org.apache.catalina.tribes.membership.MemberImpl;
+
+public class TestPhiAccrualFailureDetector {
+
+    private PhiAccrualFailureDetector detector;
+    private Member member1;
+    private Member member2;
+
+    @Before
+    public void setUp() throws Exception {
+        member1 = new MemberImpl("localhost", 4001, 0);
+        member2 = new MemberImpl("localhost", 4002, 0);
+        detector = new PhiAccrualFailureDetector();
+        detector.setNext(new ChannelInterceptorBase() {
+            @Override
+            public Member[] getMembers() {
+                return new Member[] {member1, member2};
+            }
+        });
+    }
+
+    @Test
+    public void testPhiGrowsWithMissingHeartbeats() {
+        long now = 0;
+        for (int i = 0; i < 20; i++) {
+            detector.heartbeatReceived(member1, now);
+            now += 1000;
+        }
+        now -= 1000;
+        double onTime = detector.phi(member1, now + 1000);
+        double late = detector.phi(member1, now + 2000);
+        double veryLate = detector.phi(member1, now + 5000);
+        Assert.assertTrue(onTime < 1.0);
+        Assert.assertTrue(late > onTime);
+        Assert.assertTrue(veryLate > late);
+        Assert.assertTrue(veryLate > detector.getThreshold());
+    }
+
+    @Test
+    public void testNoHistory() {
+        Assert.assertEquals(0.0, detector.phi(member1, 10000), 0.0);
+        detector.heartbeatReceived(member1, 0);
+        // A single heartbeat gives no interval to compare with
+        Assert.assertEquals(0.0, detector.phi(member1, 10000), 0.0);
+    }
+
+    @Test
+    public void testSuspectAndRecover() {
+        long now = 0;
+        for (int i = 0; i < 20; i++) {
+            detector.heartbeatReceived(member1, now);
+            detector.heartbeatReceived(member2, now);
+            now += 1000;
+        }
+        now -= 1000;
+        // member2 keeps sending, member1 is silent
+        for (int i = 0; i < 5; i++) {
+            now += 1000;
+            detector.heartbeatReceived(member2, now);
+        }
+        detector.checkMembers(now);
+
+        Assert.assertTrue(detector.isSuspected(member1));
+        Assert.assertFalse(detector.isSuspected(member2));
+        Assert.assertArrayEquals(new Member[] {member2}, detector.getMembers());
+        Assert.assertArrayEquals(new Member[] {member1}, detector.getSuspectedMembers());
+        Assert.assertEquals(2, detector.getMemberStatistics().length);
+
+        detector.heartbeatReceived(member1, now);
+        Assert.assertFalse(detector.isSuspected(member1));
+        Assert.assertEquals(2, detector.getMembers().length);
+    }
+
+    @Test
+    public void testAcceptableHeartbeatPause() {
+        long now = 0;
+        for (int i = 0; i < 20; i++) {
+            detector.heartbeatReceived(member1, now);
+            now += 1000;
+        }
+        now -= 1000;
+        double strict = detector.phi(member1, now + 3000);
+        detector.setAcceptableHeartbeatPause(3000);
+        double tolerant = detector.phi(member1, now + 3000);
+        Assert.assertTrue(strict > detector.getThreshold());
+        Assert.assertTrue(tolerant < 1.0);
+    }
+
+    @Test
+    public void testReplicationTrafficIsNoSample() {
+        long now = 0;
+        for (int i = 0; i < 20; i++) {
+            detector.heartbeatReceived(member1, now);
+            // A burst of replication messages between the heartbeats
+            for (int j = 1; j <= 10; j++) {
+                detector.messageReceived(member1, now + j);
+            }
+            now += 1000;
+        }
+        now -= 1000;
+        // The traffic stops, the member is suspected as late as without it
+        Assert.assertTrue(detector.phi(member1, now + 1000) < 1.0);
+        Assert.assertTrue(detector.phi(member1, now + 1500) < detector.getThreshold());
+
+        // Replication traffic shows that the member is alive
+        detector.checkMembers(now + 5000);
+        Assert.assertTrue(detector.isSuspected(member1));
+        detector.messageReceived(member1, now + 5000);
+        Assert.assertFalse(detector.isSuspected(member1));
+    }
+
+    @Test
+    public void testMemberDisappeared() {
+        detector.heartbeatReceived(member1, 0);
+        detector.heartbeatReceived(member1, 1000);
+        detector.checkMembers(60000);
+        Assert.assertTrue(detector.isSuspected(member1));
+        detector.memberDisappeared(member1);
+        Assert.assertFalse(detector.isSuspected(member1));
+        Assert.assertEquals(0.0, detector.phi(member1, 60000), 0.0);
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.tribes.membership;
+
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.catalina.tribes.Member;
+import org.apache.catalina.tribes.MembershipListener;
+import org.apache.catalina.tribes.MembershipService;
+
+public class TestGossipMembershipService {
+
+    private static final int MEMBERS = 16;
+
+    private GossipMembershipService[] services;
+    private TestListener[] listeners;
+
+    @Before
+    public void setUp() throws Exception {
+        services = new GossipMembershipService[MEMBERS];
+        listeners = new TestListener[MEMBERS];
+        String seed = null;
+        for (int i = 0; i < MEMBERS; i++) {
+            services[i] = new GossipMembershipService();
+            services[i].setLocalMemberProperties("127.0.0.1", 5000 + i, -1, -1);
+            // Ephemeral gossip ports, the first member is the seed of all others
+            services[i].setPort(0);
+            services[i].setFrequency(100);
+            services[i].setDropTime(2000);
+            services[i].setConnectTimeout(500);
+            if (seed != null) {
+                services[i].setSeeds(seed);
+            }
+            listeners[i] = new TestListener();
+            services[i].setMembershipListener(listeners[i]);
+            services[i].start(MembershipService.MBR_RX);
+            if (seed == null) {
+                InetSocketAddress address = services[i].getGossipAddress();
+                seed = "127.0.0.1:" + address.getPort();
+            }
+        }
+        for (int i = 0; i < MEMBERS; i++) {
+            services[i].start(MembershipService.MBR_TX);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for (GossipMembershipService service : services) {
+            service.stop(MembershipService.MBR_TX);
+            service.stop(MembershipService.MBR_RX);
+        }
+    }
+
+    @Test
+    public void testConvergence() throws Exception {
+        waitForMembers(MEMBERS - 1, services);
+        for (int i = 0; i < MEMBERS; i++) {
+            Assert.assertEquals(MEMBERS - 1, services[i].getMembers().length);
+            Assert.assertEquals(MEMBERS - 1, listeners[i].members.size());
+        }
+    }
+
+    @Test
+    public void testMessagesPerRound() throws Exception {
+        waitForMembers(MEMBERS - 1, services);
+        long[] rounds = new long[MEMBERS];
+        long[] sent = new long[MEMBERS];
+        for (int i = 0; i < MEMBERS; i++) {
+            rounds[i] = services[i].getRounds();
+            sent[i] = services[i].getMessagesSent();
+        }
+        Thread.sleep(1000);
+        // log2(15 + 1) = 4 exchanges per round instead of 15, allow for one
+        // round per member that was in flight when the counters were read
+        long totalRounds = 0;
+        long totalSent = 0;
+        for (int i = 0; i < MEMBERS; i++) {
+            totalRounds += services[i].getRounds() - rounds[i];
+            totalSent += services[i].getMessagesSent() - sent[i];
+        }
+        Assert.assertTrue(totalRounds > 0);
+        Assert.assertTrue("sent " + totalSent + " in " + totalRounds + " rounds",
+                totalSent <= (totalRounds + MEMBERS) * 4);
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+        waitForMembers(MEMBERS - 1, services);
+        Member leaving = services[MEMBERS - 1].getLocalMember(false);
+        services[MEMBERS - 1].stop(MembershipService.MBR_TX);
+        services[MEMBERS - 1].stop(MembershipService.MBR_RX);
+        GossipMembershipService[] remaining = new GossipMembershipService[MEMBERS - 1];
+        System.arraycopy(services, 0, remaining, 0, remaining.length);
+        // Well before dropTime
+        waitForMembers(MEMBERS - 2, remaining, 1500);
+        for (int i = 0; i < MEMBERS - 1; i++) {
+            Assert.assertFalse(listeners[i].members.contains(leaving));
+        }
+    }
+
+    @Test
+    public void testCrash() throws Exception {
+        waitForMembers(MEMBERS - 1, services);
+        // Stop gossiping without saying goodbye
+        GossipMembershipServiceImpl impl = services[MEMBERS - 1].impl;
+        synchronized (impl) {
+            impl.sender.interrupt();
+            impl.sender = null;
+            impl.acceptor = null;
+            impl.serverSocket.close();
+        }
+        GossipMembershipService[] remaining = new GossipMembershipService[MEMBERS - 1];
+        System.arraycopy(services, 0, remaining, 0, remaining.length);
+        waitForMembers(MEMBERS - 2, remaining);
+    }
+
+    private void waitForMembers(int count, GossipMembershipService[] services)
+            throws InterruptedException {
+        waitForMembers(count, services, 20000);
+    }
+
+    private void waitForMembers(int count, GossipMembershipService[] services, long timeout)
+            throws InterruptedException {
+        long start = System.currentTimeMillis();
+        while (System.currentTimeMillis() - start < timeout) {
+            boolean done = true;
+            for (GossipMembershipService service : services) {
+                if (service.getMembers().length != count) {
+                    done = false;
+                    break;
+                }
+            }
+            if (done) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        Assert.fail("Membership did not reach " + count + " members");
+    }
+
+    private static class TestListener implements MembershipListener {
+        final Set<Member> members =
+                Collections.newSetFromMap(new ConcurrentHashMap<Member,Boolean>());
+
+        @Override
+        public void memberAdded(Member member) {
+            members.add(member);
+        }
+
+        @Override
+        public void memberDisappeared(Member member) {
+            members.remove(member);
+        }
+    }
+}
@@ -16,14 +16,19 @@
  */
 package org.apache.catalina.valves;
 
+import java.io.CharArrayWriter;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
 import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import org.apache.catalina.connector.Request;
+import org.apache.coyote.RequestInfo;
+
 public class TestAccessLogValve {
 
     // Note that there is a similar test:
@@ -88,6 +93,30 @@ public class TestAccessLogValve {
         Assert.assertArrayEquals(expected, dfc.cLFCache.cache);
     }
 
+    @Test
+    public void testJdbcTimeElement() throws Exception {
+        AccessLogValve valve = new AccessLogValve();
+        valve.setPattern("%{wait}J %{hold}J %{statement}J %{unknown}J");
+
+        Request request = new Request();
+        request.setCoyoteRequest(new org.apache.coyote.Request());
+        RequestInfo info = request.getCoyoteRequest().getRequestProcessor();
+        info.bind();
+        try {
+            RequestInfo.addCurrentJdbcTime(TimeUnit.MILLISECONDS.toNanos(12),
+                    TimeUnit.MILLISECONDS.toNanos(345), TimeUnit.MILLISECONDS.toNanos(67));
+        } finally {
+            RequestInfo.unbind();
+        }
+
+        CharArrayWriter buf = new CharArrayWriter();
+        for (AbstractAccessLogValve.AccessLogElement element : valve.logElements) {
+            element.addElement(buf, null, request, null, 0);
+        }
+        // An unknown type logs the hold time
+        Assert.assertEquals("12 345 67 345", buf.toString());
+    }
+
     private String generateExpected(SimpleDateFormat sdf, long secs) {
         return sdf.format(new Date(secs * 1000));
     }
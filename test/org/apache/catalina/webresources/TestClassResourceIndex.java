@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.webresources;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.catalina.WebResourceSet;
+
+public class TestClassResourceIndex {
+
+    private WebResourceSet dir1;
+    private WebResourceSet nonStatic;
+    private WebResourceSet internal;
+    private ClassResourceIndex index;
+
+    @Before
+    public void setUp() throws Exception {
+        TesterWebResourceRoot root = new TesterWebResourceRoot();
+        dir1 = new JarResourceSet(root, "/WEB-INF/classes",
+                new File("test/webresources/dir1.jar").getAbsolutePath(), "/");
+        nonStatic = new JarResourceSet(root, "/WEB-INF/classes",
+                new File("test/webresources/non-static-resources.jar").getAbsolutePath(), "/");
+        internal = new JarResourceSet(root, "/WEB-INF/classes",
+                new File("test/webresources/dir1-internal.jar").getAbsolutePath(), "/dir1");
+
+        List<WebResourceSet> classResources = new ArrayList<>();
+        classResources.add(dir1);
+        classResources.add(nonStatic);
+        classResources.add(internal);
+        index = ClassResourceIndex.build(classResources);
+    }
+
+
+    @Test
+    public void testIndexed() {
+        Assert.assertTrue(index.isIndexed(dir1));
+        Assert.assertTrue(index.isIndexed(nonStatic));
+        // Different internal path
+        Assert.assertFalse(index.isIndexed(internal));
+    }
+
+
+    @Test
+    public void testEntries() {
+        doTestCandidates("/WEB-INF/classes/d1/d1-f1.txt", dir1);
+        doTestCandidates("/WEB-INF/classes/f2.txt", dir1);
+        doTestCandidates("/WEB-INF/classes/META-INF/MANIFEST.MF", nonStatic);
+        doTestCandidates("/WEB-INF/classes/META-INF/resources/WEB-INF/classes/" +
+                "org/apache/tomcat/unittest/foo.txt", nonStatic);
+    }
+
+
+    @Test
+    public void testDirectories() {
+        doTestCandidates("/WEB-INF/classes/d2", dir1);
+        doTestCandidates("/WEB-INF/classes/d2/", dir1);
+        doTestCandidates("/WEB-INF/classes/META-INF/resources", nonStatic);
+    }
+
+
+    @Test
+    public void testExcluded() {
+        Assert.assertFalse(index.getCandidates(
+                "/WEB-INF/classes/d1/d1-f1.txt").contains(nonStatic));
+        Assert.assertFalse(index.getCandidates(
+                "/WEB-INF/classes/META-INF/MANIFEST.MF").contains(dir1));
+        Assert.assertFalse(index.getCandidates(
+                "/WEB-INF/classes/META-INF/resources").contains(dir1));
+    }
+
+
+    @Test
+    public void testMissing() {
+        doTestCandidates("/WEB-INF/classes/d1/d1-f2.txt");
+        doTestCandidates("/WEB-INF/classes/org/apache/Missing.class");
+        doTestCandidates("/WEB-INF/classes/META-INF/resources/missing/");
+        doTestCandidates("/WEB-INF/lib/dir1.jar");
+        doTestCandidates("/f1.txt");
+    }
+
+
+    @Test
+    public void testRoot() {
+        Assert.assertNull(index.getCandidates("/WEB-INF/classes"));
+        Assert.assertNull(index.getCandidates("/WEB-INF/classes/"));
+    }
+
+
+    @Test
+    public void testNothingToIndex() {
+        List<WebResourceSet> classResources = new ArrayList<>();
+        Assert.assertNull(ClassResourceIndex.build(classResources));
+    }
+
+
+    private void doTestCandidates(String path, WebResourceSet... expected) {
+        Collection<WebResourceSet> candidates = index.getCandidates(path);
+        Assert.assertNotNull(candidates);
+        if (expected.length == 0) {
+            Assert.assertEquals(0, candidates.size());
+        }
+        for (WebResourceSet webResourceSet : expected) {
+            Assert.assertTrue(candidates.contains(webResourceSet));
+            // The index must never exclude a resource that exists
+            Assert.assertTrue(webResourceSet.getResource(path).exists());
+        }
+    }
+}
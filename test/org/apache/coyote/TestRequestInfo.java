@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.coyote;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestRequestInfo {
+
+    @After
+    public void tearDown() {
+        RequestInfo.unbind();
+    }
+
+    @Test
+    public void testBindUnbind() {
+        Request req = new Request();
+        RequestInfo info = req.getRequestProcessor();
+        Assert.assertNull(RequestInfo.getCurrent());
+
+        info.bind();
+        Assert.assertSame(info, RequestInfo.getCurrent());
+        RequestInfo.addCurrentJdbcTime(millis(10), millis(20), millis(5));
+        RequestInfo.addCurrentJdbcTime(millis(1), millis(2), millis(3));
+        Assert.assertEquals(11, info.getRequestJdbcWaitTime());
+        Assert.assertEquals(22, info.getRequestJdbcHoldTime());
+        Assert.assertEquals(8, info.getRequestJdbcStatementTime());
+
+        RequestInfo.unbind();
+        Assert.assertNull(RequestInfo.getCurrent());
+        // Not attributed to any request once unbound
+        RequestInfo.addCurrentJdbcTime(millis(100), millis(100), millis(100));
+        Assert.assertEquals(11, info.getRequestJdbcWaitTime());
+        Assert.assertEquals(22, info.getRequestJdbcHoldTime());
+        Assert.assertEquals(8, info.getRequestJdbcStatementTime());
+    }
+
+    @Test
+    public void testOtherThread() throws Exception {
+        Request req = new Request();
+        final RequestInfo info = req.getRequestProcessor();
+        info.bind();
+
+        final RequestInfo[] seen = new RequestInfo[1];
+        Thread t = new Thread() {
+            @Override
+            public void run() {
+                seen[0] = RequestInfo.getCurrent();
+                RequestInfo.addCurrentJdbcTime(millis(10), millis(10), millis(10));
+            }
+        };
+        t.start();
+        t.join();
+
+        Assert.assertNull(seen[0]);
+        Assert.assertEquals(0, info.getRequestJdbcWaitTime());
+        Assert.assertEquals(0, info.getRequestJdbcHoldTime());
+        Assert.assertEquals(0, info.getRequestJdbcStatementTime());
+    }
+
+    @Test
+    public void testUpdateCounters() {
+        Request req = new Request();
+        req.setResponse(new Response());
+        RequestInfo info = req.getRequestProcessor();
+        info.bind();
+        RequestInfo.addCurrentJdbcTime(millis(10), millis(20), millis(5));
+        info.updateCounters();
+
+        // The request times move to the totals
+        Assert.assertEquals(0, info.getRequestJdbcWaitTime());
+        Assert.assertEquals(0, info.getRequestJdbcHoldTime());
+        Assert.assertEquals(0, info.getRequestJdbcStatementTime());
+        Assert.assertEquals(10, info.getJdbcWaitTime());
+        Assert.assertEquals(20, info.getJdbcHoldTime());
+        Assert.assertEquals(5, info.getJdbcStatementTime());
+
+        RequestInfo.addCurrentJdbcTime(millis(1), millis(2), millis(3));
+        info.updateCounters();
+        Assert.assertEquals(11, info.getJdbcWaitTime());
+        Assert.assertEquals(22, info.getJdbcHoldTime());
+        Assert.assertEquals(8, info.getJdbcStatementTime());
+    }
+
+    private static long millis(long ms) {
+        return TimeUnit.MILLISECONDS.toNanos(ms);
+    }
+}
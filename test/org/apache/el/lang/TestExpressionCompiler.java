@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.el.lang;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.el.ELContext;
+import javax.el.ExpressionFactory;
+import javax.el.PropertyNotFoundException;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import org.apache.el.TesterBeanA;
+import org.apache.el.TesterBeanB;
+import org.apache.el.parser.Node;
+import org.apache.jasper.el.ELContextImpl;
+
+public class TestExpressionCompiler {
+
+    private static final String[] EXPRESSIONS = new String[] {
+        "${1 + 2 * 3}",
+        "${beanA.valLong + 1}",
+        "${beanA.valLong * beanA.valLong - 2}",
+        "${beanA.valLong + 0.5}",
+        "${beanA.valLong / 2}",
+        "${beanA.valLong % 3}",
+        "${beanA.name}",
+        "${beanA.bean.name}",
+        "${beanA['bean']['name']}",
+        "${beanA.valList[1]}",
+        "${map.key}",
+        "${map.missing.name}",
+        "${beanA.bean.sayHello()}",
+        "${beanA.bean.sayHello('you')}",
+        "Hello ${beanA.name} and ${beanA.bean.name}!",
+        "${beanA.valLong > 5 ? 'big' : 'small'}",
+        "${beanA.valLong > 5 and not empty beanA.name}",
+        "${beanA.valLong < 5 or beanA.name == 'A'}",
+        "${empty map.missing}",
+        "${beanA.name += '-suffix'}",
+        "${x -> x + 1}",
+        "${(x -> x * 2)(beanA.valLong)}",
+        "${-beanA.valLong}",
+        "${null}",
+        "#{beanA.valLong + '1'}",
+    };
+
+    private ExpressionFactory factory;
+    private ELContext context;
+    private EvaluationContext ctx;
+
+    @Before
+    public void setUp() {
+        factory = ExpressionFactory.newInstance();
+        context = new ELContextImpl(factory);
+
+        TesterBeanB beanB = new TesterBeanB();
+        beanB.setName("B");
+        TesterBeanA beanA = new TesterBeanA();
+        beanA.setName("A");
+        beanA.setValLong(7);
+        beanA.setBean(beanB);
+        List<String> list = new ArrayList<>();
+        list.add("zero");
+        list.add("one");
+        beanA.setValList(list);
+        Map<String,String> map = new HashMap<>();
+        map.put("key", "value");
+
+        context.getVariableMapper().setVariable("beanA",
+                factory.createValueExpression(beanA, TesterBeanA.class));
+        context.getVariableMapper().setVariable("map",
+                factory.createValueExpression(map, Map.class));
+        ctx = new EvaluationContext(context, null, context.getVariableMapper());
+    }
+
+    @Test
+    public void testSameResults() {
+        for (String expression : EXPRESSIONS) {
+            Node node = ExpressionBuilder.createNode(expression);
+            Object expected = node.getValue(ctx);
+            Object actual = ExpressionCompiler.compile(node).getValue(ctx);
+            if (expected instanceof javax.el.LambdaExpression) {
+                Assert.assertTrue(expression, actual instanceof javax.el.LambdaExpression);
+            } else {
+                Assert.assertEquals(expression, expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void testConstantFolding() {
+        Node node = ExpressionBuilder.createNode("${(1 + 2) * 3}");
+        ExpressionCompiler.Compiled compiled = ExpressionCompiler.compile(node);
+        // Constants do not need a context
+        Assert.assertEquals(Long.valueOf(9), compiled.getValue(null));
+    }
+
+    @Test
+    public void testArithmeticTypeChange() {
+        Node node = ExpressionBuilder.createNode("${value + 1}");
+        ExpressionCompiler.Compiled compiled = ExpressionCompiler.compile(node);
+
+        setValue(Long.valueOf(1));
+        Assert.assertEquals(Long.valueOf(2), compiled.getValue(ctx));
+        setValue(Integer.valueOf(2));
+        Assert.assertEquals(Long.valueOf(3), compiled.getValue(ctx));
+        // Leaves the fast path
+        setValue(Double.valueOf(1.5));
+        Assert.assertEquals(Double.valueOf(2.5), compiled.getValue(ctx));
+        setValue("4");
+        Assert.assertEquals(Long.valueOf(5), compiled.getValue(ctx));
+        setValue(Long.valueOf(5));
+        Assert.assertEquals(Long.valueOf(6), compiled.getValue(ctx));
+    }
+
+    @Test(expected=PropertyNotFoundException.class)
+    public void testPropertyNotFound() {
+        Node node = ExpressionBuilder.createNode("${beanA.bean.unknown}");
+        ExpressionCompiler.compile(node).getValue(ctx);
+    }
+
+    @Test
+    public void testProfile() {
+        Node node = ExpressionBuilder.createNode("${beanA.valLong + 1}");
+        ExpressionCompiler.Profile profile = new ExpressionCompiler.Profile(node, 3);
+        for (int i = 0; i < 3; i++) {
+            Assert.assertFalse(profile.isCompiled());
+            Assert.assertEquals(Long.valueOf(8), profile.getValue(ctx));
+        }
+        Assert.assertTrue(profile.isCompiled());
+        Assert.assertEquals(Long.valueOf(8), profile.getValue(ctx));
+    }
+
+    private void setValue(Object value) {
+        context.getVariableMapper().setVariable("value",
+                factory.createValueExpression(value, Object.class));
+    }
+
+    /*
+     * Compares interpreted and compiled evaluation of typical page
+     * expressions. The test is single threaded.
+     */
+    @Ignore
+    @Test
+    public void testPerformance() {
+        final int runs = 10;
+        final int iterations = 1000000;
+        String[] expressions = new String[] {
+                "${beanA.bean.name}",
+                "${beanA.valLong * 2 + 1}",
+                "${beanA.valLong > 5 ? 'big' : 'small'}",
+                "Hello ${beanA.name}, ${map.key}!",
+        };
+        Node[] nodes = new Node[expressions.length];
+        ExpressionCompiler.Compiled[] compiled =
+                new ExpressionCompiler.Compiled[expressions.length];
+        for (int i = 0; i < expressions.length; i++) {
+            nodes[i] = ExpressionBuilder.createNode(expressions[i]);
+            compiled[i] = ExpressionCompiler.compile(nodes[i]);
+        }
+
+        for (int j = 0; j < runs; j++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                for (Node node : nodes) {
+                    node.getValue(ctx);
+                }
+            }
+            long interpreted = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                for (ExpressionCompiler.Compiled c : compiled) {
+                    c.getValue(ctx);
+                }
+            }
+            long compiledTime = System.nanoTime() - start;
+
+            System.out.println(iterations + " iterations: interpreted " +
+                    interpreted + "ns, compiled " + compiledTime + "ns");
+        }
+    }
+}
@@ -29,6 +29,8 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import org.apache.tools.ant.BuildException;
+
 public class TestJspC {
 
     private JspC jspc;
@@ -95,6 +97,35 @@ public class TestJspC {
         verify(webappOut);
     }
 
+    @Test
+    public void precompileWebapp_3_1_parallel() throws IOException {
+        File appDir = new File("test/webapp-3.1");
+        File webappOut = new File(outputDir, appDir.getName());
+        jspc.setThreadCount("4");
+        jspc.setCompile(true);
+        precompile(appDir, webappOut);
+        verify(webappOut);
+        Assert.assertTrue(new File(webappOut,
+                "org/apache/jsp/el_002das_002dliteral_jsp.class").exists());
+        Assert.assertTrue(new File(webappOut,
+                "org/apache/jsp/tld_002dversions_jsp.class").exists());
+    }
+
+    @Test
+    public void threadCount() {
+        Assert.assertEquals(1, jspc.getThreadCount());
+        jspc.setThreadCount("3");
+        Assert.assertEquals(3, jspc.getThreadCount());
+        jspc.setThreadCount("2.0C");
+        Assert.assertEquals(2 * Runtime.getRuntime().availableProcessors(),
+                jspc.getThreadCount());
+    }
+
+    @Test(expected = BuildException.class)
+    public void threadCountInvalid() {
+        jspc.setThreadCount("0");
+    }
+
     private void verify(File webappOut) {
         // for now, just check some expected files exist
         Assert.assertTrue(new File(webappOut, "generated_web.xml").exists());
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.compiler;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.startup.TomcatBaseTest;
+import org.apache.jasper.servlet.JasperInitializer;
+import org.apache.jasper.servlet.JspServlet;
+import org.apache.tomcat.util.buf.ByteChunk;
+
+public class TestJspRuntimeContext extends TomcatBaseTest {
+
+    @Test
+    public void testCheckCompileIncludeChanged() throws Exception {
+        doTestCheckCompileIncludeChanged(false);
+    }
+
+    @Test
+    public void testCheckCompileIncludeChangedWatched() throws Exception {
+        doTestCheckCompileIncludeChanged(true);
+    }
+
+    private void doTestCheckCompileIncludeChanged(boolean watch) throws Exception {
+        File appDir = new File(getTemporaryDirectory(), "jsp-check-compile");
+        File jspDir = new File(appDir, "check");
+        Assert.assertTrue(jspDir.mkdirs());
+        addDeleteOnTearDown(appDir);
+
+        File include = new File(jspDir, "inc.jspf");
+        write(new File(jspDir, "page.jsp"), "PAGE:<%@ include file=\"inc.jspf\" %>");
+        write(new File(jspDir, "other.jsp"), "OTHER");
+        write(include, "A");
+
+        Tomcat tomcat = getTomcatInstance();
+        Context ctx = tomcat.addContext("", appDir.getAbsolutePath());
+        ctx.addServletContainerInitializer(new JasperInitializer(), null);
+        JspServlet servlet = new JspServlet();
+        Wrapper wrapper = Tomcat.addServlet(ctx, "check", servlet);
+        wrapper.addInitParameter("development", "false");
+        wrapper.addInitParameter("checkInterval", "1");
+        wrapper.addInitParameter("modificationTestInterval", "0");
+        wrapper.addInitParameter("watchDependencies", Boolean.toString(watch));
+        ctx.addServletMapping("/check/*", "check");
+        tomcat.start();
+
+        Assert.assertEquals("PAGE:A", getPage("/check/page.jsp"));
+        Assert.assertEquals("OTHER", getPage("/check/other.jsp"));
+
+        // Indexes the loaded JSPs when watching
+        checkCompile(servlet);
+
+        for (String content : new String[] { "B", "C" }) {
+            write(include, content);
+            // The modification time has a granularity of one second on some
+            // file systems
+            Assert.assertTrue(include.setLastModified(
+                    include.lastModified() + 10000));
+            // Not checked on access when development is false
+            checkCompile(servlet);
+            Assert.assertEquals("PAGE:" + content, getPage("/check/page.jsp"));
+            Assert.assertEquals("OTHER", getPage("/check/other.jsp"));
+        }
+    }
+
+    @Test
+    public void testCheckCompileWatchedTestedRecently() throws Exception {
+        File appDir = new File(getTemporaryDirectory(), "jsp-check-recent");
+        File jspDir = new File(appDir, "check");
+        Assert.assertTrue(jspDir.mkdirs());
+        addDeleteOnTearDown(appDir);
+
+        File include = new File(jspDir, "inc.jspf");
+        write(new File(jspDir, "page.jsp"), "PAGE:<%@ include file=\"inc.jspf\" %>");
+        write(include, "A");
+
+        Tomcat tomcat = getTomcatInstance();
+        Context ctx = tomcat.addContext("", appDir.getAbsolutePath());
+        ctx.addServletContainerInitializer(new JasperInitializer(), null);
+        JspServlet servlet = new JspServlet();
+        Wrapper wrapper = Tomcat.addServlet(ctx, "check", servlet);
+        wrapper.addInitParameter("development", "false");
+        wrapper.addInitParameter("checkInterval", "1");
+        wrapper.addInitParameter("modificationTestInterval", "3");
+        wrapper.addInitParameter("watchDependencies", "true");
+        ctx.addServletMapping("/check/*", "check");
+        tomcat.start();
+
+        Assert.assertEquals("PAGE:A", getPage("/check/page.jsp"));
+        checkCompile(servlet);
+
+        write(include, "B");
+        Assert.assertTrue(include.setLastModified(
+                include.lastModified() + 10000));
+        // The first checks after the change fall within the modification
+        // test interval of the last test and skip the out of date check
+        for (int i = 0; i < 4; i++) {
+            checkCompile(servlet);
+        }
+        Assert.assertEquals("PAGE:B", getPage("/check/page.jsp"));
+    }
+
+    private void checkCompile(JspServlet servlet) throws InterruptedException {
+        // Allow for the check interval
+        Thread.sleep(1100);
+        servlet.periodicEvent();
+    }
+
+    private String getPage(String path) throws IOException {
+        ByteChunk res = new ByteChunk();
+        int rc = getUrl("http://localhost:" + getPort() + path, res, null);
+        Assert.assertEquals(200, rc);
+        return res.toString().trim();
+    }
+
+    private static void write(File file, String content) throws IOException {
+        try (OutputStream os = new FileOutputStream(file)) {
+            os.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
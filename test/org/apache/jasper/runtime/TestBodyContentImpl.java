@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.runtime;
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.Reader;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestBodyContentImpl {
+
+    @Test
+    public void testSegments() throws IOException {
+        BodyContentBufferPool pool = new BodyContentBufferPool(
+                2 * BodyContentBufferPool.SEGMENT_SIZE);
+        BodyContentImpl body = new BodyContentImpl(null, pool);
+
+        String expected = write(body, 30000);
+
+        Assert.assertEquals(expected, body.getString());
+        Assert.assertEquals(expected.length(),
+                body.getBufferSize() - body.getRemaining());
+
+        CharArrayWriter writer = new CharArrayWriter();
+        body.writeOut(writer);
+        Assert.assertEquals(expected, writer.toString());
+
+        StringBuilder read = new StringBuilder();
+        try (Reader reader = body.getReader()) {
+            int c;
+            while ((c = reader.read()) != -1) {
+                read.append((char) c);
+            }
+        }
+        Assert.assertEquals(expected, read.toString());
+    }
+
+    @Test
+    public void testClear() throws IOException {
+        BodyContentBufferPool pool = new BodyContentBufferPool(
+                2 * BodyContentBufferPool.SEGMENT_SIZE);
+        BodyContentImpl body = new BodyContentImpl(null, pool);
+        BodyContentMetrics metrics = new BodyContentMetrics();
+
+        write(body, 100000);
+        body.clear();
+        Assert.assertEquals("", body.getString());
+        // Only as many segments as the limit allows are kept
+        Assert.assertEquals(2 * BodyContentBufferPool.SEGMENT_SIZE, pool.getPooledChars());
+        pool.reportAllocations(metrics);
+        long allocations = metrics.getAllocations();
+        Assert.assertTrue(allocations > 2);
+
+        // Reuses the pooled segments
+        String expected = write(body, 2 * BodyContentBufferPool.SEGMENT_SIZE);
+        Assert.assertEquals(expected, body.getString());
+        pool.reportAllocations(metrics);
+        Assert.assertEquals(allocations, metrics.getAllocations());
+
+        body.clear();
+        expected = write(body, 100);
+        Assert.assertEquals(expected, body.getString());
+    }
+
+    @Test
+    public void testUnpooled() throws IOException {
+        BodyContentImpl body = new BodyContentImpl(null);
+        String expected = write(body, 20000);
+        Assert.assertEquals(expected, body.getString());
+        body.clear();
+        expected = write(body, 20000);
+        Assert.assertEquals(expected, body.getString());
+    }
+
+    /*
+     * Writes the given number of chars using all of the write methods and
+     * returns what was written.
+     */
+    private static String write(BodyContentImpl body, int length) throws IOException {
+        StringBuilder expected = new StringBuilder();
+        int i = 0;
+        while (expected.length() < length) {
+            String s = Integer.toString(i++) + ',';
+            switch (i % 3) {
+                case 0:
+                    body.write(s);
+                    break;
+                case 1:
+                    body.write(s.toCharArray());
+                    break;
+                default:
+                    for (int j = 0; j < s.length(); j++) {
+                        body.write(s.charAt(j));
+                    }
+            }
+            expected.append(s);
+        }
+        return expected.toString();
+    }
+}
@@ -16,12 +16,30 @@
  */
 package org.apache.jasper.runtime;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletResponse;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import org.easymock.EasyMock;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.startup.Tomcat;
 import org.apache.catalina.startup.TomcatBaseTest;
+import org.apache.jasper.servlet.JasperInitializer;
+import org.apache.jasper.servlet.JspServlet;
+import org.apache.tomcat.PreEncodedWriter;
 import org.apache.tomcat.util.buf.ByteChunk;
 
 public class TestJspWriterImpl extends TomcatBaseTest {
@@ -54,4 +72,148 @@ public class TestJspWriterImpl extends TomcatBaseTest {
         Assert.assertEquals(res.toString(),
                 HttpServletResponse.SC_INTERNAL_SERVER_ERROR, rc);
     }
+
+    @Test
+    public void testEncodedTemplateTextUtf8() throws Exception {
+        doTestEncodedTemplateText("/jsp/encodedtext/utf8.jsp", true);
+    }
+
+    @Test
+    public void testEncodedTemplateTextUnmappable() throws Exception {
+        doTestEncodedTemplateText("/jsp/encodedtext/iso-8859-1.jsp", true);
+    }
+
+    @Test
+    public void testEncodedTemplateTextUtf16() throws Exception {
+        // Encoding every chunk separately would add a byte order mark to each
+        doTestEncodedTemplateText("/jsp/encodedtext/utf-16.jsp", false);
+    }
+
+    @Test
+    public void testEncodedTemplateTextSupported() {
+        Assert.assertTrue(EncodedTemplateText.isSupported(StandardCharsets.UTF_8));
+        Assert.assertTrue(EncodedTemplateText.isSupported(StandardCharsets.ISO_8859_1));
+        Assert.assertTrue(EncodedTemplateText.isSupported(Charset.forName("ISO-8859-15")));
+        Assert.assertFalse(EncodedTemplateText.isSupported(StandardCharsets.UTF_16));
+        Assert.assertFalse(EncodedTemplateText.isSupported(Charset.forName("ISO-2022-JP")));
+        Assert.assertNull(new EncodedTemplateText("text", StandardCharsets.UTF_16).getBytes());
+    }
+
+    @Test
+    public void testEncodedTemplateTextClearAfterFlush() throws Exception {
+        TesterPreEncodedWriter writer = new TesterPreEncodedWriter();
+        JspWriterImpl out = new JspWriterImpl(createResponse(writer), 16, true);
+        out.write("abc");
+        out.flushBuffer();
+        out.write(new EncodedTemplateText("def", StandardCharsets.UTF_8));
+        // Still buffered and can be discarded
+        out.clearBuffer();
+        out.flushBuffer();
+        Assert.assertEquals("abc", writer.toString());
+        Assert.assertEquals(0, writer.encodedWrites);
+    }
+
+    @Test(expected=IOException.class)
+    public void testEncodedTemplateTextOverflow() throws Exception {
+        TesterPreEncodedWriter writer = new TesterPreEncodedWriter();
+        JspWriterImpl out = new JspWriterImpl(createResponse(writer), 4, false);
+        out.write("ab");
+        out.flushBuffer();
+        out.write(new EncodedTemplateText("abcdef", StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testEncodedTemplateTextUnbuffered() throws Exception {
+        TesterPreEncodedWriter writer = new TesterPreEncodedWriter();
+        JspWriterImpl out = new JspWriterImpl(createResponse(writer), 0, true);
+        out.write("abc");
+        out.write(new EncodedTemplateText("def", StandardCharsets.UTF_8));
+        Assert.assertEquals("abcdef", writer.toString());
+        Assert.assertEquals(1, writer.encodedWrites);
+    }
+
+    private static ServletResponse createResponse(PrintWriter writer) throws IOException {
+        ServletResponse response = EasyMock.createNiceMock(ServletResponse.class);
+        EasyMock.expect(response.getWriter()).andStubReturn(writer);
+        EasyMock.replay(response);
+        return response;
+    }
+
+    private void doTestEncodedTemplateText(String jspFile, boolean encoded)
+            throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+        File appDir = new File("test/webapp");
+        Context ctxt = tomcat.addContext(null, "/test", appDir.getAbsolutePath());
+        ctxt.addServletContainerInitializer(new JasperInitializer(), null);
+        Tomcat.initWebappDefaults(ctxt);
+
+        // Same page compiled with pre-encoded template text into a separate
+        // scratch directory
+        File scratchDir = new File(getTemporaryDirectory(), "encoded");
+        Assert.assertTrue(scratchDir.mkdirs());
+        addDeleteOnTearDown(scratchDir);
+        Wrapper w = Tomcat.addServlet(ctxt, "encoded", new JspServlet());
+        w.addInitParameter("jspFile", jspFile);
+        w.addInitParameter("scratchdir", scratchDir.getAbsolutePath());
+        w.addInitParameter("genStringAsByteArray", "true");
+        ctxt.addServletMapping("/encoded", "encoded");
+
+        tomcat.start();
+
+        ByteChunk expected = new ByteChunk();
+        int rc = getUrl("http://localhost:" + getPort() + "/test" + jspFile, expected, null);
+        Assert.assertEquals(HttpServletResponse.SC_OK, rc);
+
+        ByteChunk actual = new ByteChunk();
+        rc = getUrl("http://localhost:" + getPort() + "/test/encoded", actual, null);
+        Assert.assertEquals(HttpServletResponse.SC_OK, rc);
+
+        Assert.assertTrue(expected.getLength() > 4096);
+        Assert.assertEquals(expected.toString(), actual.toString());
+        Assert.assertTrue(Arrays.equals(expected.getBytes(), actual.getBytes()));
+
+        // Check the generated code did use pre-encoded text
+        File[] sources = new File(scratchDir, "org/apache/jsp/jsp/encodedtext").listFiles();
+        Assert.assertNotNull(sources);
+        boolean found = false;
+        for (File source : sources) {
+            if (source.getName().endsWith(".java")) {
+                found = true;
+                String code = new String(
+                        Files.readAllBytes(source.toPath()), StandardCharsets.UTF_8);
+                Assert.assertEquals(Boolean.valueOf(encoded),
+                        Boolean.valueOf(code.contains("EncodedTemplateText")));
+            }
+        }
+        Assert.assertTrue(found);
+    }
+
+
+    private static class TesterPreEncodedWriter extends PrintWriter
+            implements PreEncodedWriter {
+
+        private final StringWriter sw;
+        private int encodedWrites = 0;
+
+        TesterPreEncodedWriter() {
+            this(new StringWriter());
+        }
+
+        private TesterPreEncodedWriter(StringWriter sw) {
+            super(sw);
+            this.sw = sw;
+        }
+
+        @Override
+        public boolean writeEncoded(byte[] b, int off, int len, Charset charset) {
+            encodedWrites++;
+            sw.write(new String(b, off, len, charset));
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return sw.toString();
+        }
+    }
 }
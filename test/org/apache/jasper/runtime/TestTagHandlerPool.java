@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.runtime;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.startup.TomcatBaseTest;
+import org.apache.tomcat.util.buf.ByteChunk;
+
+public class TestTagHandlerPool extends TomcatBaseTest {
+
+    @Test
+    public void testDefaultPool() throws Exception {
+        doTestPage(null);
+    }
+
+    @Test
+    public void testConcurrentPool() throws Exception {
+        doTestPage(ConcurrentTagHandlerPool.class.getName());
+    }
+
+    private void doTestPage(String poolClassName) throws Exception {
+        startTomcat(poolClassName);
+
+        final int threadCount = 8;
+        final AtomicInteger failures = new AtomicInteger();
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < 10; j++) {
+                            String result = getPage(20);
+                            // Row 20, column 4 is printed, column 5 is not
+                            if (!result.contains("<td>80</td>") ||
+                                    result.contains("<td>100</td>") ||
+                                    !result.contains("ROWS:20")) {
+                                failures.incrementAndGet();
+                            }
+                        }
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(0, failures.get());
+    }
+
+    /*
+     * Renders a tag heavy page from several threads with each pool
+     * implementation. Each row of the page uses 23 tags.
+     */
+    @Ignore
+    @Test
+    public void testPerformanceDefaultPool() throws Exception {
+        doTestPerformance(TagHandlerPool.class.getName());
+    }
+
+    @Ignore
+    @Test
+    public void testPerformanceConcurrentPool() throws Exception {
+        doTestPerformance(ConcurrentTagHandlerPool.class.getName());
+    }
+
+    private void doTestPerformance(String poolClassName) throws Exception {
+        startTomcat(poolClassName);
+
+        final int threadCount = Runtime.getRuntime().availableProcessors() * 2;
+        final int requests = 500;
+
+        // Warm up
+        for (int i = 0; i < 100; i++) {
+            getPage(200);
+        }
+
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < requests; j++) {
+                            getPage(200);
+                        }
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                }
+            };
+        }
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long duration = System.nanoTime() - start;
+
+        System.out.println(poolClassName + ": " + threadCount + " threads rendered " +
+                (threadCount * requests) + " pages in " + (duration / 1000000) + "ms (" +
+                (threadCount * requests * 1000000000L / duration) + " pages/s)");
+    }
+
+    private void startTomcat(String poolClassName) throws Exception {
+        Tomcat tomcat = getTomcatInstanceTestWebapp(true, false);
+        if (poolClassName != null) {
+            Context ctx = (Context) tomcat.getHost().findChild("/test");
+            ctx.addParameter(TagHandlerPool.OPTION_TAGPOOL, poolClassName);
+        }
+        tomcat.start();
+    }
+
+    private String getPage(int rows) throws Exception {
+        ByteChunk out = new ByteChunk();
+        int rc = getUrl("http://localhost:" + getPort() +
+                "/test/jsp/tagpool/forEach.jsp?rows=" + rows, out, null);
+        Assert.assertEquals(HttpServletResponse.SC_OK, rc);
+        return out.toString();
+    }
+}
@@ -28,6 +28,8 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import org.apache.catalina.Context;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.core.StandardContext;
 import org.apache.catalina.startup.Tomcat;
 import org.apache.catalina.startup.TomcatBaseTest;
 import org.apache.tomcat.util.buf.ByteChunk;
@@ -95,6 +97,38 @@ public class TestJspServlet  extends TomcatBaseTest {
     }
 
 
+    @Test
+    public void testBackgroundCompile() throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+
+        File appDir = new File("test/webapp-3.1");
+        Context context = tomcat.addWebapp(null, "/test", appDir.getAbsolutePath());
+
+        // Not mapped, only used to compile the JSPs at start-up
+        Wrapper wrapper = Tomcat.addServlet(context, "background", new JspServlet());
+        wrapper.addInitParameter("backgroundCompile", "true");
+        wrapper.setLoadOnStartup(1);
+
+        tomcat.start();
+
+        File workDir = new File(((StandardContext) context).getWorkPath());
+        File classFile = new File(workDir, "org/apache/jsp/el_002das_002dliteral_jsp.class");
+        int count = 0;
+        while (!classFile.exists() && count < 300) {
+            Thread.sleep(100);
+            count++;
+        }
+        Assert.assertTrue(classFile.exists());
+
+        // The page is served from the compiled class
+        long lastModified = classFile.lastModified();
+        ByteChunk res = new ByteChunk();
+        int rc = getUrl("http://localhost:" + getPort() + "/test/el-as-literal.jsp", res, null);
+        Assert.assertEquals(200, rc);
+        Assert.assertEquals(lastModified, classFile.lastModified());
+    }
+
+
     private static class Bug56568aServlet extends HttpServlet {
 
         private static final long serialVersionUID = 1L;
@@ -28,6 +28,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import org.apache.catalina.Context;
+import org.apache.catalina.core.StandardContext;
 import org.apache.catalina.startup.Tomcat;
 import org.apache.catalina.startup.TomcatBaseTest;
 import org.apache.tomcat.util.buf.ByteChunk;
@@ -51,6 +52,32 @@ public class TestTldScanner extends TomcatBaseTest {
     }
 
 
+    @Test
+    public void testParallelScan() throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+        File appDir = new File("test/webapp");
+        Context context = tomcat.addWebapp(null, "/test", appDir.getAbsolutePath());
+        StandardJarScanner jarScanner = (StandardJarScanner) context.getJarScanner();
+        jarScanner.setScanAllDirectories(true);
+        tomcat.start();
+
+        TldScanner sequential =
+                new TldScanner(context.getServletContext(), true, false, true);
+        sequential.scan();
+
+        jarScanner.setScanThreadCount(4);
+        TldScanner parallel =
+                new TldScanner(context.getServletContext(), true, false, true);
+        parallel.scan();
+
+        Assert.assertEquals(sequential.getUriTldResourcePathMap(),
+                parallel.getUriTldResourcePathMap());
+        Assert.assertEquals(sequential.getTldResourcePathTaglibXmlMap().keySet(),
+                parallel.getTldResourcePathTaglibXmlMap().keySet());
+        Assert.assertEquals(sequential.getListeners(), parallel.getListeners());
+    }
+
+
     @Test
     public void testBug55807() throws Exception {
         Tomcat tomcat = getTomcatInstance();
@@ -85,6 +112,35 @@ public class TestTldScanner extends TomcatBaseTest {
     }
 
 
+    @Test
+    public void testCacheScanResults() throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+        File appDir = new File("test/webapp");
+        StandardContext context = (StandardContext) tomcat.addWebapp(
+                null, "/test", appDir.getAbsolutePath());
+        StandardJarScanner jarScanner = (StandardJarScanner) context.getJarScanner();
+        tomcat.start();
+
+        TldScanner uncached =
+                new TldScanner(context.getServletContext(), true, false, true);
+        uncached.scan();
+
+        jarScanner.setCacheScanResults(true);
+        File cacheFile = new File(context.getWorkPath(), "jar-scan-tld.cache");
+        Assert.assertFalse(cacheFile.exists());
+        for (int i = 0; i < 2; i++) {
+            TldScanner cached =
+                    new TldScanner(context.getServletContext(), true, false, true);
+            cached.scan();
+            Assert.assertTrue(cacheFile.isFile());
+            Assert.assertEquals(uncached.getUriTldResourcePathMap(),
+                    cached.getUriTldResourcePathMap());
+            Assert.assertEquals(uncached.getTldResourcePathTaglibXmlMap().keySet(),
+                    cached.getTldResourcePathTaglibXmlMap().keySet());
+        }
+    }
+
+
     /** Assertion for text printed by tags:echo */
     private static void assertEcho(String result, String expected) {
         Assert.assertTrue(result, result.indexOf("<p>" + expected + "</p>") > 0);
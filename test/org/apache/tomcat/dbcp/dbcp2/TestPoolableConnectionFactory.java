@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.dbcp.dbcp2;
+
+import java.sql.SQLException;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.tomcat.dbcp.pool2.PooledObject;
+import org.apache.tomcat.dbcp.pool2.impl.GenericObjectPool;
+import org.apache.tomcat.dbcp.pool2.impl.GenericObjectPoolConfig;
+
+public class TestPoolableConnectionFactory {
+
+    private TesterConnectionFactory connFactory;
+    private PoolableConnectionFactory factory;
+
+    @Before
+    public void setUp() {
+        connFactory = new TesterConnectionFactory();
+        factory = new PoolableConnectionFactory(connFactory, null);
+    }
+
+    @Test
+    public void testPoolValidationInterval() throws Exception {
+        factory.setPoolValidationIntervalMillis(60000);
+        PooledObject<PoolableConnection> p = makeAllocatedObject();
+        Assert.assertTrue(factory.validateObject(p));
+        Assert.assertEquals(1, connFactory.validations.get());
+        // Validated recently, no round trip to the database
+        Assert.assertTrue(factory.validateObject(p));
+        Assert.assertEquals(1, connFactory.validations.get());
+    }
+
+    @Test
+    public void testPoolValidationIntervalClosed() throws Exception {
+        factory.setPoolValidationIntervalMillis(60000);
+        PooledObject<PoolableConnection> p = makeAllocatedObject();
+        Assert.assertTrue(factory.validateObject(p));
+        connFactory.closed = true;
+        Assert.assertFalse(factory.validateObject(p));
+        Assert.assertEquals(1, connFactory.validations.get());
+    }
+
+    @Test
+    public void testPoolValidationIntervalFastFail() throws Exception {
+        factory.setPoolValidationIntervalMillis(60000);
+        factory.setFastFailValidation(true);
+        PooledObject<PoolableConnection> p = makeAllocatedObject();
+        Assert.assertTrue(factory.validateObject(p));
+        try {
+            p.getObject().handleException(new SQLException("Connection lost", "08S01"));
+            Assert.fail();
+        } catch (SQLException e) {
+            // Expected
+        }
+        Assert.assertFalse(factory.validateObject(p));
+        Assert.assertEquals(1, connFactory.validations.get());
+    }
+
+    @Test
+    public void testPoolValidationIntervalFailure() throws Exception {
+        factory.setPoolValidationIntervalMillis(60000);
+        PooledObject<PoolableConnection> p = makeAllocatedObject();
+        connFactory.valid = false;
+        Assert.assertFalse(factory.validateObject(p));
+        // The next validation goes to the database again
+        connFactory.valid = true;
+        Assert.assertTrue(factory.validateObject(p));
+        Assert.assertEquals(2, connFactory.validations.get());
+    }
+
+    @Test
+    public void testIsValidTimeout() throws Exception {
+        PooledObject<PoolableConnection> p = factory.makeObject();
+        Assert.assertTrue(factory.validateObject(p));
+        // Never without a timeout
+        Assert.assertEquals(5, connFactory.lastValidationTimeout);
+        factory.setValidationQueryTimeout(2);
+        Assert.assertTrue(factory.validateObject(p));
+        Assert.assertEquals(2, connFactory.lastValidationTimeout);
+    }
+
+    @Test
+    public void testPoolValidationIntervalValidatingIdle() throws Exception {
+        GenericObjectPoolConfig config = new GenericObjectPoolConfig();
+        config.setJmxEnabled(false);
+        config.setMaxConcurrentCreates(1);
+        GenericObjectPool<PoolableConnection> pool = new GenericObjectPool<>(factory, config);
+        factory.setPool(pool);
+        try {
+            factory.setPoolValidationIntervalMillis(60000);
+            for (int i = 0; i < 6; i++) {
+                pool.addObject();
+            }
+            PooledObject<PoolableConnection> p = makeAllocatedObject();
+            connFactory.validationDelay = 200;
+            pool.validateIdleObjects();
+            Assert.assertTrue(factory.validateObject(p));
+            Assert.assertTrue(pool.isValidatingIdleObjects());
+            connFactory.validationDelay = 0;
+
+            int i = 0;
+            while (pool.isValidatingIdleObjects() && i++ < 100) {
+                Thread.sleep(50);
+            }
+            Assert.assertFalse(pool.isValidatingIdleObjects());
+            Assert.assertEquals(6, pool.getNumIdle());
+            // The success while the idle objects were validated did not skip
+            // the next validation
+            int count = connFactory.validations.get();
+            Assert.assertTrue(factory.validateObject(p));
+            Assert.assertEquals(count + 1, connFactory.validations.get());
+            // Once the idle objects are validated, successes count again
+            Assert.assertTrue(factory.validateObject(p));
+            Assert.assertEquals(count + 1, connFactory.validations.get());
+        } finally {
+            pool.close();
+        }
+    }
+
+    private PooledObject<PoolableConnection> makeAllocatedObject() throws Exception {
+        PooledObject<PoolableConnection> p = factory.makeObject();
+        Assert.assertTrue(p.allocate());
+        return p;
+    }
+}
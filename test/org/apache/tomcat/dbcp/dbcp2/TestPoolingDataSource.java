@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.dbcp.dbcp2;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.coyote.Request;
+import org.apache.coyote.RequestInfo;
+import org.apache.tomcat.dbcp.pool2.impl.GenericObjectPool;
+import org.apache.tomcat.dbcp.pool2.impl.GenericObjectPoolConfig;
+
+public class TestPoolingDataSource {
+
+    private TesterConnectionFactory connFactory;
+    private GenericObjectPool<PoolableConnection> pool;
+    private PoolingDataSource<PoolableConnection> ds;
+
+    @Before
+    public void setUp() {
+        connFactory = new TesterConnectionFactory();
+        PoolableConnectionFactory factory = new PoolableConnectionFactory(connFactory, null);
+        GenericObjectPoolConfig config = new GenericObjectPoolConfig();
+        config.setJmxEnabled(false);
+        pool = new GenericObjectPool<>(factory, config);
+        factory.setPool(pool);
+        ds = new PoolingDataSource<>(pool);
+    }
+
+    @After
+    public void tearDown() {
+        RequestInfo.unbind();
+        pool.close();
+    }
+
+    @Test
+    public void testTimes() throws Exception {
+        connFactory.statementDelay = 50;
+        try (Connection con = ds.getConnection()) {
+            try (Statement st = con.createStatement()) {
+                st.execute("select 1");
+            }
+            Thread.sleep(50);
+            // Nothing is recorded until the connection is returned
+            Assert.assertEquals(0, ds.getHoldTimeMillis());
+            Assert.assertEquals(0, ds.getStatementTimeMillis());
+        }
+        long holdTime = ds.getHoldTimeMillis();
+        long statementTime = ds.getStatementTimeMillis();
+        Assert.assertTrue(holdTime >= 100);
+        Assert.assertTrue(statementTime >= 50);
+        Assert.assertTrue(statementTime <= holdTime);
+        Assert.assertTrue(ds.getBorrowWaitTimeMillis() <= holdTime);
+
+        // Closing again does not count twice
+        Connection con = ds.getConnection();
+        con.close();
+        long holdTimeAfterClose = ds.getHoldTimeMillis();
+        con.close();
+        Assert.assertEquals(holdTimeAfterClose, ds.getHoldTimeMillis());
+        Assert.assertEquals(statementTime, ds.getStatementTimeMillis());
+    }
+
+    @Test
+    public void testStatementTimePerBorrow() throws Exception {
+        connFactory.statementDelay = 50;
+        try (Connection con = ds.getConnection();
+                Statement st = con.createStatement()) {
+            st.execute("select 1");
+        }
+        long statementTime = ds.getStatementTimeMillis();
+        Assert.assertTrue(statementTime >= 50);
+
+        // The pooled connection is reused, only the new statements count
+        connFactory.statementDelay = 0;
+        ds.getConnection().close();
+        Assert.assertEquals(1, pool.getCreatedCount());
+        Assert.assertEquals(statementTime, ds.getStatementTimeMillis());
+    }
+
+    @Test
+    public void testRequestAttribution() throws Exception {
+        RequestInfo info = new Request().getRequestProcessor();
+        info.bind();
+        connFactory.statementDelay = 50;
+        try (Connection con = ds.getConnection();
+                Statement st = con.createStatement()) {
+            st.execute("select 1");
+        }
+        Assert.assertEquals(ds.getHoldTimeMillis(), info.getRequestJdbcHoldTime());
+        Assert.assertEquals(ds.getStatementTimeMillis(), info.getRequestJdbcStatementTime());
+        Assert.assertEquals(ds.getBorrowWaitTimeMillis(), info.getRequestJdbcWaitTime());
+        Assert.assertTrue(info.getRequestJdbcStatementTime() >= 50);
+
+        // Connections returned once the request is unbound are not attributed
+        RequestInfo.unbind();
+        long holdTime = info.getRequestJdbcHoldTime();
+        Connection con = ds.getConnection();
+        Thread.sleep(20);
+        con.close();
+        Assert.assertEquals(holdTime, info.getRequestJdbcHoldTime());
+    }
+}
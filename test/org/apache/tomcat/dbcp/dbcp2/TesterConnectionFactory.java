@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.dbcp.dbcp2;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+
+/**
+ * Creates mock connections that record the calls to
+ * {@link Connection#isValid(int)} and whose state can be changed. The
+ * statements they create take {@link #statementDelay} milliseconds to
+ * execute.
+ */
+public class TesterConnectionFactory implements ConnectionFactory {
+
+    /** Number of isValid() calls */
+    final AtomicInteger validations = new AtomicInteger(0);
+    volatile int lastValidationTimeout = -1;
+    volatile long validationDelay = 0;
+    volatile boolean valid = true;
+    volatile boolean closed = false;
+    volatile long statementDelay = 0;
+
+    @Override
+    public Connection createConnection() throws SQLException {
+        Connection con = EasyMock.createNiceMock(Connection.class);
+        EasyMock.expect(Boolean.valueOf(con.isValid(EasyMock.anyInt()))).andStubAnswer(
+                new IAnswer<Boolean>() {
+                    @Override
+                    public Boolean answer() throws Throwable {
+                        validations.incrementAndGet();
+                        lastValidationTimeout =
+                                ((Integer) EasyMock.getCurrentArguments()[0]).intValue();
+                        if (validationDelay > 0) {
+                            Thread.sleep(validationDelay);
+                        }
+                        return Boolean.valueOf(valid);
+                    }
+                });
+        EasyMock.expect(Boolean.valueOf(con.isClosed())).andStubAnswer(
+                new IAnswer<Boolean>() {
+                    @Override
+                    public Boolean answer() throws Throwable {
+                        return Boolean.valueOf(closed);
+                    }
+                });
+        EasyMock.expect(Boolean.valueOf(con.getAutoCommit())).andStubReturn(Boolean.TRUE);
+        EasyMock.expect(con.createStatement()).andStubAnswer(
+                new IAnswer<Statement>() {
+                    @Override
+                    public Statement answer() throws Throwable {
+                        return createStatement();
+                    }
+                });
+        EasyMock.replay(con);
+        return con;
+    }
+
+    private Statement createStatement() throws SQLException {
+        Statement st = EasyMock.createNiceMock(Statement.class);
+        EasyMock.expect(Boolean.valueOf(st.execute(EasyMock.anyObject(String.class)))).andStubAnswer(
+                new IAnswer<Boolean>() {
+                    @Override
+                    public Boolean answer() throws Throwable {
+                        if (statementDelay > 0) {
+                            Thread.sleep(statementDelay);
+                        }
+                        return Boolean.FALSE;
+                    }
+                });
+        EasyMock.replay(st);
+        return st;
+    }
+}
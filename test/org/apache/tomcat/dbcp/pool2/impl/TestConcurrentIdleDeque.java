@@ -0,0 +1,274 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.dbcp.pool2.impl;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestConcurrentIdleDeque {
+
+    private static final String A = "a";
+    private static final String B = "b";
+    private static final String C = "c";
+
+    @Test
+    public void testFifo() {
+        ConcurrentIdleDeque<String> deque = new ConcurrentIdleDeque<>(false, false);
+        deque.addLast(A);
+        deque.addLast(B);
+        deque.addLast(C);
+        Assert.assertEquals(3, deque.size());
+        Assert.assertEquals(A, deque.peekFirst());
+        Assert.assertEquals(C, deque.peekLast());
+        Assert.assertEquals(A, deque.pollFirst());
+        Assert.assertEquals(B, deque.pollFirst());
+        Assert.assertEquals(C, deque.pollFirst());
+        Assert.assertNull(deque.pollFirst());
+        Assert.assertTrue(deque.isEmpty());
+    }
+
+    @Test
+    public void testLifo() {
+        ConcurrentIdleDeque<String> deque = new ConcurrentIdleDeque<>(false, false);
+        deque.addFirst(A);
+        deque.addFirst(B);
+        deque.addFirst(C);
+        Assert.assertEquals(C, deque.pollFirst());
+        Assert.assertEquals(A, deque.pollLast());
+        Assert.assertEquals(B, deque.removeFirst());
+        Assert.assertEquals(0, deque.size());
+        try {
+            deque.removeFirst();
+            Assert.fail();
+        } catch (NoSuchElementException e) {
+            // Expected
+        }
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testNullElement() {
+        new ConcurrentIdleDeque<String>(false, false).addLast(null);
+    }
+
+    @Test
+    public void testRemoveOccurrence() {
+        ConcurrentIdleDeque<String> deque = new ConcurrentIdleDeque<>(false, false);
+        deque.addLast(A);
+        deque.addLast(B);
+        deque.addLast(C);
+        Assert.assertTrue(deque.remove(B));
+        Assert.assertFalse(deque.remove(B));
+        Assert.assertEquals(2, deque.size());
+        Assert.assertEquals(A, deque.pollFirst());
+        Assert.assertEquals(C, deque.pollFirst());
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        ConcurrentIdleDeque<String> deque = new ConcurrentIdleDeque<>(false, false);
+        deque.addLast(A);
+        deque.addLast(B);
+        deque.addLast(C);
+        Iterator<String> it = deque.iterator();
+        Assert.assertEquals(A, it.next());
+        Assert.assertEquals(B, it.next());
+        it.remove();
+        try {
+            it.remove();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        Assert.assertEquals(C, it.next());
+        Assert.assertFalse(it.hasNext());
+        Assert.assertEquals(2, deque.size());
+
+        it = deque.descendingIterator();
+        Assert.assertEquals(C, it.next());
+        Assert.assertEquals(A, it.next());
+        Assert.assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void testIteratorSkipsClaimed() {
+        ConcurrentIdleDeque<String> deque = new ConcurrentIdleDeque<>(false, false);
+        deque.addLast(A);
+        deque.addLast(B);
+        Iterator<String> it = deque.iterator();
+        // The first element has already been read ahead
+        Assert.assertEquals(A, deque.pollFirst());
+        Assert.assertEquals(B, deque.pollFirst());
+        Assert.assertEquals(A, it.next());
+        it.remove();
+        Assert.assertFalse(it.hasNext());
+        Assert.assertEquals(0, deque.size());
+    }
+
+    @Test
+    public void testThreadAffinity() throws Exception {
+        ConcurrentIdleDeque<String> deque = new ConcurrentIdleDeque<>(false, true);
+        addFromOtherThread(deque, A);
+        deque.addLast(B);
+        // The element this thread added is preferred to the first one
+        Assert.assertEquals(B, deque.pollFirst());
+        Assert.assertEquals(1, deque.size());
+        Assert.assertEquals(A, deque.pollFirst());
+        Assert.assertEquals(0, deque.size());
+    }
+
+    @Test
+    public void testThreadAffinityDisabled() throws Exception {
+        ConcurrentIdleDeque<String> deque = new ConcurrentIdleDeque<>(false, false);
+        addFromOtherThread(deque, A);
+        deque.addLast(B);
+        Assert.assertEquals(A, deque.pollFirst());
+    }
+
+    @Test
+    public void testThreadAffinityElementTaken() throws Exception {
+        ConcurrentIdleDeque<String> deque = new ConcurrentIdleDeque<>(false, true);
+        deque.addLast(A);
+        Assert.assertTrue(deque.remove(A));
+        addFromOtherThread(deque, B);
+        // The element this thread added has been taken, fall back to the deque
+        Assert.assertEquals(B, deque.pollFirst());
+        Assert.assertNull(deque.pollFirst());
+        Assert.assertEquals(0, deque.size());
+    }
+
+    @Test
+    public void testTimedPoll() throws Exception {
+        ConcurrentIdleDeque<String> deque = new ConcurrentIdleDeque<>(false, false);
+        Assert.assertNull(deque.pollFirst(0, TimeUnit.MILLISECONDS));
+        Assert.assertNull(deque.pollFirst(50, TimeUnit.MILLISECONDS));
+        Assert.assertFalse(deque.hasTakeWaiters());
+
+        Taker taker = new Taker(deque, 10000);
+        taker.start();
+        waitForTakeWaiters(deque, 1);
+        deque.addLast(A);
+        taker.join();
+        Assert.assertNull(taker.failure);
+        Assert.assertEquals(A, taker.result);
+        Assert.assertEquals(0, deque.size());
+        Assert.assertEquals(0, deque.getTakeQueueLength());
+    }
+
+    @Test
+    public void testFairHandOff() throws Exception {
+        ConcurrentIdleDeque<String> deque = new ConcurrentIdleDeque<>(true, false);
+        Taker first = new Taker(deque, -1);
+        first.start();
+        waitForTakeWaiters(deque, 1);
+        Taker second = new Taker(deque, 10000);
+        second.start();
+        waitForTakeWaiters(deque, 2);
+
+        // Elements are handed to the threads in the order they started waiting
+        deque.addLast(A);
+        first.join();
+        Assert.assertEquals(A, first.result);
+        deque.addFirst(B);
+        second.join();
+        Assert.assertEquals(B, second.result);
+        Assert.assertNull(first.failure);
+        Assert.assertNull(second.failure);
+        Assert.assertEquals(0, deque.size());
+        Assert.assertFalse(deque.hasTakeWaiters());
+    }
+
+    @Test
+    public void testInterrupt() throws Exception {
+        doTestInterrupt(false);
+    }
+
+    @Test
+    public void testInterruptFair() throws Exception {
+        doTestInterrupt(true);
+    }
+
+    private void doTestInterrupt(boolean fairness) throws Exception {
+        ConcurrentIdleDeque<String> deque = new ConcurrentIdleDeque<>(fairness, false);
+        Taker taker = new Taker(deque, -1);
+        taker.start();
+        waitForTakeWaiters(deque, 1);
+        deque.interuptTakeWaiters();
+        taker.join();
+        Assert.assertTrue(taker.failure instanceof InterruptedException);
+        Assert.assertFalse(deque.hasTakeWaiters());
+
+        // The deque is still usable
+        deque.addLast(A);
+        Assert.assertEquals(1, deque.size());
+        Assert.assertEquals(A, deque.takeFirst());
+    }
+
+    private static void addFromOtherThread(final ConcurrentIdleDeque<String> deque,
+            final String e) throws InterruptedException {
+        Thread t = new Thread() {
+            @Override
+            public void run() {
+                deque.addLast(e);
+            }
+        };
+        t.start();
+        t.join();
+    }
+
+    private static void waitForTakeWaiters(ConcurrentIdleDeque<String> deque,
+            int count) throws InterruptedException {
+        int i = 0;
+        while (deque.getTakeQueueLength() < count && i++ < 500) {
+            Thread.sleep(20);
+        }
+        Assert.assertEquals(count, deque.getTakeQueueLength());
+    }
+
+    /*
+     * Takes one element, waiting without a time-out if the time-out is
+     * negative.
+     */
+    private static class Taker extends Thread {
+
+        private final ConcurrentIdleDeque<String> deque;
+        private final long timeout;
+        volatile String result;
+        volatile Exception failure;
+
+        Taker(ConcurrentIdleDeque<String> deque, long timeout) {
+            this.deque = deque;
+            this.timeout = timeout;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (timeout < 0) {
+                    result = deque.takeFirst();
+                } else {
+                    result = deque.pollFirst(timeout, TimeUnit.MILLISECONDS);
+                }
+            } catch (Exception e) {
+                failure = e;
+            }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.dbcp.pool2.impl;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.tomcat.dbcp.pool2.BaseKeyedPooledObjectFactory;
+import org.apache.tomcat.dbcp.pool2.PooledObject;
+
+public class TestGenericKeyedObjectPool {
+
+    private static final String[] KEYS = { "a", "b" };
+
+    private ValidatingFactory factory;
+    private GenericKeyedObjectPool<String,Object> pool;
+
+    @Before
+    public void setUp() {
+        factory = new ValidatingFactory();
+        GenericKeyedObjectPoolConfig config = new GenericKeyedObjectPoolConfig();
+        config.setJmxEnabled(false);
+        config.setTestWhileIdle(true);
+        config.setMinEvictableIdleTimeMillis(-1);
+        pool = new GenericKeyedObjectPool<>(factory, config);
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    public void testNumTestsLimitedByIdle() throws Exception {
+        addIdle(3);
+        pool.setNumTestsPerEvictionRun(100);
+        pool.evict();
+        // Each idle object is tested once
+        Assert.assertEquals(6, factory.validated.size());
+        Assert.assertEquals(6, factory.distinctValidated().size());
+        Assert.assertEquals(6, pool.getNumIdle());
+    }
+
+    @Test
+    public void testNumTestsPerEvictionRun() throws Exception {
+        addIdle(3);
+        pool.setNumTestsPerEvictionRun(4);
+        pool.evict();
+        Assert.assertEquals(4, factory.validated.size());
+        // The next run continues with the objects not tested yet
+        pool.setNumTestsPerEvictionRun(2);
+        pool.evict();
+        Assert.assertEquals(6, factory.distinctValidated().size());
+    }
+
+    @Test
+    public void testNoIdleObjects() throws Exception {
+        pool.setNumTestsPerEvictionRun(100);
+        pool.evict();
+        Assert.assertEquals(0, factory.validated.size());
+
+        // Keys without idle objects, the run ends after one pass over the
+        // keys
+        List<Object> borrowed = new ArrayList<>();
+        for (String key : KEYS) {
+            borrowed.add(pool.borrowObject(key));
+        }
+        Assert.assertEquals(0, pool.getNumIdle());
+        pool.setNumTestsPerEvictionRun(Integer.MAX_VALUE);
+        pool.evict();
+        Assert.assertEquals(0, factory.validated.size());
+        for (int i = 0; i < KEYS.length; i++) {
+            pool.returnObject(KEYS[i], borrowed.get(i));
+        }
+        // The next run tests the returned objects once each
+        pool.evict();
+        Assert.assertEquals(KEYS.length, factory.validated.size());
+        Assert.assertEquals(KEYS.length, factory.distinctValidated().size());
+    }
+
+    @Test
+    public void testEvictionTimeSlice() throws Exception {
+        addIdle(5);
+        pool.setNumTestsPerEvictionRun(100);
+        pool.setEvictionTimeSliceMillis(100);
+        factory.validateDelay = 50;
+        pool.evict();
+        // The run stopped before all 10 objects, which take 500ms, were tested
+        int tested = factory.validated.size();
+        Assert.assertTrue(tested > 0);
+        Assert.assertTrue(tested < 10);
+
+        // Later runs continue from where the previous run stopped
+        int runs = 1;
+        while (factory.validated.size() < 10 && runs++ < 20) {
+            pool.evict();
+        }
+        Assert.assertEquals(10, factory.validated.size());
+        Assert.assertEquals(10, factory.distinctValidated().size());
+        Assert.assertTrue(runs > 1);
+    }
+
+    @Test
+    public void testEvictionTimeSliceDisabled() throws Exception {
+        addIdle(5);
+        pool.setNumTestsPerEvictionRun(100);
+        Assert.assertEquals(-1, pool.getEvictionTimeSliceMillis());
+        factory.validateDelay = 20;
+        pool.evict();
+        Assert.assertEquals(10, factory.validated.size());
+    }
+
+    @Test
+    public void testEvictionRunStats() throws Exception {
+        Assert.assertEquals(0, pool.getEvictionRunCount());
+        Assert.assertEquals(0, pool.getMaxEvictionRunTimeMicros());
+        addIdle(1);
+        pool.setNumTestsPerEvictionRun(100);
+        factory.validateDelay = 10;
+        pool.setTimeBetweenEvictionRunsMillis(50);
+        int i = 0;
+        while (pool.getEvictionRunCount() < 2 && i++ < 200) {
+            Thread.sleep(50);
+        }
+        pool.setTimeBetweenEvictionRunsMillis(-1);
+        Assert.assertTrue(pool.getEvictionRunCount() >= 2);
+        // Each run validates two objects
+        Assert.assertTrue(pool.getMaxEvictionRunTimeMicros() >= 2 * 10 * 1000);
+        Assert.assertTrue(pool.getMeanEvictionRunTimeMicros() > 0);
+        Assert.assertTrue(pool.getMeanEvictionRunTimeMicros() <=
+                pool.getMaxEvictionRunTimeMicros());
+    }
+
+    private void addIdle(int count) throws Exception {
+        for (String key : KEYS) {
+            for (int i = 0; i < count; i++) {
+                pool.addObject(key);
+            }
+        }
+        Assert.assertEquals(count * KEYS.length, pool.getNumIdle());
+    }
+
+    private static class ValidatingFactory
+            extends BaseKeyedPooledObjectFactory<String,Object> {
+
+        final List<Object> validated = new ArrayList<>();
+        volatile long validateDelay = 0;
+
+        @Override
+        public Object create(String key) {
+            return new Object();
+        }
+
+        @Override
+        public PooledObject<Object> wrap(Object value) {
+            return new DefaultPooledObject<>(value);
+        }
+
+        @Override
+        public boolean validateObject(String key, PooledObject<Object> p) {
+            synchronized (validated) {
+                validated.add(p.getObject());
+            }
+            if (validateDelay > 0) {
+                try {
+                    Thread.sleep(validateDelay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return true;
+        }
+
+        Set<Object> distinctValidated() {
+            synchronized (validated) {
+                return new HashSet<>(validated);
+            }
+        }
+    }
+}
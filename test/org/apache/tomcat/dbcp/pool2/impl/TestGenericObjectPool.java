@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.dbcp.pool2.impl;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.tomcat.dbcp.pool2.BasePooledObjectFactory;
+import org.apache.tomcat.dbcp.pool2.PooledObject;
+
+public class TestGenericObjectPool {
+
+    private ValidatingFactory factory;
+    private GenericObjectPool<Object> pool;
+
+    @Before
+    public void setUp() {
+        factory = new ValidatingFactory();
+        GenericObjectPoolConfig config = new GenericObjectPoolConfig();
+        config.setJmxEnabled(false);
+        pool = new GenericObjectPool<>(factory, config);
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    public void testValidateIdleObjects() throws Exception {
+        for (int i = 0; i < 6; i++) {
+            pool.addObject();
+        }
+        pool.setMaxConcurrentCreates(2);
+        factory.validateDelay = 50;
+        factory.valid = false;
+        pool.validateIdleObjects();
+
+        int i = 0;
+        while (pool.getNumIdle() > 0 && i++ < 200) {
+            Thread.sleep(50);
+        }
+        Assert.assertEquals(0, pool.getNumIdle());
+        Assert.assertEquals(6, factory.validations.get());
+        // At most maxConcurrentCreates objects are validated at a time
+        Assert.assertTrue(factory.maxValidating.get() <= 2);
+        Assert.assertEquals(6, pool.getDestroyedCount());
+    }
+
+    @Test
+    public void testValidateIdleObjectsValid() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            pool.addObject();
+        }
+        pool.validateIdleObjects();
+        int i = 0;
+        while (factory.validations.get() < 3 && i++ < 200) {
+            Thread.sleep(50);
+        }
+        Assert.assertEquals(3, factory.validations.get());
+        Assert.assertEquals(3, pool.getNumIdle());
+        Assert.assertEquals(0, pool.getDestroyedCount());
+    }
+
+    private static class ValidatingFactory extends BasePooledObjectFactory<Object> {
+
+        final AtomicInteger validations = new AtomicInteger(0);
+        final AtomicInteger validating = new AtomicInteger(0);
+        final AtomicInteger maxValidating = new AtomicInteger(0);
+        volatile long validateDelay = 0;
+        volatile boolean valid = true;
+
+        @Override
+        public Object create() {
+            return new Object();
+        }
+
+        @Override
+        public PooledObject<Object> wrap(Object value) {
+            return new DefaultPooledObject<>(value);
+        }
+
+        @Override
+        public boolean validateObject(PooledObject<Object> p) {
+            int current = validating.incrementAndGet();
+            try {
+                int max = maxValidating.get();
+                while (current > max && !maxValidating.compareAndSet(max, current)) {
+                    max = maxValidating.get();
+                }
+                if (validateDelay > 0) {
+                    try {
+                        Thread.sleep(validateDelay);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return valid;
+            } finally {
+                validating.decrementAndGet();
+                validations.incrementAndGet();
+            }
+        }
+    }
+}
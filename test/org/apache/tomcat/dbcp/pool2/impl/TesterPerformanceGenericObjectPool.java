@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.dbcp.pool2.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.tomcat.dbcp.pool2.BaseKeyedPooledObjectFactory;
+import org.apache.tomcat.dbcp.pool2.BasePooledObjectFactory;
+import org.apache.tomcat.dbcp.pool2.KeyedObjectPool;
+import org.apache.tomcat.dbcp.pool2.ObjectPool;
+import org.apache.tomcat.dbcp.pool2.PooledObject;
+
+/*
+ * Measures the throughput of borrowing and returning objects, with as many
+ * objects as threads and with half as many objects as threads so that the
+ * threads also wait for objects.
+ */
+public class TesterPerformanceGenericObjectPool {
+
+    private static final int THREAD_COUNT = 8;
+    private static final int ITERATIONS = 500000;
+    private static final int KEY_COUNT = 4;
+
+    @Test
+    public void testLinkedBlockingDeque() throws Exception {
+        doTestObjectPool("LinkedBlockingDeque", false, false, false);
+    }
+
+    @Test
+    public void testLinkedBlockingDequeFair() throws Exception {
+        doTestObjectPool("LinkedBlockingDeque with fairness", false, false, true);
+    }
+
+    @Test
+    public void testConcurrentIdleDeque() throws Exception {
+        doTestObjectPool("ConcurrentIdleDeque", true, false, false);
+    }
+
+    @Test
+    public void testConcurrentIdleDequeThreadAffinity() throws Exception {
+        doTestObjectPool("ConcurrentIdleDeque with thread affinity",
+                true, true, false);
+    }
+
+    @Test
+    public void testConcurrentIdleDequeFair() throws Exception {
+        doTestObjectPool("ConcurrentIdleDeque with fairness",
+                true, false, true);
+    }
+
+    @Test
+    public void testKeyedObjectPool() throws Exception {
+        GenericKeyedObjectPoolConfig config = new GenericKeyedObjectPoolConfig();
+        config.setJmxEnabled(false);
+        config.setMaxTotalPerKey(THREAD_COUNT / KEY_COUNT);
+        final GenericKeyedObjectPool<Integer,Object> pool =
+                new GenericKeyedObjectPool<>(new KeyedObjectFactory(), config);
+
+        WorkerThread[] threads = new WorkerThread[THREAD_COUNT];
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            threads[i] = new KeyedPoolThread(pool, Integer.valueOf(i % KEY_COUNT));
+        }
+        long time = run(threads);
+        System.out.println("GenericKeyedObjectPool: " + time + "ms");
+
+        Assert.assertEquals(0, pool.getNumActive());
+        pool.close();
+    }
+
+    private void doTestObjectPool(String name, boolean lockFree,
+            boolean threadAffinity, boolean fairness) throws Exception {
+        doTestObjectPool(name, lockFree, threadAffinity, fairness, THREAD_COUNT);
+        doTestObjectPool(name, lockFree, threadAffinity, fairness, THREAD_COUNT / 2);
+    }
+
+    private void doTestObjectPool(String name, boolean lockFree,
+            boolean threadAffinity, boolean fairness, int maxTotal)
+            throws Exception {
+        GenericObjectPoolConfig config = new GenericObjectPoolConfig();
+        config.setJmxEnabled(false);
+        config.setMaxTotal(maxTotal);
+        config.setMaxIdle(maxTotal);
+        config.setLockFreeIdleObjects(lockFree);
+        config.setThreadAffinity(threadAffinity);
+        config.setFairness(fairness);
+        GenericObjectPool<Object> pool =
+                new GenericObjectPool<>(new ObjectFactory(), config);
+
+        WorkerThread[] threads = new WorkerThread[THREAD_COUNT];
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            threads[i] = new PoolThread(pool);
+        }
+        long time = run(threads);
+        System.out.println(name + ", maxTotal " + maxTotal + ": " + time + "ms");
+
+        Assert.assertEquals(0, pool.getNumActive());
+        Assert.assertEquals(0, pool.getNumWaiters());
+        Assert.assertTrue(pool.getNumIdle() <= maxTotal);
+        Assert.assertEquals(pool.getCreatedCount(), pool.getNumIdle());
+        pool.close();
+    }
+
+    private static long run(WorkerThread[] threads) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long time = System.currentTimeMillis() - start;
+        int failures = 0;
+        Throwable failure = null;
+        for (WorkerThread thread : threads) {
+            if (thread.failure != null) {
+                failures++;
+                failure = thread.failure;
+            }
+        }
+        if (failure != null) {
+            throw new AssertionError(failures + " of " + threads.length +
+                    " threads failed", failure);
+        }
+        return time;
+    }
+
+    private abstract static class WorkerThread extends Thread {
+
+        volatile Throwable failure;
+
+        @Override
+        public void run() {
+            try {
+                work();
+            } catch (Throwable t) {
+                failure = t;
+            }
+        }
+
+        protected abstract void work() throws Exception;
+    }
+
+    private static class PoolThread extends WorkerThread {
+
+        private final ObjectPool<Object> pool;
+
+        PoolThread(ObjectPool<Object> pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        protected void work() throws Exception {
+            for (int i = 0; i < ITERATIONS; i++) {
+                Object obj = pool.borrowObject();
+                pool.returnObject(obj);
+            }
+        }
+    }
+
+    private static class KeyedPoolThread extends WorkerThread {
+
+        private final KeyedObjectPool<Integer,Object> pool;
+        private final Integer key;
+
+        KeyedPoolThread(KeyedObjectPool<Integer,Object> pool, Integer key) {
+            this.pool = pool;
+            this.key = key;
+        }
+
+        @Override
+        protected void work() throws Exception {
+            for (int i = 0; i < ITERATIONS; i++) {
+                Object obj = pool.borrowObject(key);
+                pool.returnObject(key, obj);
+            }
+        }
+    }
+
+    private static class ObjectFactory extends BasePooledObjectFactory<Object> {
+
+        @Override
+        public Object create() {
+            return new Object();
+        }
+
+        @Override
+        public PooledObject<Object> wrap(Object obj) {
+            return new DefaultPooledObject<>(obj);
+        }
+    }
+
+    private static class KeyedObjectFactory
+            extends BaseKeyedPooledObjectFactory<Integer,Object> {
+
+        @Override
+        public Object create(Integer key) {
+            return new Object();
+        }
+
+        @Override
+        public PooledObject<Object> wrap(Object obj) {
+            return new DefaultPooledObject<>(obj);
+        }
+    }
+}
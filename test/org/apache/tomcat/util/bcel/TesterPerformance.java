@@ -20,9 +20,14 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -37,19 +42,7 @@ public class TesterPerformance {
 
     @Test
     public void testClassParserPerformance() throws IOException {
-        File libDir = new File(JAR_LOCATION);
-        String[] libs = libDir.list();
-
-        Assert.assertNotNull(libs);
-
-        Set<URL> jarURLs = new HashSet<>();
-
-        for (String lib : libs) {
-            if (!lib.toLowerCase(Locale.ENGLISH).endsWith(".jar")) {
-                continue;
-            }
-            jarURLs.add(new URL("jar:" + new File (libDir, lib).toURI().toURL().toExternalForm() + "!/"));
-        }
+        Set<URL> jarURLs = getJarURLs();
 
         long duration = 0;
 
@@ -73,4 +66,88 @@ public class TesterPerformance {
 
         System.out.println("ClassParser performance test took: " + duration + " ns");
     }
+
+
+    /*
+     * Measures the wall clock time to parse every class in every JAR with
+     * one task per JAR, as the annotation scan at context start does when
+     * the JarScanner's scanThreadCount is greater than one.
+     */
+    @Test
+    public void testClassParserParallelPerformance() throws Exception {
+        Set<URL> jarURLs = getJarURLs();
+
+        int[] threadCounts = new int[] { 1, 2, 4, Runtime.getRuntime().availableProcessors() };
+        // Warm up
+        parseJars(jarURLs, threadCounts[threadCounts.length - 1]);
+
+        for (int threadCount : threadCounts) {
+            long start = System.nanoTime();
+            parseJars(jarURLs, threadCount);
+            long duration = System.nanoTime() - start;
+            System.out.println("ClassParser parallel performance test with " + threadCount +
+                    " threads took: " + (duration / 1000000) + " ms");
+        }
+    }
+
+
+    private static void parseJars(Set<URL> jarURLs, int threadCount) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (final URL jarURL : jarURLs) {
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            parseJar(jarURL);
+                        } catch (IOException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                }, (Void) null));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+
+    private static void parseJar(URL jarURL) throws IOException {
+        try (Jar jar = JarFactory.newInstance(jarURL)) {
+            jar.nextEntry();
+            String jarEntryName = jar.getEntryName();
+            while (jarEntryName != null) {
+                if (jarEntryName.endsWith(".class")) {
+                    try (InputStream is = jar.getEntryInputStream()) {
+                        ClassParser cp = new ClassParser(is);
+                        cp.parse();
+                    }
+                }
+                jar.nextEntry();
+                jarEntryName = jar.getEntryName();
+            }
+        }
+    }
+
+
+    private static Set<URL> getJarURLs() throws IOException {
+        File libDir = new File(JAR_LOCATION);
+        String[] libs = libDir.list();
+
+        Assert.assertNotNull(libs);
+
+        Set<URL> jarURLs = new HashSet<>();
+
+        for (String lib : libs) {
+            if (!lib.toLowerCase(Locale.ENGLISH).endsWith(".jar")) {
+                continue;
+            }
+            jarURLs.add(new URL("jar:" + new File (libDir, lib).toURI().toURL().toExternalForm() + "!/"));
+        }
+        return jarURLs;
+    }
 }
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.scan;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.catalina.startup.LoggingBaseTest;
+
+public class TestJarScanCache extends LoggingBaseTest {
+
+    @Test
+    public void testSaveAndLoad() throws Exception {
+        File dir = new File(getTemporaryDirectory(), "jar-scan-cache");
+        Assert.assertTrue(dir.mkdirs());
+        addDeleteOnTearDown(dir);
+        File cacheFile = new File(dir, "test.cache");
+        File jarA = createFile(dir, "a.jar", 10);
+        File jarB = createFile(dir, "b.jar", 20);
+        URL urlA = new URL("jar:" + jarA.toURI().toURL() + "!/");
+        URL urlB = jarB.toURI().toURL();
+
+        JarScanCache cache = new JarScanCache(cacheFile);
+        Assert.assertNull(cache.get(urlA));
+        List<String[]> records = new ArrayList<>();
+        records.add(new String[] { "META-INF/a.tld" });
+        records.add(new String[] { "x", null, "" });
+        cache.put(urlA, records);
+        cache.put(urlB, new ArrayList<String[]>());
+        cache.save();
+        Assert.assertTrue(cacheFile.isFile());
+
+        cache = new JarScanCache(cacheFile);
+        List<String[]> loaded = cache.get(urlA);
+        Assert.assertNotNull(loaded);
+        Assert.assertEquals(2, loaded.size());
+        Assert.assertArrayEquals(records.get(0), loaded.get(0));
+        Assert.assertArrayEquals(records.get(1), loaded.get(1));
+        Assert.assertEquals(0, cache.get(urlB).size());
+
+        // Only the JARs used since the cache was loaded are kept
+        Assert.assertTrue(jarB.delete());
+        createFile(dir, "b.jar", 30);
+        Assert.assertNull(cache.get(urlB));
+        cache.save();
+
+        cache = new JarScanCache(cacheFile);
+        Assert.assertNotNull(cache.get(urlA));
+        Assert.assertNull(cache.get(urlB));
+    }
+
+    @Test
+    public void testNotCacheable() throws Exception {
+        File dir = new File(getTemporaryDirectory(), "jar-scan-cache");
+        Assert.assertTrue(dir.mkdirs());
+        addDeleteOnTearDown(dir);
+        File jar = createFile(dir, "a.jar", 10);
+
+        JarScanCache cache = new JarScanCache(new File(dir, "test.cache"));
+        List<String[]> records = new ArrayList<>();
+        URL[] urls = new URL[] {
+                // Directory
+                dir.toURI().toURL(),
+                // Nested JAR
+                new URL("jar:" + jar.toURI().toURL() + "!/WEB-INF/lib/b.jar!/"),
+                // Does not exist
+                new URL("jar:" + new File(dir, "c.jar").toURI().toURL() + "!/") };
+        for (URL url : urls) {
+            cache.put(url, records);
+            Assert.assertNull(url.toString(), cache.get(url));
+        }
+    }
+
+    private static File createFile(File dir, String name, int size) throws IOException {
+        File file = new File(dir, name);
+        try (OutputStream os = new FileOutputStream(file)) {
+            os.write(new byte[size]);
+        }
+        return file;
+    }
+}
@@ -23,6 +23,7 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.junit.Assert;
@@ -30,6 +31,7 @@ import org.junit.Test;
 
 import org.apache.tomcat.JarScanType;
 import org.apache.tomcat.JarScannerCallback;
+import org.apache.tomcat.ParallelJarScannerCallback;
 import org.apache.tomcat.unittest.TesterServletContext;
 
 public class TestStandardJarScanner {
@@ -94,6 +96,36 @@ public class TestStandardJarScanner {
     }
 
 
+    @Test
+    public void testParallelScanOrder() throws Exception {
+        final List<URL> urls = new ArrayList<>();
+        urls.add(new File("test/webapp/WEB-INF/lib/test-lib.jar").toURI().toURL());
+        for (String dir : new String[] { "test/webapp", "test/webapp-3.0",
+                "test/webapp-fragments", "test/org", "java/org", "res",
+                "conf" }) {
+            urls.add(new File(dir).toURI().toURL());
+        }
+        TesterServletContext context = new TesterServletContext() {
+            @Override
+            public ClassLoader getClassLoader() {
+                return new URLClassLoader(urls.toArray(new URL[0]), null);
+            }
+        };
+
+        StandardJarScanner scanner = new StandardJarScanner();
+        ParallelLoggingCallback sequential = new ParallelLoggingCallback();
+        scanner.scan(JarScanType.PLUGGABILITY, context, sequential);
+        Assert.assertEquals(urls.size(), sequential.getCallbacks().size());
+        Assert.assertEquals(0, sequential.partials.size());
+
+        scanner.setScanThreadCount(4);
+        ParallelLoggingCallback parallel = new ParallelLoggingCallback();
+        scanner.scan(JarScanType.PLUGGABILITY, context, parallel);
+        Assert.assertEquals(sequential.getCallbacks(), parallel.getCallbacks());
+        Assert.assertEquals(urls.size(), parallel.partials.size());
+    }
+
+
     private static class LoggingCallback implements JarScannerCallback {
 
         List<String> callbacks = new ArrayList<>();
@@ -119,4 +151,38 @@ public class TestStandardJarScanner {
             return callbacks;
         }
     }
+
+
+    private static class ParallelLoggingCallback extends LoggingCallback
+            implements ParallelJarScannerCallback {
+
+        List<LoggingCallback> partials =
+                Collections.synchronizedList(new ArrayList<LoggingCallback>());
+
+        @Override
+        public JarScannerCallback createPartialCallback() {
+            // Let the JARs found first take longest so that the partial
+            // callbacks complete out of order
+            final int delay = 40 - 5 * partials.size();
+            LoggingCallback partial = new LoggingCallback() {
+                @Override
+                public void scan(File file, String webappPath, boolean isWebapp)
+                        throws IOException {
+                    try {
+                        Thread.sleep(Math.max(0, delay));
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                    super.scan(file, webappPath, isWebapp);
+                }
+            };
+            partials.add(partial);
+            return partial;
+        }
+
+        @Override
+        public void merge(JarScannerCallback partial) {
+            callbacks.addAll(((LoggingCallback) partial).getCallbacks());
+        }
+    }
 }
@@ -0,0 +1,29 @@
+<%--
+  Licensed to the Apache Software Foundation (ASF) under one or more
+  contributor license agreements.  See the NOTICE file distributed with
+  this work for additional information regarding copyright ownership.
+  The ASF licenses this file to You under the Apache License, Version 2.0
+  (the "License"); you may not use this file except in compliance with
+  the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+--%>
+<%@ page contentType="text/html;charset=UTF-8" pageEncoding="UTF-8" buffer="1kb" %>
+<html>
+<head><title>Pré-encoded template text</title></head>
+<body>
+<% for (int i = 0; i < 100; i++) { %>
+<p>Row <%= i %>: café € 😀 - template text that fills the page buffer</p>
+<% } %>
+<jsp:element name="p">
+<jsp:attribute name="title">Attribute café € 😀</jsp:attribute>
+<jsp:body>Body café € 😀</jsp:body>
+</jsp:element>
+</body>
+</html>
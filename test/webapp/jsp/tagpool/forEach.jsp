@@ -0,0 +1,34 @@
+<%--
+  Licensed to the Apache Software Foundation (ASF) under one or more
+  contributor license agreements.  See the NOTICE file distributed with
+  this work for additional information regarding copyright ownership.
+  The ASF licenses this file to You under the Apache License, Version 2.0
+  (the "License"); you may not use this file except in compliance with
+  the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+--%>
+<%@ taglib uri="http://java.sun.com/jsp/jstl/core" prefix="c" %>
+<%-- Tag heavy page used to measure tag handler pool throughput --%>
+<c:set var="rows" value="${empty param.rows ? 100 : param.rows}" />
+<html>
+  <head><title>Tag pool</title></head>
+  <body>
+    <table>
+      <c:forEach var="i" begin="1" end="${rows}">
+        <tr>
+          <c:forEach var="j" begin="1" end="5">
+            <td><c:if test="${(i + j) % 2 == 0}"><c:out value="${i * j}" /></c:if><c:if test="${(i + j) % 2 != 0}"><c:out value="-" /></c:if></td>
+          </c:forEach>
+        </tr>
+      </c:forEach>
+    </table>
+    <p>ROWS:<c:out value="${rows}" /></p>
+  </body>
+</html>